@@ -0,0 +1,208 @@
+package org.ngafid.airsync;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.ngafid.core.Config;
+
+/**
+ * Downloads AirSync log files concurrently. Each download runs on its own virtual thread, at most
+ * {@link Config#AIRSYNC_DOWNLOAD_CONCURRENCY} at a time for each downloader (one is used per fleet update), and the
+ * log file is streamed straight to a temporary file rather than buffered in memory, so it can then be streamed into
+ * the upload's zip file.
+ * <p>
+ * Failed requests are retried with exponential backoff; a 401 response refreshes the bearer token first, unless
+ * another request has already replaced the token it was sent with.
+ */
+public final class AirSyncDownloader implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(AirSyncDownloader.class.getName());
+    private static final Gson GSON = new Gson();
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final HttpClient client;
+    private final String singleLogEndpoint;
+    private final Supplier<String> bearer;
+    private final Consumer<String> refreshAuth;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param client            the HTTP client to send requests with
+     * @param singleLogEndpoint the format of the URL of a log, with the log id as its only argument
+     * @param bearer            supplies the value of the Authorization header
+     * @param refreshAuth       refreshes the bearer token after a 401 response, given the rejected Authorization
+     *                          header, if it has not been refreshed since
+     * @param concurrency       the maximum number of downloads at a time
+     * @param maxAttempts       the number of times a request is tried before giving up
+     * @param initialBackoff    how long to wait before the first retry; doubled for each following retry
+     */
+    public AirSyncDownloader(
+            HttpClient client,
+            String singleLogEndpoint,
+            Supplier<String> bearer,
+            Consumer<String> refreshAuth,
+            int concurrency,
+            int maxAttempts,
+            Duration initialBackoff) {
+        this.client = client;
+        this.singleLogEndpoint = singleLogEndpoint;
+        this.bearer = bearer;
+        this.refreshAuth = refreshAuth;
+        this.permits = new Semaphore(Math.max(1, concurrency));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+    }
+
+    /**
+     * Creates a downloader for the logs of a fleet, using the AirSync endpoints and the fleet's credentials.
+     *
+     * @param fleet the fleet being updated
+     * @return the downloader
+     */
+    public static AirSyncDownloader forFleet(AirSyncFleet fleet) {
+        return new AirSyncDownloader(
+                HTTP_CLIENT,
+                AirSyncEndpoints.SINGLE_LOG,
+                () -> fleet.getAuth().getBearerString(),
+                fleet::refreshAuth,
+                Config.AIRSYNC_DOWNLOAD_CONCURRENCY,
+                Config.AIRSYNC_DOWNLOAD_MAX_ATTEMPTS,
+                INITIAL_BACKOFF);
+    }
+
+    /**
+     * Starts downloading a log: its file URL is looked up, and the file is written to a temporary file. The caller is
+     * responsible for deleting the file.
+     *
+     * @param logId the AirSync id of the log
+     * @return a future completed with the downloaded file, or exceptionally with an {@link IOException}
+     */
+    public CompletableFuture<Path> download(int logId) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+                try {
+                    future.complete(downloadNow(logId));
+                } finally {
+                    permits.release();
+                }
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private Path downloadNow(int logId) throws IOException, InterruptedException {
+        HttpResponse<String> logResponse = send(
+                () -> HttpRequest.newBuilder(URI.create(String.format(singleLogEndpoint, logId)))
+                        .header("Authorization", bearer.get()),
+                HttpResponse.BodyHandlers.ofString());
+
+        LogResponse log = GSON.fromJson(logResponse.body(), LogResponse.class);
+        if (log == null || log.fileUrl == null) {
+            throw new IOException("AirSync log " + logId + " has no file url");
+        }
+        LOG.info("Got URL for logfile " + log.fileUrl);
+
+        Path file = Files.createTempFile("airsync-" + logId + "-", ".csv");
+        try {
+            send(
+                    () -> HttpRequest.newBuilder(URI.create(log.fileUrl)),
+                    HttpResponse.BodyHandlers.ofFile(
+                            file,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING));
+            return file;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Sends a GET request, retrying with exponential backoff after I/O errors and 429 or 5xx responses.
+     */
+    private <T> HttpResponse<T> send(Supplier<HttpRequest.Builder> request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        Duration backoff = initialBackoff;
+        boolean refreshedAuth = false;
+
+        for (int attempt = 1; ; attempt++) {
+            HttpRequest sent = request.get().timeout(REQUEST_TIMEOUT).GET().build();
+            HttpResponse<T> response = null;
+            IOException failure = null;
+            try {
+                response = client.send(sent, handler);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            if (response != null) {
+                int status = response.statusCode();
+                if (status >= 200 && status < 300) return response;
+
+                Optional<String> sentBearer = sent.headers().firstValue("Authorization");
+                if (status == 401 && !refreshedAuth && sentBearer.isPresent()) {
+                    LOG.info("AirSync request got HTTP 401; refreshing bearer token and retrying");
+                    refreshAuth.accept(sentBearer.get());
+                    refreshedAuth = true;
+                    attempt--;
+                    continue;
+                }
+
+                failure = new IOException("HTTP " + status + " from " + response.uri());
+                if (status != 429 && status < 500) throw failure;
+            }
+
+            if (attempt >= maxAttempts) throw failure;
+
+            LOG.warning("AirSync request failed (attempt " + attempt + " of " + maxAttempts + "), retrying in "
+                    + backoff.toMillis() + " ms: " + failure.getMessage());
+            Thread.sleep(backoff.toMillis());
+            backoff = backoff.multipliedBy(2);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The response we get from the AirSync servers for a single log.
+     */
+    private static final class LogResponse {
+        @SerializedName("file_url")
+        private String fileUrl;
+    }
+}
@@ -3,19 +3,22 @@ package org.ngafid.airsync;
 import static org.ngafid.airsync.Utility.OBJECT_MAPPER;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 import javax.net.ssl.HttpsURLConnection;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.ngafid.core.Config;
 import org.ngafid.core.Database;
 import org.ngafid.core.accounts.Fleet;
 import org.ngafid.core.accounts.User;
@@ -29,7 +32,7 @@ public class AirSyncFleet extends Fleet {
     private static final int DEFAULT_TIMEOUT = 1440;
     private static final Logger LOG = Logger.getLogger(AirSyncFleet.class.getName());
     private static AirSyncFleet[] fleets = null;
-    private AirSyncAuth authCreds;
+    private volatile AirSyncAuth authCreds;
     private final String airsyncFleetName;
     private List<AirSyncAircraft> aircraft;
     private transient LocalDateTime lastQueryTime;
@@ -360,14 +363,25 @@ public class AirSyncFleet extends Fleet {
      * @return an unexpired {@link AirSyncAuth} instance
      */
     public AirSyncAuth getAuth() {
-        if (this.authCreds.isOutdated()) {
-            refreshAuth();
+        AirSyncAuth auth = this.authCreds;
+        if (auth.isOutdated()) {
+            refreshAuth(auth.getBearerString());
+            auth = this.authCreds;
         }
 
-        return this.authCreds;
+        return auth;
     }
 
-    public void refreshAuth() {
+    /**
+     * Requests a new bearer token after the current one was rejected or has expired. Downloads run concurrently, so
+     * several requests can be rejected with the same token: only the first of them requests a new one, and the others
+     * find the token already changed and retry with it.
+     *
+     * @param rejectedBearer the Authorization header that was rejected, from {@link AirSyncAuth#getBearerString}
+     */
+    public synchronized void refreshAuth(String rejectedBearer) {
+        if (!this.authCreds.getBearerString().equals(rejectedBearer)) return;
+
         LOG.info("Refreshing AirSync bearer token");
         AirSyncAuth.Companion.refreshInstance();
         this.authCreds = AirSyncAuth.Companion.getInstance();
@@ -384,7 +398,7 @@ public class AirSyncFleet extends Fleet {
 
             connection.setRequestMethod("GET");
             connection.setDoOutput(true);
-            connection.setRequestProperty("Authorization", this.authCreds.getBearerString());
+            connection.setRequestProperty("Authorization", getAuth().getBearerString());
 
             for (Map.Entry<String, List<String>> e :
                     connection.getRequestProperties().entrySet()) {
@@ -517,19 +531,17 @@ public class AirSyncFleet extends Fleet {
             return zipFile;
         }
 
-        void addFileToUpload(Connection connection, AirSyncImport imp, byte[] data) throws IOException, SQLException {
+        void addFileToUpload(Connection connection, AirSyncImport imp, Path file) throws IOException, SQLException {
             var uploadResult = getUpload(connection);
             imp.setUploadId(uploadResult.id);
             getZipFile();
 
-            try (InputStream bis = new ByteArrayInputStream(data)) {
-                var entry = new ZipArchiveEntry(imp.getFilename());
-                LOG.info("Filename: " + imp.getFilename());
-                entry.setSize(data.length);
-                zipFile.putArchiveEntry(entry);
-                zipFile.write(data);
-                zipFile.closeArchiveEntry();
-            }
+            var entry = new ZipArchiveEntry(imp.getFilename());
+            LOG.info("Filename: " + imp.getFilename());
+            entry.setSize(Files.size(file));
+            zipFile.putArchiveEntry(entry);
+            Files.copy(file, zipFile);
+            zipFile.closeArchiveEntry();
 
             filesAdded += 1;
 
@@ -553,24 +565,22 @@ public class AirSyncFleet extends Fleet {
         }
 
         void run() throws IOException, SQLException {
+            List<AirSyncImport> imports = new ArrayList<>();
             for (var ac : aircraft) {
-                updateAircraft(ac);
+                imports.addAll(getImportsForUpdate(ac));
             }
 
+            if (!imports.isEmpty()) downloadImports(imports);
+
             try (Connection connection = Database.getConnection()) {
                 AirSyncFleet.this.setLastQueryTime(connection);
             }
         }
 
-        void updateAircraft(AirSyncAircraft ac) throws IOException, SQLException {
-            List<AirSyncImport> allImports;
+        List<AirSyncImport> getImportsForUpdate(AirSyncAircraft ac) throws IOException, SQLException {
             try (Connection connection = Database.getConnection()) {
-                allImports = ac.getImportsForUpdate(connection, AirSyncFleet.this);
-                allImports.sort(new Comparator<AirSyncImport>() {
-                    public int compare(AirSyncImport left, AirSyncImport right) {
-                        return left.getUploadTime().compareTo(right.getUploadTime());
-                    }
-                });
+                List<AirSyncImport> allImports = ac.getImportsForUpdate(connection, AirSyncFleet.this);
+                allImports.sort(Comparator.comparing(AirSyncImport::getUploadTime));
 
                 LOG.info("All imports for aircraft " + OBJECT_MAPPER.writeValueAsString(ac));
 
@@ -578,40 +588,74 @@ public class AirSyncFleet extends Fleet {
                     LOG.info(OBJECT_MAPPER.writeValueAsString(imp));
                 }
 
-                if (allImports.isEmpty()) return;
+                return allImports;
             }
+        }
 
-            for (var chunk : ListUtils.partition(allImports, 32)) {
-                var errors = new ArrayList<IOException>();
-                var downloads = chunk.parallelStream()
-                        .map(imp -> {
-                            try {
-                                return imp.download();
-                            } catch (IOException e) {
-                                synchronized (errors) {
-                                    errors.add(e);
-                                }
-                                return null;
-                            }
-                        })
-                        .toList();
-
-                if (!errors.isEmpty()) throw errors.get(0);
-
-                try (Connection connection = Database.getConnection()) {
-                    for (int i = 0; i < chunk.size(); i++) {
-                        var imp = chunk.get(i);
-                        var data = downloads.get(i);
+        /**
+         * Downloads the imports of every aircraft concurrently, but adds them to the upload and records them in the
+         * order they are listed. Since the imports of an aircraft are sorted by upload time, and the next update
+         * starts after the latest recorded import of each aircraft, a failed download stops the update without
+         * skipping any of the imports after it.
+         */
+        void downloadImports(List<AirSyncImport> imports) throws IOException, SQLException {
+            // Downloads run ahead of the import being added, so the zip file is never waiting on a single download
+            int window = Math.max(1, Config.AIRSYNC_DOWNLOAD_CONCURRENCY) * 2;
+            Deque<CompletableFuture<Path>> downloads = new ArrayDeque<>();
+            List<AirSyncImport> received = new ArrayList<>(DOWNLOAD_BATCH_SIZE);
+            int next = 0;
+
+            try (AirSyncDownloader downloader = AirSyncDownloader.forFleet(AirSyncFleet.this)) {
+                try {
+                    for (AirSyncImport imp : imports) {
+                        while (next < imports.size() && downloads.size() < window) {
+                            downloads.add(downloader.download(imports.get(next++).getId()));
+                        }
+
+                        Path file = awaitDownload(downloads.poll());
+                        try (Connection connection = Database.getConnection()) {
+                            addFileToUpload(connection, imp, file);
+                        } finally {
+                            Files.deleteIfExists(file);
+                        }
 
-                        addFileToUpload(connection, imp, data);
                         imp.confirmReceived();
-                    }
+                        received.add(imp);
 
-                    AirSyncImport.batchCreateImport(connection, chunk, null);
+                        if (received.size() >= DOWNLOAD_BATCH_SIZE) {
+                            recordImports(received);
+                        }
+                    }
+                } finally {
+                    recordImports(received);
+                    for (var download : downloads) {
+                        download.thenAccept(file -> file.toFile().delete());
+                    }
                 }
             }
         }
 
+        private void recordImports(List<AirSyncImport> received) throws SQLException {
+            if (received.isEmpty()) return;
+
+            try (Connection connection = Database.getConnection()) {
+                AirSyncImport.batchCreateImport(connection, received, null);
+            }
+            received.clear();
+        }
+
+        private static Path awaitDownload(CompletableFuture<Path> download) throws IOException {
+            try {
+                return download.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while downloading AirSync logs", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException cause) throw cause;
+                throw new IOException("Failed to download AirSync log", e.getCause());
+            }
+        }
+
         public void close() throws IOException, SQLException {
             if (upload != null) {
                 try (Connection connection = Database.getConnection();
@@ -6,7 +6,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -310,33 +309,6 @@ public final class AirSyncImport {
                 this.localDateTimeStart.getMinute());
     }
 
-    /**
-     * Contains the logic for processing the import
-     *
-     * @return a {@link Flight} object that was created from this import
-     */
-    public byte[] download() throws IOException {
-        HttpsURLConnection connection =
-                (HttpsURLConnection) new URL(String.format(AirSyncEndpoints.SINGLE_LOG, this.id)).openConnection();
-
-        connection.setRequestMethod("GET");
-        connection.setRequestProperty("Authorization", this.fleet.getAuth().getBearerString());
-
-        try (InputStream is = connection.getInputStream()) {
-            byte[] respRaw = is.readAllBytes();
-
-            String resp = new String(respRaw).replaceAll("file_url", "fileUrl");
-
-            LogResponse log = GSON.fromJson(resp, LogResponse.class);
-            URL input = new URL(log.getFileUrl());
-            LOG.info("Got URL for logfile " + log.getFileUrl());
-
-            try (InputStream dataStream = input.openStream()) {
-                return dataStream.readAllBytes();
-            }
-        }
-    }
-
     /**
      * Notifies AirSync that this log was received. Uses the NGAFID upload id as partner_key.
      *
@@ -360,12 +332,13 @@ public final class AirSyncImport {
                 partnerKey,
                 aircraft.getTailNumber()));
 
-        int responseCode = postConfirm(confirmUrl);
+        String bearer = fleet.getAuth().getBearerString();
+        int responseCode = postConfirm(confirmUrl, bearer);
 
         if (responseCode == 401) {
             LOG.info("AirSync log confirmation got HTTP 401; refreshing bearer token and retrying");
-            fleet.refreshAuth();
-            responseCode = postConfirm(confirmUrl);
+            fleet.refreshAuth(bearer);
+            responseCode = postConfirm(confirmUrl, fleet.getAuth().getBearerString());
         }
 
         if (responseCode < 200 || responseCode >= 300) {
@@ -383,11 +356,11 @@ public final class AirSyncImport {
                 responseCode));
     }
 
-    private int postConfirm(String confirmUrl) throws IOException {
+    private int postConfirm(String confirmUrl, String bearer) throws IOException {
         HttpsURLConnection connection = (HttpsURLConnection) new URL(confirmUrl).openConnection();
         connection.setRequestMethod("POST");
         connection.setDoOutput(true);
-        connection.setRequestProperty("Authorization", fleet.getAuth().getBearerString());
+        connection.setRequestProperty("Authorization", bearer);
         connection.getOutputStream().close();
         return connection.getResponseCode();
     }
@@ -440,24 +413,4 @@ public final class AirSyncImport {
                 + destination + ",\n" + "url: " + fileUrl + ", start time: " + timeStart + ", end " + "time: "
                 + timeEnd + ";";
     }
-
-    /**
-     * This is a static class to represent the response we get from the AirSync
-     * servers
-     * <p>
-     * id      the logfiles id
-     * fileUrl the accessible web URL where this import resides (csv data)
-     */
-    private static final class LogResponse {
-        private int id;
-        private String fileUrl;
-
-        public int getId() {
-            return id;
-        }
-
-        public String getFileUrl() {
-            return fileUrl;
-        }
-    }
 }
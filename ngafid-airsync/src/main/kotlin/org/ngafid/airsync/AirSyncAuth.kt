@@ -14,6 +14,7 @@ class AirSyncAuth(val key: String, val secret: String) {
     var timeObtained: LocalDateTime = LocalDateTime.now()
 
     companion object {
+        @Volatile
         private var INSTANCE: AirSyncAuth? = null
 
         fun refreshInstance(): Unit {
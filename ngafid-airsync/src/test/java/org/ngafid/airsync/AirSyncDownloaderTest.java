@@ -0,0 +1,222 @@
+package org.ngafid.airsync;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AirSyncDownloaderTest {
+    private static final HttpClient CLIENT =
+            HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private HttpServer server;
+    private String base;
+
+    /**
+     * The number of requests to each path.
+     */
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private int count(HttpExchange exchange) {
+        return requests.computeIfAbsent(exchange.getRequestURI().getPath(), path -> new AtomicInteger())
+                .incrementAndGet();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    /**
+     * Serves log {@code id} as a link to a file with the contents "log {@code id}".
+     */
+    private void serveLogs() {
+        server.createContext("/files/", exchange -> {
+            count(exchange);
+            String id = exchange.getRequestURI().getPath().substring("/files/".length());
+            respond(exchange, 200, "log " + id);
+        });
+    }
+
+    private static String logJson(String base, String id) {
+        return "{\"file_url\": \"" + base + "/files/" + id + "\"}";
+    }
+
+    private AirSyncDownloader downloader(String bearer, Consumer<String> refreshAuth, int concurrency) {
+        return new AirSyncDownloader(
+                CLIENT, base + "/logs/%d", () -> bearer, refreshAuth, concurrency, 4, Duration.ofMillis(1));
+    }
+
+    private static String read(CompletableFuture<Path> download) throws Exception {
+        Path file = download.get(30, TimeUnit.SECONDS);
+        try {
+            return Files.readString(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Should retry 5xx and 429 responses with backoff")
+    public void testRetriesServerErrors() throws Exception {
+        serveLogs();
+        server.createContext("/logs/", exchange -> {
+            switch (count(exchange)) {
+                case 1 -> respond(exchange, 503, "");
+                case 2 -> respond(exchange, 429, "");
+                default -> respond(exchange, 200, logJson(base, "7"));
+            }
+        });
+
+        try (AirSyncDownloader downloader = downloader("Bearer token", bearer -> fail("Refreshed"), 1)) {
+            assertEquals("log 7", read(downloader.download(7)));
+        }
+        assertEquals(3, requests.get("/logs/7").get());
+        assertEquals(1, requests.get("/files/7").get());
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts, and not retry other client errors")
+    public void testGivesUp() throws Exception {
+        server.createContext("/logs/", exchange -> {
+            count(exchange);
+            respond(exchange, exchange.getRequestURI().getPath().endsWith("/1") ? 500 : 404, "");
+        });
+
+        try (AirSyncDownloader downloader = downloader("Bearer token", bearer -> fail("Refreshed"), 1)) {
+            for (int logId : new int[] {1, 2}) {
+                ExecutionException e = assertThrows(
+                        ExecutionException.class, () -> downloader.download(logId).get(30, TimeUnit.SECONDS));
+                assertInstanceOf(IOException.class, e.getCause());
+            }
+        }
+        assertEquals(4, requests.get("/logs/1").get());
+        assertEquals(1, requests.get("/logs/2").get());
+    }
+
+    @Test
+    @DisplayName("Should refresh the bearer token once when concurrent requests are rejected with it")
+    public void testConcurrentUnauthorizedRequestsShareOneRefresh() throws Exception {
+        int downloads = 8;
+        CountDownLatch rejected = new CountDownLatch(downloads);
+        String[] token = {"Bearer old"};
+        AtomicInteger refreshes = new AtomicInteger();
+
+        serveLogs();
+        server.createContext("/logs/", exchange -> {
+            count(exchange);
+            if ("Bearer new".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                String path = exchange.getRequestURI().getPath();
+                respond(exchange, 200, logJson(base, path.substring(path.lastIndexOf('/') + 1)));
+                return;
+            }
+
+            // Every download is rejected before any of them refreshes the token.
+            rejected.countDown();
+            try {
+                rejected.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 401, "");
+        });
+
+        // Refreshes like AirSyncFleet#refreshAuth, unless the rejected token was already replaced.
+        Consumer<String> refreshAuth = rejectedBearer -> {
+            synchronized (token) {
+                if (!token[0].equals(rejectedBearer)) return;
+                refreshes.incrementAndGet();
+                token[0] = "Bearer new";
+            }
+        };
+
+        try (AirSyncDownloader downloader = new AirSyncDownloader(
+                CLIENT,
+                base + "/logs/%d",
+                () -> {
+                    synchronized (token) {
+                        return token[0];
+                    }
+                },
+                refreshAuth,
+                downloads,
+                4,
+                Duration.ofMillis(1))) {
+            List<CompletableFuture<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < downloads; i++) futures.add(downloader.download(i));
+            for (int i = 0; i < downloads; i++) assertEquals("log " + i, read(futures.get(i)));
+        }
+
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    @DisplayName("Should run at most the configured number of downloads at a time")
+    public void testBoundedConcurrency() throws Exception {
+        int concurrency = 3;
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        serveLogs();
+        server.createContext("/logs/", exchange -> {
+            count(exchange);
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            respond(exchange, 200, logJson(base, path.substring(path.lastIndexOf('/') + 1)));
+        });
+
+        try (AirSyncDownloader downloader = downloader("Bearer token", bearer -> fail("Refreshed"), concurrency)) {
+            List<CompletableFuture<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) futures.add(downloader.download(i));
+            for (int i = 0; i < futures.size(); i++) assertEquals("log " + i, read(futures.get(i)));
+        }
+
+        assertTrue(maxActive.get() <= concurrency, "At most " + concurrency + " downloads at a time");
+        assertTrue(maxActive.get() > 1, "Downloads run concurrently");
+    }
+}
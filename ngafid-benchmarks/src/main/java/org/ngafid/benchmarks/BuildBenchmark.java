@@ -0,0 +1,43 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.processor.format.FlightBuilder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Applying every compute step that does not need a database to a parsed flight, in dependency order, as
+ * {@link FlightBuilder#build} does. See {@link ComputeStepBenchmark} for the steps on their own.
+ * <p>
+ * With `parallel` the steps are computed concurrently in the common pool, as they are for flights longer than
+ * `ngafid.parallel.build.min.rows`. The step costs that schedule is based on are learned during the warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuildBenchmark {
+    @Param({"C172"})
+    public String airframe;
+
+    @Param({"1", "10"})
+    public int copies;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private FlightBuilder parsed;
+
+    @Setup
+    public void setup() throws IOException, FlightProcessingException {
+        parsed = SampleFlights.parse(airframe + ".csv", SampleFlights.lengthen(SampleFlights.read(airframe), copies));
+    }
+
+    @Benchmark
+    public FlightBuilder build() throws FlightProcessingException {
+        return SampleFlights.build(parsed, parallel);
+    }
+}
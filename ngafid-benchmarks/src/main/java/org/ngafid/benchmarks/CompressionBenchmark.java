@@ -0,0 +1,74 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.util.Compression;
+import org.ngafid.core.util.DoubleArrayCodec;
+import org.ngafid.processor.format.FlightBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding and decoding every double column of a parsed flight, as they are written to and read from
+ * `double_series.data`. The codec "BEST" is what the processor does: {@link Compression#compressDoubleArray} picks a
+ * codec for each column, and {@link Compression#inflateDoubleArray} decodes by the header of the blob.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({"BEST", "DEFLATE", "DECIMAL", "SHUFFLE_DELTA"})
+    public String codec;
+
+    @Param({"C172"})
+    public String airframe;
+
+    @Param({"10"})
+    public int copies;
+
+    private DoubleArrayCodec encoding;
+    private double[][] columns;
+    private int[] sizes;
+    private byte[][] encoded;
+
+    @Setup
+    public void setup() throws IOException, FlightProcessingException {
+        FlightBuilder parsed = SampleFlights.parse(
+                airframe + ".csv", SampleFlights.lengthen(SampleFlights.read(airframe), copies));
+
+        encoding = codec.equals("BEST") ? null : DoubleArrayCodec.valueOf(codec);
+
+        DoubleTimeSeries[] series = parsed.getDoubleTimeSeriesMap().values().toArray(new DoubleTimeSeries[0]);
+        columns = new double[series.length][];
+        sizes = new int[series.length];
+        encoded = new byte[series.length][];
+        for (int i = 0; i < series.length; i++) {
+            columns[i] = series[i].innerArray();
+            sizes[i] = series[i].size();
+            encoded[i] = encode(i);
+        }
+    }
+
+    private byte[] encode(int column) throws IOException {
+        if (encoding == null) return Compression.compressDoubleArray(columns[column], sizes[column]);
+        return encoding.encode(columns[column], sizes[column]);
+    }
+
+    @Benchmark
+    public void encode(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < columns.length; i++) blackhole.consume(encode(i));
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < encoded.length; i++) {
+            if (encoding == null) blackhole.consume(Compression.inflateDoubleArray(encoded[i], sizes[i]));
+            else blackhole.consume(encoding.decode(encoded[i], sizes[i]));
+        }
+    }
+}
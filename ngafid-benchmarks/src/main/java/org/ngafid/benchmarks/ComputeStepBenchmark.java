@@ -0,0 +1,89 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.processor.format.FlightBuilder;
+import org.ngafid.processor.steps.ComputeStep;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Each compute step on its own, applied to a built flight without the columns the step outputs. The flight is copied
+ * before every invocation so each one starts from the same state, which is only a few map copies, small next to the
+ * steps on a flight of this length.
+ * <p>
+ * Without terrain tiles {@code ComputeAltAGL} only measures looking up the missing tiles, see
+ * {@link SampleFlights#build}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputeStepBenchmark {
+    @Param({
+        "ComputeUTCTime",
+        "ComputeStartEndTime",
+        "ComputeAltAGL",
+        "ComputeAirportProximity",
+        "ComputeLaggedAltMSL",
+        "ComputeStallIndex",
+        "ComputeTotalFuel",
+        "ComputeDivergence",
+        "ComputeLOCI",
+        "ComputeItinerary",
+        "ComputeTurnToFinal"
+    })
+    public String step;
+
+    @Param({"C172"})
+    public String airframe;
+
+    @Param({"10"})
+    public int copies;
+
+    private ComputeStep.Factory factory;
+    private FlightBuilder built;
+    private ComputeStep current;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, FlightProcessingException {
+        factory = SampleFlights.STEPS.get(step);
+        if (factory == null) throw new IllegalArgumentException("Unknown compute step '" + step + "'");
+
+        built = SampleFlights.build(SampleFlights.parse(
+                airframe + ".csv", SampleFlights.lengthen(SampleFlights.read(airframe), copies)));
+
+        ComputeStep probe = factory.create(null, built);
+        if (!hasInputs(probe, built)) {
+            throw new IllegalStateException(step + " cannot be computed for the " + airframe + " log: "
+                    + probe.explainApplicability());
+        }
+    }
+
+    /**
+     * Unlike {@link ComputeStep#applicable}, this does not check the airframe, so steps that are limited to other
+     * airframes (e.g. {@code ComputeLOCI}) can still be measured on the sample log. Required columns starting with an
+     * underscore are not series but steps, e.g. "_itinerary".
+     */
+    private static boolean hasInputs(ComputeStep step, FlightBuilder builder) {
+        return builder.getDoubleTimeSeriesKeySet()
+                        .containsAll(step.getRequiredDoubleColumns().stream()
+                                .filter(column -> !column.startsWith("_"))
+                                .toList())
+                && builder.getStringTimeSeriesKeySet().containsAll(step.getRequiredStringColumns());
+    }
+
+    @Setup(Level.Invocation)
+    public void createStep() {
+        FlightBuilder builder = SampleFlights.copy(built, factory.create(null, built).getOutputColumns());
+        current = factory.create(null, builder);
+    }
+
+    @Benchmark
+    public ComputeStep compute() throws Exception {
+        current.compute();
+        return current;
+    }
+}
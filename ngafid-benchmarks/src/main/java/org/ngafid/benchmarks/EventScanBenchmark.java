@@ -0,0 +1,100 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.event.Event;
+import org.ngafid.core.event.EventDefinition;
+import org.ngafid.core.event.EventDefinition.SeverityType;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.flights.StringTimeSeries;
+import org.ngafid.core.util.filters.Filter;
+import org.ngafid.processor.events.EventScanner;
+import org.ngafid.processor.events.MultiEventScanner;
+import org.ngafid.processor.format.FlightBuilder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Scanning a built flight for the default exceedance events of a Cessna 172, one definition at a time with
+ * {@link EventScanner}, and all at once with {@link MultiEventScanner}. The definitions are the ones in
+ * `ngafid-db/src/changelogs/01-flights/06-event-definitions.sql`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventScanBenchmark {
+    @Param({"C172"})
+    public String airframe;
+
+    @Param({"1", "10"})
+    public int copies;
+
+    private List<EventDefinition> definitions;
+    private Map<String, DoubleTimeSeries> doubleSeries;
+    private Map<String, StringTimeSeries> stringSeries;
+
+    @Setup
+    public void setup() throws IOException, FlightProcessingException {
+        FlightBuilder built = SampleFlights.build(SampleFlights.parse(
+                airframe + ".csv", SampleFlights.lengthen(SampleFlights.read(airframe), copies)));
+        doubleSeries = built.getDoubleTimeSeriesMap();
+        stringSeries = built.getStringTimeSeriesMap();
+
+        definitions = List.of(
+                definition("Low Pitch", SeverityType.MAX, "AND", "Pitch", "<", "-30"),
+                definition("High Pitch", SeverityType.MAX, "AND", "Pitch", ">", "30"),
+                definition("Low Lateral Acceleration", SeverityType.MAX, "AND", "LatAc", "<", "-1.33"),
+                definition("High Lateral Acceleration", SeverityType.MAX, "AND", "LatAc", ">", "1.33"),
+                definition("Low Vertical Acceleration", SeverityType.MAX, "AND", "NormAc", "<", "-2.52"),
+                definition("High Vertical Acceleration", SeverityType.MAX, "AND", "NormAc", ">", "2.8"),
+                definition("Roll", SeverityType.MAX_ABS, "OR", "Roll", "<", "-60", "Roll", ">", "60"),
+                definition("VSI on Final", SeverityType.MIN, "AND", "VSpd", "<=", "-1500", "AltAGL", "<=", "500"),
+                definition("Airspeed", SeverityType.MAX, "AND", "IAS", ">", "154"),
+                definition("Altitude", SeverityType.MAX, "AND", "AltMSL", ">", "12800"),
+                definition(
+                        "Cylinder Head Temperature",
+                        SeverityType.MAX,
+                        "OR",
+                        "E1 CHT1", ">", "500",
+                        "E1 CHT2", ">", "500",
+                        "E1 CHT3", ">", "500",
+                        "E1 CHT4", ">", "500"),
+                definition("Low Oil Pressure", SeverityType.MIN, "AND", "E1 OilP", "<", "25", "E1 RPM", ">", "500"),
+                definition("Low Fuel", SeverityType.MIN, "AND", "Total Fuel", "<", "8.25", "Pitch", "<", "5"));
+    }
+
+    /**
+     * @param rules triples of column, operator and value, combined with the condition. The severity is computed from
+     *              the column of the first rule.
+     */
+    private static EventDefinition definition(
+            String name, SeverityType severityType, String condition, String... rules) {
+        Filter filter = new Filter(condition);
+        for (int i = 0; i < rules.length; i += 3) {
+            filter.addFilter(new Filter(new ArrayList<>(List.of(rules[i], rules[i + 1], rules[i + 2]))));
+        }
+
+        return new EventDefinition(0, name, 1, 30, 0, filter, new TreeSet<>(List.of(rules[0])), severityType);
+    }
+
+    @Benchmark
+    public List<Event> eventScanner() {
+        List<Event> events = new ArrayList<>();
+        for (EventDefinition definition : definitions) {
+            events.addAll(new EventScanner(definition).scan(doubleSeries, stringSeries));
+        }
+        return events;
+    }
+
+    @Benchmark
+    public List<Event> multiEventScanner() {
+        return new MultiEventScanner(definitions).scan(doubleSeries, stringSeries);
+    }
+}
@@ -0,0 +1,37 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.processor.format.FlightBuilder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parsing a CSV log into a flight builder, including hashing the file. `copies` repeats the rows of the sample log to
+ * make a longer flight; each copy is a bit over an hour of data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"C172", "C182", "PA28", "PA44", "SR20"})
+    public String airframe;
+
+    @Param({"1", "10"})
+    public int copies;
+
+    private byte[] csv;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = SampleFlights.lengthen(SampleFlights.read(airframe), copies);
+    }
+
+    @Benchmark
+    public FlightBuilder parse() throws IOException, FlightProcessingException {
+        return SampleFlights.parse(airframe + ".csv", csv);
+    }
+}
@@ -0,0 +1,89 @@
+package org.ngafid.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.flights.Parameters;
+import org.ngafid.processor.events.proximity.CalculateProximity;
+import org.ngafid.processor.events.proximity.FlightTimeLocation;
+import org.ngafid.processor.events.proximity.TrajectoryIndex;
+import org.ngafid.processor.format.FlightBuilder;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The two halves of the proximity scan of a flight: finding the other flights that were near it in time and space with
+ * a {@link TrajectoryIndex}, and scoring a pair of flights sample by sample, which
+ * {@link CalculateProximity#calculateRateOfClosure} does over the whole of two flights here.
+ * <p>
+ * The index holds `flights` copies of the trajectory of a built sample log, each moved by up to nine hours and half a
+ * degree of latitude, so a tenth of them overlap the scanned flight in time and some of those in space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProximityBenchmark {
+    @Param({"C172"})
+    public String airframe;
+
+    @Param({"100", "1000"})
+    public int flights;
+
+    private TrajectoryIndex index;
+    private FlightTimeLocation flight;
+    private FlightTimeLocation nearby;
+    private int rows;
+
+    @Setup
+    public void setup() throws IOException, FlightProcessingException {
+        FlightBuilder built = SampleFlights.build(SampleFlights.parse(airframe + ".csv", SampleFlights.read(airframe)));
+
+        rows = built.getDoubleTimeSeries(Parameters.UNIX_TIME_SECONDS).size();
+        flight = trajectory(built, 0, 0, 0);
+        nearby = trajectory(built, 1, 0, 0.001);
+
+        index = new TrajectoryIndex(Long.MAX_VALUE);
+        for (int i = 0; i < flights; i++) {
+            index.add(trajectory(built, i + 2, (i % 10) * 3600, (i / 10 % 10) * 0.05));
+        }
+    }
+
+    private static FlightTimeLocation trajectory(
+            FlightBuilder builder, int flightId, double secondsLater, double degreesNorth) {
+        int size = builder.getDoubleTimeSeries(Parameters.UNIX_TIME_SECONDS).size();
+
+        double[] epochTime = column(builder, Parameters.UNIX_TIME_SECONDS, size);
+        double[] latitude = column(builder, Parameters.LATITUDE, size);
+        for (int i = 0; i < size; i++) {
+            epochTime[i] += secondsLater;
+            latitude[i] += degreesNorth;
+        }
+
+        return new FlightTimeLocation(
+                flightId,
+                epochTime,
+                latitude,
+                column(builder, Parameters.LONGITUDE, size),
+                column(builder, Parameters.ALT_MSL, size),
+                column(builder, Parameters.ALT_AGL, size));
+    }
+
+    private static double[] column(FlightBuilder builder, String name, int size) {
+        return Arrays.copyOf(builder.getDoubleTimeSeries(name).innerArray(), size);
+    }
+
+    @Benchmark
+    public Set<Integer> findNearby() {
+        return index.findNearby(flight);
+    }
+
+    @Benchmark
+    public double[] rateOfClosure() {
+        int last = rows - 6;
+        return CalculateProximity.calculateRateOfClosure(flight, nearby, 5, last, 5, last);
+    }
+}
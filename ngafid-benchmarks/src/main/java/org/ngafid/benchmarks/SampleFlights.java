@@ -0,0 +1,268 @@
+package org.ngafid.benchmarks;
+
+import static org.ngafid.processor.steps.ComputeStep.required;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.flights.Parameters;
+import org.ngafid.core.flights.StringTimeSeries;
+import org.ngafid.core.uploads.Upload;
+import org.ngafid.processor.DependencyGraph;
+import org.ngafid.processor.Pipeline;
+import org.ngafid.processor.format.CSVFileProcessor;
+import org.ngafid.processor.format.FlightBuilder;
+import org.ngafid.processor.steps.*;
+
+/**
+ * The flights the benchmarks run on: the sample logs in `resources/example_data`, one directory per airframe, and
+ * synthetic long flights made by repeating a sample log. Flights are parsed and built the way the upload processor does
+ * it, but without a connection: files are parsed with a {@link CSVFileProcessor} directly (rather than through its
+ * factory), and only the compute steps that do not read from the database are applied, which leaves out the event
+ * steps. See {@link #STEPS}.
+ * <p>
+ * The configuration is read from `benchmarks.properties` unless `ngafid.config.file` is set, and logging below warnings
+ * is turned off, as the processor logs a few lines for each flight.
+ */
+final class SampleFlights {
+    static {
+        System.getProperties().putIfAbsent("ngafid.config.file", "benchmarks.properties");
+
+        Logger root = Logger.getLogger("");
+        root.setLevel(Level.WARNING);
+        for (Handler handler : root.getHandlers()) handler.setLevel(Level.WARNING);
+    }
+
+    /**
+     * The directory holding the sample logs, relative to the repository root.
+     */
+    static final Path DATA_DIRECTORY = Path.of(System.getProperty("ngafid.benchmarks.data", "resources/example_data"));
+
+    /**
+     * The compute steps of {@link FlightBuilder} that do not need a database, by name. This should be kept in sync
+     * with the steps it applies.
+     */
+    static final Map<String, ComputeStep.Factory> STEPS = new LinkedHashMap<>();
+
+    static {
+        STEPS.put("ComputeUTCTime", required(ComputeUTCTime::new));
+        STEPS.put("ComputeStartEndTime", required(ComputeStartEndTime::new));
+        STEPS.put("ComputeAltAGL", ComputeAltAGL::new);
+        STEPS.put("ComputeAirportProximity", ComputeAirportProximity::new);
+        STEPS.put("ComputeLaggedAltMSL", ComputeLaggedAltMSL::new);
+        STEPS.put("ComputeStallIndex", ComputeStallIndex::new);
+        STEPS.put("ComputeTotalFuel", ComputeTotalFuel::new);
+        STEPS.put("ComputeDivergence", ComputeDivergence::new);
+        STEPS.put("ComputeLOCI", ComputeLOCI::new);
+        STEPS.put("ComputeItinerary", ComputeItinerary::new);
+        STEPS.put("ComputeTurnToFinal", ComputeTurnToFinal::new);
+    }
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static final Pipeline PIPELINE = new Pipeline(null, new Upload(0), null);
+
+    private SampleFlights() {}
+
+    /**
+     * @param airframe the directory of the sample log, e.g. "C172"
+     * @return the contents of the first CSV file in the directory
+     * @throws IOException if there is no such file or it cannot be read
+     */
+    static byte[] read(String airframe) throws IOException {
+        try (Stream<Path> files = Files.list(DATA_DIRECTORY.resolve(airframe))) {
+            Path file = files.filter(path -> path.toString().endsWith(".csv"))
+                    .sorted()
+                    .findFirst()
+                    .orElseThrow(() -> new IOException("No sample log in " + DATA_DIRECTORY.resolve(airframe)));
+            return Files.readAllBytes(file);
+        }
+    }
+
+    /**
+     * Makes a long flight out of a log by repeating its rows, with the local date and time of each repetition moved to
+     * after the end of the previous one. Rows without a valid date and time are repeated as they are.
+     *
+     * @param csv    a Garmin CSV log, with three header lines
+     * @param copies the number of times the rows are repeated
+     * @return the lengthened log
+     */
+    static byte[] lengthen(byte[] csv, int copies) {
+        if (copies <= 1) return csv;
+
+        List<String> lines = new String(csv, StandardCharsets.UTF_8).lines().toList();
+        List<String> header = lines.subList(0, 3);
+        List<String> rows = lines.subList(3, lines.size());
+
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        for (String row : rows) {
+            LocalDateTime time = parseDateTime(row);
+            if (time == null) continue;
+            if (first == null) first = time;
+            last = time;
+        }
+        long period = first == null ? 0 : Duration.between(first, last).toSeconds() + 1;
+
+        StringBuilder out = new StringBuilder(csv.length * copies + 64);
+        for (String line : header) out.append(line).append('\n');
+        for (int copy = 0; copy < copies; copy++) {
+            for (String row : rows) {
+                LocalDateTime time = copy == 0 ? null : parseDateTime(row);
+                if (time == null) {
+                    out.append(row).append('\n');
+                    continue;
+                }
+
+                int secondComma = row.indexOf(',', row.indexOf(',') + 1);
+                LocalDateTime shifted = time.plusSeconds(copy * period);
+                out.append(DATE.format(shifted))
+                        .append(", ")
+                        .append(TIME.format(shifted))
+                        .append(row, secondComma, row.length())
+                        .append('\n');
+            }
+        }
+
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime parseDateTime(String row) {
+        int firstComma = row.indexOf(',');
+        int secondComma = firstComma < 0 ? -1 : row.indexOf(',', firstComma + 1);
+        if (secondComma < 0) return null;
+
+        try {
+            return LocalDateTime.of(
+                    LocalDate.parse(row.substring(0, firstComma).strip(), DATE),
+                    LocalTime.parse(row.substring(firstComma + 1, secondComma).strip(), TIME));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a log the way {@link CSVFileProcessor} does for an upload, including hashing it.
+     *
+     * @param filename the name of the file
+     * @param csv      the contents of the file
+     * @return the builder of the flight in the file
+     * @throws IOException               never, as the file is already in memory
+     * @throws FlightProcessingException if the file cannot be parsed
+     */
+    static FlightBuilder parse(String filename, byte[] csv) throws IOException, FlightProcessingException {
+        CSVFileProcessor processor = new CSVFileProcessor(null, new ByteArrayInputStream(csv), filename, PIPELINE) {};
+        return processor.parse().findFirst().orElseThrow();
+    }
+
+    /**
+     * Applies every step in {@link #STEPS} to a copy of a parsed flight, the same way {@link FlightBuilder#build} does.
+     * If no terrain tiles are available the AGL altitudes are all NaN, which would make the steps that depend on them
+     * skip most of their work, so the altitude above the first valid altitude of the flight is used instead.
+     *
+     * @param parsed the builder returned by {@link #parse}
+     * @return a new builder with the computed columns
+     * @throws FlightProcessingException if a required step fails
+     */
+    static FlightBuilder build(FlightBuilder parsed) throws FlightProcessingException {
+        return build(parsed, false);
+    }
+
+    /**
+     * @param parsed   the builder returned by {@link #parse}
+     * @param parallel whether the steps are computed with {@link DependencyGraph#computeCriticalPath} rather than in
+     *                 sequence
+     * @return a new builder with the computed columns
+     * @throws FlightProcessingException if a required step fails
+     * @see #build(FlightBuilder)
+     */
+    static FlightBuilder build(FlightBuilder parsed, boolean parallel) throws FlightProcessingException {
+        FlightBuilder builder = copy(parsed, Set.of());
+
+        ComputeStep altitudeAGL = STEPS.get("ComputeAltAGL").create(null, builder);
+        if (altitudeAGL.applicable()) {
+            try {
+                altitudeAGL.compute();
+            } catch (Exception e) {
+                throw new FlightProcessingException(e);
+            }
+
+            if (builder.getDoubleTimeSeries(Parameters.ALT_AGL).validCount() == 0) {
+                builder.addTimeSeries(relativeAltitude(builder.getDoubleTimeSeries(Parameters.ALT_MSL)));
+            }
+        }
+
+        DependencyGraph graph = new DependencyGraph(builder, steps(builder, STEPS.values()));
+        if (parallel) graph.computeCriticalPath();
+        else graph.computeSequential();
+        return builder;
+    }
+
+    private static DoubleTimeSeries relativeAltitude(DoubleTimeSeries altitudeMSL) {
+        double[] msl = altitudeMSL.innerArray();
+        double ground = Double.NaN;
+        for (int i = 0; i < altitudeMSL.size() && Double.isNaN(ground); i++) ground = msl[i];
+
+        double[] agl = new double[altitudeMSL.size()];
+        for (int i = 0; i < agl.length; i++) agl[i] = Math.max(0, msl[i] - ground);
+
+        return new DoubleTimeSeries(Parameters.ALT_AGL, Parameters.Unit.FT_AGL, agl);
+    }
+
+    /**
+     * Creates the steps that do not overwrite a column the builder already has, as {@link FlightBuilder} does.
+     *
+     * @param builder   the builder the steps are applied to
+     * @param factories the steps
+     * @return the steps to apply
+     */
+    static List<ComputeStep> steps(FlightBuilder builder, Collection<ComputeStep.Factory> factories) {
+        Set<String> doubleColumns = builder.getDoubleTimeSeriesKeySet();
+        Set<String> stringColumns = builder.getStringTimeSeriesKeySet();
+
+        List<ComputeStep> steps = new ArrayList<>();
+        for (ComputeStep.Factory factory : factories) {
+            ComputeStep step = factory.create(null, builder);
+            if (step.getOutputColumns().stream()
+                    .noneMatch(column -> doubleColumns.contains(column) || stringColumns.contains(column))) {
+                steps.add(step);
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Copies a builder, without some of its columns. The series themselves are shared, so steps must not modify the
+     * series they read.
+     *
+     * @param builder the builder to copy
+     * @param without the names of the columns to leave out
+     * @return the copy
+     */
+    static FlightBuilder copy(FlightBuilder builder, Set<String> without) {
+        Map<String, DoubleTimeSeries> doubleSeries = new HashMap<>(builder.getDoubleTimeSeriesMap());
+        Map<String, StringTimeSeries> stringSeries = new HashMap<>(builder.getStringTimeSeriesMap());
+        doubleSeries.keySet().removeAll(without);
+        stringSeries.keySet().removeAll(without);
+
+        FlightBuilder copy = new FlightBuilder(builder.meta, doubleSeries, stringSeries);
+        copy.setItinerary(new ArrayList<>(builder.getItinerary()));
+        return copy;
+    }
+}
@@ -18,6 +18,22 @@ public final class Config {
     public static final boolean NGAFID_EMAIL_ENABLED;
     public static final boolean DISABLE_PERSISTENT_SESSIONS;
     public static final boolean MEMORY_EFFICIENT_UPLOAD_PROCESSOR;
+    public static final boolean PIPELINED_UPLOAD_PROCESSOR;
+    public static final int UPLOAD_PROCESSOR_MEMORY_BUDGET_MB;
+    public static final int PROXIMITY_INDEX_MAX_SAMPLES;
+    public static final int EVENT_OBSERVER_FULL_SCAN_MINUTES;
+    public static final int API_LOG_QUEUE_SIZE;
+    public static final int API_LOG_BATCH_SIZE;
+    public static final int API_LOG_FLUSH_INTERVAL_MS;
+    public static final int API_TOKEN_CACHE_SIZE;
+    public static final int API_TOKEN_CACHE_TTL_SECONDS;
+    public static final int API_TOKEN_LAST_USED_FLUSH_SECONDS;
+    public static final int AIRSYNC_DOWNLOAD_CONCURRENCY;
+    public static final int AIRSYNC_DOWNLOAD_MAX_ATTEMPTS;
+    public static final int INGEST_METRICS_PORT;
+    public static final int PARALLEL_BUILD_MIN_ROWS;
+    public static final int STATISTICS_CACHE_SIZE;
+    public static final int STATISTICS_CACHE_TTL_SECONDS;
 
     public static final String NGAFID_DB_INFO;
     public static final String NGAFID_UPLOAD_DIR;
@@ -49,6 +65,23 @@ public final class Config {
         DISABLE_PERSISTENT_SESSIONS = getBooleanPropertyWithDefault("ngafid.disable.persistent.sessions", false);
         MEMORY_EFFICIENT_UPLOAD_PROCESSOR =
                 getBooleanPropertyWithDefault("ngafid.memory.efficient.upload.processor", true);
+        PIPELINED_UPLOAD_PROCESSOR = getBooleanPropertyWithDefault("ngafid.pipelined.upload.processor", false);
+        UPLOAD_PROCESSOR_MEMORY_BUDGET_MB = getIntPropertyWithDefault(
+                "ngafid.upload.processor.memory.budget.mb", (int) (Runtime.getRuntime().maxMemory() / 4 / (1 << 20)));
+        PROXIMITY_INDEX_MAX_SAMPLES = getIntPropertyWithDefault("ngafid.proximity.index.max.samples", 1_000_000);
+        EVENT_OBSERVER_FULL_SCAN_MINUTES = getIntPropertyWithDefault("ngafid.event.observer.full.scan.minutes", 60);
+        API_LOG_QUEUE_SIZE = getIntPropertyWithDefault("ngafid.api.log.queue.size", 10_000);
+        API_LOG_BATCH_SIZE = getIntPropertyWithDefault("ngafid.api.log.batch.size", 500);
+        API_LOG_FLUSH_INTERVAL_MS = getIntPropertyWithDefault("ngafid.api.log.flush.interval.ms", 1000);
+        API_TOKEN_CACHE_SIZE = getIntPropertyWithDefault("ngafid.api.token.cache.size", 1000);
+        API_TOKEN_CACHE_TTL_SECONDS = getIntPropertyWithDefault("ngafid.api.token.cache.ttl.seconds", 60);
+        API_TOKEN_LAST_USED_FLUSH_SECONDS = getIntPropertyWithDefault("ngafid.api.token.last.used.flush.seconds", 30);
+        AIRSYNC_DOWNLOAD_CONCURRENCY = getIntPropertyWithDefault("ngafid.airsync.download.concurrency", 8);
+        AIRSYNC_DOWNLOAD_MAX_ATTEMPTS = getIntPropertyWithDefault("ngafid.airsync.download.max.attempts", 4);
+        INGEST_METRICS_PORT = getIntPropertyWithDefault("ngafid.ingest.metrics.port", 0);
+        PARALLEL_BUILD_MIN_ROWS = getIntPropertyWithDefault("ngafid.parallel.build.min.rows", 100_000);
+        STATISTICS_CACHE_SIZE = getIntPropertyWithDefault("ngafid.statistics.cache.size", 1000);
+        STATISTICS_CACHE_TTL_SECONDS = getIntPropertyWithDefault("ngafid.statistics.cache.ttl.seconds", 300);
 
         AIRPORTS_FILE = getStringProperty("ngafid.airports.file");
         RUNWAYS_FILE = getStringProperty("ngafid.runways.file");
@@ -15,6 +15,8 @@ import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -135,7 +137,7 @@ public final class ApiToken implements Serializable {
     public static CreatedApiToken create(Connection connection, int userId, String tokenName, Timestamp expiresAt)
             throws SQLException {
         String plaintext = generatePlaintextToken();
-        String hash = sha256Hex(plaintext);
+        String hash = hashPlaintextToken(plaintext);
 
         try (PreparedStatement query = connection.prepareStatement(
                 "INSERT INTO api_token (user_id, token_hash, token_name, expires_at) VALUES (?, ?, ?, ?)",
@@ -171,8 +173,19 @@ public final class ApiToken implements Serializable {
      */
     public static ApiToken findByPlaintextToken(Connection connection, String plaintext) throws SQLException {
         if (plaintext == null || plaintext.isBlank()) return null;
-        String hash = sha256Hex(plaintext);
+        return findByHash(connection, hashPlaintextToken(plaintext));
+    }
 
+    /**
+     * Looks up a token by the hash of its plaintext value, see {@link #hashPlaintextToken}.
+     * Callers must check {@link #isActive()}.
+     *
+     * @param connection an open database connection
+     * @param hash the hash of the plaintext token value
+     * @return the matching {@link ApiToken}, or {@code null} when no row matches the hash
+     * @throws SQLException if the database query fails
+     */
+    public static ApiToken findByHash(Connection connection, String hash) throws SQLException {
         try (PreparedStatement query =
                 connection.prepareStatement("SELECT " + DEFAULT_COLUMNS + " FROM api_token WHERE token_hash = ?")) {
             query.setString(1, hash);
@@ -245,6 +258,36 @@ public final class ApiToken implements Serializable {
         }
     }
 
+    /**
+     * Updates last_used_at to now for several tokens at once, e.g. to write the uses of many requests in one update.
+     *
+     * @param connection an open database connection
+     * @param ids the ids of the tokens that were used
+     * @throws SQLException if the update fails
+     */
+    public static void touchLastUsed(Connection connection, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return;
+
+        String sql = "UPDATE api_token SET last_used_at = CURRENT_TIMESTAMP WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (int id : ids) query.setInt(parameter++, id);
+            query.executeUpdate();
+        }
+    }
+
+    /**
+     * Hashes a plaintext token the same way it is stored, so it can be looked up (or used as a cache key) without
+     * keeping the plaintext around.
+     *
+     * @param plaintext the plaintext token value supplied by the client
+     * @return the hex encoded SHA-256 hash of the token
+     */
+    public static String hashPlaintextToken(String plaintext) {
+        return sha256Hex(plaintext);
+    }
+
     private static String generatePlaintextToken() {
         byte[] bytes = new byte[TOKEN_BYTE_LENGTH];
         SECURE_RANDOM.nextBytes(bytes);
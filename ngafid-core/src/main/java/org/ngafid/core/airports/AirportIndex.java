@@ -0,0 +1,335 @@
+package org.ngafid.core.airports;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * An immutable spatial index over airports and their runways, used to find the nearest airport / runway for every
+ * row of a flight.
+ * <p>
+ * Airports are bucketed into a fixed grid of {@link #CELL_SIZE_DEGREES} degree cells. The airports are stored sorted by
+ * cell in flat primitive arrays, and the non-empty cells are stored as a sorted array of cell keys with offsets into
+ * the airport arrays, so a lookup is a handful of binary searches over the cells covering the search radius -- no
+ * string geohashes or per-query allocation. Runways with coordinates are packed the same way, grouped by airport.
+ * <p>
+ * Nearest airport lookups find the true nearest airport within the given distance, measured with
+ * {@link Airports#calculateDistanceInFeet(double, double, double, double)}.
+ */
+public final class AirportIndex {
+    public static final double CELL_SIZE_DEGREES = 0.1;
+
+    private static final int LAT_CELLS = (int) Math.ceil(180.0 / CELL_SIZE_DEGREES) + 1;
+    private static final int LON_CELLS = (int) Math.ceil(360.0 / CELL_SIZE_DEGREES);
+
+    // Feet per degree of latitude, slightly understated so the searched cells always cover the search radius.
+    private static final double FT_PER_DEGREE_LATITUDE = 0.99 * Math.toRadians(6371.0) * 3280.84;
+
+    private final Airport[] airports;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Sorted keys of the non-empty cells; airports in cellKeys[i] are at indices [cellStart[i], cellStart[i + 1]).
+    private final int[] cellKeys;
+    private final int[] cellStart;
+
+    // Runways of airport i are at indices [runwayStart[i], runwayStart[i + 1]).
+    private final Runway[] runways;
+    private final int[] runwayStart;
+    private final double[] runwayLat1;
+    private final double[] runwayLon1;
+    private final double[] runwayLat2;
+    private final double[] runwayLon2;
+
+    private AirportIndex(Airport[] airports) {
+        int n = airports.length;
+
+        this.airports = airports;
+        this.latitudes = new double[n];
+        this.longitudes = new double[n];
+
+        int[] keys = new int[n];
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = airports[i].getLatitude();
+            longitudes[i] = airports[i].getLongitude();
+            keys[i] = cellKey(latCell(latitudes[i]), lonCell(longitudes[i]));
+
+            if (i == 0 || keys[i] != keys[i - 1]) cells++;
+        }
+
+        cellKeys = new int[cells];
+        cellStart = new int[cells + 1];
+        for (int i = 0, cell = -1; i < n; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                cell++;
+                cellKeys[cell] = keys[i];
+                cellStart[cell] = i;
+            }
+        }
+        cellStart[cells] = n;
+
+        ArrayList<Runway> runwayList = new ArrayList<>();
+        runwayStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            runwayStart[i] = runwayList.size();
+            for (Runway runway : airports[i].getRunways()) {
+                if (runway.hasCoordinates()) runwayList.add(runway);
+            }
+        }
+        runwayStart[n] = runwayList.size();
+
+        runways = runwayList.toArray(new Runway[0]);
+        runwayLat1 = new double[runways.length];
+        runwayLon1 = new double[runways.length];
+        runwayLat2 = new double[runways.length];
+        runwayLon2 = new double[runways.length];
+        for (int i = 0; i < runways.length; i++) {
+            runwayLat1[i] = runways[i].getLat1();
+            runwayLon1[i] = runways[i].getLon1();
+            runwayLat2[i] = runways[i].getLat2();
+            runwayLon2[i] = runways[i].getLon2();
+        }
+    }
+
+    /**
+     * Builds an index over the given airports and the runways they contain at the time of the call.
+     *
+     * @param airports the airports to index
+     * @return the index
+     */
+    public static AirportIndex build(Collection<Airport> airports) {
+        Airport[] sorted = airports.toArray(new Airport[0]);
+        Arrays.sort(
+                sorted,
+                Comparator.comparingInt((Airport a) -> cellKey(latCell(a.getLatitude()), lonCell(a.getLongitude()))));
+
+        return new AirportIndex(sorted);
+    }
+
+    private static int latCell(double latitude) {
+        return Math.max(0, Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90.0) / CELL_SIZE_DEGREES)));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / CELL_SIZE_DEGREES), LON_CELLS);
+    }
+
+    private static int cellKey(int latCell, int lonCell) {
+        return latCell * LON_CELLS + lonCell;
+    }
+
+    public int size() {
+        return airports.length;
+    }
+
+    public Airport getAirport(int airportId) {
+        return airports[airportId];
+    }
+
+    public Runway getRunway(int runwayId) {
+        return runways[runwayId];
+    }
+
+    /**
+     * Finds the nearest airport to the given point that is strictly closer than maxDistanceFt.
+     *
+     * @param latitude      latitude of the point
+     * @param longitude     longitude of the point
+     * @param maxDistanceFt the search radius in feet
+     * @param distances     if non-null, distances[0] is set to the distance to the nearest airport and distances[1] to
+     *                      a lower bound on the distance to every other airport (at most maxDistanceFt)
+     * @return the id of the nearest airport, or -1 if there is none within maxDistanceFt
+     */
+    public int nearestAirport(double latitude, double longitude, double maxDistanceFt, double[] distances) {
+        double best = maxDistanceFt;
+        double second = maxDistanceFt;
+        int nearest = -1;
+
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || airports.length == 0) {
+            if (distances != null) {
+                distances[0] = Double.NaN;
+                distances[1] = second;
+            }
+            return -1;
+        }
+
+        double latRange = maxDistanceFt / FT_PER_DEGREE_LATITUDE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(90.0, Math.abs(latitude) + latRange)));
+        double lonRange = cosLat <= 1e-6 ? 180.0 : Math.min(180.0, latRange / cosLat);
+
+        int latCell0 = latCell(latitude - latRange);
+        int latCell1 = latCell(latitude + latRange);
+        int lonCellSpan = lonRange >= 180.0 ? LON_CELLS : (int) Math.ceil(lonRange / CELL_SIZE_DEGREES) * 2 + 2;
+        int lonCell0 = lonRange >= 180.0 ? 0 : lonCell(longitude - lonRange);
+        lonCellSpan = Math.min(lonCellSpan, LON_CELLS);
+
+        for (int latCell = latCell0; latCell <= latCell1; latCell++) {
+            for (int k = 0; k < lonCellSpan; k++) {
+                int lonCell = (lonCell0 + k) % LON_CELLS;
+
+                int cell = Arrays.binarySearch(cellKeys, cellKey(latCell, lonCell));
+                if (cell < 0) continue;
+
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (Math.abs(latitudes[i] - latitude) > latRange) continue;
+
+                    double distanceFt =
+                            Airports.calculateDistanceInFeet(latitude, longitude, latitudes[i], longitudes[i]);
+
+                    if (distanceFt < best) {
+                        second = best;
+                        best = distanceFt;
+                        nearest = i;
+                    } else if (distanceFt < second) {
+                        second = distanceFt;
+                    }
+                }
+            }
+        }
+
+        if (distances != null) {
+            distances[0] = nearest == -1 ? Double.NaN : best;
+            distances[1] = second;
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Finds the nearest runway of the given airport that is strictly closer than maxDistanceFt. Equivalent to
+     * {@link Airport#getNearestRunwayWithin}.
+     *
+     * @param airportId     the airport to search the runways of
+     * @param latitude      latitude of the point
+     * @param longitude     longitude of the point
+     * @param maxDistanceFt the search radius in feet
+     * @param distances     if non-null, distances[0] is set to the distance to the nearest runway
+     * @return the id of the nearest runway, or -1 if there is none within maxDistanceFt
+     */
+    public int nearestRunway(
+            int airportId, double latitude, double longitude, double maxDistanceFt, double[] distances) {
+        double best = maxDistanceFt;
+        int nearest = -1;
+
+        for (int i = runwayStart[airportId]; i < runwayStart[airportId + 1]; i++) {
+            double distanceFt = Airports.shortestDistanceBetweenLineAndPointFt(
+                    latitude, longitude, runwayLat1[i], runwayLon1[i], runwayLat2[i], runwayLon2[i]);
+
+            if (distanceFt < best) {
+                best = distanceFt;
+                nearest = i;
+            }
+        }
+
+        if (distances != null) distances[0] = nearest == -1 ? Double.NaN : best;
+
+        return nearest;
+    }
+
+    /**
+     * Finds the nearest airport and runway for every row of a flight. Rows above maxAltitudeAGLFt (or with a NaN
+     * altitude / position) are not searched and get no airport.
+     * <p>
+     * Consecutive rows almost always resolve to the same airport, so before doing a full search each row first
+     * checks whether the previous row's airport must still be the nearest: if the aircraft has moved m feet since the
+     * last full search, every other airport is at least (second nearest distance - m) away, so the previous airport
+     * is still the nearest as long as it is closer than that.
+     *
+     * @param latitude                latitude of each row
+     * @param longitude               longitude of each row
+     * @param altitudeAGL             altitude above ground level of each row, in feet
+     * @param length                  the number of rows
+     * @param maxAltitudeAGLFt        rows above this altitude are not searched
+     * @param maxAirportDistanceFt    search radius for airports, in feet
+     * @param maxRunwayDistanceFt     search radius for runways of the nearest airport, in feet
+     * @return the nearest airport and runway ids and distances for each row
+     */
+    public Proximity nearest(
+            double[] latitude,
+            double[] longitude,
+            double[] altitudeAGL,
+            int length,
+            double maxAltitudeAGLFt,
+            double maxAirportDistanceFt,
+            double maxRunwayDistanceFt) {
+        Proximity proximity = new Proximity(length);
+        double[] distances = new double[2];
+
+        int previousAirport = -1;
+        double previousLatitude = Double.NaN;
+        double previousLongitude = Double.NaN;
+        // Lower bound on the distance from (previousLatitude, previousLongitude) to any airport but previousAirport.
+        double otherAirportsBound = 0;
+
+        for (int i = 0; i < length; i++) {
+            double lat = latitude[i];
+            double lon = longitude[i];
+
+            if (!(altitudeAGL[i] <= maxAltitudeAGLFt) || Double.isNaN(lat) || Double.isNaN(lon)) continue;
+
+            int airport = -1;
+            double airportDistance = Double.NaN;
+
+            if (previousAirport != -1) {
+                double moved = Airports.calculateDistanceInFeet(previousLatitude, previousLongitude, lat, lon);
+                double bound = otherAirportsBound - moved;
+                double distance = Airports.calculateDistanceInFeet(
+                        lat, lon, latitudes[previousAirport], longitudes[previousAirport]);
+
+                if (distance < maxAirportDistanceFt && distance <= bound) {
+                    airport = previousAirport;
+                    airportDistance = distance;
+                    otherAirportsBound = bound;
+                }
+            }
+
+            if (airport == -1) {
+                airport = nearestAirport(lat, lon, maxAirportDistanceFt, distances);
+                airportDistance = distances[0];
+                otherAirportsBound = distances[1];
+            }
+
+            previousAirport = airport;
+            previousLatitude = lat;
+            previousLongitude = lon;
+
+            if (airport == -1) continue;
+
+            proximity.airportIds[i] = airport;
+            proximity.airportDistancesFt[i] = airportDistance;
+
+            int runway = nearestRunway(airport, lat, lon, maxRunwayDistanceFt, distances);
+            if (runway != -1) {
+                proximity.runwayIds[i] = runway;
+                proximity.runwayDistancesFt[i] = distances[0];
+            }
+        }
+
+        return proximity;
+    }
+
+    /**
+     * Per-row results of {@link #nearest}. Ids are -1 and distances are NaN for rows without a nearby airport /
+     * runway; ids can be resolved with {@link #getAirport(int)} and {@link #getRunway(int)}.
+     */
+    public static final class Proximity {
+        public final int[] airportIds;
+        public final double[] airportDistancesFt;
+        public final int[] runwayIds;
+        public final double[] runwayDistancesFt;
+
+        private Proximity(int length) {
+            airportIds = new int[length];
+            airportDistancesFt = new double[length];
+            runwayIds = new int[length];
+            runwayDistancesFt = new double[length];
+
+            Arrays.fill(airportIds, -1);
+            Arrays.fill(airportDistancesFt, Double.NaN);
+            Arrays.fill(runwayIds, -1);
+            Arrays.fill(runwayDistancesFt, Double.NaN);
+        }
+    }
+}
@@ -21,6 +21,9 @@ public final class Airports {
     private static final HashMap<String, Airport> SITE_NUMBER_TO_AIRPORT;
     private static final HashMap<String, Airport> IATA_TO_AIRPORT;
 
+    // Rebuilt whenever the airports are (re)loaded, see injectTestData.
+    private static AirportIndex airportIndex;
+
     private static final boolean TEST_MODE =
             Boolean.getBoolean("testMode") || "true".equalsIgnoreCase(System.getenv("TEST_MODE"));
 
@@ -34,6 +37,7 @@ public final class Airports {
         IATA_TO_AIRPORT = new HashMap<String, Airport>();
         if (TEST_MODE) {
             LOG.info("TEST MODE: skipping reading airports and runways files");
+            airportIndex = AirportIndex.build(List.of());
         } else {
             int maxHashSize = 0;
             int numberAirports = 0;
@@ -108,12 +112,14 @@ public final class Airports {
                     airport.addRunway(runway);
                 }
 
+                airportIndex = AirportIndex.build(SITE_NUMBER_TO_AIRPORT.values());
             } catch (Exception e) {
                 e.printStackTrace();
                 System.exit(1);
             }
 
             LOG.info("Read " + numberAirports + " airports.");
+            LOG.info("Indexed " + airportIndex.size() + " airports for proximity lookups.");
             LOG.info("airports HashMap size: " + GEO_HASH_TO_AIRPORT.size());
             LOG.info("max airport ArrayList: " + maxHashSize);
         }
@@ -130,6 +136,13 @@ public final class Airports {
         return iataCodes.stream().collect(Collectors.toMap(Function.identity(), Airports::getAirport));
     }
 
+    /**
+     * @return the spatial index over all loaded airports and runways, for bulk nearest airport / runway lookups.
+     */
+    public static AirportIndex getIndex() {
+        return airportIndex;
+    }
+
     public static Airport getAirport(String iataCode) {
         return IATA_TO_AIRPORT.get(iataCode);
     }
@@ -249,5 +262,6 @@ public final class Airports {
         SITE_NUMBER_TO_AIRPORT.putAll(site);
         GEO_HASH_TO_AIRPORT.clear();
         GEO_HASH_TO_AIRPORT.putAll(geo);
+        airportIndex = AirportIndex.build(site.values());
     }
 }
@@ -15,11 +15,14 @@ import org.ngafid.core.flights.TurnToFinal;
 
 /**
  * Backfills the turn_to_final cache by deleting outdated entries and recomputing TTF data.
- * Run after deployments that change TurnToFinal.serialVersionUID.
+ * Run after deployments that change how turn to finals are computed or TurnToFinal.CACHE_FORMAT_VERSION.
  * <p>
  * Run from repo root: ./run/backfill/backfill_ttf [--batch N] [--limit N] [--dry-run]
  * Or: ./run/backfill/backfill_ttf --full  (pre-populate from itinerary - all flights with approach data)
- * Or: ./run/backfill/backfill_ttf --update-version-only  (fast: just UPDATE version, no recompute)
+ * Or: ./run/backfill/backfill_ttf --convert [--batch N] [--limit N]  (rewrite Java serialized rows in the binary
+ * format, no recompute; rows are otherwise converted as they are read)
+ * Or: ./run/backfill/backfill_ttf --update-version-only  (fast: mark Java serialized rows with an older
+ * serialVersionUID as current, no recompute)
  */
 public final class BackfillTTFCache {
     private static final Logger LOG = Logger.getLogger(BackfillTTFCache.class.getName());
@@ -32,6 +35,7 @@ public final class BackfillTTFCache {
         boolean dryRun = false;
         boolean updateVersionOnly = false;
         boolean full = false;
+        boolean convert = false;
         for (int i = 0; i < args.length; i++) {
             if ("--batch".equals(args[i]) && i + 1 < args.length) {
                 batchSize = Integer.parseInt(args[i + 1]);
@@ -45,15 +49,21 @@ public final class BackfillTTFCache {
                 updateVersionOnly = true;
             } else if ("--full".equals(args[i])) {
                 full = true;
+            } else if ("--convert".equals(args[i])) {
+                convert = true;
             }
         }
 
-        System.out.println("TurnToFinal.serialVersionUID = " + TurnToFinal.serialVersionUID);
+        System.out.println("TurnToFinal.serialVersionUID = " + TurnToFinal.serialVersionUID
+                + ", TurnToFinal.CACHE_FORMAT_VERSION = " + TurnToFinal.CACHE_FORMAT_VERSION);
         Logger.getLogger("org.ngafid.core.flights.TurnToFinal").setLevel(Level.WARNING);
         try (Connection connection = Database.getConnection()) {
             if (updateVersionOnly) {
                 int updated = updateVersionOnly(connection);
                 System.out.println("Done. Updated version for " + updated + " rows.");
+            } else if (convert) {
+                int converted = convert(connection, batchSize, limit);
+                System.out.println("Done. Converted " + converted + " rows to the binary format.");
             } else {
                 System.out.println("Backfilling TTF cache (delete outdated, recompute)...");
                 if (dryRun) {
@@ -73,23 +83,63 @@ public final class BackfillTTFCache {
 
     /**
      * Fast path: UPDATE version column only. Use when only serialVersionUID changed, not the class structure.
-     * If deserialization fails on TTF page after this, run full backfill.
+     * Rows in the binary format are left alone. If deserialization fails on TTF page after this, run full backfill.
      *
      * @param connection the database connection
      * @return number of rows updated
      */
     private static int updateVersionOnly(Connection connection) throws SQLException {
         long currentVersion = TurnToFinal.serialVersionUID;
-        System.out.println("Updating version to " + currentVersion + " for all rows...");
-        try (PreparedStatement ps =
-                connection.prepareStatement("UPDATE turn_to_final SET version = ? WHERE version != ?")) {
+        System.out.println("Updating version to " + currentVersion + " for Java serialized rows...");
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE turn_to_final SET version = ? WHERE version != ? AND version != ?")) {
             ps.setLong(1, currentVersion);
             ps.setLong(2, currentVersion);
+            ps.setLong(3, TurnToFinal.CACHE_FORMAT_VERSION);
             int updated = ps.executeUpdate();
             return updated;
         }
     }
 
+    /**
+     * Rewrites the rows written with Java serialization in the binary format, without recomputing them. Reading a
+     * batch of rows from the cache converts the serialized ones.
+     *
+     * @param connection the database connection
+     * @param batchSize  number of rows to convert per batch
+     * @param limit      maximum number of rows to convert (or null for all)
+     * @return number of rows converted
+     */
+    private static int convert(Connection connection, int batchSize, Integer limit)
+            throws SQLException, IOException, ClassNotFoundException {
+        List<Integer> flightIds = new ArrayList<>();
+        String sql = "SELECT flight_id FROM turn_to_final WHERE version = ? ORDER BY flight_id";
+        if (limit != null) {
+            sql += " LIMIT " + limit;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setLong(1, TurnToFinal.serialVersionUID);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    flightIds.add(rs.getInt("flight_id"));
+                }
+            }
+        }
+        System.out.println("Found " + flightIds.size() + " Java serialized rows to convert.");
+
+        int converted = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < flightIds.size(); i += batchSize) {
+            List<Integer> batch = flightIds.subList(i, Math.min(i + batchSize, flightIds.size()));
+            converted += TurnToFinal.getTurnToFinalFromCacheBatch(connection, batch).size();
+
+            long elapsed = (System.currentTimeMillis() - start) / 1000;
+            System.out.println((i + batch.size()) + "/" + flightIds.size() + " converted=" + converted + " ("
+                    + elapsed + "s elapsed)");
+        }
+        return converted;
+    }
+
     static final class BackfillResult {
         private int recomputed;
         private int skipped;
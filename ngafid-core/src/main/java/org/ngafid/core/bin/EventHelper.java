@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.cli.*;
 import org.ngafid.core.Database;
+import org.ngafid.core.heatmap.HeatmapTiles;
 import org.ngafid.core.uploads.UploadDoesNotExistException;
 
 /**
@@ -170,6 +171,9 @@ public class EventHelper {
                     }
                 }
 
+                // The deleted events' heatmap points are gone, so recompute the definition's heatmap tiles.
+                HeatmapTiles.rebuild(connection, defId);
+
                 // TODO: In the future, we will have to delete event statistics stuff as well.
 
                 connection.commit();
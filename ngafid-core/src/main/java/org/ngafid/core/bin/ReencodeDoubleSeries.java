@@ -0,0 +1,165 @@
+package org.ngafid.core.bin;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+import org.ngafid.core.Database;
+import org.ngafid.core.util.Compression;
+import org.ngafid.core.util.DoubleArrayCodec;
+
+/**
+ * Re-encodes `double_series.data` blobs that are still in the original {@link DoubleArrayCodec#DEFLATE} format with
+ * the current codecs. Rows are processed in id order, so an interrupted run can be resumed with --start-id. Blobs that
+ * already have a codec header are left untouched, so the tool can safely be run more than once.
+ * <p>
+ * Run from repo root: ./run/backfill/reencode_double_series [--batch N] [--limit N] [--start-id N] [--dry-run]
+ */
+public final class ReencodeDoubleSeries {
+    private static final Logger LOG = Logger.getLogger(ReencodeDoubleSeries.class.getName());
+
+    private ReencodeDoubleSeries() {}
+
+    public static void main(String[] args) {
+        int batchSize = 1000;
+        Integer limit = null;
+        int startId = 0;
+        boolean dryRun = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--batch".equals(args[i]) && i + 1 < args.length) {
+                batchSize = Integer.parseInt(args[i + 1]);
+                i++;
+            } else if ("--limit".equals(args[i]) && i + 1 < args.length) {
+                limit = Integer.parseInt(args[i + 1]);
+                i++;
+            } else if ("--start-id".equals(args[i]) && i + 1 < args.length) {
+                startId = Integer.parseInt(args[i + 1]);
+                i++;
+            } else if ("--dry-run".equals(args[i])) {
+                dryRun = true;
+            }
+        }
+
+        if (dryRun) {
+            System.out.println("DRY RUN - no changes will be made");
+        }
+
+        try (Connection connection = Database.getConnection()) {
+            ReencodeResult result = reencode(connection, batchSize, limit, startId, dryRun);
+            System.out.println("Done. reencoded=" + result.getReencoded() + " skipped=" + result.getSkipped()
+                    + " errors=" + result.getErrors() + " bytes before=" + result.getBytesBefore()
+                    + " bytes after=" + result.getBytesAfter());
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    static final class ReencodeResult {
+        private int reencoded;
+        private int skipped;
+        private int errors;
+        private long bytesBefore;
+        private long bytesAfter;
+
+        int getReencoded() {
+            return reencoded;
+        }
+
+        int getSkipped() {
+            return skipped;
+        }
+
+        int getErrors() {
+            return errors;
+        }
+
+        long getBytesBefore() {
+            return bytesBefore;
+        }
+
+        long getBytesAfter() {
+            return bytesAfter;
+        }
+    }
+
+    /**
+     * Re-encodes legacy double series blobs.
+     *
+     * @param connection the database connection
+     * @param batchSize  number of rows to read and update per batch
+     * @param limit      maximum number of rows to examine (or null for all)
+     * @param startId    only rows with an id greater than this are examined
+     * @param dryRun     if true, no changes will be made
+     * @return the re-encode result
+     * @throws SQLException if there is a database error
+     */
+    public static ReencodeResult reencode(
+            Connection connection, int batchSize, Integer limit, int startId, boolean dryRun) throws SQLException {
+        ReencodeResult result = new ReencodeResult();
+
+        int lastId = startId;
+        int examined = 0;
+        long start = System.currentTimeMillis();
+
+        try (PreparedStatement select = connection.prepareStatement(
+                        "SELECT id, length, data FROM double_series WHERE id > ? ORDER BY id LIMIT ?");
+                PreparedStatement update =
+                        connection.prepareStatement("UPDATE double_series SET data = ? WHERE id = ?")) {
+            while (limit == null || examined < limit) {
+                int rows = limit == null ? batchSize : Math.min(batchSize, limit - examined);
+                select.setInt(1, lastId);
+                select.setInt(2, rows);
+
+                int read = 0;
+                int updates = 0;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        read++;
+                        lastId = resultSet.getInt(1);
+                        int length = resultSet.getInt(2);
+                        byte[] data = resultSet.getBytes(3);
+
+                        try {
+                            if (data == null || DoubleArrayCodec.of(data) != DoubleArrayCodec.DEFLATE) {
+                                result.skipped++;
+                                continue;
+                            }
+
+                            double[] values = Compression.inflateDoubleArray(data, length);
+                            byte[] encoded = Compression.compressDoubleArray(values, length);
+                            result.reencoded++;
+                            result.bytesBefore += data.length;
+                            result.bytesAfter += encoded.length;
+
+                            if (!dryRun) {
+                                update.setBytes(1, encoded);
+                                update.setInt(2, lastId);
+                                update.addBatch();
+                                updates++;
+                            }
+                        } catch (IOException e) {
+                            LOG.warning("Failed to re-encode double series " + lastId + ": " + e.getMessage());
+                            result.errors++;
+                        }
+                    }
+                }
+
+                if (updates > 0) update.executeBatch();
+
+                if (read == 0) break;
+                examined += read;
+
+                long elapsed = (System.currentTimeMillis() - start) / 1000;
+                System.out.println("last id=" + lastId + " examined=" + examined + " reencoded=" + result.reencoded
+                        + " skipped=" + result.skipped + " errors=" + result.errors + " (" + elapsed
+                        + "s elapsed)");
+            }
+        }
+
+        return result;
+    }
+}
@@ -13,6 +13,7 @@ import java.util.logging.Logger;
 import org.ngafid.core.flights.Airframes;
 import org.ngafid.core.flights.DoubleTimeSeries;
 import org.ngafid.core.flights.Flight;
+import org.ngafid.core.heatmap.HeatmapTiles;
 import org.ngafid.core.util.TimeUtils;
 
 public class Event {
@@ -427,6 +428,8 @@ public class Event {
     }
 
     public static void deleteEvents(Connection connection, int flightId, int eventDefinitionId) throws SQLException {
+        HeatmapTiles.removeEvents(connection, flightId, eventDefinitionId);
+
         String query = "DELETE FROM events WHERE event_definition_id = ? AND (flight_id = ? OR other_flight_id = ?)";
         try (PreparedStatement preparedStatement = connection.prepareStatement(query)) {
             preparedStatement.setInt(1, eventDefinitionId);
@@ -16,6 +16,7 @@ import java.util.logging.Logger;
 import org.ngafid.core.Database;
 import org.ngafid.core.flights.Airframes;
 import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.util.filters.CompiledConditional;
 import org.ngafid.core.util.filters.Filter;
 
 public class EventDefinition {
@@ -83,6 +84,9 @@ public class EventDefinition {
     private final TreeSet<String> severityColumnNames;
     private final SeverityType severityType;
 
+    // Compiled lazily from the filter the first time it is needed, see getCompiledConditional.
+    private CompiledConditional compiledConditional;
+
     /**
      * Creates an event definition.
      *
@@ -720,6 +724,22 @@ public class EventDefinition {
         return filter;
     }
 
+    /**
+     * Gets the event condition compiled for row by row evaluation. This is compiled once per event definition and is
+     * immutable, so it can be shared between threads.
+     *
+     * @return the compiled event condition
+     */
+    public CompiledConditional getCompiledConditional() {
+        CompiledConditional compiled = compiledConditional;
+        if (compiled == null) {
+            compiled = new CompiledConditional(filter);
+            compiledConditional = compiled;
+        }
+
+        return compiled;
+    }
+
     /**
      * returns the columnNames hashmap
      *
@@ -750,6 +770,38 @@ public class EventDefinition {
         return severity;
     }
 
+    /**
+     * Looks up the severity columns once so that severities can be computed per row with
+     * {@link #getSeverity(double[][], double, int)} rather than through the column map.
+     *
+     * @param columns the available double series, by name
+     * @return the data of each severity column
+     */
+    public double[][] getSeverityColumns(Map<String, DoubleTimeSeries> columns) {
+        double[][] severityColumns = new double[severityColumnNames.size()][];
+
+        int i = 0;
+        for (String columnName : severityColumnNames) {
+            severityColumns[i++] = columns.get(columnName).innerArray();
+        }
+
+        return severityColumns;
+    }
+
+    public double getSeverity(double[][] severityColumns, int time) {
+        return getSeverity(severityColumns, severityType.defaultValue(), time);
+    }
+
+    public double getSeverity(double[][] severityColumns, double severity, int time) {
+        for (double[] column : severityColumns) {
+            double value = column[time];
+            if (Double.isNaN(value)) continue;
+            severity = severityType.apply(severity, value);
+        }
+
+        return severity;
+    }
+
     /**
      * Have an event definition update itself in the database.
      *
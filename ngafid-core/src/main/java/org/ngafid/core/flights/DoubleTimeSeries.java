@@ -317,11 +317,8 @@ public class DoubleTimeSeries {
     private void calculateValidCountMinMaxAvg() {
         if (size <= 0) return;
 
-        min = data[0];
-        max = data[0];
-
         double sum = 0.0;
-        for (int i = 1; i < size; i++) {
+        for (int i = 0; i < size; i++) {
             if (Double.isNaN(data[i])) continue;
 
             sum += data[i];
@@ -331,6 +328,12 @@ public class DoubleTimeSeries {
             validCount++;
         }
 
+        if (validCount == 0) {
+            // Stored as NULL, like a column that only had empty values
+            min = Double.NaN;
+            max = Double.NaN;
+        }
+
         avg = sum / validCount;
     }
 
@@ -468,7 +471,7 @@ public class DoubleTimeSeries {
         }
 
         // UPDATED COMPRESSION CODE
-        byte[] compressed = Compression.compressDoubleArray(this.data);
+        byte[] compressed = Compression.compressDoubleArray(this.data, this.size);
         Blob seriesBlob = new SerialBlob(compressed);
 
         preparedStatement.setBlob(9, seriesBlob);
@@ -12,6 +12,8 @@ import java.util.logging.Logger;
 import org.ngafid.core.Database;
 import org.ngafid.core.event.Event;
 import org.ngafid.core.event.EventDefinition;
+import org.ngafid.core.metrics.IngestMetrics;
+import org.ngafid.core.metrics.IngestSpan;
 import org.ngafid.core.util.FlightTag;
 import org.ngafid.core.util.TimeUtils;
 import org.ngafid.core.util.filters.Filter;
@@ -34,6 +36,16 @@ public class Flight {
         ERROR;
     }
 
+    /**
+     * How much of each flight to load along with its row of the `flights` table.
+     */
+    public enum Detail {
+        // The row, airframe and tail number
+        METADATA,
+        // The metadata, itinerary and tags
+        FULL;
+    }
+
     private static final Logger LOG = Logger.getLogger(Flight.class.getName());
     private static final String FLIGHT_COLUMNS = "id, fleet_id, uploader_id, upload_id, system_id, airframe_id, "
             + " start_time, end_time, filename, md5_hash, number_rows, status ";
@@ -45,7 +57,7 @@ public class Flight {
     private final String md5Hash;
     private final String startDateTime;
     private final String endDateTime;
-    private final List<Itinerary> itinerary;
+    private List<Itinerary> itinerary;
 
     // TODO: Roll a lot of this stuff up into some sort of meta-data object?
     private int id = -1;
@@ -104,6 +116,22 @@ public class Flight {
     }
 
     public Flight(Connection connection, ResultSet resultSet) throws SQLException {
+        this(resultSet, new Airframes.Airframe(connection, resultSet.getInt(6)));
+
+        // this will set tailNumber and tailConfirmed
+        tailNumber = Tails.getTail(connection, fleetId, systemId);
+
+        itinerary = Itinerary.getItinerary(connection, id);
+
+        // Populate the tags
+        this.tags = getTags(connection, id);
+    }
+
+    /**
+     * Reads a row of {@link #FLIGHT_COLUMNS} without looking up its tail number, itinerary or tags, which
+     * {@link #readFlights} loads for all the flights of a query at once.
+     */
+    private Flight(ResultSet resultSet, Airframes.Airframe airframe) throws SQLException {
         id = resultSet.getInt(1);
         fleetId = resultSet.getInt(2);
         uploaderId = resultSet.getInt(3);
@@ -111,10 +139,7 @@ public class Flight {
 
         systemId = resultSet.getString(5);
 
-        airframe = new Airframes.Airframe(connection, resultSet.getInt(6));
-
-        // this will set tailNumber and tailConfirmed
-        tailNumber = Tails.getTail(connection, fleetId, systemId);
+        this.airframe = airframe;
 
         startDateTime = resultSet.getString(7);
         endDateTime = resultSet.getString(8);
@@ -122,11 +147,56 @@ public class Flight {
         md5Hash = resultSet.getString(10);
         numberRows = resultSet.getInt(11);
         status = FlightStatus.valueOf(resultSet.getString(12));
+    }
 
-        itinerary = Itinerary.getItinerary(connection, id);
+    /**
+     * Reads every flight in a result set of {@link #FLIGHT_COLUMNS}, then looks up their tail numbers and (for
+     * {@link Detail#FULL}) their itineraries and tags with a few set-based queries, rather than several queries per
+     * flight. Airframes are cached by {@link Airframes}, so they are only queried the first time they are seen.
+     *
+     * @param connection the database connection
+     * @param resultSet  the result set, positioned before its first row
+     * @param detail     how much of each flight to load
+     * @return the flights, in the order of the result set
+     * @throws SQLException if a database error occurs
+     */
+    private static ArrayList<Flight> readFlights(Connection connection, ResultSet resultSet, Detail detail)
+            throws SQLException {
+        ArrayList<Flight> flights = new ArrayList<>();
+        while (resultSet.next()) {
+            flights.add(new Flight(resultSet, new Airframes.Airframe(connection, resultSet.getInt(6))));
+        }
+        if (flights.isEmpty()) return flights;
 
-        // Populate the tags
-        this.tags = getTags(connection, id);
+        Map<Integer, Set<String>> systemIdsByFleet = new HashMap<>();
+        for (Flight flight : flights) {
+            systemIdsByFleet.computeIfAbsent(flight.fleetId, k -> new HashSet<>()).add(flight.systemId);
+        }
+
+        Map<Integer, Map<String, String>> tailsByFleet = new HashMap<>();
+        for (var entry : systemIdsByFleet.entrySet()) {
+            tailsByFleet.put(entry.getKey(), Tails.getTails(connection, entry.getKey(), entry.getValue()));
+        }
+
+        for (Flight flight : flights) {
+            flight.tailNumber = tailsByFleet.get(flight.fleetId).get(flight.systemId);
+        }
+
+        if (detail == Detail.FULL) {
+            List<Integer> flightIds = new ArrayList<>(flights.size());
+            for (Flight flight : flights) flightIds.add(flight.id);
+
+            Map<Integer, ArrayList<Itinerary>> itineraries = Itinerary.getItineraries(connection, flightIds);
+            Map<Integer, List<FlightTag>> tags = getTags(connection, flightIds);
+
+            for (Flight flight : flights) {
+                flight.itinerary = itineraries.getOrDefault(flight.id, new ArrayList<>());
+                // Flights without tags have null tags, as with getTags(Connection, int)
+                flight.tags = tags.get(flight.id);
+            }
+        }
+
+        return flights;
     }
 
     public static ArrayList<Flight> getFlightsFromUpload(Connection connection, int uploadId) throws SQLException {
@@ -262,13 +332,7 @@ public class Flight {
     private static ArrayList<Flight> getFlightsFromDb(Connection connection, String queryString) throws SQLException {
         try (PreparedStatement query = connection.prepareStatement(queryString);
                 ResultSet resultSet = query.executeQuery()) {
-
-            ArrayList<Flight> flights = new ArrayList<>();
-            while (resultSet.next()) {
-                flights.add(new Flight(connection, resultSet));
-            }
-
-            return flights;
+            return readFlights(connection, resultSet, Detail.FULL);
         }
     }
 
@@ -414,12 +478,7 @@ public class Flight {
             }
 
             try (ResultSet resultSet = query.executeQuery()) {
-                ArrayList<Flight> flights = new ArrayList<>();
-                while (resultSet.next()) {
-                    flights.add(new Flight(connection, resultSet));
-                }
-
-                return flights;
+                return readFlights(connection, resultSet, Detail.FULL);
             }
         }
     }
@@ -483,12 +542,7 @@ public class Flight {
             setQueryParameters(parameters, query);
 
             try (ResultSet resultSet = query.executeQuery()) {
-                ArrayList<Flight> flights = new ArrayList<>();
-                while (resultSet.next()) {
-                    flights.add(new Flight(connection, resultSet));
-                }
-
-                return flights;
+                return readFlights(connection, resultSet, Detail.FULL);
             }
         }
     }
@@ -561,6 +615,35 @@ public class Flight {
      */
     public static ArrayList<Flight> getFlights(Connection connection, String extraCondition, int limit, int offset)
             throws SQLException {
+        return getFlights(connection, extraCondition, limit, offset, Detail.FULL);
+    }
+
+    /**
+     * Returns flights matching the extra condition, without their itineraries and tags. This is cheaper for callers
+     * that only need the ids and metadata of the flights.
+     * @param connection the database connection
+     * @param extraCondition the SQL condition to apply
+     * @param detail how much of each flight to load
+     * @return the matching flights
+     * @throws SQLException if a database error occurs
+     */
+    public static ArrayList<Flight> getFlights(Connection connection, String extraCondition, Detail detail)
+            throws SQLException {
+        return getFlights(connection, extraCondition, 0, 0, detail);
+    }
+
+    /**
+     * Returns flights matching the extra condition with limit and offset for chunked loading.
+     * @param connection the database connection
+     * @param extraCondition the SQL condition to apply
+     * @param limit the maximum number of flights to return
+     * @param offset the query offset
+     * @param detail how much of each flight to load
+     * @return the matching flights
+     * @throws SQLException if a database error occurs
+     */
+    public static ArrayList<Flight> getFlights(
+            Connection connection, String extraCondition, int limit, int offset, Detail detail) throws SQLException {
         String queryString = "SELECT " + FLIGHT_COLUMNS + " FROM flights WHERE (" + extraCondition + ")";
 
         if (limit > 0) {
@@ -572,13 +655,7 @@ public class Flight {
 
         try (PreparedStatement query = connection.prepareStatement(queryString);
                 ResultSet resultSet = query.executeQuery()) {
-
-            ArrayList<Flight> flights = new ArrayList<>();
-            while (resultSet.next()) {
-                flights.add(new Flight(connection, resultSet));
-            }
-
-            return flights;
+            return readFlights(connection, resultSet, detail);
         }
     }
 
@@ -586,11 +663,8 @@ public class Flight {
         String queryString = "SELECT " + FLIGHT_COLUMNS + " FROM flights WHERE id = " + flightId;
         try (PreparedStatement query = connection.prepareStatement(queryString);
                 ResultSet resultSet = query.executeQuery()) {
-            if (resultSet.next()) {
-                return new Flight(connection, resultSet);
-            } else {
-                return null;
-            }
+            List<Flight> flights = readFlights(connection, resultSet, Detail.FULL);
+            return flights.isEmpty() ? null : flights.get(0);
         }
     }
 
@@ -712,6 +786,39 @@ public class Flight {
         }
     }
 
+    /**
+     * Gets the tags associated with each of the given flights, with one query per {@link #LOAD_CHUNK_SIZE} flights.
+     *
+     * @param connection the database connection
+     * @param flightIds  the ids of the flights that the tags are retrieved for
+     * @return a map from flight id to the flight's tags, with no entry for flights without tags
+     * @throws SQLException if there is an error with the database query
+     */
+    public static Map<Integer, List<FlightTag>> getTags(Connection connection, List<Integer> flightIds)
+            throws SQLException {
+        Map<Integer, List<FlightTag>> tags = new HashMap<>();
+
+        for (int from = 0; from < flightIds.size(); from += LOAD_CHUNK_SIZE) {
+            List<Integer> chunk = flightIds.subList(from, Math.min(flightIds.size(), from + LOAD_CHUNK_SIZE));
+            String queryString = "SELECT t.id, t.fleet_id, t.name, t.description, t.color, m.flight_id "
+                    + "FROM flight_tag_map m INNER JOIN flight_tags t ON t.id = m.tag_id WHERE m.flight_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY t.id";
+
+            try (PreparedStatement query = connection.prepareStatement(queryString)) {
+                for (int i = 0; i < chunk.size(); i++) query.setInt(i + 1, chunk.get(i));
+
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) {
+                        tags.computeIfAbsent(resultSet.getInt(6), k -> new ArrayList<>())
+                                .add(new FlightTag(resultSet));
+                    }
+                }
+            }
+        }
+
+        return tags;
+    }
+
     /**
      * Gets all the tags for a given fleet
      *
@@ -1044,6 +1151,22 @@ public class Flight {
 
     public static void batchUpdateDatabase(Connection connection, Iterable<Flight> flights)
             throws IOException, SQLException {
+        batchUpdateDatabase(connection, flights, new FlightKeyCache());
+    }
+
+    /**
+     * Inserts flights and everything computed for them into the database. The flights themselves are written with
+     * multi-row inserts, and their tails are resolved in bulk through the supplied cache, which may be shared by all
+     * batches of an upload.
+     *
+     * @param connection the database connection
+     * @param flights    the flights to insert
+     * @param keyCache   cache of the tails the flights refer to
+     * @throws IOException  if a series cannot be compressed
+     * @throws SQLException if a database error occurs
+     */
+    public static void batchUpdateDatabase(Connection connection, Iterable<Flight> flights, FlightKeyCache keyCache)
+            throws IOException, SQLException {
 
         // Create a list of flights to batch insert from the iterable
         List<Flight> flightList = new ArrayList<>();
@@ -1051,33 +1174,31 @@ public class Flight {
             flightList.add(flight);
         }
 
-        String sql = """
-            INSERT INTO flights (fleet_id, uploader_id, upload_id, airframe_id, system_id, start_time,
-                                 end_time, filename, md5_hash, number_rows, status)
-                                 VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
-
-        try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        if (flightList.isEmpty()) return;
 
+        String file = flightList.getFirst().filename;
+        IngestSpan span = IngestMetrics.start("db_insert", "flights", file).rows(flightList.size());
+        try {
+            Map<FlightKeyCache.TailKey, String> suggestedTails = new LinkedHashMap<>();
             for (Flight flight : flightList) {
-
                 flight.airframe =
                         new Airframes.Airframe(connection, flight.airframe.getName(), flight.airframe.getType());
                 Airframes.setAirframeFleet(connection, flight.airframe.getId(), flight.fleetId);
-                Tails.setSuggestedTail(connection, flight.fleetId, flight.systemId, flight.suggestedTailNumber);
-                flight.tailNumber = Tails.getTail(connection, flight.fleetId, flight.systemId);
-
-                flight.addBatch(ps);
-                ps.executeUpdate();
-                try (ResultSet rs = ps.getGeneratedKeys()) {
+                suggestedTails.putIfAbsent(
+                        new FlightKeyCache.TailKey(flight.fleetId, flight.systemId), flight.suggestedTailNumber);
+            }
 
-                    // Got a generated key, set the flight id
-                    if (rs.next()) flight.id = rs.getInt(1);
+            keyCache.resolveTails(connection, suggestedTails);
+            for (Flight flight : flightList) {
+                flight.tailNumber = keyCache.getTail(new FlightKeyCache.TailKey(flight.fleetId, flight.systemId));
+            }
 
-                    // Otherwise, throw an exception
-                    else throw new SQLException("Failed to retrieve generated id for flight " + flight.systemId);
-                }
+            for (int from = 0; from < flightList.size(); from += INSERT_CHUNK_SIZE) {
+                int to = Math.min(flightList.size(), from + INSERT_CHUNK_SIZE);
+                insertFlightRows(connection, flightList.subList(from, to));
             }
+        } finally {
+            span.end();
         }
 
         // Set the flight ID for each event in the flight
@@ -1088,14 +1209,21 @@ public class Flight {
         }
 
         // Insert all events for each flight
-        for (Flight flight : flightList) {
+        span = IngestMetrics.start("db_insert", "events", file);
+        try {
+            for (Flight flight : flightList) {
 
-            // Flight has no events, skip it
-            if (flight.events == null || flight.events.isEmpty()) continue;
+                // Flight has no events, skip it
+                if (flight.events == null || flight.events.isEmpty()) continue;
 
-            Event.batchInsertion(connection, flight, flight.events);
+                Event.batchInsertion(connection, flight, flight.events);
+                span.rows(flight.events.size());
+            }
+        } finally {
+            span.end();
         }
 
+        span = IngestMetrics.start("db_insert", "double_series", file);
         try (PreparedStatement doubleTSPreparedStatement = DoubleTimeSeries.createPreparedStatement(connection)) {
 
             // Insert all double time series for each flight
@@ -1104,8 +1232,15 @@ public class Flight {
                     doubleTS.addBatch(connection, doubleTSPreparedStatement, flight.id);
 
             doubleTSPreparedStatement.executeBatch();
+
+            if (span.isActive()) {
+                for (Flight flight : flightList) span.rows((long) flight.doubleTimeSeries.size() * flight.numberRows);
+            }
+        } finally {
+            span.end();
         }
 
+        span = IngestMetrics.start("db_insert", "string_series", file);
         try (PreparedStatement stringTSPreparedStatement = StringTimeSeries.createPreparedStatement(connection)) {
 
             // Insert all string time series for each flight
@@ -1114,8 +1249,15 @@ public class Flight {
                     stringTS.addBatch(connection, stringTSPreparedStatement, flight.id);
 
             stringTSPreparedStatement.executeBatch();
+
+            if (span.isActive()) {
+                for (Flight flight : flightList) span.rows((long) flight.stringTimeSeries.size() * flight.numberRows);
+            }
+        } finally {
+            span.end();
         }
 
+        span = IngestMetrics.start("db_insert", "itinerary", file);
         try (PreparedStatement itineraryPreparedStatement = Itinerary.createPreparedStatement(connection);
                 PreparedStatement airportPreparedStatement = Itinerary.createAirportPreparedStatement(connection);
                 PreparedStatement runwayPreparedStatement = Itinerary.createRunwayPreparedStatement(connection)) {
@@ -1141,6 +1283,8 @@ public class Flight {
             itineraryPreparedStatement.executeBatch();
             airportPreparedStatement.executeBatch();
             runwayPreparedStatement.executeBatch();
+        } finally {
+            span.end();
         }
 
         try (PreparedStatement warningPreparedStatement = FlightWarning.createPreparedStatement(connection)) {
@@ -1165,8 +1309,64 @@ public class Flight {
             processingStatusStatement.executeBatch();
         }
 
-        for (Flight flight : flightList) {
-            updateAggregateFlightHoursByAirframe(connection, flight);
+        updateAggregateFlightHoursByAirframe(connection, flightList);
+    }
+
+    /**
+     * The number of flights written by a single multi-row insert.
+     */
+    private static final int INSERT_CHUNK_SIZE = 500;
+
+    /**
+     * The number of flights whose tails, itineraries or tags are looked up by a single statement.
+     */
+    static final int LOAD_CHUNK_SIZE = 500;
+
+    /**
+     * Inserts the rows of several flights with a single statement and sets their ids from the generated keys, which
+     * are returned in the order the rows were written.
+     *
+     * @param connection the database connection
+     * @param flights    the flights to insert
+     * @throws SQLException if a database error occurs or not every flight got an id
+     */
+    private static void insertFlightRows(Connection connection, List<Flight> flights) throws SQLException {
+        String sql = """
+            INSERT INTO flights (fleet_id, uploader_id, upload_id, airframe_id, system_id, start_time,
+                                 end_time, filename, md5_hash, number_rows, status)
+                                 VALUES
+        """ + String.join(", ", Collections.nCopies(flights.size(), "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"));
+
+        try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            int parameter = 1;
+            for (Flight flight : flights) parameter = flight.setInsertParameters(ps, parameter);
+
+            ps.executeUpdate();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (Flight flight : flights) {
+                    // Got a generated key, set the flight id
+                    if (rs.next()) flight.id = rs.getInt(1);
+
+                    // Otherwise, throw an exception
+                    else throw new SQLException("Failed to retrieve generated id for flight " + flight.systemId);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param flight a flight
+     * @return the duration of the flight in hours, or NaN if its start or end time is missing or malformed
+     */
+    private static double getFlightHours(Flight flight) {
+        if (flight.startDateTime == null || flight.endDateTime == null) return Double.NaN;
+        try {
+            java.sql.Timestamp start = java.sql.Timestamp.valueOf(flight.startDateTime);
+            java.sql.Timestamp end = java.sql.Timestamp.valueOf(flight.endDateTime);
+            return (end.getTime() - start.getTime()) / 1000.0 / 3600.0;
+        } catch (IllegalArgumentException e) {
+            // Ignore flights with invalid date format
+            return Double.NaN;
         }
     }
 
@@ -1178,26 +1378,45 @@ public class Flight {
      * @throws SQLException if a database error occurs
      */
     public static void updateAggregateFlightHoursByAirframe(Connection connection, Flight flight) throws SQLException {
+        updateAggregateFlightHoursByAirframe(connection, List.of(flight));
+    }
+
+    /**
+     * Updates the v_aggregate_flight_hours_by_airframe table for a batch of flights, with a single upsert holding one
+     * row per airframe.
+     * @param connection Connection to the database
+     * @param flights the flights to update the aggregate hours for
+     * @throws SQLException if a database error occurs
+     */
+    public static void updateAggregateFlightHoursByAirframe(Connection connection, List<Flight> flights)
+            throws SQLException {
         // Clarify if we need this
         //  if (flight.status != FlightStatus.SUCCESS && flight.status != FlightStatus.WARNING) return;
-        if (flight.startDateTime == null || flight.endDateTime == null) return;
-        try {
-            java.sql.Timestamp start = java.sql.Timestamp.valueOf(flight.startDateTime);
-            java.sql.Timestamp end = java.sql.Timestamp.valueOf(flight.endDateTime);
-            double hours = (end.getTime() - start.getTime()) / 1000.0 / 3600.0;
-            if (hours <= 0) return;
-            String sql =
-                    "INSERT INTO v_aggregate_flight_hours_by_airframe (airframe_id, num_flights, total_flight_hours) "
-                            + "VALUES (?, 1, ?) "
-                            + "ON DUPLICATE KEY UPDATE num_flights = num_flights + 1, "
-                            + "total_flight_hours = total_flight_hours + VALUES(total_flight_hours)";
-            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-                stmt.setInt(1, flight.airframe.getId());
-                stmt.setDouble(2, hours);
-                stmt.executeUpdate();
+        Map<Integer, Integer> flightsByAirframe = new LinkedHashMap<>();
+        Map<Integer, Double> hoursByAirframe = new HashMap<>();
+        for (Flight flight : flights) {
+            double hours = getFlightHours(flight);
+            if (!(hours > 0)) continue;
+
+            int airframeId = flight.airframe.getId();
+            flightsByAirframe.merge(airframeId, 1, Integer::sum);
+            hoursByAirframe.merge(airframeId, hours, Double::sum);
+        }
+
+        if (flightsByAirframe.isEmpty()) return;
+
+        String sql = "INSERT INTO v_aggregate_flight_hours_by_airframe (airframe_id, num_flights, total_flight_hours) "
+                + "VALUES " + String.join(", ", Collections.nCopies(flightsByAirframe.size(), "(?, ?, ?)"))
+                + " ON DUPLICATE KEY UPDATE num_flights = num_flights + VALUES(num_flights), "
+                + "total_flight_hours = total_flight_hours + VALUES(total_flight_hours)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            for (var entry : flightsByAirframe.entrySet()) {
+                stmt.setInt(parameter++, entry.getKey());
+                stmt.setInt(parameter++, entry.getValue());
+                stmt.setDouble(parameter++, hoursByAirframe.get(entry.getKey()));
             }
-        } catch (IllegalArgumentException e) {
-            // Ignore flights with invalid date format
+            stmt.executeUpdate();
         }
     }
 
@@ -1418,20 +1637,28 @@ public class Flight {
         return series;
     }
 
-    private void addBatch(PreparedStatement preparedStatement) throws SQLException {
-        preparedStatement.setInt(1, fleetId);
-        preparedStatement.setInt(2, uploaderId);
-        preparedStatement.setInt(3, uploadId);
-        preparedStatement.setInt(4, airframe.getId());
-        preparedStatement.setString(5, systemId);
-        preparedStatement.setString(6, startDateTime);
-        preparedStatement.setString(7, endDateTime);
-        preparedStatement.setString(8, filename);
-        preparedStatement.setString(9, md5Hash);
-        preparedStatement.setInt(10, numberRows);
-        preparedStatement.setString(11, FlightStatus.PROCESSING.toString());
-
-        preparedStatement.addBatch();
+    /**
+     * Sets the values of this flight's row in an insert into the flights table.
+     *
+     * @param preparedStatement the insert statement
+     * @param offset            the index of the first parameter of this flight's row
+     * @return the index of the parameter after this flight's row
+     * @throws SQLException if a parameter cannot be set
+     */
+    private int setInsertParameters(PreparedStatement preparedStatement, int offset) throws SQLException {
+        preparedStatement.setInt(offset, fleetId);
+        preparedStatement.setInt(offset + 1, uploaderId);
+        preparedStatement.setInt(offset + 2, uploadId);
+        preparedStatement.setInt(offset + 3, airframe.getId());
+        preparedStatement.setString(offset + 4, systemId);
+        preparedStatement.setString(offset + 5, startDateTime);
+        preparedStatement.setString(offset + 6, endDateTime);
+        preparedStatement.setString(offset + 7, filename);
+        preparedStatement.setString(offset + 8, md5Hash);
+        preparedStatement.setInt(offset + 9, numberRows);
+        preparedStatement.setString(offset + 10, FlightStatus.PROCESSING.toString());
+
+        return offset + 11;
     }
 
     /**
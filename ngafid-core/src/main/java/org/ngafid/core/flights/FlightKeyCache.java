@@ -0,0 +1,89 @@
+package org.ngafid.core.flights;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the tail numbers of the flights inserted by {@link Flight#batchUpdateDatabase}, so a batch of flights resolves
+ * its tails with one insert and one select per fleet rather than two queries per flight.
+ * <p>
+ * Airframe ids are already cached for the lifetime of the process by {@link Airframes}. Tails are not, since users
+ * can confirm or change them at any time, so one cache should be used for at most a single upload.
+ */
+public final class FlightKeyCache {
+    /**
+     * The number of rows written or looked up by a single statement.
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * A system id within a fleet.
+     *
+     * @param fleetId  the fleet id
+     * @param systemId the system id of the flight data recorder
+     */
+    public record TailKey(int fleetId, String systemId) {}
+
+    private final Map<TailKey, String> tails = new HashMap<>();
+
+    /**
+     * Makes sure every system id has a row in the `tails` table, creating missing rows with the supplied suggested
+     * tail (which is ignored for system ids that already have one), and caches the tail of each system id.
+     *
+     * @param connection     the database connection
+     * @param suggestedTails the suggested tail number for each system id, may contain null values
+     * @throws SQLException if a database error occurs
+     */
+    public synchronized void resolveTails(Connection connection, Map<TailKey, String> suggestedTails)
+            throws SQLException {
+        List<TailKey> missing = new ArrayList<>();
+        for (TailKey key : suggestedTails.keySet()) {
+            if (!tails.containsKey(key)) missing.add(key);
+        }
+        if (missing.isEmpty()) return;
+
+        for (int from = 0; from < missing.size(); from += CHUNK_SIZE) {
+            List<TailKey> chunk = missing.subList(from, Math.min(missing.size(), from + CHUNK_SIZE));
+            String sql = "INSERT IGNORE INTO tails (system_id, fleet_id, tail, confirmed) VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, false)"));
+
+            try (PreparedStatement query = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                for (TailKey key : chunk) {
+                    String suggestedTail = suggestedTails.get(key);
+                    query.setString(parameter++, key.systemId());
+                    query.setInt(parameter++, key.fleetId());
+                    query.setString(parameter++, suggestedTail == null ? "" : suggestedTail);
+                }
+                query.executeUpdate();
+            }
+        }
+
+        Map<Integer, List<String>> systemIdsByFleet = new LinkedHashMap<>();
+        for (TailKey key : missing) {
+            systemIdsByFleet.computeIfAbsent(key.fleetId(), k -> new ArrayList<>()).add(key.systemId());
+        }
+
+        for (var entry : systemIdsByFleet.entrySet()) {
+            int fleetId = entry.getKey();
+            for (var found : Tails.getTails(connection, fleetId, entry.getValue()).entrySet()) {
+                tails.put(new TailKey(fleetId, found.getKey()), found.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param key the system id and fleet
+     * @return the tail number resolved by {@link #resolveTails}, or null if there is none
+     */
+    public synchronized String getTail(TailKey key) {
+        return tails.get(key);
+    }
+}
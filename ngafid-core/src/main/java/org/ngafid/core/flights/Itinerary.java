@@ -5,6 +5,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -103,6 +104,40 @@ public class Itinerary {
         }
     }
 
+    /**
+     * Gets the itineraries of several flights, with one query per {@link Flight#LOAD_CHUNK_SIZE} flights.
+     *
+     * @param connection is the connection to the database
+     * @param flightIds  are the ids of the flights
+     * @return a map from flight id to the flight's itinerary, with no entry for flights without an itinerary
+     * @throws SQLException if there is an error with the database query
+     */
+    public static Map<Integer, ArrayList<Itinerary>> getItineraries(Connection connection, List<Integer> flightIds)
+            throws SQLException {
+        Map<Integer, ArrayList<Itinerary>> itineraries = new HashMap<>();
+
+        for (int from = 0; from < flightIds.size(); from += Flight.LOAD_CHUNK_SIZE) {
+            List<Integer> chunk = flightIds.subList(from, Math.min(flightIds.size(), from + Flight.LOAD_CHUNK_SIZE));
+            String queryString = "SELECT `order`, min_altitude_index, min_altitude, airport, runway, "
+                    + "min_airport_distance, min_runway_distance, start_of_approach, end_of_approach, "
+                    + "start_of_takeoff, end_of_takeoff, type, flight_id FROM itinerary WHERE flight_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY flight_id, `order`";
+
+            try (PreparedStatement query = connection.prepareStatement(queryString)) {
+                for (int i = 0; i < chunk.size(); i++) query.setInt(i + 1, chunk.get(i));
+
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) {
+                        itineraries.computeIfAbsent(resultSet.getInt(13), k -> new ArrayList<>())
+                                .add(new Itinerary(resultSet));
+                    }
+                }
+            }
+        }
+
+        return itineraries;
+    }
+
     public static List<String> getAllAirports(Connection connection, int fleetId) throws SQLException {
         List<String> airports = new ArrayList<>();
 
@@ -5,9 +5,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
@@ -171,6 +174,43 @@ public final class Tails {
         return fleet.getTail(connection, systemId);
     }
 
+    /**
+     * Looks up the tails of several system ids in a fleet, with one query per {@link Flight#LOAD_CHUNK_SIZE} ids.
+     *
+     * @param connection is a connection to the database
+     * @param fleetId    is the fleet for the tails
+     * @param systemIds  are the system ids to look up
+     * @return a map from system id to tail, with no entry for system ids that are not in the database
+     */
+    public static Map<String, String> getTails(Connection connection, int fleetId, Collection<String> systemIds)
+            throws SQLException {
+        List<String> ids = new ArrayList<>(systemIds);
+        // System ids are compared with the column's collation, so match the results up the same way.
+        Map<String, String> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        for (int from = 0; from < ids.size(); from += Flight.LOAD_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(from, Math.min(ids.size(), from + Flight.LOAD_CHUNK_SIZE));
+            String queryString = "SELECT system_id, tail FROM tails WHERE fleet_id = ? AND system_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+
+            try (PreparedStatement query = connection.prepareStatement(queryString)) {
+                query.setInt(1, fleetId);
+                for (int i = 0; i < chunk.size(); i++) query.setString(i + 2, chunk.get(i));
+
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) found.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+        }
+
+        Map<String, String> tails = new HashMap<>();
+        for (String systemId : ids) {
+            String tail = found.get(systemId);
+            if (tail != null) tails.put(systemId, tail);
+        }
+        return tails;
+    }
+
     public static Boolean getConfirmed(Connection connection, int fleetId, String systemId) throws SQLException {
         FleetInstance fleet = fleetMaps.get(fleetId);
         if (fleet == null) {
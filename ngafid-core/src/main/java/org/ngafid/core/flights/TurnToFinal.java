@@ -2,21 +2,28 @@ package org.ngafid.core.flights;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
 import javax.sql.rowset.serial.SerialBlob;
 import org.ngafid.core.airports.Airport;
 import org.ngafid.core.airports.Airports;
@@ -30,6 +37,19 @@ public class TurnToFinal implements Serializable {
 
     private static final Logger LOG = Logger.getLogger(TurnToFinal.class.getName());
 
+    /**
+     * The `version` of turn_to_final rows written in the binary cache format (see {@link #encodeCache}). Rows written
+     * with Java serialization have the serialVersionUID as their version; they are still read, and are rewritten in the
+     * binary format when they are. Bump this when the format changes, or when turn to finals are computed differently
+     * and cached rows must be recomputed.
+     */
+    public static final long CACHE_FORMAT_VERSION = 1;
+
+    /**
+     * The first byte of a binary cache blob, followed by the length of the uncompressed body and the zlib stream.
+     */
+    private static final byte CACHE_FORMAT_ID = 1;
+
     private static final double FEET_PER_MILE = 5280;
 
     // 0.1 miles of tolerance is allowed
@@ -138,6 +158,48 @@ public class TurnToFinal implements Serializable {
                     latitude[i], longitude[i], latitude[last - 1], longitude[last - 1]);
     }
 
+    /**
+     * Restores a turn to final read from the cache, including its derived values.
+     */
+    private TurnToFinal(
+            Runway runway,
+            String airportIataCode,
+            OffsetDateTime flightStartDate,
+            double runwayAltitude,
+            double maxRoll,
+            double selfDefinedGlideAngle,
+            double[] altitude,
+            double[] altMSL,
+            double[] roll,
+            double[] lat,
+            double[] lon,
+            double[] stallProbability,
+            double[] locProbability,
+            double[] distanceFromRunway,
+            ArrayList<Integer> locExceedences,
+            ArrayList<Integer> centerLineExceedences,
+            ArrayList<Double> selfDefinedGlidePathDeviations) {
+        this.flightId = "";
+        this.runway = runway;
+        this.airportIataCode = airportIataCode;
+        this.flightStartDate = flightStartDate;
+        this.runwayAltitude = runwayAltitude;
+        this.maxRoll = maxRoll;
+        this.selfDefinedGlideAngle = selfDefinedGlideAngle;
+        this.altitude = altitude;
+        this.altMSL = altMSL;
+        this.roll = roll;
+        this.latitude = lat;
+        this.longitude = lon;
+        this.stallProbability = stallProbability;
+        this.locProbability = locProbability;
+        this.distanceFromRunway = distanceFromRunway;
+        this.locExceedences = locExceedences;
+        this.centerLineExceedences = centerLineExceedences;
+        this.selfDefinedGlidePathDeviations = selfDefinedGlidePathDeviations;
+        this.nTimesteps = altitude.length;
+    }
+
     public void setFlightId(int id) {
         flightId = Integer.toString(id);
     }
@@ -265,7 +327,7 @@ public class TurnToFinal implements Serializable {
             throw new NullPointerException();
         }
 
-        byte[] data = Compression.compressObject(ttfs);
+        byte[] data = encodeCache(ttfs);
 
         for (var ttf : ttfs) ttf.setFlightId(flightId);
 
@@ -275,7 +337,7 @@ public class TurnToFinal implements Serializable {
             Blob blob = new SerialBlob(data);
 
             preparedStatement.setInt(1, flightId);
-            preparedStatement.setLong(2, TurnToFinal.serialVersionUID);
+            preparedStatement.setLong(2, CACHE_FORMAT_VERSION);
             preparedStatement.setBlob(3, blob);
             preparedStatement.execute();
 
@@ -287,60 +349,17 @@ public class TurnToFinal implements Serializable {
 
     public static ArrayList<TurnToFinal> getTurnToFinalFromCache(Connection connection, Flight flight)
             throws SQLException, IOException, ClassNotFoundException {
-        PreparedStatement query = connection.prepareStatement("SELECT * FROM turn_to_final WHERE flight_id = ?");
-        query.setInt(1, flight.getId());
-        LOG.fine(() -> "TTF cache lookup: flight_id=" + flight.getId());
-
-        ResultSet resultSet = query.executeQuery();
-        if (!resultSet.next()) {
-            LOG.info("Flight not found in TurnToFinal cache");
-            resultSet.close();
-            query.close();
-            return null;
-        }
-
-        long version = resultSet.getLong(2);
-        Blob values = resultSet.getBlob(3);
-
-        query.close();
-        resultSet.close();
-
-        if (version != TurnToFinal.serialVersionUID) {
-
-            LOG.info("TTF VERSION OUTDATED");
-
-            try (PreparedStatement deleteQuery = connection.prepareStatement(DELETE_QUERY_STR)) {
-                deleteQuery.setInt(1, flight.getId());
-                deleteQuery.executeUpdate();
-            }
-
-            return null;
-        }
-
-        try {
-            Object o = Compression.inflateTTFObject(values.getBytes(1, (int) values.length()));
-            assert o instanceof ArrayList;
-
-            @SuppressWarnings("unchecked")
-            ArrayList<TurnToFinal> ttfs = (ArrayList<TurnToFinal>) o;
-            return ttfs;
-        } catch (IOException | ClassNotFoundException e) {
-            LOG.info(() -> "Failed to deserialize TTF data for flight " + flight.getId() + ": " + e.getMessage());
-            LOG.info("Deleting problematic ttf row.");
-
-            query = connection.prepareStatement(DELETE_QUERY_STR);
-            query.setInt(1, flight.getId());
-            LOG.info(query.toString());
-            query.execute();
-            query.close();
-
-            return null;
-        }
+        Map<Integer, ArrayList<TurnToFinal>> cached = getTurnToFinalFromCacheBatch(connection, List.of(flight.getId()));
+        ArrayList<TurnToFinal> ttfs = cached.get(flight.getId());
+        if (ttfs == null) LOG.info("Flight not found in TurnToFinal cache");
+        return ttfs;
     }
 
     /**
      * Batch lookup of TTF cache for multiple flights. One DB query instead of N.
      * Returns map of flight_id -> cached TTFs. Missing or invalid entries are omitted (caller treats as cache miss).
+     * Outdated or unreadable rows are deleted, and rows written with Java serialization are rewritten in the binary
+     * cache format.
      * @param connection the database connection
      * @param flightIds the flight ids to load
      * @return the cached turn-to-final results keyed by flight id
@@ -354,6 +373,10 @@ public class TurnToFinal implements Serializable {
         if (flightIds == null || flightIds.isEmpty()) {
             return result;
         }
+
+        List<Integer> invalid = new ArrayList<>();
+        List<Integer> legacy = new ArrayList<>();
+
         String placeholders = flightIds.stream().map(id -> "?").collect(Collectors.joining(","));
         String sql = "SELECT flight_id, version, data FROM turn_to_final WHERE flight_id IN (" + placeholders + ")";
         try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -364,32 +387,300 @@ public class TurnToFinal implements Serializable {
                 while (rs.next()) {
                     int flightId = rs.getInt(1);
                     long version = rs.getLong(2);
-                    Blob blob = rs.getBlob(3);
-                    if (version != TurnToFinal.serialVersionUID) {
-                        try (PreparedStatement del = connection.prepareStatement(DELETE_QUERY_STR)) {
-                            del.setInt(1, flightId);
-                            del.executeUpdate();
-                        }
+                    if (version != CACHE_FORMAT_VERSION && version != TurnToFinal.serialVersionUID) {
+                        LOG.info("TTF VERSION OUTDATED");
+                        invalid.add(flightId);
                         continue;
                     }
+
                     try {
-                        Object o = Compression.inflateTTFObject(blob.getBytes(1, (int) blob.length()));
-                        @SuppressWarnings("unchecked")
-                        ArrayList<TurnToFinal> ttfs = (ArrayList<TurnToFinal>) o;
+                        byte[] data = rs.getBytes(3);
+                        ArrayList<TurnToFinal> ttfs;
+                        if (version == CACHE_FORMAT_VERSION) {
+                            ttfs = decodeCache(data);
+                        } else {
+                            @SuppressWarnings("unchecked")
+                            ArrayList<TurnToFinal> serialized =
+                                    (ArrayList<TurnToFinal>) Compression.inflateTTFObject(data);
+                            ttfs = serialized;
+                            legacy.add(flightId);
+                        }
                         result.put(flightId, ttfs);
-                    } catch (IOException | ClassNotFoundException e) {
+                    } catch (IOException | ClassNotFoundException | RuntimeException e) {
                         LOG.info(() -> "Failed to deserialize TTF for flight " + flightId + ": " + e.getMessage());
-                        try (PreparedStatement del = connection.prepareStatement(DELETE_QUERY_STR)) {
-                            del.setInt(1, flightId);
-                            del.executeUpdate();
-                        }
+                        invalid.add(flightId);
                     }
                 }
             }
         }
+
+        for (int flightId : invalid) {
+            try (PreparedStatement del = connection.prepareStatement(DELETE_QUERY_STR)) {
+                del.setInt(1, flightId);
+                del.executeUpdate();
+            }
+        }
+
+        for (int flightId : legacy) {
+            rewriteCache(connection, flightId, result.get(flightId));
+        }
+
         return result;
     }
 
+    /**
+     * Rewrites a cache row in the binary cache format.
+     *
+     * @return whether the row was rewritten
+     */
+    static boolean rewriteCache(Connection connection, int flightId, List<TurnToFinal> ttfs) {
+        try (PreparedStatement update =
+                connection.prepareStatement("UPDATE turn_to_final SET version = ?, data = ? WHERE flight_id = ?")) {
+            update.setLong(1, CACHE_FORMAT_VERSION);
+            update.setBytes(2, encodeCache(ttfs));
+            update.setInt(3, flightId);
+            update.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            LOG.info(() -> "Failed to rewrite TTF cache for flight " + flightId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Encodes turn to finals in the binary cache format: {@link #CACHE_FORMAT_ID}, the length of the body (int), and
+     * the body compressed with zlib at its fastest level. The body is big-endian:
+     * <pre>
+     * count (int), then for each turn to final:
+     *   airport IATA code (string), flight start date (flag byte, epoch second long, nano int, offset seconds int),
+     *   runway (flag byte, site number string, name string, has coordinates byte, lat1, lon1, lat2, lon2 doubles),
+     *   runway altitude, max roll, self defined glide angle (doubles),
+     *   altitude AGL, altitude MSL, roll, latitude, longitude, stall probability, loss of control probability,
+     *   distance from runway, self defined glide path deviations (double arrays),
+     *   loss of control exceedences, center line exceedences (int arrays)
+     * </pre>
+     * Strings are a length (int) followed by UTF-8 bytes and arrays are a length (int) followed by the values; a null
+     * string or array has a length of -1. The flight id is not stored, it is the row's flight_id.
+     *
+     * @param ttfs the turn to finals
+     * @return the encoded turn to finals
+     */
+    static byte[] encodeCache(List<TurnToFinal> ttfs) {
+        List<byte[]> strings = new ArrayList<>();
+        int size = Integer.BYTES;
+        for (TurnToFinal ttf : ttfs) {
+            size += stringSize(strings, ttf.airportIataCode);
+            size += 1 + Long.BYTES + 2 * Integer.BYTES;
+            size += 1;
+            if (ttf.runway != null) {
+                size += stringSize(strings, ttf.runway.getSiteNumber()) + stringSize(strings, ttf.runway.getName());
+                size += 1 + 4 * Double.BYTES;
+            }
+            size += 3 * Double.BYTES;
+            for (double[] array : ttf.cachedArrays()) size += Integer.BYTES + (array == null ? 0 : array.length * 8);
+            size += 2 * Integer.BYTES + (ttf.locExceedences.size() + ttf.centerLineExceedences.size()) * 4;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        Iterator<byte[]> encodedStrings = strings.iterator();
+        buffer.putInt(ttfs.size());
+        for (TurnToFinal ttf : ttfs) {
+            putString(buffer, ttf.airportIataCode, encodedStrings);
+
+            buffer.put((byte) (ttf.flightStartDate == null ? 0 : 1));
+            if (ttf.flightStartDate == null) {
+                buffer.putLong(0).putInt(0).putInt(0);
+            } else {
+                buffer.putLong(ttf.flightStartDate.toEpochSecond());
+                buffer.putInt(ttf.flightStartDate.getNano());
+                buffer.putInt(ttf.flightStartDate.getOffset().getTotalSeconds());
+            }
+
+            buffer.put((byte) (ttf.runway == null ? 0 : 1));
+            if (ttf.runway != null) {
+                putString(buffer, ttf.runway.getSiteNumber(), encodedStrings);
+                putString(buffer, ttf.runway.getName(), encodedStrings);
+                buffer.put((byte) (ttf.runway.hasCoordinates() ? 1 : 0));
+                buffer.putDouble(ttf.runway.getLat1()).putDouble(ttf.runway.getLon1());
+                buffer.putDouble(ttf.runway.getLat2()).putDouble(ttf.runway.getLon2());
+            }
+
+            buffer.putDouble(ttf.runwayAltitude).putDouble(ttf.maxRoll).putDouble(ttf.selfDefinedGlideAngle);
+
+            for (double[] array : ttf.cachedArrays()) {
+                if (array == null) {
+                    buffer.putInt(-1);
+                } else {
+                    buffer.putInt(array.length);
+                    buffer.asDoubleBuffer().put(array);
+                    buffer.position(buffer.position() + array.length * Double.BYTES);
+                }
+            }
+
+            for (List<Integer> indices : List.of(ttf.locExceedences, ttf.centerLineExceedences)) {
+                buffer.putInt(indices.size());
+                for (int index : indices) buffer.putInt(index);
+            }
+        }
+
+        byte[] header = ByteBuffer.allocate(1 + Integer.BYTES).put(CACHE_FORMAT_ID).putInt(size).array();
+        return Compression.deflate(buffer.array(), size, Deflater.BEST_SPEED, header);
+    }
+
+    /**
+     * Decodes turn to finals written by {@link #encodeCache}.
+     *
+     * @param data the encoded turn to finals
+     * @return the turn to finals
+     * @throws IOException if the data is not in the binary cache format or is truncated
+     */
+    static ArrayList<TurnToFinal> decodeCache(byte[] data) throws IOException {
+        if (data == null || data.length < 1 + Integer.BYTES || data[0] != CACHE_FORMAT_ID) {
+            throw new IOException("Not a binary turn to final cache entry");
+        }
+
+        int size = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        ByteBuffer buffer = ByteBuffer.wrap(Compression.inflate(data, 1 + Integer.BYTES, size));
+
+        try {
+            int count = buffer.getInt();
+            ArrayList<TurnToFinal> ttfs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String airportIataCode = getString(buffer);
+
+                boolean hasStartDate = buffer.get() != 0;
+                long epochSecond = buffer.getLong();
+                int nano = buffer.getInt();
+                int offsetSeconds = buffer.getInt();
+                OffsetDateTime flightStartDate = hasStartDate
+                        ? OffsetDateTime.ofInstant(
+                                Instant.ofEpochSecond(epochSecond, nano), ZoneOffset.ofTotalSeconds(offsetSeconds))
+                        : null;
+
+                Runway runway = null;
+                if (buffer.get() != 0) {
+                    String siteNumber = getString(buffer);
+                    String name = getString(buffer);
+                    boolean hasCoordinates = buffer.get() != 0;
+                    double lat1 = buffer.getDouble();
+                    double lon1 = buffer.getDouble();
+                    double lat2 = buffer.getDouble();
+                    double lon2 = buffer.getDouble();
+                    runway = hasCoordinates
+                            ? new Runway(siteNumber, name, lat1, lon1, lat2, lon2)
+                            : new Runway(siteNumber, name);
+                }
+
+                double runwayAltitude = buffer.getDouble();
+                double maxRoll = buffer.getDouble();
+                double selfDefinedGlideAngle = buffer.getDouble();
+
+                double[] altitude = getDoubles(buffer);
+                double[] altMSL = getDoubles(buffer);
+                double[] roll = getDoubles(buffer);
+                double[] latitude = getDoubles(buffer);
+                double[] longitude = getDoubles(buffer);
+                double[] stallProbability = getDoubles(buffer);
+                double[] locProbability = getDoubles(buffer);
+                double[] distanceFromRunway = getDoubles(buffer);
+                double[] glidePathDeviations = getDoubles(buffer);
+
+                ArrayList<Integer> locExceedences = getIndices(buffer);
+                ArrayList<Integer> centerLineExceedences = getIndices(buffer);
+
+                ArrayList<Double> selfDefinedGlidePathDeviations = new ArrayList<>(glidePathDeviations.length);
+                for (double deviation : glidePathDeviations) selfDefinedGlidePathDeviations.add(deviation);
+
+                ttfs.add(new TurnToFinal(
+                        runway,
+                        airportIataCode,
+                        flightStartDate,
+                        runwayAltitude,
+                        maxRoll,
+                        selfDefinedGlideAngle,
+                        altitude,
+                        altMSL,
+                        roll,
+                        latitude,
+                        longitude,
+                        stallProbability,
+                        locProbability,
+                        distanceFromRunway,
+                        locExceedences,
+                        centerLineExceedences,
+                        selfDefinedGlidePathDeviations));
+            }
+            return ttfs;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated turn to final cache entry", e);
+        }
+    }
+
+    /**
+     * The double arrays in the order they are cached in.
+     */
+    private double[][] cachedArrays() {
+        double[] glidePathDeviations = new double[selfDefinedGlidePathDeviations.size()];
+        for (int i = 0; i < glidePathDeviations.length; i++) {
+            glidePathDeviations[i] = selfDefinedGlidePathDeviations.get(i);
+        }
+
+        return new double[][] {
+            altitude,
+            altMSL,
+            roll,
+            latitude,
+            longitude,
+            stallProbability,
+            locProbability,
+            distanceFromRunway,
+            glidePathDeviations
+        };
+    }
+
+    private static int stringSize(List<byte[]> strings, String string) {
+        if (string == null) return Integer.BYTES;
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        strings.add(bytes);
+        return Integer.BYTES + bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, String string, Iterator<byte[]> encodedStrings) {
+        if (string == null) {
+            buffer.putInt(-1);
+        } else {
+            byte[] bytes = encodedStrings.next();
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+
+        String string = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+
+        double[] array = new double[length];
+        buffer.asDoubleBuffer().get(array);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return array;
+    }
+
+    private static ArrayList<Integer> getIndices(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        ArrayList<Integer> indices = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) indices.add(buffer.getInt());
+        return indices;
+    }
+
     /**
      * Batch variant using flight IDs only. Avoids loading full Flight objects (Tails, Itinerary, Tags)
      * for cache hits. Only loads full Flight for cache misses.
@@ -228,6 +228,8 @@ public class HeatmapPointsProcessor {
             }
             stmt.executeBatch();
         }
+
+        HeatmapTiles.addEvents(connection, events.stream().map(Event::getId).toList());
     }
 
     /**
@@ -350,6 +352,8 @@ public class HeatmapPointsProcessor {
 
             stmt.executeBatch();
         }
+
+        HeatmapTiles.addEvents(connection, events.stream().map(Event::getId).toList());
     }
 
     // Fetches proximity points for a given event_id and flight_id
@@ -743,7 +747,8 @@ public class HeatmapPointsProcessor {
                     + "JOIN airframes a ON f.airframe_id = a.id "
                     + "LEFT JOIN flights ofl ON e.other_flight_id = ofl.id "
                     + "LEFT JOIN airframes oa ON ofl.airframe_id = oa.id "
-                    + "WHERE DATE(e.start_time) BETWEEN ? AND ? "
+                    // A range on the column itself rather than DATE(e.start_time) so the start_time index can be used
+                    + "WHERE e.start_time >= ? AND e.start_time < ? "
                     + "AND e.min_latitude <= ? AND e.max_latitude >= ? "
                     + "AND e.min_longitude <= ? AND e.max_longitude >= ?");
             if (airframe != null && !airframe.isEmpty() && !airframe.equals("All Airframes")) {
@@ -768,7 +773,7 @@ public class HeatmapPointsProcessor {
             try (PreparedStatement stmt = connection.prepareStatement(sql.toString())) {
                 int idx = 1;
                 stmt.setDate(idx++, startDate);
-                stmt.setDate(idx++, endDate);
+                stmt.setDate(idx++, java.sql.Date.valueOf(endDate.toLocalDate().plusDays(1)));
                 stmt.setDouble(idx++, areaMaxLat);
                 stmt.setDouble(idx++, areaMinLat);
                 stmt.setDouble(idx++, areaMaxLon);
@@ -0,0 +1,333 @@
+package org.ngafid.core.heatmap;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.ngafid.core.Database;
+
+/**
+ * Pre-aggregated heatmap tiles, so that large areas can be drawn without sending every heatmap point.
+ * <p>
+ * At every zoom level from 0 to {@link #MAX_ZOOM} the world is split into a grid of cells {@code 180 / 2^zoom}
+ * degrees wide and tall. The `heatmap_tiles` table holds, for every cell, the number of events and heatmap points and
+ * the maximum severity, by event definition, airframe, fleet and month. The tiles are updated as heatmap points are
+ * inserted, as events are deleted from the event consumer, and as the flights of an upload are deleted when it is
+ * reprocessed or removed; events removed in other ways are only dropped from the tiles when they are rebuilt with
+ * {@link #main} or {@link #rebuild}. Removing an event does not lower the maximum severity of a cell.
+ */
+public final class HeatmapTiles {
+    private static final Logger LOG = Logger.getLogger(HeatmapTiles.class.getName());
+
+    public static final int MAX_ZOOM = 10;
+
+    /**
+     * The zoom levels with the number of cells spanning 180 degrees at each, as a derived table.
+     */
+    private static final String ZOOM_LEVELS = IntStream.rangeClosed(0, MAX_ZOOM)
+            .mapToObj(zoom -> "SELECT " + zoom + " AS zoom, " + (1 << zoom) + " AS cells")
+            .collect(Collectors.joining(" UNION ALL "));
+
+    private static final String AGGREGATE_SQL = """
+            INSERT INTO heatmap_tiles (zoom, cell_y, cell_x, month, event_definition_id, airframe_id, fleet_id,
+                    event_count, point_count, max_severity)
+            SELECT z.zoom, FLOOR((hp.latitude + 90) * z.cells / 180), FLOOR((hp.longitude + 180) * z.cells / 180),
+                    DATE_FORMAT(e.start_time, '%%Y-%%m-01'), e.event_definition_id, f.airframe_id, e.fleet_id,
+                    ? * COUNT(DISTINCT e.id), ? * COUNT(*), MAX(e.severity)
+            FROM heatmap_points hp
+                INNER JOIN events e ON e.id = hp.event_id
+                INNER JOIN flights f ON f.id = e.flight_id
+                CROSS JOIN (%s) z
+            WHERE e.start_time IS NOT NULL AND %s
+            GROUP BY 1, 2, 3, 4, 5, 6, 7
+            ON DUPLICATE KEY UPDATE
+                event_count = event_count + VALUES(event_count),
+                point_count = point_count + VALUES(point_count),
+                max_severity = GREATEST(max_severity, VALUES(max_severity))
+            """;
+
+    /**
+     * The aggregate of the tiles of a cell.
+     *
+     * @param x           the cell's column, counted east from 180 degrees west
+     * @param y           the cell's row, counted north from the south pole
+     * @param events      the number of events with heatmap points in the cell
+     * @param points      the number of heatmap points in the cell
+     * @param maxSeverity the maximum severity of those events
+     */
+    public record Cell(int x, int y, int events, int points, double maxSeverity) {}
+
+    private HeatmapTiles() {}
+
+    /**
+     * @param zoom the zoom level
+     * @return the width and height of the cells at the zoom level, in degrees
+     */
+    public static double cellDegrees(int zoom) {
+        return 180.0 / (1 << zoom);
+    }
+
+    public static int cellX(double longitude, int zoom) {
+        return (int) Math.floor((longitude + 180) * (1 << zoom) / 180);
+    }
+
+    public static int cellY(double latitude, int zoom) {
+        return (int) Math.floor((latitude + 90) * (1 << zoom) / 180);
+    }
+
+    /**
+     * Adds events to the tiles. Must be called once, after all of the events' heatmap points have been inserted.
+     *
+     * @param connection the database connection
+     * @param eventIds   the ids of the events
+     */
+    public static void addEvents(Connection connection, Collection<Integer> eventIds) throws SQLException {
+        if (eventIds.isEmpty()) return;
+
+        String condition = "e.id IN (" + String.join(", ", Collections.nCopies(eventIds.size(), "?")) + ")";
+        try (PreparedStatement statement = connection.prepareStatement(aggregateSql(condition))) {
+            int parameter = setSign(statement, 1);
+            for (int eventId : eventIds) statement.setInt(parameter++, eventId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes the events of a definition for a flight from the tiles; this matches the events deleted by
+     * {@link org.ngafid.core.event.Event#deleteEvents}, and must be called before they are deleted.
+     *
+     * @param connection        the database connection
+     * @param flightId          the flight id
+     * @param eventDefinitionId the event definition id
+     */
+    public static void removeEvents(Connection connection, int flightId, int eventDefinitionId) throws SQLException {
+        String condition = "e.event_definition_id = ? AND (e.flight_id = ? OR e.other_flight_id = ?)";
+        try (PreparedStatement statement = connection.prepareStatement(aggregateSql(condition))) {
+            int parameter = setSign(statement, -1);
+            statement.setInt(parameter++, eventDefinitionId);
+            statement.setInt(parameter++, flightId);
+            statement.setInt(parameter, flightId);
+            if (statement.executeUpdate() == 0) return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM heatmap_tiles WHERE event_definition_id = ? AND event_count <= 0")) {
+            statement.setInt(1, eventDefinitionId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Removes the events of the flights of an upload from the tiles, including the events of other flights that refer
+     * to them through `other_flight_id`, as deleting the flights deletes those too. Must be called before the flights
+     * are deleted.
+     *
+     * @param connection the database connection
+     * @param uploadId   the upload id
+     */
+    public static void removeUploadFlights(Connection connection, int uploadId) throws SQLException {
+        removeFlights(connection, "SELECT id FROM flights WHERE upload_id = ?", uploadId);
+    }
+
+    /**
+     * Same as {@link #removeUploadFlights}, for an upload that is about to be deleted along with the upload derived
+     * from it.
+     *
+     * @param connection the database connection
+     * @param uploadId   the upload id
+     */
+    public static void removeUpload(Connection connection, int uploadId) throws SQLException {
+        removeFlights(
+                connection,
+                "SELECT id FROM flights WHERE upload_id IN (SELECT id FROM uploads WHERE id = ? OR parent_id = ?)",
+                uploadId,
+                uploadId);
+    }
+
+    /**
+     * Same as {@link #removeUploadFlights} but logs and suppresses failures, which {@link #rebuild} corrects, so
+     * the upload is still reset.
+     */
+    public static void removeUploadFlightsQuietly(Connection connection, int uploadId) {
+        try {
+            removeUploadFlights(connection, uploadId);
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Failed to remove the heatmap tiles of upload " + uploadId, e);
+        }
+    }
+
+    /**
+     * Same as {@link #removeUpload} but logs and suppresses failures, which {@link #rebuild} corrects, so the upload
+     * is still deleted.
+     */
+    public static void removeUploadQuietly(Connection connection, int uploadId) {
+        try {
+            removeUpload(connection, uploadId);
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Failed to remove the heatmap tiles of upload " + uploadId, e);
+        }
+    }
+
+    /**
+     * Subtracts the events on or with the flights selected by a query, each once, and deletes the emptied tiles.
+     */
+    private static void removeFlights(Connection connection, String flights, int... parameters) throws SQLException {
+        String condition = "(e.flight_id IN (" + flights + ") OR e.other_flight_id IN (" + flights + "))";
+        try (PreparedStatement statement = connection.prepareStatement(aggregateSql(condition))) {
+            int parameter = setSign(statement, -1);
+            for (int i = 0; i < 2; i++) {
+                for (int value : parameters) statement.setInt(parameter++, value);
+            }
+            if (statement.executeUpdate() == 0) return;
+        }
+
+        try (PreparedStatement statement =
+                connection.prepareStatement("DELETE FROM heatmap_tiles WHERE event_count <= 0")) {
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the tiles of an event definition, or of every definition, from the heatmap points.
+     *
+     * @param connection        the database connection
+     * @param eventDefinitionId the event definition id, or null to rebuild every tile
+     */
+    public static void rebuild(Connection connection, Integer eventDefinitionId) throws SQLException {
+        String delete =
+                "DELETE FROM heatmap_tiles" + (eventDefinitionId == null ? "" : " WHERE event_definition_id = ?");
+        try (PreparedStatement statement = connection.prepareStatement(delete)) {
+            if (eventDefinitionId != null) statement.setInt(1, eventDefinitionId);
+            statement.executeUpdate();
+        }
+
+        String condition = eventDefinitionId == null ? "TRUE" : "e.event_definition_id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(aggregateSql(condition))) {
+            int parameter = setSign(statement, 1);
+            if (eventDefinitionId != null) statement.setInt(parameter, eventDefinitionId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Aggregates the tiles of the cells at a zoom level that overlap an area.
+     *
+     * @param connection         the database connection
+     * @param zoom               the zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param areaMinLat         the southern edge of the area
+     * @param areaMaxLat         the northern edge of the area
+     * @param areaMinLon         the western edge of the area
+     * @param areaMaxLon         the eastern edge of the area
+     * @param startDate          the first day of the first month to include
+     * @param endDate            a day in the last month to include
+     * @param airframe           the name of the airframe to include, or null (or "All Airframes") for every airframe
+     * @param eventDefinitionIds the event definitions to include, or an empty list for every definition
+     * @param minSeverity        if not null, only cells with an event at least this severe are included
+     * @return the non-empty cells
+     */
+    public static List<Cell> getCells(
+            Connection connection,
+            int zoom,
+            double areaMinLat,
+            double areaMaxLat,
+            double areaMinLon,
+            double areaMaxLon,
+            Date startDate,
+            Date endDate,
+            String airframe,
+            List<Integer> eventDefinitionIds,
+            Double minSeverity)
+            throws SQLException {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom level must be between 0 and " + MAX_ZOOM);
+        }
+
+        boolean filterAirframe = airframe != null && !airframe.isEmpty() && !airframe.equals("All Airframes");
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT cell_x, cell_y, SUM(event_count), SUM(point_count), MAX(max_severity) FROM heatmap_tiles
+                WHERE zoom = ? AND cell_y BETWEEN ? AND ? AND cell_x BETWEEN ? AND ?
+                    AND month BETWEEN DATE_FORMAT(?, '%Y-%m-01') AND ?""");
+        if (filterAirframe) {
+            sql.append(" AND airframe_id IN (SELECT id FROM airframes WHERE airframe = ?)");
+        }
+        if (!eventDefinitionIds.isEmpty()) {
+            sql.append(" AND event_definition_id IN (")
+                    .append(String.join(", ", Collections.nCopies(eventDefinitionIds.size(), "?")))
+                    .append(")");
+        }
+        sql.append(" GROUP BY cell_y, cell_x");
+        if (minSeverity != null) sql.append(" HAVING MAX(max_severity) >= ?");
+
+        List<Cell> cells = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            int parameter = 1;
+            statement.setInt(parameter++, zoom);
+            statement.setInt(parameter++, cellY(areaMinLat, zoom));
+            statement.setInt(parameter++, cellY(areaMaxLat, zoom));
+            statement.setInt(parameter++, cellX(areaMinLon, zoom));
+            statement.setInt(parameter++, cellX(areaMaxLon, zoom));
+            statement.setDate(parameter++, startDate);
+            statement.setDate(parameter++, endDate);
+            if (filterAirframe) statement.setString(parameter++, airframe);
+            for (int eventDefinitionId : eventDefinitionIds) statement.setInt(parameter++, eventDefinitionId);
+            if (minSeverity != null) statement.setDouble(parameter, minSeverity);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    cells.add(new Cell(
+                            resultSet.getInt(1),
+                            resultSet.getInt(2),
+                            resultSet.getInt(3),
+                            resultSet.getInt(4),
+                            resultSet.getDouble(5)));
+                }
+            }
+        }
+
+        return cells;
+    }
+
+    private static String aggregateSql(String condition) {
+        return AGGREGATE_SQL.formatted(ZOOM_LEVELS, condition);
+    }
+
+    /**
+     * Sets whether the aggregated counts are added to or subtracted from the tiles.
+     *
+     * @return the index of the next parameter
+     */
+    private static int setSign(PreparedStatement statement, int sign) throws SQLException {
+        statement.setInt(1, sign);
+        statement.setInt(2, sign);
+        return 3;
+    }
+
+    /**
+     * Rebuilds every heatmap tile from the heatmap points, e.g. after the table is created.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) {
+        System.out.println("Rebuilding heatmap tiles...");
+
+        try (Connection connection = Database.getConnection()) {
+            long start = System.currentTimeMillis();
+            rebuild(connection, null);
+            LOG.info("Rebuilt heatmap tiles in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding heatmap tiles: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
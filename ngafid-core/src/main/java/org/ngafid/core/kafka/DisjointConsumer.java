@@ -140,7 +140,30 @@ public abstract class DisjointConsumer<K, V> implements AutoCloseable {
      */
     protected abstract Pair<ConsumerRecord<K, V>, Boolean> process(ConsumerRecord<K, V> record);
 
-    protected record RecordsResult<K, V>(@NotNull List<ConsumerRecord<K, V>> records, boolean[] retry) {}
+    /**
+     * Processes all the records of a single poll. By default each record is passed to {@link #process} in turn;
+     * consumers that can share work between the records of a poll may override this instead.
+     *
+     * @param records the records to process
+     * @return the processed records and whether each of them should be retried, in the same order as the records
+     */
+    protected RecordsResult<K, V> processAll(ConsumerRecords<K, V> records) {
+        var recordList = new ArrayList<ConsumerRecord<K, V>>(records.count());
+        boolean[] retry = new boolean[records.count()];
+        int i = 0;
+
+        for (var record : records) {
+            LOG.info("Record: " + record.topic() + ": " + record.partition() + ": " + record.offset() + ": "
+                    + record.value());
+            var result = process(record);
+            recordList.add(result.first());
+            retry[i++] = result.second();
+        }
+
+        return new RecordsResult<K, V>(recordList, retry);
+    }
+
+    public record RecordsResult<K, V>(@NotNull List<ConsumerRecord<K, V>> records, boolean[] retry) {}
 
     protected final class Worker implements Runnable {
         private Worker() {}
@@ -151,21 +174,9 @@ public abstract class DisjointConsumer<K, V> implements AutoCloseable {
                 try {
                     var records = taskQueue.take();
                     workerProcessing.set(true);
-                    var recordList = new ArrayList<ConsumerRecord<K, V>>(records.count());
-
-                    boolean[] retry = new boolean[records.count()];
-                    int i = 0;
 
                     preProcess(records);
-                    for (var record : records) {
-                        LOG.info("Record: " + record.topic() + ": " + record.partition() + ": " + record.offset() + ": "
-                                + record.value());
-                        var result = process(record);
-                        recordList.add(result.first());
-                        retry[i++] = result.second();
-                    }
-
-                    resultQueue.put(new RecordsResult<K, V>(recordList, retry));
+                    resultQueue.put(processAll(records));
                     workerProcessing.set(false);
                 } catch (InterruptedException e) {
                     // Ignore -- read done to see if we should stop.
@@ -16,6 +16,12 @@ public enum Events {
 
     public record EventToCompute(int flightId, int eventId) {}
 
+    /**
+     * All the event definitions that need to be computed for one flight, so the flight only has to be loaded once.
+     * Published by the event observer with the flight id as the key.
+     */
+    public record FlightEventsToCompute(int flightId, List<Integer> eventIds) {}
+
     private static Properties getProperties() {
         Properties props = Configuration.getProperties();
         props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
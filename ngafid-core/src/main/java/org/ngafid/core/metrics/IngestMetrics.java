@@ -0,0 +1,54 @@
+package org.ngafid.core.metrics;
+
+import jdk.jfr.EventType;
+import org.ngafid.core.Config;
+
+/**
+ * Instrumentation of the ingest path: how long each file spends being read, parsed, built (per compute step) and
+ * inserted, and how much data each stage handled. Each run of a stage is a {@link IngestSpan}, which is aggregated in
+ * {@link #REGISTRY} when {@link Config#INGEST_METRICS_PORT} is set (the upload processor serves it there), and emitted
+ * as an {@link IngestStageEvent} when a flight recording is capturing those events. When neither is the case starting a
+ * span only checks whether the event is enabled, and nothing is allocated.
+ * <p>
+ * Stages are named after the part of the pipeline they time: "read", "parse", "build", "step", "insert", "db_insert"
+ * and "file" (a whole file, from reading it to inserting its flights).
+ */
+public final class IngestMetrics {
+    public static final boolean ENABLED = Config.INGEST_METRICS_PORT > 0;
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(IngestStageEvent.class);
+
+    private IngestMetrics() {}
+
+    /**
+     * Starts timing a run of a stage.
+     *
+     * @param stage the stage
+     * @param name  what is run in the stage, e.g. the compute step, or an empty string
+     * @param file  the file being processed, only recorded in the JFR event
+     * @return the span, to be ended once the run is done
+     */
+    public static IngestSpan start(String stage, String name, String file) {
+        boolean recording = EVENT_TYPE.isEnabled();
+        if (!ENABLED && !recording) return IngestSpan.INACTIVE;
+
+        IngestStageEvent event = null;
+        if (recording) {
+            event = new IngestStageEvent();
+            event.begin();
+        }
+        return new IngestSpan(stage, name, file, event);
+    }
+
+    /**
+     * Records the number of items waiting in an ingest queue.
+     *
+     * @param queue the name of the queue
+     * @param depth the number of items in it
+     */
+    public static void queueDepth(String queue, int depth) {
+        if (ENABLED) REGISTRY.setQueueDepth(queue, depth);
+    }
+}
@@ -0,0 +1,65 @@
+package org.ngafid.core.metrics;
+
+/**
+ * One run of an ingest stage, started with {@link IngestMetrics#start} and finished with {@link #end}. Spans are
+ * created for every run, so when neither the metrics nor the JFR event are enabled a shared inactive span is returned,
+ * and callers should only compute the bytes or rows they report if the span {@link #isActive}.
+ */
+public final class IngestSpan {
+    static final IngestSpan INACTIVE = new IngestSpan(null, null, null, null);
+
+    private final String stage;
+    private final String name;
+    private final String file;
+    private final IngestStageEvent event;
+    private final long start = System.nanoTime();
+
+    private long bytes = 0;
+    private long rows = 0;
+
+    IngestSpan(String stage, String name, String file, IngestStageEvent event) {
+        this.stage = stage;
+        this.name = name;
+        this.file = file;
+        this.event = event;
+    }
+
+    /**
+     * @return whether anything is recorded for this span
+     */
+    public boolean isActive() {
+        return this != INACTIVE;
+    }
+
+    public IngestSpan bytes(long count) {
+        bytes += count;
+        return this;
+    }
+
+    public IngestSpan rows(long count) {
+        rows += count;
+        return this;
+    }
+
+    /**
+     * Records the span. Must be called at most once.
+     */
+    public void end() {
+        if (this == INACTIVE) return;
+
+        long nanos = System.nanoTime() - start;
+        if (IngestMetrics.ENABLED) IngestMetrics.REGISTRY.record(stage, name, nanos, bytes, rows);
+
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.name = name;
+                event.file = file;
+                event.bytes = bytes;
+                event.rows = rows;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.ngafid.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JFR event for one run of an ingest stage, e.g. parsing a file or running a compute step on a flight. These are only
+ * recorded while a flight recording with this event enabled is running, e.g. started with
+ * {@code jcmd <pid> JFR.start settings=profile}.
+ */
+@Name("org.ngafid.IngestStage")
+@Label("Ingest Stage")
+@Category({"NGAFID", "Ingest"})
+@Description("One run of a stage of ingesting an upload")
+@StackTrace(false)
+public final class IngestStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Name")
+    @Description("What was run in the stage, e.g. the compute step")
+    String name;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Rows")
+    long rows;
+}
@@ -0,0 +1,161 @@
+package org.ngafid.core.metrics;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters for the stages of ingesting uploads, which can be rendered in the Prometheus text exposition format.
+ * <p>
+ * Timings are aggregated by stage and name (e.g. the compute step), not by file, so the number of series stays bounded;
+ * per-file timings are in the JFR events, see {@link IngestStageEvent}. Other components can register gauges and
+ * counters, which are read whenever the metrics are rendered.
+ */
+public final class MetricsRegistry {
+    private record Key(String stage, String name) {}
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private record Sample(String type, String help, LongSupplier value) {}
+
+    private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> queueDepths = new ConcurrentHashMap<>();
+    private final Map<String, Sample> samples = new ConcurrentSkipListMap<>();
+
+    /**
+     * Records one run of a stage.
+     *
+     * @param stage the stage, e.g. "parse"
+     * @param name  what was run in the stage, e.g. the compute step, or an empty string
+     * @param nanos how long it took
+     * @param bytes the number of bytes processed, or 0
+     * @param rows  the number of rows processed, or 0
+     */
+    public void record(String stage, String name, long nanos, long bytes, long rows) {
+        Timer timer = timers.computeIfAbsent(new Key(stage, name), key -> new Timer());
+        timer.count.increment();
+        timer.nanos.add(nanos);
+        if (bytes != 0) timer.bytes.add(bytes);
+        if (rows != 0) timer.rows.add(rows);
+        timer.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Sets the number of items waiting in a queue.
+     *
+     * @param queue the name of the queue
+     * @param depth the number of items in it
+     */
+    public void setQueueDepth(String queue, long depth) {
+        queueDepths.computeIfAbsent(queue, key -> new AtomicLong()).set(depth);
+    }
+
+    /**
+     * Registers a value that can go up and down, e.g. the size of a queue.
+     *
+     * @param metric the name of the metric
+     * @param help   what the metric measures
+     * @param value  reads the current value
+     */
+    public void gauge(String metric, String help, LongSupplier value) {
+        samples.put(metric, new Sample("gauge", help, value));
+    }
+
+    /**
+     * Registers a count that only goes up, e.g. the number of requests dropped.
+     *
+     * @param metric the name of the metric, ending in "_total"
+     * @param help   what the metric counts
+     * @param value  reads the current count
+     */
+    public void counter(String metric, String help, LongSupplier value) {
+        samples.put(metric, new Sample("counter", help, value));
+    }
+
+    /**
+     * @return the metrics in the Prometheus text exposition format
+     */
+    public String render() {
+        List<Map.Entry<Key, Timer>> entries = timers.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(
+                        Comparator.comparing(Key::stage).thenComparing(Key::name)))
+                .toList();
+
+        StringBuilder out = new StringBuilder();
+        if (!entries.isEmpty()) renderTimers(out, entries);
+
+        if (!queueDepths.isEmpty()) {
+            header(out, "ngafid_ingest_queue_depth", "gauge", "Items waiting in each ingest queue.");
+            queueDepths.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> out.append(
+                            "ngafid_ingest_queue_depth{queue=\"")
+                    .append(escape(entry.getKey()))
+                    .append("\"} ")
+                    .append(entry.getValue().get())
+                    .append('\n'));
+        }
+
+        samples.forEach((metric, sample) -> {
+            header(out, metric, sample.type(), sample.help());
+            out.append(metric).append(' ').append(sample.value().getAsLong()).append('\n');
+        });
+
+        return out.toString();
+    }
+
+    private static void renderTimers(StringBuilder out, List<Map.Entry<Key, Timer>> entries) {
+        header(out, "ngafid_ingest_duration_seconds", "summary", "Time spent in each ingest stage.");
+        for (var entry : entries) {
+            Timer timer = entry.getValue();
+            sample(out, "ngafid_ingest_duration_seconds_count", entry.getKey(), timer.count.sum());
+            sample(out, "ngafid_ingest_duration_seconds_sum", entry.getKey(), timer.nanos.sum() / 1e9);
+        }
+
+        header(out, "ngafid_ingest_duration_max_seconds", "gauge", "Longest single run of each ingest stage.");
+        for (var entry : entries) {
+            sample(out, "ngafid_ingest_duration_max_seconds", entry.getKey(), entry.getValue().maxNanos.get() / 1e9);
+        }
+
+        header(out, "ngafid_ingest_bytes_total", "counter", "Bytes processed by each ingest stage.");
+        for (var entry : entries) {
+            long bytes = entry.getValue().bytes.sum();
+            if (bytes != 0) sample(out, "ngafid_ingest_bytes_total", entry.getKey(), bytes);
+        }
+
+        header(out, "ngafid_ingest_rows_total", "counter", "Rows processed by each ingest stage.");
+        for (var entry : entries) {
+            long rows = entry.getValue().rows.sum();
+            if (rows != 0) sample(out, "ngafid_ingest_rows_total", entry.getKey(), rows);
+        }
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String metric, Key key, Number value) {
+        out.append(metric)
+                .append("{stage=\"")
+                .append(escape(key.stage()))
+                .append("\",name=\"")
+                .append(escape(key.name()))
+                .append("\"} ")
+                .append(value)
+                .append('\n');
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
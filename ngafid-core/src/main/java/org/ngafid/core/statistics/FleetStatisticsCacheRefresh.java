@@ -2,14 +2,34 @@ package org.ngafid.core.statistics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.ngafid.core.uploads.Upload;
 
 /**
- * Rebuilds per-fleet rows in materialized statistics tables used by the summary
- * dashboard. Equivalent to the fleet-scoped subset of the Liquibase hourly/daily
- * materialized-view refresh scripts, without truncating other fleets.
+ * Maintains the per-fleet rows in materialized statistics tables used by the summary
+ * dashboard.
+ * <p>
+ * Uploads and events change the tables incrementally: the rows of the (fleet, airframe, month) buckets the flights or
+ * events fall in are added to or subtracted from, see {@link #addUploadFlights}, {@link #removeUpload},
+ * {@link #removeUploadFlights} and {@link #addFlightEvents}, so processing an upload costs time in the size of the
+ * upload rather than of the fleet. Counts, sums and averages follow the changes, and the flight counts of the event
+ * buckets that change are recounted. Minimums and maximums only grow, the 30-day tables are not aged, and events a
+ * definition is recomputed over are not subtracted, until the tables are rebuilt from their views: for every fleet by
+ * the Liquibase hourly/daily materialized-view refresh scripts, or for one fleet by {@link #refreshForFleet}.
+ * <p>
+ * Each event and `flight_processed` row is added once: the event consumer may compute events for flights of an upload
+ * that is still being processed, and leaves those to {@link #addUploadFlights}, which runs in the transaction that
+ * finishes the upload. Both read the upload with a locking read, so one of them sees the other's rows.
+ * <p>
+ * Every change increments the fleet's row in `fleet_statistics_versions`, which caches of these statistics compare
+ * against {@link #getVersion} to tell whether they are out of date.
  */
 public final class FleetStatisticsCacheRefresh {
 
@@ -20,7 +40,8 @@ public final class FleetStatisticsCacheRefresh {
     }
 
     /**
-     * Refreshes cached flight, upload, and event statistics for one fleet.
+     * Rebuilds cached flight, upload, and event statistics for one fleet from the views. This is the fleet-scoped
+     * subset of the Liquibase materialized-view refresh scripts, without truncating other fleets.
      *
      * @param connection an open database connection
      * @param fleetId the fleet whose cache rows should be rebuilt
@@ -30,6 +51,7 @@ public final class FleetStatisticsCacheRefresh {
         refreshFlightStatistics(connection, fleetId);
         refreshUploadStatistics(connection, fleetId);
         refreshEventStatistics(connection, fleetId);
+        incrementVersion(connection, fleetId);
         LOG.info("Refreshed materialized statistics cache for fleet id " + fleetId);
     }
 
@@ -51,6 +73,507 @@ public final class FleetStatisticsCacheRefresh {
         }
     }
 
+    /**
+     * Adds the flights of an upload that has just been processed, and of the upload derived from it, to the flight,
+     * event and processed flight statistics. The flights must not have been counted yet, i.e. the upload is new or
+     * {@link #removeUploadFlights} was called before it was reprocessed.
+     * <p>
+     * This must be called in the transaction that sets the final status of the upload, before the status is set, so
+     * that {@link #addFlightEvents} either waits for the transaction and adds its events itself, or has committed them
+     * before they are read here. {@link #recountUploads} should follow once the status is set.
+     *
+     * @param connection an open database connection
+     * @param fleetId the fleet of the upload
+     * @param uploadId the upload
+     * @throws SQLException if an update fails
+     */
+    public static void addUploadFlights(Connection connection, int fleetId, int uploadId) throws SQLException {
+        applyFlights(connection, 1, UPLOAD_AND_DERIVED_FLIGHTS, uploadId, uploadId);
+        incrementVersion(connection, fleetId);
+    }
+
+    /**
+     * Subtracts an upload from the upload statistics, and its flights and those of the upload derived from it from the
+     * flight, event and processed flight statistics. This must be called before the upload is deleted, which deletes
+     * those flights along with it.
+     *
+     * @param connection an open database connection
+     * @param fleetId the fleet of the upload
+     * @param uploadId the upload
+     * @throws SQLException if an update fails
+     */
+    public static void removeUpload(Connection connection, int fleetId, int uploadId) throws SQLException {
+        applyFlights(connection, -1, UPLOAD_AND_DERIVED_FLIGHTS, uploadId, uploadId);
+        update(connection, UPLOAD_COUNTS_DELTA.formatted(-1), uploadId);
+        update(connection, "DELETE FROM m_fleet_monthly_upload_counts WHERE fleet_id = ? AND upload_count <= 0",
+                fleetId);
+        removeEmptyRows(connection, fleetId);
+        incrementVersion(connection, fleetId);
+    }
+
+    /**
+     * Subtracts the flights of an upload, but not of the upload derived from it, from the flight, event and processed
+     * flight statistics. This must be called before the flights are deleted to reprocess the upload.
+     *
+     * @param connection an open database connection
+     * @param fleetId the fleet of the upload
+     * @param uploadId the upload
+     * @throws SQLException if an update fails
+     */
+    public static void removeUploadFlights(Connection connection, int fleetId, int uploadId) throws SQLException {
+        applyFlights(connection, -1, UPLOAD_FLIGHTS, uploadId);
+        removeEmptyRows(connection, fleetId);
+        incrementVersion(connection, fleetId);
+    }
+
+    /**
+     * Recounts the uploads of the month of an upload, e.g. after its status changed.
+     *
+     * @param connection an open database connection
+     * @param fleetId the fleet of the upload
+     * @param uploadId the upload
+     * @throws SQLException if an update fails
+     */
+    public static void recountUploads(Connection connection, int fleetId, int uploadId) throws SQLException {
+        update(connection, UPLOAD_COUNTS_OF_MONTH, uploadId);
+        incrementVersion(connection, fleetId);
+    }
+
+    /**
+     * Adds events computed for a flight to the event statistics, and the flight to the processed flight statistics
+     * of definitions it had not been processed for. This is meant to be called in the transaction that inserted them,
+     * just before it is committed, as it locks the statistics rows it changes.
+     * <p>
+     * Events on flights of uploads that are still being processed, and the flight if its upload is, are skipped:
+     * {@link #addUploadFlights} adds them once the upload is done. The uploads are locked until the transaction ends.
+     *
+     * @param connection an open database connection
+     * @param fleetId the fleet of the flight
+     * @param flightId the flight
+     * @param eventIds the events that were inserted, which may include events of other flights (e.g. proximity)
+     * @param processedDefinitionIds the event definitions the flight now has `flight_processed` rows for, that it did
+     *     not have before
+     * @throws SQLException if an update fails
+     */
+    public static void addFlightEvents(
+            Connection connection,
+            int fleetId,
+            int flightId,
+            Collection<Integer> eventIds,
+            Collection<Integer> processedDefinitionIds)
+            throws SQLException {
+        if (eventIds.isEmpty() && processedDefinitionIds.isEmpty()) return;
+
+        List<Integer> finishedUploads = lockFinishedUploads(connection, flightId, eventIds);
+        if (finishedUploads.isEmpty()) return;
+
+        if (!eventIds.isEmpty()) {
+            applyEvents(
+                    connection,
+                    1,
+                    FLIGHT_EVENTS.formatted("events.id IN " + inList(eventIds) + " AND " + FINISHED_UPLOAD_FLIGHTS
+                            .formatted(inList(finishedUploads))));
+        }
+
+        if (!processedDefinitionIds.isEmpty()) {
+            update(
+                    connection,
+                    PROCESSED_FLIGHT_COUNT_DELTA.formatted(
+                            1,
+                            "flights.id = ? AND " + FINISHED_UPLOAD_FLIGHTS.formatted(inList(finishedUploads))
+                                    + " AND flight_processed.event_definition_id IN "
+                                    + inList(processedDefinitionIds)),
+                    flightId);
+        }
+
+        incrementVersion(connection, fleetId);
+    }
+
+    /**
+     * Same as {@link #removeUpload} but logs and suppresses failures, which {@link #refreshForFleet} or the scheduled
+     * rebuilds correct.
+     */
+    public static void removeUploadQuietly(Connection connection, int fleetId, int uploadId) {
+        quietly(fleetId, () -> removeUpload(connection, fleetId, uploadId));
+    }
+
+    /**
+     * Same as {@link #removeUploadFlights} but logs and suppresses failures.
+     */
+    public static void removeUploadFlightsQuietly(Connection connection, int fleetId, int uploadId) {
+        quietly(fleetId, () -> removeUploadFlights(connection, fleetId, uploadId));
+    }
+
+    /**
+     * @param connection an open database connection
+     * @param fleetId the fleet, or a non-positive value for all fleets
+     * @return a number that changes whenever the cached statistics of the fleet (or of any fleet) are refreshed
+     * @throws SQLException if the query fails
+     */
+    public static long getVersion(Connection connection, int fleetId) throws SQLException {
+        String query = "SELECT COALESCE(SUM(version), 0) FROM fleet_statistics_versions";
+        if (fleetId > 0) query += " WHERE fleet_id = " + fleetId;
+
+        try (PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private static void incrementVersion(Connection connection, int fleetId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO fleet_statistics_versions (fleet_id, version) VALUES (?, 1) "
+                        + "ON DUPLICATE KEY UPDATE version = version + 1")) {
+            statement.setInt(1, fleetId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * The flights of an upload, as a condition on `flights` taking the upload id.
+     */
+    private static final String UPLOAD_FLIGHTS = "flights.upload_id = ?";
+
+    /**
+     * The flights of an upload and of the upload derived from it, as a condition on `flights` taking the upload id
+     * twice.
+     */
+    private static final String UPLOAD_AND_DERIVED_FLIGHTS =
+            "flights.upload_id IN (SELECT id FROM uploads WHERE id = ? OR parent_id = ?)";
+
+    /**
+     * The flights of uploads and of the uploads derived from them, as a condition on `flights` formatted with a list
+     * of upload ids.
+     */
+    private static final String FINISHED_UPLOAD_FLIGHTS =
+            "flights.upload_id IN (SELECT id FROM uploads WHERE id IN %1$s OR parent_id IN %1$s)";
+
+    /**
+     * Formatted with a condition on `flights`. Selects the uploads the flights belong to, or the uploads those were
+     * derived from.
+     */
+    private static final String FLIGHT_UPLOADS = """
+            SELECT DISTINCT COALESCE(uploads.parent_id, uploads.id)
+            FROM flights
+            INNER JOIN uploads ON uploads.id = flights.upload_id
+            WHERE %1$s
+            """;
+
+    // The deltas below are formatted with the sign of the change (1 or -1) and, except for the upload counts, a
+    // condition selecting the rows to add or subtract. Rows without a bucket yet are inserted.
+
+    private static final String MONTHLY_FLIGHT_COUNTS_DELTA = """
+            INSERT INTO m_fleet_monthly_flight_counts (fleet_id, airframe_id, year, month, count)
+            SELECT fleet_id, airframe_id, YEAR(start_time), MONTH(start_time), %1$d * COUNT(*)
+            FROM flights
+            WHERE %2$s
+            GROUP BY fleet_id, airframe_id, YEAR(start_time), MONTH(start_time)
+            ON DUPLICATE KEY UPDATE count = m_fleet_monthly_flight_counts.count + VALUES(count)
+            """;
+
+    private static final String MONTHLY_FLIGHT_TIME_DELTA = """
+            INSERT INTO m_fleet_monthly_flight_time (fleet_id, airframe_id, year, month, flight_time_seconds)
+            SELECT fleet_id, airframe_id, YEAR(start_time), MONTH(start_time),
+                %1$d * SUM(TIMESTAMPDIFF(SECOND, start_time, end_time))
+            FROM flights
+            WHERE %2$s
+            GROUP BY fleet_id, airframe_id, YEAR(start_time), MONTH(start_time)
+            ON DUPLICATE KEY UPDATE flight_time_seconds =
+                m_fleet_monthly_flight_time.flight_time_seconds + VALUES(flight_time_seconds)
+            """;
+
+    private static final String THIRTY_DAY_FLIGHT_COUNTS_DELTA = """
+            INSERT INTO m_fleet_30_day_flight_counts (fleet_id, airframe_id, count)
+            SELECT fleet_id, airframe_id, %1$d * COUNT(*)
+            FROM flights
+            WHERE %2$s AND (CURRENT_DATE - INTERVAL '30' DAY) <= end_time
+            GROUP BY fleet_id, airframe_id
+            ON DUPLICATE KEY UPDATE count = m_fleet_30_day_flight_counts.count + VALUES(count)
+            """;
+
+    private static final String THIRTY_DAY_FLIGHT_TIME_DELTA = """
+            INSERT INTO m_fleet_30_day_flight_time (fleet_id, airframe_id, flight_time_seconds)
+            SELECT fleet_id, airframe_id, %1$d * SUM(TIMESTAMPDIFF(SECOND, start_time, end_time))
+            FROM flights
+            WHERE %2$s AND (CURRENT_DATE - INTERVAL '30' DAY) <= end_time
+            GROUP BY fleet_id, airframe_id
+            ON DUPLICATE KEY UPDATE flight_time_seconds =
+                m_fleet_30_day_flight_time.flight_time_seconds + VALUES(flight_time_seconds)
+            """;
+
+    private static final String PROCESSED_FLIGHT_COUNT_DELTA = """
+            INSERT INTO m_fleet_airframe_event_processed_flight_count
+                (fleet_id, event_definition_id, airframe_id, count)
+            SELECT flights.fleet_id, flight_processed.event_definition_id, flights.airframe_id,
+                %1$d * COUNT(DISTINCT flights.id)
+            FROM flight_processed
+            INNER JOIN flights ON flights.id = flight_processed.flight_id
+            WHERE %2$s
+            GROUP BY flights.fleet_id, flight_processed.event_definition_id, flights.airframe_id
+            ON DUPLICATE KEY UPDATE count = m_fleet_airframe_event_processed_flight_count.count + VALUES(count)
+            """;
+
+    /**
+     * Formatted with the table, the sign, a query selecting the ids of the events, and a condition on the events `e`.
+     * An average is merged with the average of the events weighted by their counts. MySQL assigns columns left to
+     * right, so the count must be set last. The flight count of a new row is right, the others are recounted with
+     * {@link #EVENT_FLIGHT_COUNTS}.
+     */
+    private static final String EVENT_COUNTS_DELTA = """
+            INSERT INTO %1$s (fleet_id, event_definition_id, airframe_id, year, month, event_count, flight_count,
+                min_duration, avg_duration, max_duration, min_severity, avg_severity, max_severity)
+            SELECT e.fleet_id, e.event_definition_id, flights.airframe_id, YEAR(e.start_time), MONTH(e.start_time),
+                %2$d * COUNT(DISTINCT e.id), %2$d * COUNT(DISTINCT flights.id),
+                MIN(e.end_line - e.start_line), AVG(e.end_line - e.start_line), MAX(e.end_line - e.start_line),
+                MIN(e.severity), AVG(e.severity), MAX(e.severity)
+            FROM (%3$s) AS selected
+            INNER JOIN events AS e ON e.id = selected.id
+            INNER JOIN flights ON flights.id = e.flight_id
+            WHERE %4$s
+            GROUP BY e.fleet_id, e.event_definition_id, flights.airframe_id, YEAR(e.start_time), MONTH(e.start_time)
+            ON DUPLICATE KEY UPDATE
+                min_duration = CASE WHEN VALUES(event_count) > 0
+                    THEN LEAST(%1$s.min_duration, VALUES(min_duration)) ELSE %1$s.min_duration END,
+                avg_duration = CASE WHEN %1$s.event_count + VALUES(event_count) > 0
+                    THEN (%1$s.avg_duration * %1$s.event_count + VALUES(avg_duration) * VALUES(event_count))
+                        / (%1$s.event_count + VALUES(event_count)) ELSE 0 END,
+                max_duration = CASE WHEN VALUES(event_count) > 0
+                    THEN GREATEST(%1$s.max_duration, VALUES(max_duration)) ELSE %1$s.max_duration END,
+                min_severity = CASE WHEN VALUES(event_count) > 0
+                    THEN LEAST(%1$s.min_severity, VALUES(min_severity)) ELSE %1$s.min_severity END,
+                avg_severity = CASE WHEN %1$s.event_count + VALUES(event_count) > 0
+                    THEN (%1$s.avg_severity * %1$s.event_count + VALUES(avg_severity) * VALUES(event_count))
+                        / (%1$s.event_count + VALUES(event_count)) ELSE 0 END,
+                max_severity = CASE WHEN VALUES(event_count) > 0
+                    THEN GREATEST(%1$s.max_severity, VALUES(max_severity)) ELSE %1$s.max_severity END,
+                event_count = %1$s.event_count + VALUES(event_count)
+            """;
+
+    /**
+     * Formatted like {@link #EVENT_COUNTS_DELTA}, followed by a condition excluding events that are being removed.
+     * Recounts the flights in the rows the events fall in. Flights can have events in the same row that were added
+     * separately, e.g. the proximity events found by each of the other flights, so these counts cannot be added up.
+     */
+    private static final String EVENT_FLIGHT_COUNTS = """
+            UPDATE %1$s SET flight_count = (
+                SELECT COUNT(DISTINCT e.flight_id)
+                FROM events AS e
+                INNER JOIN flights ON flights.id = e.flight_id
+                WHERE e.fleet_id = %1$s.fleet_id AND e.event_definition_id = %1$s.event_definition_id
+                    AND flights.airframe_id = %1$s.airframe_id
+                    AND YEAR(e.start_time) = %1$s.year AND MONTH(e.start_time) = %1$s.month
+                    AND %4$s%5$s)
+            WHERE (fleet_id, event_definition_id, airframe_id, year, month) IN (
+                SELECT e.fleet_id, e.event_definition_id, flights.airframe_id, YEAR(e.start_time), MONTH(e.start_time)
+                FROM (%3$s) AS selected
+                INNER JOIN events AS e ON e.id = selected.id
+                INNER JOIN flights ON flights.id = e.flight_id
+                WHERE %4$s)
+            """;
+
+    /**
+     * Formatted with a condition on `flights` and `events`. The events on the flights, which are the ones their
+     * flights are added with: a proximity event is added with the flight it is on, not with the other flight.
+     */
+    private static final String FLIGHT_EVENTS =
+            "SELECT events.id FROM events INNER JOIN flights ON flights.id = events.flight_id WHERE %1$s";
+
+    /**
+     * Formatted with a condition on `flights`. The events on the flights and the proximity events of other flights
+     * with them, which are deleted along with the flights.
+     */
+    private static final String DELETED_EVENTS = FLIGHT_EVENTS + """
+
+            UNION
+            SELECT events.id FROM events INNER JOIN flights ON flights.id = events.other_flight_id WHERE %1$s
+            """;
+
+    /**
+     * Formatted with the sign, taking the id of an upload.
+     */
+    private static final String UPLOAD_COUNTS_DELTA = """
+            INSERT INTO m_fleet_monthly_upload_counts
+                (fleet_id, year, month, upload_count, ok_count, warning_count, error_count)
+            SELECT fleet_id, YEAR(start_time), MONTH(start_time), %1$d * SUM(status != 'DERIVED'),
+                %1$d * SUM(status = 'PROCESSED_OK'), %1$d * SUM(status = 'PROCESSED_WARNING'),
+                %1$d * SUM(status LIKE 'FAILED%%')
+            FROM uploads
+            WHERE id = ?
+            GROUP BY fleet_id, YEAR(start_time), MONTH(start_time)
+            ON DUPLICATE KEY UPDATE
+                upload_count = m_fleet_monthly_upload_counts.upload_count + VALUES(upload_count),
+                ok_count = m_fleet_monthly_upload_counts.ok_count + VALUES(ok_count),
+                warning_count = m_fleet_monthly_upload_counts.warning_count + VALUES(warning_count),
+                error_count = m_fleet_monthly_upload_counts.error_count + VALUES(error_count)
+            """;
+
+    /**
+     * Takes the id of an upload, and counts the uploads of the fleet in the month of that upload.
+     */
+    private static final String UPLOAD_COUNTS_OF_MONTH = """
+            INSERT INTO m_fleet_monthly_upload_counts
+                (fleet_id, year, month, upload_count, ok_count, warning_count, error_count)
+            SELECT uploads.fleet_id, YEAR(uploads.start_time), MONTH(uploads.start_time),
+                SUM(uploads.status != 'DERIVED'), SUM(uploads.status = 'PROCESSED_OK'),
+                SUM(uploads.status = 'PROCESSED_WARNING'), SUM(uploads.status LIKE 'FAILED%')
+            FROM uploads
+            INNER JOIN uploads AS upload ON upload.fleet_id = uploads.fleet_id
+                AND YEAR(upload.start_time) = YEAR(uploads.start_time)
+                AND MONTH(upload.start_time) = MONTH(uploads.start_time)
+            WHERE upload.id = ?
+            GROUP BY uploads.fleet_id, YEAR(uploads.start_time), MONTH(uploads.start_time)
+            ON DUPLICATE KEY UPDATE upload_count = VALUES(upload_count), ok_count = VALUES(ok_count),
+                warning_count = VALUES(warning_count), error_count = VALUES(error_count)
+            """;
+
+    /**
+     * Adds or subtracts flights, their events and `flight_processed` rows. Flights are subtracted before they are
+     * deleted, along with the proximity events of other flights with them.
+     *
+     * @param sign 1 to add, -1 to subtract
+     * @param flights a condition on `flights` selecting the flights
+     * @param parameters the parameters of the condition
+     */
+    private static void applyFlights(Connection connection, int sign, String flights, int... parameters)
+            throws SQLException {
+        update(connection, MONTHLY_FLIGHT_COUNTS_DELTA.formatted(sign, flights), parameters);
+        update(connection, MONTHLY_FLIGHT_TIME_DELTA.formatted(sign, flights), parameters);
+        update(connection, THIRTY_DAY_FLIGHT_COUNTS_DELTA.formatted(sign, flights), parameters);
+        update(connection, THIRTY_DAY_FLIGHT_TIME_DELTA.formatted(sign, flights), parameters);
+        update(connection, PROCESSED_FLIGHT_COUNT_DELTA.formatted(sign, flights), parameters);
+
+        if (sign > 0) {
+            applyEvents(connection, sign, FLIGHT_EVENTS.formatted(flights), parameters);
+        } else {
+            // The condition appears twice in the event query.
+            applyEvents(connection, sign, DELETED_EVENTS.formatted(flights), repeat(parameters, 2));
+        }
+    }
+
+    /**
+     * Adds or subtracts events. Events are subtracted before they are deleted.
+     *
+     * @param sign 1 to add, -1 to subtract
+     * @param events a query selecting the ids of the events
+     * @param parameters the parameters of the query
+     */
+    private static void applyEvents(Connection connection, int sign, String events, int... parameters)
+            throws SQLException {
+        applyEvents(connection, "m_fleet_airframe_monthly_event_counts", "TRUE", sign, events, parameters);
+        applyEvents(
+                connection,
+                "m_fleet_airframe_30_day_event_counts",
+                "(CURRENT_DATE - INTERVAL '30' DAY) <= e.end_time",
+                sign,
+                events,
+                parameters);
+    }
+
+    private static void applyEvents(
+            Connection connection, String table, String condition, int sign, String events, int... parameters)
+            throws SQLException {
+        update(connection, EVENT_COUNTS_DELTA.formatted(table, sign, events, condition), parameters);
+
+        if (sign > 0) {
+            update(connection, EVENT_FLIGHT_COUNTS.formatted(table, sign, events, condition, ""), parameters);
+        } else {
+            // The events are still there, so they are left out of the count.
+            update(
+                    connection,
+                    EVENT_FLIGHT_COUNTS.formatted(table, sign, events, condition, " AND e.id NOT IN (" + events + ")"),
+                    repeat(parameters, 2));
+        }
+    }
+
+    /**
+     * Locks the uploads a flight and the flights of events belong to, or were derived from, and returns those that
+     * are done processing, i.e. that have one of the {@link Upload.Status#getImportedSet() imported statuses}.
+     *
+     * @param flightId the flight
+     * @param eventIds the events
+     * @return the ids of the uploads that are done processing
+     */
+    private static List<Integer> lockFinishedUploads(
+            Connection connection, int flightId, Collection<Integer> eventIds) throws SQLException {
+        String flights = "flights.id = " + flightId;
+        if (!eventIds.isEmpty()) {
+            flights += " OR flights.id IN (SELECT flight_id FROM events WHERE id IN " + inList(eventIds) + ")";
+        }
+
+        List<Integer> uploadIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(FLIGHT_UPLOADS.formatted(flights));
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) uploadIds.add(resultSet.getInt(1));
+        }
+        if (uploadIds.isEmpty()) return uploadIds;
+
+        List<Upload.Status> finished = List.of(Upload.Status.getImportedSet());
+        List<Integer> finishedIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT id, status FROM uploads WHERE id IN " + inList(uploadIds) + " ORDER BY id FOR UPDATE");
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Upload.Status status = Upload.Status.valueOf(resultSet.getString(2));
+                if (finished.contains(status)) finishedIds.add(resultSet.getInt(1));
+            }
+        }
+        return finishedIds;
+    }
+
+    /**
+     * Deletes the rows that subtracting has left without flights or events, as the views would not have them. Flight
+     * time rows are left at zero, which does not change any total.
+     */
+    private static void removeEmptyRows(Connection connection, int fleetId) throws SQLException {
+        update(connection, "DELETE FROM m_fleet_monthly_flight_counts WHERE fleet_id = ? AND count <= 0", fleetId);
+        update(connection, "DELETE FROM m_fleet_30_day_flight_counts WHERE fleet_id = ? AND count <= 0", fleetId);
+        update(
+                connection,
+                "DELETE FROM m_fleet_airframe_event_processed_flight_count WHERE fleet_id = ? AND count <= 0",
+                fleetId);
+        update(
+                connection,
+                "DELETE FROM m_fleet_airframe_monthly_event_counts WHERE fleet_id = ? AND event_count <= 0",
+                fleetId);
+        update(
+                connection,
+                "DELETE FROM m_fleet_airframe_30_day_event_counts WHERE fleet_id = ? AND event_count <= 0",
+                fleetId);
+    }
+
+    private static String inList(Collection<Integer> ids) {
+        StringJoiner joiner = new StringJoiner(", ", "(", ")");
+        for (int id : ids) joiner.add(Integer.toString(id));
+        return joiner.toString();
+    }
+
+    private static int[] repeat(int[] parameters, int times) {
+        int[] repeated = new int[parameters.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(parameters, 0, repeated, i * parameters.length, parameters.length);
+        }
+        return repeated;
+    }
+
+    private static void update(Connection connection, String sql, int... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) statement.setInt(i + 1, parameters[i]);
+            statement.executeUpdate();
+        }
+    }
+
+    private interface Update {
+        void apply() throws SQLException;
+    }
+
+    private static void quietly(int fleetId, Update update) {
+        try {
+            update.apply();
+        } catch (SQLException e) {
+            LOG.log(Level.SEVERE, "Failed to update materialized statistics cache for fleet id " + fleetId, e);
+        }
+    }
+
     private static void refreshFlightStatistics(Connection connection, int fleetId) throws SQLException {
         replaceFromView(connection, fleetId, "m_fleet_monthly_flight_counts", "v_fleet_monthly_flight_counts");
         replaceFromView(connection, fleetId, "m_fleet_monthly_flight_time", "v_fleet_monthly_flight_time");
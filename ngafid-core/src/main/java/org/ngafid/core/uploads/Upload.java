@@ -6,6 +6,7 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -20,6 +21,7 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.ngafid.core.Config;
+import org.ngafid.core.heatmap.HeatmapTiles;
 import org.ngafid.core.kafka.Configuration;
 import org.ngafid.core.kafka.Topic;
 import org.ngafid.core.statistics.FleetStatisticsCacheRefresh;
@@ -178,6 +180,9 @@ public final class Upload {
                 preparedStatement.executeUpdate();
             }
 
+            FleetStatisticsCacheRefresh.removeUploadFlightsQuietly(connection, fleetId, id);
+            HeatmapTiles.removeUploadFlightsQuietly(connection, id);
+
             try (PreparedStatement preparedStatement =
                     connection.prepareStatement("DELETE FROM flights WHERE upload_id = ?")) {
                 preparedStatement.setInt(1, id);
@@ -228,23 +233,83 @@ public final class Upload {
             markedComplete = true;
         }
 
+        /**
+         * Marks a chunk as uploaded. The counters and the chunk status are updated in place in the database, so a chunk
+         * that is sent again is only counted once, and the fields of this object are refreshed from the result.
+         *
+         * @param chunkNumber the index of the chunk
+         * @param chunkSize   the size of the chunk in bytes
+         * @throws SQLException if there is an error in the database
+         */
         public void chunkUploaded(int chunkNumber, long chunkSize) throws SQLException {
-            uploadedChunks++;
-            bytesUploaded += chunkSize;
+            // MySQL assigns columns left to right, so chunk_status must be set last.
+            try (PreparedStatement query = connection.prepareStatement(
+                    "UPDATE uploads SET "
+                            + "uploaded_chunks = uploaded_chunks + CASE WHEN SUBSTRING(chunk_status, ?, 1) = '0' "
+                            + "THEN 1 ELSE 0 END, "
+                            + "bytes_uploaded = bytes_uploaded + CASE WHEN SUBSTRING(chunk_status, ?, 1) = '0' "
+                            + "THEN ? ELSE 0 END, "
+                            + "chunk_status = INSERT(chunk_status, ?, 1, '1') WHERE id = ?")) {
+                // SUBSTRING and INSERT positions are 1-based
+                query.setInt(1, chunkNumber + 1);
+                query.setInt(2, chunkNumber + 1);
+                query.setLong(3, chunkSize);
+                query.setInt(4, chunkNumber + 1);
+                query.setInt(5, id);
+                query.executeUpdate();
+            }
 
-            StringBuilder statusSB = new StringBuilder(chunkStatus);
-            statusSB.setCharAt(chunkNumber, '1');
+            try (PreparedStatement query = connection.prepareStatement(
+                    "SELECT uploaded_chunks, bytes_uploaded, chunk_status FROM uploads WHERE id = ?")) {
+                query.setInt(1, id);
+                try (ResultSet resultSet = query.executeQuery()) {
+                    if (resultSet.next()) {
+                        uploadedChunks = resultSet.getInt(1);
+                        bytesUploaded = resultSet.getLong(2);
+                        chunkStatus = resultSet.getString(3);
+                    }
+                }
+            }
+        }
 
-            chunkStatus = statusSB.toString();
+        /**
+         * Writes a chunk of a file upload straight into the upload's archive file at the chunk's offset, records the
+         * MD5 hash of the chunk and marks it as uploaded. Once every chunk has been written, the file is verified with
+         * {@link #verifyAssembled()}.
+         *
+         * @param chunkNumber the index of the chunk
+         * @param length      the size of the chunk in bytes
+         * @param content     the bytes of the chunk
+         * @throws IllegalArgumentException if the chunk does not fit in the upload
+         * @throws SQLException             if there is an error in the database
+         * @throws IOException              if the chunk could not be written
+         */
+        public void writeChunk(int chunkNumber, long length, InputStream content) throws SQLException, IOException {
+            String chunkHash = UploadAssembler.writeChunk(Upload.this, getArchivePath(), chunkNumber, length, content);
 
             try (PreparedStatement query = connection.prepareStatement(
-                    "UPDATE uploads SET uploaded_chunks = ?, bytes_uploaded = ?, chunk_status = ? WHERE id = ?")) {
-                query.setInt(1, uploadedChunks);
-                query.setLong(2, bytesUploaded);
-                query.setString(3, chunkStatus);
-                query.setInt(4, id);
+                    "INSERT INTO upload_chunks (upload_id, chunk_number, size_bytes, md5_hash) VALUES (?, ?, ?, ?) "
+                            + "ON DUPLICATE KEY UPDATE size_bytes = VALUES(size_bytes), md5_hash = VALUES(md5_hash)")) {
+                query.setInt(1, id);
+                query.setInt(2, chunkNumber);
+                query.setLong(3, length);
+                query.setString(4, chunkHash);
                 query.executeUpdate();
             }
+
+            chunkUploaded(chunkNumber, length);
+            UploadAssembler.advanceDigest(Upload.this, getArchivePath());
+        }
+
+        /**
+         * Checks the size and MD5 hash of a file upload whose chunks have all been written with {@link #writeChunk}.
+         * The hash is normally computed as the chunks arrive, so this does not need to read the file.
+         *
+         * @return whether the assembled file matches the size and hash the upload was created with
+         * @throws IOException if the file could not be read
+         */
+        public boolean verifyAssembled() throws IOException {
+            return checkSize() && UploadAssembler.verify(Upload.this, getArchivePath());
         }
 
         public void updateStatus(Status newStatus) throws SQLException {
@@ -266,8 +331,6 @@ public final class Upload {
         public void remove() throws SQLException {
             // We can skip this thanks to ON DELETE CASCADE -- clearing is only if we want to keep the `upload` entry.
             // clearUpload();
-            int fleetIdToRefresh = fleetId;
-
             if (kind == Kind.AIRSYNC) {
                 try (PreparedStatement preparedStatement =
                         connection.prepareStatement("DELETE FROM airsync_imports WHERE upload_id = " + id)) {
@@ -275,6 +338,9 @@ public final class Upload {
                 }
             }
 
+            FleetStatisticsCacheRefresh.removeUploadQuietly(connection, fleetId, id);
+            HeatmapTiles.removeUploadQuietly(connection, id);
+
             try (PreparedStatement preparedStatement =
                     connection.prepareStatement("DELETE FROM uploads WHERE id = ?")) {
                 preparedStatement.setInt(1, id);
@@ -284,8 +350,7 @@ public final class Upload {
 
             File archiveFile = new File(getArchivePath().toUri());
             archiveFile.delete();
-
-            FleetStatisticsCacheRefresh.refreshForFleetQuietly(connection, fleetIdToRefresh);
+            UploadAssembler.forget(id);
         }
     }
 
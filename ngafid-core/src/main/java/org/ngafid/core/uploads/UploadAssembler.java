@@ -0,0 +1,215 @@
+package org.ngafid.core.uploads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import org.ngafid.core.util.MD5;
+
+/**
+ * Assembles chunked file uploads in place. Every chunk is written straight into the upload's (preallocated) archive
+ * file at its offset with a positional write, so completing an upload does not need to concatenate chunk files.
+ * <p>
+ * The MD5 hash of the whole file is computed as the chunks arrive: a chunk is fed into a running digest as soon as
+ * every chunk before it has been written. The browser sends chunks in order, so this is normally the chunk that was
+ * just received; chunks that arrived early are read back from the file once the gap before them is filled. The digest
+ * only lives in this process, so if it is lost (e.g. the server restarted mid-upload) the file is read once to verify
+ * it.
+ * <p>
+ * All methods must be called while holding the upload's lock.
+ */
+final class UploadAssembler {
+    private static final Logger LOG = Logger.getLogger(UploadAssembler.class.getName());
+
+    /**
+     * The number of in-progress uploads to keep running digests for; uploads that are abandoned are eventually evicted.
+     */
+    private static final int MAX_DIGESTS = 256;
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The digest of the chunks before {@code nextChunk}, which start at {@code nextOffset}.
+     */
+    private static final class RunningDigest {
+        private final MessageDigest digest = MD5.newDigest();
+        private final long chunkSize;
+        private int nextChunk = 0;
+        private long nextOffset = 0;
+
+        private RunningDigest(long chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    private static final Map<Integer, RunningDigest> DIGESTS = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, RunningDigest> eldest) {
+                    return size() > MAX_DIGESTS;
+                }
+            });
+
+    private UploadAssembler() {}
+
+    /**
+     * Computes where a chunk starts in the file. Every chunk but the last has the same size, so the offset of a chunk
+     * follows from its own size, and the last chunk ends at the end of the file.
+     */
+    static long offsetOf(int chunkNumber, long length, int numberChunks, long sizeBytes) {
+        if (chunkNumber < 0 || chunkNumber >= numberChunks) {
+            throw new IllegalArgumentException("Chunk " + chunkNumber + " is out of range, the upload has "
+                    + numberChunks + " chunks");
+        }
+
+        boolean last = chunkNumber == numberChunks - 1;
+        long offset = last ? sizeBytes - length : chunkNumber * length;
+        if (length <= 0 || offset < 0 || offset + length > sizeBytes || (!last && offset + length == sizeBytes)) {
+            throw new IllegalArgumentException("Chunk " + chunkNumber + " of " + length
+                    + " bytes does not fit in an upload of " + sizeBytes + " bytes in " + numberChunks + " chunks");
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a chunk into the upload's archive file at its offset.
+     *
+     * @param upload      the upload
+     * @param path        the upload's archive file
+     * @param chunkNumber the index of the chunk
+     * @param length      the size of the chunk in bytes
+     * @param content     the bytes of the chunk
+     * @return the MD5 hash of the chunk
+     * @throws IllegalArgumentException if the chunk does not fit in the upload
+     */
+    static String writeChunk(Upload upload, Path path, int chunkNumber, long length, InputStream content)
+            throws IOException {
+        long offset = offsetOf(chunkNumber, length, upload.numberChunks, upload.sizeBytes);
+        if (length > Integer.MAX_VALUE) throw new IllegalArgumentException("Chunk " + chunkNumber + " is too large");
+
+        byte[] bytes = content.readNBytes((int) length);
+        if (bytes.length != length) {
+            throw new IOException("Chunk " + chunkNumber + " ended after " + bytes.length + " of " + length + " bytes");
+        }
+
+        Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Preallocate (sparsely) so chunks can be written in any order
+            if (channel.size() < upload.sizeBytes) {
+                channel.write(ByteBuffer.allocate(1), upload.sizeBytes - 1);
+            } else if (channel.size() > upload.sizeBytes) {
+                channel.truncate(upload.sizeBytes);
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        MessageDigest chunkDigest = MD5.newDigest();
+        chunkDigest.update(bytes);
+
+        RunningDigest running = DIGESTS.get(upload.id);
+        if (chunkNumber == 0) {
+            // (Re)starting the upload: the digest starts over with the first chunk.
+            running = new RunningDigest(length);
+            DIGESTS.put(upload.id, running);
+        }
+
+        if (running != null) {
+            if (chunkNumber == running.nextChunk) {
+                running.digest.update(bytes);
+                running.nextChunk++;
+                running.nextOffset += length;
+            } else if (chunkNumber < running.nextChunk) {
+                // A chunk that was already hashed was sent again and may have changed.
+                DIGESTS.remove(upload.id);
+            }
+        }
+
+        return MD5.toHexHash(chunkDigest);
+    }
+
+    /**
+     * Feeds the chunks that arrived before the chunks preceding them into the running digest of an upload, now that
+     * they may directly follow the hashed chunks.
+     *
+     * @param upload the upload, with an up-to-date chunk status
+     * @param path   the upload's archive file
+     */
+    static void advanceDigest(Upload upload, Path path) throws IOException {
+        RunningDigest running = DIGESTS.get(upload.id);
+        if (running == null || running.nextChunk >= upload.numberChunks) return;
+        if (upload.chunkStatus.charAt(running.nextChunk) != '1') return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (running.nextChunk < upload.numberChunks && upload.chunkStatus.charAt(running.nextChunk) == '1') {
+                long end = running.nextChunk == upload.numberChunks - 1
+                        ? upload.sizeBytes
+                        : running.nextOffset + running.chunkSize;
+                hashRange(channel, buffer, running.digest, running.nextOffset, end);
+                running.nextChunk++;
+                running.nextOffset = end;
+            }
+        }
+    }
+
+    /**
+     * Checks that the MD5 hash of the assembled file matches the hash the upload was created with, and forgets the
+     * upload's running digest.
+     *
+     * @param upload the upload, all of whose chunks have been written
+     * @param path   the upload's archive file
+     * @return whether the hashes match
+     */
+    static boolean verify(Upload upload, Path path) throws IOException {
+        RunningDigest running = DIGESTS.remove(upload.id);
+
+        String hash;
+        if (running != null && running.nextChunk == upload.numberChunks) {
+            hash = MD5.toHexHash(running.digest);
+        } else {
+            LOG.info("No running digest for upload " + upload.id + ", reading the file to compute its MD5 hash");
+            MessageDigest digest = MD5.newDigest();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                hashRange(channel, ByteBuffer.allocate(READ_BUFFER_SIZE), digest, 0, channel.size());
+            }
+            hash = MD5.toHexHash(digest);
+        }
+
+        return hash.equals(upload.md5Hash);
+    }
+
+    /**
+     * Forgets the running digest of an upload, e.g. because it was removed.
+     */
+    static void forget(int uploadId) {
+        DIGESTS.remove(uploadId);
+    }
+
+    private static void hashRange(FileChannel channel, ByteBuffer buffer, MessageDigest digest, long start, long end)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Upload file ended at byte " + position + " of " + end);
+
+            buffer.flip();
+            digest.update(buffer);
+            position += read;
+        }
+    }
+}
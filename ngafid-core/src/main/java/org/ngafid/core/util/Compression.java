@@ -4,12 +4,18 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.sql.Blob;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterOutputStream;
 
+/**
+ * Compression of the blobs stored in the database. Double arrays are encoded with a {@link DoubleArrayCodec}, see it
+ * for the formats.
+ */
 public final class Compression {
     private Compression() {
         throw new UnsupportedOperationException("Utility class cannot be instantiated.");
@@ -48,12 +54,70 @@ public final class Compression {
         return out;
     }
 
-    public static double[] inflateDoubleArray(byte[] bytes, int size) throws IOException {
-        byte[] inflated = inflate(bytes);
-        double[] output = new double[size];
-        ByteBuffer.wrap(inflated).asDoubleBuffer().get(output);
+    /**
+     * Inflates zlib data straight into an array of the expected length, rather than growing a stream and copying it.
+     *
+     * @param data   the compressed data
+     * @param offset the offset of the zlib stream in `data`
+     * @param length the number of bytes to inflate
+     * @return the first `length` inflated bytes
+     * @throws IOException if the data is malformed or inflates to fewer than `length` bytes
+     */
+    public static byte[] inflate(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater(NOWRAP);
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+
+            byte[] out = new byte[length];
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int n = inflater.inflate(out, inflated, length - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                inflated += n;
+            }
+
+            if (inflated < length) {
+                throw new IOException("Compressed data ended after " + inflated + " of " + length + " bytes");
+            }
+
+            return out;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
 
-        return output;
+    /**
+     * Compresses the first `length` bytes of `data` with zlib.
+     *
+     * @param data   the data to compress
+     * @param length the number of bytes to compress
+     * @param level  the zlib compression level
+     * @param header bytes to write before the zlib stream
+     * @return the header followed by the zlib stream
+     */
+    public static byte[] deflate(byte[] data, int length, int level, byte[] header) {
+        Deflater deflater = new Deflater(level, NOWRAP);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+
+            byte[] out = Arrays.copyOf(header, Math.max(64, header.length + length / 4));
+            int size = header.length;
+            while (!deflater.finished()) {
+                if (size == out.length) out = Arrays.copyOf(out, out.length * 2);
+                size += deflater.deflate(out, size, out.length - size);
+            }
+
+            return Arrays.copyOf(out, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static double[] inflateDoubleArray(byte[] bytes, int size) throws IOException {
+        return DoubleArrayCodec.of(bytes).decode(bytes, size);
     }
 
     public static double[] inflateDoubleArray(Blob blob, int size) throws SQLException, IOException {
@@ -62,9 +126,18 @@ public final class Compression {
     }
 
     public static byte[] compressDoubleArray(double[] data) throws IOException {
-        ByteBuffer bytes = ByteBuffer.allocate(data.length * Double.BYTES);
-        bytes.asDoubleBuffer().put(data);
-        return compress(bytes.array());
+        return compressDoubleArray(data, data.length);
+    }
+
+    /**
+     * Encodes the first `length` values of an array, with the codec best suited to the data.
+     *
+     * @param data   the values
+     * @param length the number of values to encode
+     * @return the encoded array
+     */
+    public static byte[] compressDoubleArray(double[] data, int length) throws IOException {
+        return DoubleArrayCodec.encodeBest(data, length);
     }
 
     public static Object inflateTTFObject(byte[] bytes) throws IOException, ClassNotFoundException {
@@ -0,0 +1,339 @@
+package org.ngafid.core.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * The encodings used to store double arrays (e.g. `double_series.data`) in the database.
+ * <p>
+ * Every codec other than the original {@link #DEFLATE} writes its id as the first byte of the blob. A zlib stream
+ * always starts with a byte whose low nibble is 8 (the deflate compression method), which no codec id has, so blobs
+ * written before codecs were introduced are recognized by their first byte and still decode. Ids are persisted: new
+ * codecs must be added with a new id, and an id must never be reused.
+ * <p>
+ * New arrays are written with {@link #DECIMAL} when their values are decimals of a fixed precision, which is the case
+ * for nearly every column parsed from a flight data file, and with {@link #SHUFFLE_DELTA} otherwise.
+ */
+public enum DoubleArrayCodec {
+    /**
+     * Raw big-endian doubles, compressed with zlib at the default level. This has no header byte.
+     */
+    DEFLATE(-1),
+
+    /**
+     * Values are scaled by a power of ten to integers, and the differences between consecutive integers are written as
+     * zig-zag varints before being compressed with zlib at its fastest level. Values that do not survive the round
+     * trip (e.g. NaN, infinities, or values with more decimal places) are written as exceptions.
+     * <p>
+     * Layout: id, number of values (int), decimal places (byte), length of the varint stream (int), zlib stream.
+     * <p>
+     * Each token of the varint stream has a tag in its lowest bit: 0 is a delta (the rest of the token), otherwise the
+     * token is 1 for a NaN or 3 for an exception whose raw 8 bytes follow the token. Exceptions do not change the
+     * value the next delta is taken from.
+     */
+    DECIMAL(1),
+
+    /**
+     * The raw bits of each value minus those of the previous value, with the bytes of the differences shuffled into
+     * planes (all of the most significant bytes, then all of the next bytes, ...) and compressed with zlib at its
+     * fastest level. Slowly changing values share their sign, exponent and high mantissa bits, so the leading planes
+     * compress to almost nothing.
+     * <p>
+     * Layout: id, number of values (int), zlib stream.
+     */
+    SHUFFLE_DELTA(2);
+
+    /**
+     * The largest number of decimal places {@link #DECIMAL} will scale values by.
+     */
+    private static final int MAX_DECIMAL_PLACES = 10;
+
+    /**
+     * {@link #DECIMAL} is only chosen if at most 1 / this of the values are exceptions (not counting NaNs).
+     */
+    private static final int MAX_EXCEPTION_FRACTION = 8;
+
+    private static final double[] POWERS_OF_TEN = new double[MAX_DECIMAL_PLACES + 1];
+
+    static {
+        for (int i = 0; i <= MAX_DECIMAL_PLACES; i++) POWERS_OF_TEN[i] = Math.pow(10, i);
+    }
+
+    // Scaled values must be exact integers in a double, and deltas between them must not overflow the varint tokens.
+    private static final double MAX_SCALED_MAGNITUDE = 1L << 52;
+
+    private static final long NAN_BITS = Double.doubleToRawLongBits(Double.NaN);
+    private static final long TOKEN_NAN = 1;
+    private static final long TOKEN_EXCEPTION = 3;
+
+    private final int id;
+
+    DoubleArrayCodec(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @param bytes an encoded double array
+     * @return the codec the array was encoded with
+     * @throws IOException if the header byte does not belong to any codec
+     */
+    public static DoubleArrayCodec of(byte[] bytes) throws IOException {
+        if (bytes.length == 0) throw new IOException("Cannot decode an empty double array");
+
+        if ((bytes[0] & 0x0f) == 8) return DEFLATE;
+
+        for (DoubleArrayCodec codec : values()) {
+            if (codec.id == bytes[0]) return codec;
+        }
+
+        throw new IOException("Unknown double array codec id: " + bytes[0]);
+    }
+
+    /**
+     * Encodes the first `length` values of an array with whichever of {@link #DECIMAL} or {@link #SHUFFLE_DELTA} fits
+     * the data.
+     *
+     * @param data   the values
+     * @param length the number of values to encode
+     * @return the encoded array
+     */
+    public static byte[] encodeBest(double[] data, int length) {
+        int decimalPlaces = findDecimalPlaces(data, length);
+        if (decimalPlaces >= 0) return encodeDecimal(data, length, decimalPlaces);
+        return SHUFFLE_DELTA.encode(data, length);
+    }
+
+    /**
+     * Encodes the first `length` values of an array with this codec.
+     *
+     * @param data   the values
+     * @param length the number of values to encode
+     * @return the encoded array
+     */
+    public byte[] encode(double[] data, int length) {
+        return switch (this) {
+            case DEFLATE -> {
+                ByteBuffer bytes = ByteBuffer.allocate(length * Double.BYTES);
+                bytes.asDoubleBuffer().put(data, 0, length);
+                yield Compression.deflate(bytes.array(), bytes.capacity(), Deflater.DEFAULT_COMPRESSION, new byte[0]);
+            }
+            case DECIMAL -> encodeDecimal(data, length, Math.max(0, findDecimalPlaces(data, length)));
+            case SHUFFLE_DELTA -> {
+                byte[] header = ByteBuffer.allocate(1 + Integer.BYTES)
+                        .put((byte) id)
+                        .putInt(length)
+                        .array();
+                byte[] shuffled = shuffleDelta(data, length);
+                yield Compression.deflate(shuffled, shuffled.length, Deflater.BEST_SPEED, header);
+            }
+        };
+    }
+
+    /**
+     * Decodes an array encoded with this codec.
+     *
+     * @param bytes the encoded array
+     * @param size  the number of values to decode
+     * @return the decoded values
+     * @throws IOException if the array is malformed or holds fewer than `size` values
+     */
+    public double[] decode(byte[] bytes, int size) throws IOException {
+        return switch (this) {
+            case DEFLATE -> {
+                double[] output = new double[size];
+                ByteBuffer.wrap(Compression.inflate(bytes, 0, size * Double.BYTES))
+                        .asDoubleBuffer()
+                        .get(output);
+                yield output;
+            }
+            case DECIMAL -> {
+                ByteBuffer header = ByteBuffer.wrap(bytes, 1, 2 * Integer.BYTES + 1);
+                int count = checkCount(header.getInt(), size);
+                int decimalPlaces = header.get();
+                int tokenBytes = header.getInt();
+                byte[] tokens = Compression.inflate(bytes, header.position(), tokenBytes);
+                yield decodeDecimal(tokens, size, decimalPlaces);
+            }
+            case SHUFFLE_DELTA -> {
+                int count = checkCount(ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt(), size);
+                byte[] shuffled = Compression.inflate(bytes, 1 + Integer.BYTES, count * Double.BYTES);
+                yield unshuffleDelta(shuffled, count, size);
+            }
+        };
+    }
+
+    private static int checkCount(int count, int size) throws IOException {
+        if (count < size) throw new IOException("Encoded array holds " + count + " values, expected " + size);
+        return count;
+    }
+
+    /**
+     * Finds the fewest decimal places every value can be written with, allowing for NaNs and a few exceptions.
+     *
+     * @return the number of decimal places, or -1 if there are too many exceptions at every precision
+     */
+    private static int findDecimalPlaces(double[] data, int length) {
+        int maxExceptions = length / MAX_EXCEPTION_FRACTION;
+
+        for (int decimalPlaces = 0; decimalPlaces <= MAX_DECIMAL_PLACES; decimalPlaces++) {
+            double scale = POWERS_OF_TEN[decimalPlaces];
+
+            int exceptions = 0;
+            for (int i = 0; i < length && exceptions <= maxExceptions; i++) {
+                double value = data[i];
+                if (!Double.isNaN(value) && !isExact(value, scale)) exceptions++;
+            }
+
+            if (exceptions <= maxExceptions) return decimalPlaces;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return whether the value survives being scaled to an integer and back, bit for bit
+     */
+    private static boolean isExact(double value, double scale) {
+        double scaled = value * scale;
+        if (!(Math.abs(scaled) < MAX_SCALED_MAGNITUDE)) return false;
+
+        return Double.doubleToRawLongBits(Math.round(scaled) / scale) == Double.doubleToRawLongBits(value);
+    }
+
+    private static byte[] encodeDecimal(double[] data, int length, int decimalPlaces) {
+        double scale = POWERS_OF_TEN[decimalPlaces];
+
+        // Worst case every value is an exception: a one byte token plus the raw value.
+        byte[] tokens = new byte[length * (1 + Double.BYTES)];
+        int position = 0;
+
+        long previous = 0;
+        for (int i = 0; i < length; i++) {
+            double value = data[i];
+            long bits = Double.doubleToRawLongBits(value);
+
+            if (bits == NAN_BITS) {
+                tokens[position++] = (byte) TOKEN_NAN;
+            } else if (isExact(value, scale)) {
+                long scaled = Math.round(value * scale);
+                long delta = scaled - previous;
+                previous = scaled;
+
+                position = writeVarint(tokens, position, ((delta << 1) ^ (delta >> 63)) << 1);
+            } else {
+                tokens[position++] = (byte) TOKEN_EXCEPTION;
+                for (int b = 0; b < Double.BYTES; b++) {
+                    tokens[position++] = (byte) (bits >>> (56 - 8 * b));
+                }
+            }
+        }
+
+        byte[] header = ByteBuffer.allocate(2 * Integer.BYTES + 2)
+                .put((byte) DECIMAL.id)
+                .putInt(length)
+                .put((byte) decimalPlaces)
+                .putInt(position)
+                .array();
+
+        return Compression.deflate(tokens, position, Deflater.BEST_SPEED, header);
+    }
+
+    private static double[] decodeDecimal(byte[] tokens, int size, int decimalPlaces) throws IOException {
+        if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES) {
+            throw new IOException("Invalid number of decimal places: " + decimalPlaces);
+        }
+        double scale = POWERS_OF_TEN[decimalPlaces];
+
+        double[] out = new double[size];
+        int position = 0;
+
+        long previous = 0;
+        try {
+            for (int i = 0; i < size; i++) {
+                // Read one varint token
+                long token = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = tokens[position++];
+                    token |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                if (token == TOKEN_NAN) {
+                    out[i] = Double.NaN;
+                } else if (token == TOKEN_EXCEPTION) {
+                    long bits = 0;
+                    for (int j = 0; j < Double.BYTES; j++) {
+                        bits = (bits << 8) | (tokens[position++] & 0xffL);
+                    }
+                    out[i] = Double.longBitsToDouble(bits);
+                } else {
+                    long zigzag = token >>> 1;
+                    previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                    out[i] = previous / scale;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Encoded decimal array ended early", e);
+        }
+
+        return out;
+    }
+
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Subtracts the bits of each value from the next, and splits the differences into byte planes: byte `b` (most
+     * significant first) of difference `i` is written to `b * length + i`.
+     */
+    private static byte[] shuffleDelta(double[] data, int length) {
+        long[] deltas = new long[length];
+        long previous = 0;
+        for (int i = 0; i < length; i++) {
+            long bits = Double.doubleToRawLongBits(data[i]);
+            deltas[i] = bits - previous;
+            previous = bits;
+        }
+
+        byte[] out = new byte[length * Double.BYTES];
+        for (int b = 0; b < Double.BYTES; b++) {
+            int shift = 56 - 8 * b;
+            int plane = b * length;
+            for (int i = 0; i < length; i++) {
+                out[plane + i] = (byte) (deltas[i] >>> shift);
+            }
+        }
+
+        return out;
+    }
+
+    private static double[] unshuffleDelta(byte[] shuffled, int count, int size) {
+        // Gather the planes one at a time so every pass reads the shuffled bytes sequentially.
+        long[] deltas = new long[size];
+        for (int b = 0; b < Double.BYTES; b++) {
+            int shift = 56 - 8 * b;
+            int plane = b * count;
+            for (int i = 0; i < size; i++) {
+                deltas[i] |= (shuffled[plane + i] & 0xffL) << shift;
+            }
+        }
+
+        double[] out = new double[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += deltas[i];
+            out[i] = Double.longBitsToDouble(previous);
+        }
+
+        return out;
+    }
+}
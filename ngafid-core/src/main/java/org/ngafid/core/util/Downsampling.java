@@ -0,0 +1,103 @@
+package org.ngafid.core.util;
+
+/**
+ * Downsampling of time series for charts, so that a long flight can be drawn from a few thousand points instead of
+ * every sample.
+ */
+public final class Downsampling {
+    private Downsampling() {}
+
+    /**
+     * Selects the samples to draw a range of a series with, using Largest-Triangle-Three-Buckets: the range is split
+     * into {@code points - 2} buckets between its first and last sample, and from each bucket the sample forming the
+     * largest triangle with the previously selected sample and the average of the next bucket is kept. This keeps the
+     * peaks and the shape of the series, unlike taking every n-th sample.
+     * <p>
+     * The samples are assumed to be evenly spaced. Missing (NaN) samples are never chosen over valid ones, but a bucket
+     * with only missing samples keeps one of them so that the gap is still drawn.
+     *
+     * @param data   the series
+     * @param from   the index of the first sample of the range
+     * @param to     the index after the last sample of the range
+     * @param points the number of samples to select; if the range has no more samples than this, every index is
+     *               returned
+     * @return the indices of the selected samples, in increasing order
+     */
+    public static int[] largestTriangleThreeBuckets(double[] data, int from, int to, int points) {
+        if (from < 0 || to > data.length || from > to) {
+            throw new IllegalArgumentException(
+                    "Invalid range " + from + " to " + to + " of " + data.length + " samples");
+        }
+
+        int length = to - from;
+        if (points >= length || length <= 2) {
+            int[] indices = new int[length];
+            for (int i = 0; i < length; i++) indices[i] = from + i;
+            return indices;
+        }
+        if (points < 3) return points <= 1 ? new int[] {from} : new int[] {from, to - 1};
+
+        int[] selected = new int[points];
+        selected[0] = from;
+        selected[points - 1] = to - 1;
+
+        // The first and last samples are always kept, the ones between are split into points - 2 buckets.
+        double bucketSize = (double) (length - 2) / (points - 2);
+        int previous = from;
+
+        for (int bucket = 0; bucket < points - 2; bucket++) {
+            int start = bucketStart(from, to, points, bucketSize, bucket);
+            int end = bucketStart(from, to, points, bucketSize, bucket + 1);
+
+            // The average of the next bucket, which is just the last sample for the last bucket.
+            int nextStart = end;
+            int nextEnd = bucketStart(from, to, points, bucketSize, bucket + 2);
+            double averageX = 0;
+            double averageY = 0;
+            int valid = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                if (Double.isNaN(data[i])) continue;
+                averageX += i;
+                averageY += data[i];
+                valid++;
+            }
+
+            double previousY = data[previous];
+            if (valid > 0) {
+                averageX /= valid;
+                averageY /= valid;
+            } else {
+                averageX = (nextStart + nextEnd - 1) / 2.0;
+                averageY = Double.isNaN(previousY) ? 0 : previousY;
+            }
+            if (Double.isNaN(previousY)) previousY = averageY;
+
+            int chosen = start;
+            double maxArea = -1;
+            for (int i = start; i < end; i++) {
+                if (Double.isNaN(data[i])) continue;
+
+                // Twice the area of the triangle, which is enough to compare them.
+                double area = Math.abs(
+                        (previous - averageX) * (data[i] - previousY) - (previous - i) * (averageY - previousY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+
+            selected[bucket + 1] = chosen;
+            previous = chosen;
+        }
+
+        return selected;
+    }
+
+    /**
+     * The index of the first sample of a bucket; bucket {@code points - 2} is the last sample on its own.
+     */
+    private static int bucketStart(int from, int to, int points, double bucketSize, int bucket) {
+        if (bucket >= points - 2) return bucket == points - 2 ? to - 1 : to;
+        return from + 1 + (int) (bucket * bucketSize);
+    }
+}
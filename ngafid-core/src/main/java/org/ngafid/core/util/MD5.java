@@ -66,4 +66,31 @@ public final class MD5 {
             return null;
         }
     }
+
+    /**
+     * Creates a digest that data can be fed into incrementally, to be completed with {@link #toHexHash}.
+     *
+     * @return a new MD5 message digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            LOG.severe("Unable to find MD5 algorithm");
+            e.printStackTrace();
+            System.exit(1);
+            // Unreachable
+            return null;
+        }
+    }
+
+    /**
+     * Completes a digest that data has been fed into incrementally.
+     *
+     * @param md an MD5 message digest
+     * @return lowercase hex binary hash string
+     */
+    public static String toHexHash(MessageDigest md) {
+        return String.valueOf(Hex.encodeHex(md.digest())).toLowerCase();
+    }
 }
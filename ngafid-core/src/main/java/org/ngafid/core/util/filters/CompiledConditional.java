@@ -0,0 +1,190 @@
+package org.ngafid.core.util.filters;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import org.ngafid.core.flights.DoubleTimeSeries;
+
+/**
+ * A {@link Conditional} compiled into a flat branch program over column indices, so that it can be evaluated row by
+ * row without string comparisons or allocation.
+ * <p>
+ * Every RULE in the filter becomes one instruction: compare column[row] against a constant, then jump to the
+ * instruction for the "true" or the "false" outcome. GROUPs do not produce any instructions; they only determine the
+ * jump targets of their children, so AND / OR short circuit exactly like {@link Conditional#evaluate()}. Jump targets
+ * below zero terminate the program with a result.
+ * <p>
+ * As with {@link Conditional}, a NaN parameter value makes its rule evaluate to false, an empty AND group is true and
+ * an empty OR group is false.
+ */
+public class CompiledConditional {
+    private static final Logger LOG = Logger.getLogger(CompiledConditional.class.getName());
+
+    private static final int RESULT_TRUE = -1;
+    private static final int RESULT_FALSE = -2;
+
+    private static final byte OP_LT = 0;
+    private static final byte OP_LE = 1;
+    private static final byte OP_GT = 2;
+    private static final byte OP_GE = 3;
+
+    private final List<String> columnNames = new ArrayList<>();
+
+    private final int entry;
+    private final int[] column;
+    private final byte[] op;
+    private final double[] value;
+    private final int[] onTrue;
+    private final int[] onFalse;
+
+    /**
+     * Compiles the supplied filter.
+     *
+     * @param filter the filter to compile
+     */
+    public CompiledConditional(Filter filter) {
+        ArrayList<Instruction> instructions = new ArrayList<>();
+        HashMap<String, Integer> columnIndices = new HashMap<>();
+
+        entry = compile(filter, RESULT_TRUE, RESULT_FALSE, instructions, columnIndices);
+
+        int n = instructions.size();
+        column = new int[n];
+        op = new byte[n];
+        value = new double[n];
+        onTrue = new int[n];
+        onFalse = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            Instruction instruction = instructions.get(i);
+            column[i] = instruction.column;
+            op[i] = instruction.op;
+            value[i] = instruction.value;
+            onTrue[i] = instruction.onTrue;
+            onFalse[i] = instruction.onFalse;
+        }
+    }
+
+    private record Instruction(int column, byte op, double value, int onTrue, int onFalse) {}
+
+    /**
+     * Emits the instructions for a filter, given where control should go once its outcome is known.
+     *
+     * @return the index of the first instruction to execute for this filter (or a result, for constant filters)
+     */
+    private int compile(
+            Filter filter,
+            int trueTarget,
+            int falseTarget,
+            ArrayList<Instruction> instructions,
+            HashMap<String, Integer> columnIndices) {
+        if (filter.type.equals("RULE")) {
+            String parameterName = filter.inputs.get(0);
+            byte ruleOp = switch (filter.inputs.get(1)) {
+                case "<" -> OP_LT;
+                case "<=" -> OP_LE;
+                case ">" -> OP_GT;
+                case ">=" -> OP_GE;
+                default -> {
+                    LOG.severe("Could not compile an invalid condition for a rule: '" + filter.inputs.get(1) + "'");
+                    System.exit(1);
+                    yield OP_LT;
+                }
+            };
+            double ruleValue = Double.parseDouble(filter.inputs.get(2));
+
+            int columnIndex = columnIndices.computeIfAbsent(parameterName, name -> {
+                columnNames.add(name);
+                return columnNames.size() - 1;
+            });
+
+            instructions.add(new Instruction(columnIndex, ruleOp, ruleValue, trueTarget, falseTarget));
+            return instructions.size() - 1;
+
+        } else if (filter.type.equals("GROUP")) {
+            // Children are compiled last to first, so each child knows where the next one starts.
+            int next;
+            if (filter.condition.equals("AND")) {
+                next = trueTarget;
+                for (int i = filter.filters.size() - 1; i >= 0; i--) {
+                    next = compile(filter.filters.get(i), next, falseTarget, instructions, columnIndices);
+                }
+            } else if (filter.condition.equals("OR")) {
+                next = falseTarget;
+                for (int i = filter.filters.size() - 1; i >= 0; i--) {
+                    next = compile(filter.filters.get(i), trueTarget, next, instructions, columnIndices);
+                }
+            } else {
+                LOG.severe("Could not compile a group with an unknown condition type: '" + filter.condition + "'");
+                System.exit(1);
+                return falseTarget;
+            }
+
+            return next;
+
+        } else {
+            LOG.severe("Could not compile a filter with unknown rule type: '" + filter.type + "'");
+            System.exit(1);
+            return falseTarget;
+        }
+    }
+
+    /**
+     * @return the names of the columns used by this conditional, in column index order
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Looks up the columns used by this conditional, in the order expected by {@link #evaluate(double[][], int)}.
+     * Columns that are not present are null, and rules on them always evaluate to false.
+     *
+     * @param doubleSeries the available double series, by name
+     * @return the column data, in column index order
+     */
+    public double[][] bind(Map<String, DoubleTimeSeries> doubleSeries) {
+        double[][] columns = new double[columnNames.size()][];
+
+        for (int i = 0; i < columns.length; i++) {
+            DoubleTimeSeries series = doubleSeries.get(columnNames.get(i));
+            columns[i] = series == null ? null : series.innerArray();
+        }
+
+        return columns;
+    }
+
+    /**
+     * Evaluates this conditional for a single row.
+     *
+     * @param columns the columns returned by {@link #bind(Map)}
+     * @param row     the row to evaluate
+     * @return whether the conditional is true for the row
+     */
+    public boolean evaluate(double[][] columns, int row) {
+        int pc = entry;
+
+        while (pc >= 0) {
+            double[] data = columns[column[pc]];
+
+            boolean result = false;
+            if (data != null) {
+                double parameterValue = data[row];
+
+                // NaN fails every comparison, so NaNs never trigger an exceedence
+                result = switch (op[pc]) {
+                    case OP_LT -> parameterValue < value[pc];
+                    case OP_LE -> parameterValue <= value[pc];
+                    case OP_GT -> parameterValue > value[pc];
+                    default -> parameterValue >= value[pc];
+                };
+            }
+
+            pc = result ? onTrue[pc] : onFalse[pc];
+        }
+
+        return pc == RESULT_TRUE;
+    }
+}
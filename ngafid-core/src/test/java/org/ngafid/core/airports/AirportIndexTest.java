@@ -0,0 +1,124 @@
+package org.ngafid.core.airports;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.lang3.mutable.MutableDouble;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class AirportIndexTest {
+    private static final List<Airport> AIRPORTS = new ArrayList<>();
+    private static AirportIndex index;
+
+    @BeforeAll
+    static void setup() {
+        Random random = new Random(1234);
+        for (int i = 0; i < 500; i++) {
+            double latitude = 40.0 + random.nextDouble();
+            double longitude = -80.0 + random.nextDouble();
+            String siteNumber = Integer.toString(i);
+            Airport airport = new Airport("A" + i, siteNumber, "test", latitude, longitude);
+            airport.addRunway(new Runway(siteNumber, "RWY1", latitude, longitude, latitude + 0.003, longitude));
+            airport.addRunway(new Runway(siteNumber, "RWY2"));
+            AIRPORTS.add(airport);
+        }
+
+        index = AirportIndex.build(AIRPORTS);
+    }
+
+    private static Airport bruteForceNearest(double latitude, double longitude, double maxDistanceFt) {
+        Airport nearest = null;
+        double minDistance = maxDistanceFt;
+        for (Airport airport : AIRPORTS) {
+            double distance = Airports.calculateDistanceInFeet(
+                    latitude, longitude, airport.getLatitude(), airport.getLongitude());
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = airport;
+            }
+        }
+        return nearest;
+    }
+
+    @Test
+    void testNearestAirportMatchesBruteForce() {
+        Random random = new Random(42);
+        double[] distances = new double[2];
+        for (int i = 0; i < 2000; i++) {
+            double latitude = 39.9 + random.nextDouble() * 1.2;
+            double longitude = -80.1 + random.nextDouble() * 1.2;
+
+            int id = index.nearestAirport(latitude, longitude, 10000, distances);
+            Airport expected = bruteForceNearest(latitude, longitude, 10000);
+
+            if (expected == null) {
+                assertEquals(-1, id);
+                assertTrue(Double.isNaN(distances[0]));
+            } else {
+                assertSame(expected, index.getAirport(id));
+                assertTrue(distances[0] <= distances[1]);
+            }
+        }
+    }
+
+    @Test
+    void testNearestAirportAcrossAntimeridian() {
+        AirportIndex antimeridian = AirportIndex.build(List.of(new Airport("EST", "E", "test", 10.0, -179.99)));
+
+        double[] distances = new double[2];
+        int id = antimeridian.nearestAirport(10.0, 179.995, 10000, distances);
+        assertEquals("EST", antimeridian.getAirport(id).getIataCode());
+        assertTrue(distances[0] < 10000);
+    }
+
+    @Test
+    void testBatchMatchesSingleLookups() {
+        int length = 5000;
+        double[] latitude = new double[length];
+        double[] longitude = new double[length];
+        double[] altitudeAGL = new double[length];
+
+        Random random = new Random(7);
+        double lat = 40.2;
+        double lon = -79.8;
+        for (int i = 0; i < length; i++) {
+            lat += (random.nextDouble() - 0.5) * 0.001;
+            lon += (random.nextDouble() - 0.5) * 0.001;
+            latitude[i] = lat;
+            longitude[i] = lon;
+            altitudeAGL[i] = i % 100 == 0 ? Double.NaN : random.nextDouble() * 2500;
+        }
+
+        AirportIndex.Proximity proximity = index.nearest(latitude, longitude, altitudeAGL, length, 2000, 10000, 1000);
+
+        for (int i = 0; i < length; i++) {
+            Airport expected = altitudeAGL[i] <= 2000 ? bruteForceNearest(latitude[i], longitude[i], 10000) : null;
+
+            if (expected == null) {
+                assertEquals(-1, proximity.airportIds[i]);
+                assertEquals(-1, proximity.runwayIds[i]);
+                continue;
+            }
+
+            assertSame(expected, index.getAirport(proximity.airportIds[i]));
+
+            MutableDouble runwayDistance = new MutableDouble(Double.NaN);
+            Runway runway = expected.getNearestRunwayWithin(latitude[i], longitude[i], 1000, runwayDistance);
+            if (runway == null) {
+                assertEquals(-1, proximity.runwayIds[i]);
+            } else {
+                assertSame(runway, index.getRunway(proximity.runwayIds[i]));
+                assertEquals(runwayDistance.doubleValue(), proximity.runwayDistancesFt[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testEmptyIndex() {
+        AirportIndex empty = AirportIndex.build(List.of());
+        assertEquals(-1, empty.nearestAirport(40.0, -80.0, 10000, null));
+    }
+}
@@ -0,0 +1,28 @@
+package org.ngafid.core.flights;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DoubleTimeSeriesTest {
+    @Test
+    @DisplayName("Should compute min, max and avg over the valid values of an array")
+    public void testArraySummary() {
+        DoubleTimeSeries series = new DoubleTimeSeries("Test", "ft", new double[] {Double.NaN, 3, -1, 4}, 4);
+
+        assertEquals(-1, series.getMin());
+        assertEquals(4, series.getMax());
+        assertEquals(2, series.getAvg());
+    }
+
+    @Test
+    @DisplayName("Should have NaN min, max and avg when an array has no valid values")
+    public void testArraySummaryWithoutValidValues() {
+        DoubleTimeSeries series = new DoubleTimeSeries("Test", "ft", new double[] {Double.NaN, Double.NaN}, 2);
+
+        assertTrue(Double.isNaN(series.getMin()));
+        assertTrue(Double.isNaN(series.getMax()));
+        assertTrue(Double.isNaN(series.getAvg()));
+    }
+}
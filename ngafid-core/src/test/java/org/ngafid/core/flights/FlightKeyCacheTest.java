@@ -0,0 +1,41 @@
+package org.ngafid.core.flights;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.ngafid.core.TestWithConnection;
+
+public class FlightKeyCacheTest extends TestWithConnection {
+    @Test
+    @DisplayName("Should create missing tails with their suggested tail and keep existing ones")
+    public void testResolveTails() throws SQLException {
+        String sql = "INSERT INTO tails (fleet_id, system_id, tail, confirmed) "
+                + "VALUES (1, 'KEY_CACHE_EXISTING', 'N123', 1)";
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.executeUpdate();
+        }
+
+        var existing = new FlightKeyCache.TailKey(1, "KEY_CACHE_EXISTING");
+        var suggested = new FlightKeyCache.TailKey(1, "KEY_CACHE_NEW");
+        var unsuggested = new FlightKeyCache.TailKey(1, "KEY_CACHE_NONE");
+
+        Map<FlightKeyCache.TailKey, String> suggestedTails = new LinkedHashMap<>();
+        suggestedTails.put(existing, "N999");
+        suggestedTails.put(suggested, "N456");
+        suggestedTails.put(unsuggested, null);
+
+        FlightKeyCache cache = new FlightKeyCache();
+        cache.resolveTails(connection, suggestedTails);
+
+        assertEquals("N123", cache.getTail(existing));
+        assertEquals("N456", cache.getTail(suggested));
+        assertEquals("", cache.getTail(unsuggested));
+        assertEquals("N456", Tails.getTail(connection, 1, "KEY_CACHE_NEW"));
+        assertNull(cache.getTail(new FlightKeyCache.TailKey(2, "KEY_CACHE_NEW")));
+    }
+}
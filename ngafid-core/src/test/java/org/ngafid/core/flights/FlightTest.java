@@ -4555,4 +4555,59 @@ public class FlightTest extends TestWithConnection {
         assertTrue(flightsItinerary.size() >= 0);
         assertTrue(flightsTags.size() >= 0);
     }
+
+    @Test
+    @Order(426)
+    @DisplayName("Should load tails, itineraries and tags of a page of flights in bulk")
+    public void testGetFlightsLoadsDetailsInBulk() throws SQLException {
+        createTestFlight(8100);
+        createTestFlight(8101);
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO itinerary (flight_id, airport, runway, `order`, min_altitude_index, "
+                        + "start_of_approach, end_of_approach, start_of_takeoff, end_of_takeoff) "
+                        + "VALUES (?, ?, ?, ?, 0, 0, 0, 0, 0)")) {
+            stmt.setInt(1, 8100);
+            stmt.setString(2, "KLAX");
+            stmt.setString(3, "25R");
+            stmt.setInt(4, 2);
+            stmt.executeUpdate();
+
+            stmt.setInt(1, 8100);
+            stmt.setString(2, "KJFK");
+            stmt.setString(3, "04L");
+            stmt.setInt(4, 1);
+            stmt.executeUpdate();
+        }
+
+        String tagName = "BulkTag_" + System.currentTimeMillis();
+        Flight.createTag(1, 8100, tagName, "Description", "red", connection);
+
+        List<Flight> flights = Flight.getFlights(connection, "id IN (8100, 8101)", Flight.Detail.FULL);
+        assertEquals(2, flights.size());
+        for (Flight flight : flights) {
+            assertEquals(Tails.getTail(connection, 1, "TEST_SYSTEM_" + flight.getId()), flight.getTailNumber());
+            assertEquals(flight.getId() == 8100, flight.hasTags());
+        }
+
+        Map<Integer, ArrayList<Itinerary>> itineraries = Itinerary.getItineraries(connection, List.of(8100, 8101));
+        assertEquals(
+                Itinerary.getItinerary(connection, 8100).stream()
+                        .map(Itinerary::getAirport)
+                        .toList(),
+                itineraries.get(8100).stream().map(Itinerary::getAirport).toList());
+        assertEquals(List.of("KJFK", "KLAX"), itineraries.get(8100).stream().map(Itinerary::getAirport).toList());
+        assertFalse(itineraries.containsKey(8101));
+
+        Map<Integer, List<FlightTag>> tags = Flight.getTags(connection, List.of(8100, 8101));
+        assertEquals(Flight.getTags(connection, 8100), tags.get(8100));
+        assertNull(tags.get(8101));
+
+        List<Flight> metadata = Flight.getFlights(connection, "id IN (8100, 8101)", Flight.Detail.METADATA);
+        assertEquals(2, metadata.size());
+        for (Flight flight : metadata) {
+            assertEquals("N" + flight.getId() + "TEST", flight.getTailNumber());
+            assertFalse(flight.hasTags());
+        }
+    }
 }
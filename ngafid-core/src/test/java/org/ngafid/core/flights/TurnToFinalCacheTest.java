@@ -0,0 +1,97 @@
+package org.ngafid.core.flights;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.ngafid.core.airports.Runway;
+
+public class TurnToFinalCacheTest {
+    private static TurnToFinal approach(Runway runway, String airport, OffsetDateTime startDate, int steps) {
+        double[] altitude = new double[steps];
+        double[] altMSL = new double[steps];
+        double[] roll = new double[steps];
+        double[] lat = new double[steps];
+        double[] lon = new double[steps];
+        double[] stall = new double[steps];
+        double[] loc = new double[steps];
+        for (int i = 0; i < steps; i++) {
+            altitude[i] = 400.0 * (steps - 1 - i) / steps;
+            altMSL[i] = altitude[i] + 1200;
+            roll[i] = i % 7 == 0 ? 35 : -3.5;
+            lat[i] = 40.0 + i * 1e-4;
+            lon[i] = -80.0 + i * 2e-4;
+            stall[i] = i / (double) steps;
+            loc[i] = 1 - stall[i];
+        }
+
+        return new TurnToFinal(
+                "0", "Cessna 172S", runway, airport, startDate, 1200, altitude, altMSL, roll, lat, lon, stall, loc);
+    }
+
+    private static void assertSame(TurnToFinal expected, TurnToFinal actual) {
+        TurnToFinal.TurnToFinalJSON e = expected.jsonify();
+        TurnToFinal.TurnToFinalJSON a = actual.jsonify();
+
+        assertEquals(e.locExceedences(), a.locExceedences());
+        assertEquals(e.centerLineExceedences(), a.centerLineExceedences());
+        assertEquals(e.selfDefinedGlideAngle(), a.selfDefinedGlideAngle());
+        assertArrayEquals(e.latitude(), a.latitude());
+        assertArrayEquals(e.longitude(), a.longitude());
+        assertArrayEquals(e.AltMSL(), a.AltMSL());
+        assertArrayEquals(e.AltAGL(), a.AltAGL());
+        assertArrayEquals(e.distanceFromRunway(), a.distanceFromRunway());
+        assertEquals(e.airportIataCode(), a.airportIataCode());
+        assertEquals(e.flightStartDate(), a.flightStartDate());
+        assertEquals(e.maxRoll(), a.maxRoll());
+        assertEquals(e.selfDefinedGlidePathDeviations(), a.selfDefinedGlidePathDeviations());
+        assertArrayEquals(e.PLOCI(), a.PLOCI());
+        assertArrayEquals(e.PStall(), a.PStall());
+
+        if (e.runway() == null) {
+            assertNull(a.runway());
+        } else {
+            assertEquals(e.runway().getSiteNumber(), a.runway().getSiteNumber());
+            assertEquals(e.runway().getName(), a.runway().getName());
+            assertEquals(e.runway().hasCoordinates(), a.runway().hasCoordinates());
+            assertEquals(e.runway().getLat1(), a.runway().getLat1());
+            assertEquals(e.runway().getLon2(), a.runway().getLon2());
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore turn to finals, including derived values, from the binary cache format")
+    public void testRoundTrip() throws IOException {
+        OffsetDateTime startDate = OffsetDateTime.of(2024, 3, 9, 14, 30, 5, 123_000_000, ZoneOffset.ofHours(-5));
+        List<TurnToFinal> ttfs = List.of(
+                approach(new Runway("00001.*A", "10", 40.0, -80.0, 40.01, -79.98), "PIT", startDate, 120),
+                approach(new Runway("00001.*A", "28"), "PIT", startDate, 1),
+                approach(new Runway("00002.*A", "5"), null, null, 40));
+
+        ArrayList<TurnToFinal> decoded = TurnToFinal.decodeCache(TurnToFinal.encodeCache(ttfs));
+
+        assertEquals(ttfs.size(), decoded.size());
+        for (int i = 0; i < ttfs.size(); i++) assertSame(ttfs.get(i), decoded.get(i));
+    }
+
+    @Test
+    @DisplayName("Should encode an empty list of turn to finals")
+    public void testEmpty() throws IOException {
+        assertTrue(TurnToFinal.decodeCache(TurnToFinal.encodeCache(List.of())).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject data that is not in the binary cache format")
+    public void testRejectsOtherData() {
+        byte[] encoded = TurnToFinal.encodeCache(List.of(approach(new Runway("00001.*A", "10"), "PIT", null, 10)));
+
+        assertThrows(IOException.class, () -> TurnToFinal.decodeCache(new byte[] {(byte) 0xAC, (byte) 0xED, 0, 5}));
+        assertThrows(IOException.class, () -> TurnToFinal.decodeCache(Arrays.copyOf(encoded, encoded.length / 2)));
+    }
+}
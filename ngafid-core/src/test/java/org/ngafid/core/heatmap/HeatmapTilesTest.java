@@ -0,0 +1,40 @@
+package org.ngafid.core.heatmap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class HeatmapTilesTest {
+    @Test
+    void cellsCoverTheWorld() {
+        assertEquals(0, HeatmapTiles.cellX(-180, 0));
+        assertEquals(1, HeatmapTiles.cellX(179.9, 0));
+        assertEquals(0, HeatmapTiles.cellY(-90, 0));
+        assertEquals(0, HeatmapTiles.cellY(89.9, 0));
+
+        int cells = 1 << HeatmapTiles.MAX_ZOOM;
+        assertEquals(2 * cells - 1, HeatmapTiles.cellX(179.9999, HeatmapTiles.MAX_ZOOM));
+        assertEquals(cells - 1, HeatmapTiles.cellY(89.9999, HeatmapTiles.MAX_ZOOM));
+    }
+
+    @Test
+    void cellsNestAcrossZoomLevels() {
+        double latitude = 40.7128;
+        double longitude = -74.0060;
+        for (int zoom = 1; zoom <= HeatmapTiles.MAX_ZOOM; zoom++) {
+            assertEquals(HeatmapTiles.cellX(longitude, zoom) / 2, HeatmapTiles.cellX(longitude, zoom - 1));
+            assertEquals(HeatmapTiles.cellY(latitude, zoom) / 2, HeatmapTiles.cellY(latitude, zoom - 1));
+        }
+    }
+
+    @Test
+    void cellContainsPoint() {
+        int zoom = 6;
+        double degrees = HeatmapTiles.cellDegrees(zoom);
+        int x = HeatmapTiles.cellX(-97.5, zoom);
+        int y = HeatmapTiles.cellY(35.2, zoom);
+
+        assertTrue(x * degrees - 180 <= -97.5 && -97.5 < (x + 1) * degrees - 180);
+        assertTrue(y * degrees - 90 <= 35.2 && 35.2 < (y + 1) * degrees - 90);
+    }
+}
@@ -0,0 +1,60 @@
+package org.ngafid.core.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+    @Test
+    void aggregatesRunsByStageAndName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.record("step", "ComputeAltAGL", 2_000_000_000L, 0, 100);
+        registry.record("step", "ComputeAltAGL", 500_000_000L, 0, 50);
+        registry.record("read", "csv", 250_000_000L, 4096, 0);
+
+        String metrics = registry.render();
+
+        assertTrue(metrics.contains("ngafid_ingest_duration_seconds_count{stage=\"step\",name=\"ComputeAltAGL\"} 2\n"));
+        assertTrue(metrics.contains("ngafid_ingest_duration_seconds_sum{stage=\"step\",name=\"ComputeAltAGL\"} 2.5\n"));
+        assertTrue(metrics.contains("ngafid_ingest_duration_max_seconds{stage=\"step\",name=\"ComputeAltAGL\"} 2.0\n"));
+        assertTrue(metrics.contains("ngafid_ingest_rows_total{stage=\"step\",name=\"ComputeAltAGL\"} 150\n"));
+        assertTrue(metrics.contains("ngafid_ingest_bytes_total{stage=\"read\",name=\"csv\"} 4096\n"));
+        assertFalse(metrics.contains("ngafid_ingest_bytes_total{stage=\"step\""));
+        assertTrue(metrics.indexOf("stage=\"read\"") < metrics.indexOf("stage=\"step\""));
+    }
+
+    @Test
+    void reportsTheLatestQueueDepth() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.setQueueDepth("build", 3);
+        registry.setQueueDepth("build", 1);
+
+        assertTrue(registry.render().contains("ngafid_ingest_queue_depth{queue=\"build\"} 1\n"));
+    }
+
+    @Test
+    void readsRegisteredGaugesAndCountersWhenRendered() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong depth = new AtomicLong(5);
+        registry.gauge("test_queue_depth", "Items waiting.", depth::get);
+        registry.counter("test_dropped_total", "Items dropped.", () -> 2);
+        depth.set(3);
+
+        String metrics = registry.render();
+
+        assertTrue(metrics.contains("# TYPE test_queue_depth gauge\ntest_queue_depth 3\n"));
+        assertTrue(metrics.contains("# HELP test_dropped_total Items dropped.\n"));
+        assertTrue(metrics.contains("# TYPE test_dropped_total counter\ntest_dropped_total 2\n"));
+        assertTrue(metrics.indexOf("test_dropped_total") < metrics.indexOf("test_queue_depth"));
+        assertFalse(metrics.contains("ngafid_ingest"));
+    }
+
+    @Test
+    void escapesLabels() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.record("parse", "a \"quoted\\\" name", 1, 0, 0);
+
+        assertTrue(registry.render().contains("name=\"a \\\"quoted\\\\\\\" name\""));
+    }
+}
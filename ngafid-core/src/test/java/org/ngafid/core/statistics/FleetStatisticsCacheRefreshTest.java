@@ -0,0 +1,253 @@
+package org.ngafid.core.statistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.ngafid.core.TestWithConnection;
+
+public class FleetStatisticsCacheRefreshTest extends TestWithConnection {
+    private static final int FLEET_ID = 2;
+    private static final int LOW_PITCH = 1;
+    private static final int SPIN = -2;
+    private static final int PROXIMITY = -1;
+
+    private static final int UPLOAD_A = 9101;
+    private static final int UPLOAD_B = 9201;
+    private static final int FLIGHT_A1 = 9101;
+    private static final int FLIGHT_A2 = 9102;
+    private static final int FLIGHT_B1 = 9201;
+
+    private static final LocalDateTime START = LocalDateTime.now().minusDays(2).withNano(0);
+
+    private static final String EVENT_COLUMNS = "fleet_id, event_definition_id, airframe_id, year, month, event_count, "
+            + "flight_count, ROUND(avg_duration, 6), ROUND(avg_severity, 6)";
+
+    private static final String EXTREMES = ", min_duration, max_duration, min_severity, max_severity";
+
+    private int nextEventId = 9001;
+
+    private void update(String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) statement.setObject(i + 1, parameters[i]);
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertUpload(int id, String status) throws SQLException {
+        update(
+                "INSERT INTO uploads (id, fleet_id, uploader_id, filename, identifier, kind, status, number_chunks, "
+                        + "uploaded_chunks, chunk_status, md5_hash, size_bytes, start_time, end_time) "
+                        + "VALUES (?, ?, 1, ?, ?, 'FILE', ?, 1, 1, '1', ?, 1, ?, ?)",
+                id,
+                FLEET_ID,
+                "STATS-" + id + ".zip",
+                "STATS-" + id,
+                status,
+                "stats-md5-" + id,
+                Timestamp.valueOf(START),
+                Timestamp.valueOf(START));
+    }
+
+    private void setStatus(int uploadId, String status) throws SQLException {
+        update("UPDATE uploads SET status = ? WHERE id = ?", status, uploadId);
+    }
+
+    private void insertFlight(int id, int uploadId, int minutes) throws SQLException {
+        update(
+                "INSERT INTO flights (id, fleet_id, uploader_id, upload_id, system_id, airframe_id, start_time, "
+                        + "end_time, filename, md5_hash, number_rows, status) "
+                        + "VALUES (?, ?, 1, ?, 'STATS-SYSTEM-ID', 1, ?, ?, ?, ?, 100, 'SUCCESS')",
+                id,
+                FLEET_ID,
+                uploadId,
+                Timestamp.valueOf(START),
+                Timestamp.valueOf(START.plusMinutes(minutes)),
+                "STATS-" + id + ".csv",
+                "stats-flight-md5-" + id);
+    }
+
+    private int insertEvent(int flightId, int definitionId, Integer otherFlightId, int lines, double severity)
+            throws SQLException {
+        int id = nextEventId++;
+        update(
+                "INSERT INTO events (id, fleet_id, flight_id, event_definition_id, other_flight_id, start_line, "
+                        + "end_line, start_time, end_time, severity) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?, ?)",
+                id,
+                FLEET_ID,
+                flightId,
+                definitionId,
+                otherFlightId,
+                lines,
+                Timestamp.valueOf(START.plusMinutes(1)),
+                Timestamp.valueOf(START.plusMinutes(2)),
+                severity);
+        return id;
+    }
+
+    private void insertProcessed(int flightId, int definitionId) throws SQLException {
+        update(
+                "INSERT INTO flight_processed (fleet_id, flight_id, event_definition_id) VALUES (?, ?, ?)",
+                FLEET_ID,
+                flightId,
+                definitionId);
+    }
+
+    /**
+     * Inserts the flights of upload A with the events and `flight_processed` rows ingest writes for them.
+     */
+    private void ingestUploadA() throws SQLException {
+        insertFlight(FLIGHT_A1, UPLOAD_A, 60);
+        insertFlight(FLIGHT_A2, UPLOAD_A, 90);
+        insertEvent(FLIGHT_A1, LOW_PITCH, null, 10, 2);
+        insertEvent(FLIGHT_A1, LOW_PITCH, null, 20, 4);
+        insertEvent(FLIGHT_A2, LOW_PITCH, null, 30, 3);
+        insertEvent(FLIGHT_A2, SPIN, null, 5, 1);
+        for (int flightId : List.of(FLIGHT_A1, FLIGHT_A2)) {
+            insertProcessed(flightId, LOW_PITCH);
+            insertProcessed(flightId, SPIN);
+        }
+    }
+
+    /**
+     * Adds the flights of a processed upload and sets its final status, as the upload processor does.
+     */
+    private void finishUpload(int uploadId, String status) throws SQLException {
+        FleetStatisticsCacheRefresh.addUploadFlights(connection, FLEET_ID, uploadId);
+        setStatus(uploadId, status);
+        FleetStatisticsCacheRefresh.recountUploads(connection, FLEET_ID, uploadId);
+    }
+
+    private List<String> rows(String query) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            while (resultSet.next()) {
+                StringJoiner row = new StringJoiner(", ", "[", "]");
+                for (int i = 1; i <= columns; i++) row.add(String.valueOf(resultSet.getObject(i)));
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @param extremes whether to include the minimums and maximums, which are only corrected by a rebuild once
+     *     something has been subtracted
+     */
+    private List<String> statistics(boolean extremes) throws SQLException {
+        String eventColumns = EVENT_COLUMNS + (extremes ? EXTREMES : "");
+        String fleet = " WHERE fleet_id = " + FLEET_ID;
+
+        List<String> rows = new ArrayList<>();
+        rows.addAll(rows("SELECT * FROM m_fleet_monthly_flight_counts" + fleet + " ORDER BY airframe_id, year, month"));
+        rows.addAll(rows("SELECT * FROM m_fleet_monthly_flight_time" + fleet
+                + " AND flight_time_seconds <> 0 ORDER BY airframe_id, year, month"));
+        rows.addAll(rows("SELECT * FROM m_fleet_30_day_flight_counts" + fleet + " ORDER BY airframe_id"));
+        rows.addAll(rows("SELECT * FROM m_fleet_30_day_flight_time" + fleet
+                + " AND flight_time_seconds <> 0 ORDER BY airframe_id"));
+        rows.addAll(rows("SELECT * FROM m_fleet_airframe_event_processed_flight_count" + fleet
+                + " ORDER BY event_definition_id, airframe_id"));
+        rows.addAll(rows("SELECT fleet_id, year, month, upload_count, ok_count, warning_count, error_count "
+                + "FROM m_fleet_monthly_upload_counts" + fleet + " ORDER BY year, month"));
+        for (String table : List.of("m_fleet_airframe_monthly_event_counts", "m_fleet_airframe_30_day_event_counts")) {
+            rows.addAll(rows("SELECT '" + table + "', " + eventColumns + " FROM " + table + fleet
+                    + " ORDER BY event_definition_id, airframe_id, year, month"));
+        }
+        return rows;
+    }
+
+    private void assertMatchesRebuild(boolean extremes) throws SQLException {
+        List<String> incremental = statistics(extremes);
+        FleetStatisticsCacheRefresh.refreshForFleet(connection, FLEET_ID);
+        assertEquals(statistics(extremes), incremental);
+    }
+
+    /**
+     * @return the number of flights with events of a definition in the month of the events of the test
+     */
+    private int flightCount(int definitionId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT SUM(flight_count) FROM m_fleet_airframe_monthly_event_counts "
+                                + "WHERE fleet_id = ? AND event_definition_id = ? AND year = ? AND month = ?")) {
+            statement.setInt(1, FLEET_ID);
+            statement.setInt(2, definitionId);
+            statement.setInt(3, START.plusMinutes(1).getYear());
+            statement.setInt(4, START.plusMinutes(1).getMonthValue());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should match a rebuild after uploads and events are added, removed and added again")
+    public void testDeltasMatchRebuild() throws SQLException {
+        update("INSERT INTO tails (system_id, fleet_id, tail, confirmed) VALUES ('STATS-SYSTEM-ID', ?, 'N9101', 1)",
+                FLEET_ID);
+        FleetStatisticsCacheRefresh.refreshForFleet(connection, FLEET_ID);
+
+        // Upload A is processed.
+        insertUpload(UPLOAD_A, "ENQUEUED");
+        ingestUploadA();
+        finishUpload(UPLOAD_A, "PROCESSED_OK");
+        assertMatchesRebuild(true);
+
+        // The event consumer finds proximity events between the flights of A, once from each of them.
+        int a1WithA2 = insertEvent(FLIGHT_A1, PROXIMITY, FLIGHT_A2, 8, 100);
+        int a2WithA1 = insertEvent(FLIGHT_A2, PROXIMITY, FLIGHT_A1, 8, 100);
+        insertProcessed(FLIGHT_A1, PROXIMITY);
+        FleetStatisticsCacheRefresh.addFlightEvents(
+                connection, FLEET_ID, FLIGHT_A1, List.of(a1WithA2, a2WithA1), List.of(PROXIMITY));
+        assertMatchesRebuild(true);
+
+        // Upload B is being processed when the event consumer computes its flight's proximity events with A. Only the
+        // event on the flight of A is added now, the rest once B is done.
+        insertUpload(UPLOAD_B, "ENQUEUED");
+        insertFlight(FLIGHT_B1, UPLOAD_B, 45);
+        insertEvent(FLIGHT_B1, LOW_PITCH, null, 15, 6);
+        insertProcessed(FLIGHT_B1, LOW_PITCH);
+        int b1WithA1 = insertEvent(FLIGHT_B1, PROXIMITY, FLIGHT_A1, 12, 50);
+        int a1WithB1 = insertEvent(FLIGHT_A1, PROXIMITY, FLIGHT_B1, 12, 50);
+        insertProcessed(FLIGHT_B1, PROXIMITY);
+        FleetStatisticsCacheRefresh.addFlightEvents(
+                connection, FLEET_ID, FLIGHT_B1, List.of(b1WithA1, a1WithB1), List.of(PROXIMITY));
+        assertEquals(2, flightCount(PROXIMITY));
+
+        finishUpload(UPLOAD_B, "PROCESSED_WARNING");
+        assertEquals(3, flightCount(PROXIMITY));
+        assertMatchesRebuild(true);
+
+        // A is reprocessed: its flights are removed, which also deletes the proximity event of B with them.
+        FleetStatisticsCacheRefresh.removeUploadFlights(connection, FLEET_ID, UPLOAD_A);
+        update("DELETE FROM flights WHERE upload_id = ?", UPLOAD_A);
+        setStatus(UPLOAD_A, "ENQUEUED");
+        assertMatchesRebuild(false);
+
+        // And added again.
+        ingestUploadA();
+        finishUpload(UPLOAD_A, "PROCESSED_OK");
+        assertMatchesRebuild(false);
+
+        // B is deleted.
+        FleetStatisticsCacheRefresh.removeUpload(connection, FLEET_ID, UPLOAD_B);
+        update("DELETE FROM uploads WHERE id = ?", UPLOAD_B);
+        assertMatchesRebuild(false);
+
+        // And so is A.
+        FleetStatisticsCacheRefresh.removeUpload(connection, FLEET_ID, UPLOAD_A);
+        update("DELETE FROM uploads WHERE id = ?", UPLOAD_A);
+        assertMatchesRebuild(false);
+        assertEquals(0, flightCount(LOW_PITCH));
+    }
+}
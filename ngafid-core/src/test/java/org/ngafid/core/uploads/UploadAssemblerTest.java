@@ -0,0 +1,185 @@
+package org.ngafid.core.uploads;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.ngafid.core.util.MD5;
+
+public class UploadAssemblerTest {
+    private static final int CHUNK_SIZE = 100;
+    private static final int NUMBER_CHUNKS = 3;
+    private static final int SIZE_BYTES = 250;
+
+    /**
+     * The running digests are shared by the whole process, so every test uses its own upload ids.
+     */
+    private static int nextUploadId = 9001;
+
+    @TempDir
+    private Path directory;
+
+    private static byte[] content(long seed) {
+        byte[] content = new byte[SIZE_BYTES];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+
+    private static String md5(byte[] bytes) throws IOException {
+        return MD5.computeHexHash(new ByteArrayInputStream(bytes));
+    }
+
+    private Upload upload(byte[] content) throws IOException {
+        Upload upload = new Upload(nextUploadId++);
+        upload.numberChunks = NUMBER_CHUNKS;
+        upload.sizeBytes = SIZE_BYTES;
+        upload.chunkStatus = "0".repeat(NUMBER_CHUNKS);
+        upload.md5Hash = md5(content);
+        return upload;
+    }
+
+    private Path path(Upload upload) {
+        return directory.resolve(upload.id + ".zip");
+    }
+
+    /**
+     * Writes a chunk of {@code content} and marks it as uploaded, as {@link Upload.LockedUpload#writeChunk} does.
+     */
+    private void send(Upload upload, int chunkNumber, byte[] content) throws IOException {
+        int start = chunkNumber * CHUNK_SIZE;
+        int length = Math.min(CHUNK_SIZE, SIZE_BYTES - start);
+        UploadAssembler.writeChunk(
+                upload, path(upload), chunkNumber, length, new ByteArrayInputStream(content, start, length));
+
+        char[] status = upload.chunkStatus.toCharArray();
+        status[chunkNumber] = '1';
+        upload.chunkStatus = new String(status);
+        UploadAssembler.advanceDigest(upload, path(upload));
+    }
+
+    @Test
+    @DisplayName("Should place every chunk at a multiple of its size, and the last chunk at the end of the file")
+    public void testOffsetOf() {
+        assertEquals(0, UploadAssembler.offsetOf(0, 100, 3, 250));
+        assertEquals(100, UploadAssembler.offsetOf(1, 100, 3, 250));
+        assertEquals(200, UploadAssembler.offsetOf(2, 50, 3, 250));
+        assertEquals(0, UploadAssembler.offsetOf(0, 250, 1, 250));
+    }
+
+    @Test
+    @DisplayName("Should reject chunk numbers outside of the upload")
+    public void testOffsetOfRejectsChunkNumbersOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(-1, 100, 3, 250));
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(3, 50, 3, 250));
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(0, 100, 0, 0));
+    }
+
+    @Test
+    @DisplayName("Should reject chunks with lengths that do not fit in the upload")
+    public void testOffsetOfRejectsWrongLengths() {
+        // Chunks before the last one
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(0, 0, 3, 250));
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(1, 200, 3, 250));
+        // Would end at the end of the file, leaving nothing for the last chunk
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(1, 125, 3, 250));
+
+        // The last chunk
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(2, 0, 3, 250));
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(2, 251, 3, 250));
+        assertThrows(IllegalArgumentException.class, () -> UploadAssembler.offsetOf(0, 251, 1, 250));
+    }
+
+    @Test
+    @DisplayName("Should hash chunks that arrive out of order once the chunks before them arrive")
+    public void testRunningDigestWithChunksOutOfOrder() throws IOException {
+        byte[] content = content(1);
+        Upload upload = upload(content);
+
+        send(upload, 0, content);
+        send(upload, 2, content);
+        send(upload, 1, content);
+        assertArrayEquals(content, Files.readAllBytes(path(upload)));
+
+        // Every chunk is in the running digest, so verifying does not need to read the file.
+        Files.delete(path(upload));
+        assertTrue(UploadAssembler.verify(upload, path(upload)));
+    }
+
+    @Test
+    @DisplayName("Should verify an upload with chunks that were sent twice")
+    public void testRunningDigestWithChunksSentTwice() throws IOException {
+        byte[] content = content(2);
+
+        // The last chunk is sent again before the chunk before it is hashed.
+        Upload upload = upload(content);
+        send(upload, 0, content);
+        send(upload, 2, content);
+        send(upload, 2, content);
+        send(upload, 1, content);
+        Files.delete(path(upload));
+        assertTrue(UploadAssembler.verify(upload, path(upload)));
+
+        // A chunk that was already hashed is sent again with different bytes, so the file is read to verify it.
+        byte[] changed = content.clone();
+        changed[CHUNK_SIZE + 1] ^= 1;
+        upload = upload(content);
+        send(upload, 0, content);
+        send(upload, 1, content);
+        send(upload, 2, content);
+        send(upload, 1, changed);
+        assertFalse(UploadAssembler.verify(upload, path(upload)));
+
+        upload.md5Hash = md5(changed);
+        assertTrue(UploadAssembler.verify(upload, path(upload)));
+    }
+
+    @Test
+    @DisplayName("Should restart the running digest when the upload is restarted")
+    public void testRunningDigestRestartsWithTheFirstChunk() throws IOException {
+        byte[] content = content(3);
+        Upload upload = upload(content);
+
+        send(upload, 0, content);
+        send(upload, 1, content);
+        upload.chunkStatus = "0".repeat(NUMBER_CHUNKS);
+        for (int chunk = 0; chunk < NUMBER_CHUNKS; chunk++) send(upload, chunk, content);
+
+        Files.delete(path(upload));
+        assertTrue(UploadAssembler.verify(upload, path(upload)));
+    }
+
+    @Test
+    @DisplayName("Should reject an upload whose chunks do not match its hash")
+    public void testVerifyRejectsCorruptedChunks() throws IOException {
+        byte[] content = content(4);
+        byte[] corrupted = content.clone();
+        corrupted[SIZE_BYTES - 1] ^= 1;
+
+        Upload upload = upload(content);
+        for (int chunk = 0; chunk < NUMBER_CHUNKS; chunk++) send(upload, chunk, corrupted);
+        assertFalse(UploadAssembler.verify(upload, path(upload)));
+    }
+
+    @Test
+    @DisplayName("Should read the file to reject a corrupted upload without a running digest")
+    public void testVerifyRejectsCorruptedFile() throws IOException {
+        byte[] content = content(5);
+        Upload upload = upload(content);
+        for (int chunk = 0; chunk < NUMBER_CHUNKS; chunk++) send(upload, chunk, content);
+
+        // E.g. the server restarted before the upload was verified.
+        UploadAssembler.forget(upload.id);
+        assertTrue(UploadAssembler.verify(upload, path(upload)));
+
+        byte[] corrupted = content.clone();
+        corrupted[CHUNK_SIZE] ^= 1;
+        Files.write(path(upload), corrupted);
+        assertFalse(UploadAssembler.verify(upload, path(upload)));
+    }
+}
@@ -0,0 +1,94 @@
+package org.ngafid.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DoubleArrayCodecTest {
+    private static final int LENGTH = 5000;
+
+    private static double[] decimalSeries(Random random) {
+        double[] data = new double[LENGTH];
+        double value = 3000;
+        for (int i = 0; i < LENGTH; i++) {
+            value += random.nextGaussian();
+            data[i] = i % 97 == 0 ? Double.NaN : Math.round(value * 100) / 100.0;
+        }
+        return data;
+    }
+
+    private static double[] fullPrecisionSeries() {
+        double[] data = new double[LENGTH];
+        for (int i = 0; i < LENGTH; i++) data[i] = Math.sin(i / 50.0) * 30;
+        return data;
+    }
+
+    private static double[] specialValues(Random random) {
+        double[] data = new double[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            data[i] = switch (i % 6) {
+                case 0 -> Double.POSITIVE_INFINITY;
+                case 1 -> -0.0;
+                case 2 -> Double.longBitsToDouble(0x7ff0000000000123L);
+                default -> Math.round(random.nextGaussian() * 1000) / 10.0;
+            };
+        }
+        return data;
+    }
+
+    private static void assertSameBits(double[] expected, double[] actual, int length) {
+        assertEquals(length, actual.length);
+        for (int i = 0; i < length; i++) {
+            assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]), "index " + i);
+        }
+    }
+
+    @Test
+    void everyCodecRoundTrips() throws IOException {
+        Random random = new Random(5);
+        for (double[] data : new double[][] {decimalSeries(random), fullPrecisionSeries(), specialValues(random)}) {
+            for (DoubleArrayCodec codec : DoubleArrayCodec.values()) {
+                byte[] encoded = codec.encode(data, LENGTH);
+                assertEquals(codec, DoubleArrayCodec.of(encoded));
+                assertSameBits(data, Compression.inflateDoubleArray(encoded, LENGTH), LENGTH);
+            }
+        }
+    }
+
+    @Test
+    void bestCodecMatchesData() throws IOException {
+        byte[] decimal = Compression.compressDoubleArray(decimalSeries(new Random(6)));
+        assertEquals(DoubleArrayCodec.DECIMAL, DoubleArrayCodec.of(decimal));
+
+        byte[] fullPrecision = Compression.compressDoubleArray(fullPrecisionSeries());
+        assertEquals(DoubleArrayCodec.SHUFFLE_DELTA, DoubleArrayCodec.of(fullPrecision));
+    }
+
+    @Test
+    void legacyDeflateBlobsStillDecode() throws IOException {
+        double[] data = decimalSeries(new Random(7));
+
+        // Blobs written before codecs were introduced could hold more values than the series length
+        byte[] legacy = DoubleArrayCodec.DEFLATE.encode(data, LENGTH);
+        assertEquals(DoubleArrayCodec.DEFLATE, DoubleArrayCodec.of(legacy));
+        assertSameBits(data, Compression.inflateDoubleArray(legacy, LENGTH - 10), LENGTH - 10);
+    }
+
+    @Test
+    void onlyTheSeriesLengthIsEncoded() throws IOException {
+        double[] data = decimalSeries(new Random(8));
+        byte[] encoded = Compression.compressDoubleArray(data, 100);
+
+        assertSameBits(data, Compression.inflateDoubleArray(encoded, 100), 100);
+        assertThrows(IOException.class, () -> Compression.inflateDoubleArray(encoded, 101));
+    }
+
+    @Test
+    void emptyArraysRoundTrip() throws IOException {
+        for (DoubleArrayCodec codec : DoubleArrayCodec.values()) {
+            assertEquals(0, Compression.inflateDoubleArray(codec.encode(new double[0], 0), 0).length);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.ngafid.core.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DownsamplingTest {
+    private static final int LENGTH = 100_000;
+
+    private static double[] series(Random random) {
+        double[] data = new double[LENGTH];
+        double value = 3000;
+        for (int i = 0; i < LENGTH; i++) {
+            value += random.nextGaussian();
+            data[i] = value;
+        }
+        return data;
+    }
+
+    private static void assertIncreasing(int[] indices, int from, int to) {
+        assertEquals(from, indices[0]);
+        assertEquals(to - 1, indices[indices.length - 1]);
+        for (int i = 1; i < indices.length; i++) assertTrue(indices[i] > indices[i - 1]);
+    }
+
+    @Test
+    void selectsTheRequestedNumberOfPoints() {
+        double[] data = series(new Random(1));
+
+        for (int points : new int[] {3, 4, 1000, 2000, LENGTH - 1}) {
+            int[] indices = Downsampling.largestTriangleThreeBuckets(data, 0, LENGTH, points);
+            assertEquals(points, indices.length);
+            assertIncreasing(indices, 0, LENGTH);
+        }
+
+        int[] range = Downsampling.largestTriangleThreeBuckets(data, 5000, 25_000, 1000);
+        assertEquals(1000, range.length);
+        assertIncreasing(range, 5000, 25_000);
+    }
+
+    @Test
+    void keepsEverySampleOfShortRanges() {
+        double[] data = series(new Random(2));
+
+        assertArrayEquals(new int[] {10, 11, 12, 13}, Downsampling.largestTriangleThreeBuckets(data, 10, 14, 4));
+        assertArrayEquals(new int[] {10, 11, 12, 13}, Downsampling.largestTriangleThreeBuckets(data, 10, 14, 100));
+        assertArrayEquals(new int[0], Downsampling.largestTriangleThreeBuckets(data, 10, 10, 100));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> Downsampling.largestTriangleThreeBuckets(data, 0, LENGTH + 1, 5));
+    }
+
+    @Test
+    void keepsSpikes() {
+        double[] data = new double[LENGTH];
+        data[12_345] = 500;
+        data[67_890] = -500;
+
+        int[] indices = Downsampling.largestTriangleThreeBuckets(data, 0, LENGTH, 100);
+
+        assertTrue(Arrays.stream(indices).anyMatch(i -> i == 12_345));
+        assertTrue(Arrays.stream(indices).anyMatch(i -> i == 67_890));
+    }
+
+    @Test
+    void prefersValidSamplesButKeepsGaps() {
+        double[] data = series(new Random(3));
+        for (int i = 0; i < LENGTH; i++) {
+            if (i % 3 == 0 || (i >= 40_000 && i < 50_000)) data[i] = Double.NaN;
+        }
+
+        int[] indices = Downsampling.largestTriangleThreeBuckets(data, 0, LENGTH, 1000);
+
+        for (int index : indices) {
+            boolean endpoint = index == 0 || index == LENGTH - 1;
+            boolean inGap = index >= 40_000 && index < 50_000;
+            if (!endpoint && !inGap) assertFalse(Double.isNaN(data[index]), "sample " + index + " is missing");
+        }
+        assertTrue(Arrays.stream(indices).anyMatch(i -> i >= 40_000 && i < 50_000));
+    }
+}
@@ -0,0 +1,96 @@
+package org.ngafid.core.util.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.ngafid.core.flights.DoubleTimeSeries;
+
+class CompiledConditionalTest {
+    private static final List<String> COLUMNS = List.of("Pitch", "Roll", "IAS", "VSpd");
+    private static final List<String> OPERATORS = List.of("<", "<=", ">", ">=");
+
+    private static Filter rule(String column, String operator, double value) {
+        return new Filter(new ArrayList<>(List.of(column, operator, Double.toString(value))));
+    }
+
+    private static Filter randomFilter(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return rule(
+                    COLUMNS.get(random.nextInt(COLUMNS.size())),
+                    OPERATORS.get(random.nextInt(OPERATORS.size())),
+                    random.nextInt(20) - 10);
+        }
+
+        Filter group = new Filter(random.nextBoolean() ? "AND" : "OR");
+        int children = random.nextInt(4);
+        for (int i = 0; i < children; i++) {
+            group.addFilter(randomFilter(random, depth - 1));
+        }
+        return group;
+    }
+
+    @Test
+    void compiledConditionalMatchesConditional() {
+        Random random = new Random(2024);
+        int rows = 200;
+
+        double[][] data = new double[COLUMNS.size()][rows];
+        for (double[] column : data) {
+            for (int row = 0; row < rows; row++) {
+                column[row] = random.nextInt(10) == 0 ? Double.NaN : random.nextInt(20) - 10;
+            }
+        }
+
+        for (int trial = 0; trial < 500; trial++) {
+            Filter filter = randomFilter(random, 3);
+            Conditional conditional = new Conditional(filter);
+            CompiledConditional compiled = new CompiledConditional(filter);
+
+            double[][] columns = new double[compiled.getColumnNames().size()][];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = data[COLUMNS.indexOf(compiled.getColumnNames().get(i))];
+            }
+
+            for (int row = 0; row < rows; row++) {
+                for (int i = 0; i < COLUMNS.size(); i++) {
+                    conditional.set(COLUMNS.get(i), data[i][row]);
+                }
+
+                assertEquals(conditional.evaluate(), compiled.evaluate(columns, row), conditional.toString());
+            }
+        }
+    }
+
+    @Test
+    void emptyGroupsAreConstant() {
+        assertTrue(new CompiledConditional(new Filter("AND")).evaluate(new double[0][], 0));
+        assertFalse(new CompiledConditional(new Filter("OR")).evaluate(new double[0][], 0));
+    }
+
+    @Test
+    void bindLooksUpColumnsByName() {
+        Filter filter = new Filter("AND");
+        filter.addFilter(rule("Pitch", ">", 5));
+        filter.addFilter(rule("Roll", "<", 0));
+
+        CompiledConditional compiled = new CompiledConditional(filter);
+
+        DoubleTimeSeries pitch = new DoubleTimeSeries("Pitch", "degrees", new double[] {10, 10, 0});
+        DoubleTimeSeries roll = new DoubleTimeSeries("Roll", "degrees", new double[] {-1, 1, -1});
+        double[][] columns = compiled.bind(Map.of("Pitch", pitch, "Roll", roll));
+
+        assertTrue(compiled.evaluate(columns, 0));
+        assertFalse(compiled.evaluate(columns, 1));
+        assertFalse(compiled.evaluate(columns, 2));
+
+        // Missing columns never trigger
+        double[][] missing = compiled.bind(Map.of("Pitch", pitch));
+        assertFalse(compiled.evaluate(missing, 0));
+    }
+}
@@ -4,13 +4,19 @@ import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import org.ngafid.core.Config;
+import org.ngafid.core.flights.DoubleTimeSeries;
 import org.ngafid.core.flights.FatalFlightFileException;
 import org.ngafid.core.flights.FlightProcessingException;
 import org.ngafid.core.flights.MalformedFlightFileException;
+import org.ngafid.core.metrics.IngestMetrics;
+import org.ngafid.core.metrics.IngestSpan;
 import org.ngafid.processor.format.FlightBuilder;
 import org.ngafid.processor.steps.ComputeStep;
 
@@ -20,19 +26,32 @@ import org.ngafid.processor.steps.ComputeStep;
  * data source. See {@link ComputeStep} for more details on these compute steps.
  * <p>
  * A basic understanding of how ForkJoin tasks work in Java is a prerequisite to understand the parallel execution of
- * this graph. In practice though, parallelizing at the level of individual compute steps provides little to no speedup,
- * therefore a topological sort is used to linearize the graph nodes so the compute steps can be executed in sequence.
+ * this graph. In practice though, parallelizing at the level of individual compute steps provides little to no speedup
+ * for a typical flight, therefore a topological sort is used to linearize the graph nodes so the compute steps can be
+ * executed in sequence. Flights with at least {@link Config#PARALLEL_BUILD_MIN_ROWS} rows are the exception, see
+ * {@link #computeAdaptive()}.
  *
  * @author Joshua Karns (josh@karns.dev)
  **/
 public class DependencyGraph {
     private static final Logger LOG = Logger.getLogger(DependencyGraph.class.getName());
 
+    // Moving average of the time each kind of compute step has taken per row of a flight, in nanoseconds. Used to
+    // estimate the critical path of the graph in `computeCriticalPath`.
+    private static final ConcurrentHashMap<Class<? extends ComputeStep>, Double> NANOS_PER_ROW =
+            new ConcurrentHashMap<>();
+    // Weight of the latest measurement in the moving average.
+    private static final double COST_SMOOTHING = 0.2;
+    // Estimated cost of a step that has not been measured yet.
+    private static final double UNMEASURED_NANOS_PER_ROW = 1.0;
+
     private final ConcurrentHashMap<DependencyNode, ForkJoinTask<Void>> taskMap;
     // Maps column name to the node where that column is computed
     private final HashMap<String, DependencyNode> columnToSource = new HashMap<>(64);
     private final HashSet<DependencyNode> nodes = new HashSet<>(64);
     private final FlightBuilder builder;
+    // Length of the longest series of the flight.
+    private final int rows;
     private List<DependencyNode> sortedNodes;
     private HashSet<DependencyNode> visited;
     private HashSet<DependencyNode> marked;
@@ -48,6 +67,10 @@ public class DependencyGraph {
     public DependencyGraph(FlightBuilder builder, List<ComputeStep> steps) throws FlightProcessingException {
         this.taskMap = new ConcurrentHashMap<>(steps.size() * 2);
         this.builder = builder;
+        this.rows = builder.getDoubleTimeSeriesMap().values().stream()
+                .mapToInt(DoubleTimeSeries::size)
+                .max()
+                .orElse(0);
 
         try {
             registerStep(new DummyStep(builder));
@@ -170,12 +193,55 @@ public class DependencyGraph {
     }
 
     public void computeSequential() throws FlightProcessingException {
-        topologicalSort().forEach(x -> {
-            long startnano = System.nanoTime();
-            x.compute();
-            long endnano = System.nanoTime();
-            LOG.fine("Took " + ((endnano - startnano) / 1_000_000_000.0) + " s to compute " + x.step);
-        }); // DependencyNode::compute);
+        // The nodes are computed directly rather than through `compute`, since the topological order already
+        // guarantees their requirements are done, and `compute` would fork any requirement it has not joined before.
+        topologicalSort().forEach(DependencyNode::computeStep);
+        handleExceptions();
+    }
+
+    /**
+     * Computes the steps in sequence for flights with fewer than {@link Config#PARALLEL_BUILD_MIN_ROWS} rows, and with
+     * {@link #computeCriticalPath()} otherwise. Forking the steps of a short flight costs more than it saves, but the
+     * steps of a long flight would keep one thread busy for as long as all of them take together, while the rest of
+     * the pool could be working on them.
+     */
+    public void computeAdaptive() throws FlightProcessingException {
+        if (Config.PARALLEL_BUILD_MIN_ROWS > 0 && rows >= Config.PARALLEL_BUILD_MIN_ROWS) {
+            LOG.info(() -> "Computing the steps of " + builder.meta.getFilename() + " (" + rows + " rows) in parallel");
+            computeCriticalPath();
+        } else {
+            computeSequential();
+        }
+    }
+
+    /**
+     * Computes the steps concurrently, in the ForkJoinPool this is invoked in or otherwise the common pool. A step is
+     * started once all the steps it requires are done. When several steps become ready at once, the current thread
+     * goes on with the one that has the most expensive path of dependent steps below it, and the others are forked in
+     * order of that cost so idle workers steal the most expensive of them first. This keeps the critical path of the
+     * graph from waiting behind cheaper steps.
+     * <p>
+     * The cost of a step is estimated from the time the same kind of step took per row on previous flights; steps that
+     * have not been measured yet are all assumed to be equally cheap.
+     */
+    public void computeCriticalPath() throws FlightProcessingException {
+        scrutinize();
+
+        // Children come after their parents in topological order, so the path costs of the children are known by the
+        // time the parents are visited in reverse.
+        for (var node : topologicalSort().reversed()) {
+            double below = 0;
+            for (var child : node.requiredBy) below = Math.max(below, child.pathCost);
+            node.pathCost = NANOS_PER_ROW.getOrDefault(node.step.getClass(), UNMEASURED_NANOS_PER_ROW) + below;
+        }
+
+        List<DependencyNode> roots = new ArrayList<>();
+        for (var node : nodes) {
+            node.waitingFor.set(node.requires.size());
+            if (node.requires.isEmpty()) roots.add(node);
+        }
+
+        new ReadySteps(roots).invoke();
         handleExceptions();
     }
 
@@ -312,6 +378,11 @@ public class DependencyGraph {
         private final AtomicBoolean enabled = new AtomicBoolean(true);
         // A list of exceptions that could be created during the execution of this process step.
         private final ArrayList<Exception> exceptions = new ArrayList<>();
+        // Estimated cost of this step plus the most expensive path of steps that require it, see
+        // `computeCriticalPath`.
+        private double pathCost;
+        // Number of required steps that are not done yet, see `computeCriticalPath`.
+        private final AtomicInteger waitingFor = new AtomicInteger();
 
         DependencyNode(ComputeStep step) {
             this.step = step;
@@ -323,8 +394,8 @@ public class DependencyGraph {
          * @param e the exception that caused the node to be disabled, or null
          */
         void disableChildren(Exception e) {
-            if (enabled.get()) {
-                enabled.set(false);
+            // A node may be disabled by several of its required nodes at once when the graph is computed in parallel.
+            if (enabled.compareAndSet(true, false)) {
 
                 String reason = e == null ? step.explainApplicability() : e.getMessage();
                 if (step.isRequired()) {
@@ -352,21 +423,84 @@ public class DependencyGraph {
                 getTask(requiredNode).join();
             }
 
-            if (enabled.get()) {
-                try {
-                    if (step.applicable()) {
+            computeStep();
+            return null;
+        }
+
+        /**
+         * Computes the process step if it is enabled and applicable, assuming every required step is done, and
+         * records how long it took per row.
+         */
+        void computeStep() {
+            if (!enabled.get()) return;
+
+            try {
+                if (step.applicable()) {
+                    IngestSpan span = IngestMetrics.start(
+                            "step", step.getClass().getSimpleName(), builder.meta.getFilename());
+                    long start = System.nanoTime();
+                    try {
                         step.compute();
-                    } else {
-                        disableChildren(null);
+                    } finally {
+                        span.end();
                     }
-                } catch (SQLException | MalformedFlightFileException | FatalFlightFileException e) {
-                    LOG.warning("Encountered exception when calculating process step " + step + ": " + e);
-                    exceptions.add(e);
-                    disableChildren(e);
+                    long nanos = System.nanoTime() - start;
+
+                    LOG.fine(() -> "Took " + (nanos / 1_000_000_000.0) + " s to compute " + step);
+                    NANOS_PER_ROW.merge(
+                            step.getClass(),
+                            nanos / (double) Math.max(rows, 1),
+                            (average, latest) -> average + COST_SMOOTHING * (latest - average));
+                } else {
+                    disableChildren(null);
                 }
+            } catch (SQLException | MalformedFlightFileException | FatalFlightFileException e) {
+                LOG.warning("Encountered exception when calculating process step " + step + ": " + e);
+                exceptions.add(e);
+                disableChildren(e);
             }
+        }
+    }
 
-            return null;
+    /**
+     * Computes a set of nodes whose required nodes are all done, and then each of their children once it is ready, as
+     * described in {@link #computeCriticalPath()}. Completes once every node reachable from the set is done.
+     */
+    private class ReadySteps extends RecursiveAction {
+        // Supresses a compiler error, not relevant or important since this will not be serialized
+        private static final long serialVersionUID = 0;
+
+        private final List<DependencyNode> ready;
+
+        ReadySteps(List<DependencyNode> ready) {
+            this.ready = ready;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<ReadySteps> forked = new ArrayList<>();
+            List<DependencyNode> next = new ArrayList<>(ready);
+
+            while (!next.isEmpty()) {
+                next.sort(Comparator.comparingDouble((DependencyNode node) -> node.pathCost).reversed());
+                for (var node : next.subList(1, next.size())) {
+                    var task = new ReadySteps(List.of(node));
+                    task.fork();
+                    forked.add(task);
+                }
+
+                DependencyNode node = next.getFirst();
+                node.computeStep();
+
+                next = new ArrayList<>();
+                for (var child : node.requiredBy) {
+                    // Whichever required node finishes last makes the child ready.
+                    if (child.waitingFor.decrementAndGet() == 0) next.add(child);
+                }
+            }
+
+            // Joined newest first, so the tasks nobody has stolen are popped off this worker's own queue.
+            for (var task : forked.reversed()) task.join();
         }
     }
 }
@@ -7,12 +7,17 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.ngafid.core.Config;
 import org.ngafid.core.Database;
 import org.ngafid.core.event.EventDefinition;
-import org.ngafid.core.flights.Flight;
 import org.ngafid.core.kafka.DockerServiceHeartbeat;
 import org.ngafid.core.kafka.Events;
 import org.ngafid.core.kafka.Topic;
@@ -24,93 +29,180 @@ import org.ngafid.core.kafka.Topic;
  * The event definitions in this program are automatically refreshed periodically, so
  * in the event that event definitions are modified in the database this program does
  * not need to be restarted to detect it.
+ * <p>
+ * Scans are incremental: a definition that was already scanned is only checked against flights inserted since the
+ * last scan (above the highest flight id seen), while new definitions, and definitions that now apply to different
+ * flights, are checked against every flight. Since this cannot see rows removed from `flight_processed` (e.g. by
+ * EventHelper) or flights committed out of id order, every definition is checked against every flight once every
+ * {@link Config#EVENT_OBSERVER_FULL_SCAN_MINUTES} minutes.
  */
 public class EventObserver {
+    private static final Logger LOG = Logger.getLogger(EventObserver.class.getName());
 
-    private EventObserver() {}
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final long SCAN_INTERVAL_MS = 10000;
+
+    /**
+     * The fields of a definition that determine which flights it applies to.
+     */
+    private record DefinitionScope(int fleetId, int airframeNameId, Integer airframeTypeId) {
+        DefinitionScope(EventDefinition definition) {
+            this(definition.getFleetId(), definition.getAirframeNameId(), definition.getAirframeTypeId());
+        }
+    }
+
+    private final Map<Integer, DefinitionScope> scannedDefinitions = new HashMap<>();
+    private int highWaterFlightId = 0;
+    private long lastFullScan = 0;
 
-    private static boolean isRotorcraftType(Connection connection, Integer airframeTypeId) throws SQLException {
-        if (airframeTypeId == null) return false;
+    private EventObserver() {}
 
-        try (PreparedStatement statement =
-                connection.prepareStatement("SELECT name = 'Rotorcraft' FROM airframe_types WHERE id = ?")) {
-            statement.setInt(1, airframeTypeId);
-            try (ResultSet resultSet = statement.executeQuery()) {
-                return resultSet.next() && resultSet.getBoolean(1);
+    /**
+     * Finds the (flight, definition) pairs without a `flight_processed` row and publishes them, one message per flight.
+     *
+     * @param connection the database connection
+     * @param producer   the producer to publish the flights to
+     * @return the number of flights published
+     */
+    private int scan(Connection connection, KafkaProducer<String, String> producer)
+            throws SQLException, JsonProcessingException {
+        // Grab all the events each time we scan the database to detect new events.
+        List<EventDefinition> definitions = EventDefinition.getAll(connection);
+
+        boolean fullScan =
+                System.currentTimeMillis() - lastFullScan >= Config.EVENT_OBSERVER_FULL_SCAN_MINUTES * 60_000L;
+        List<Integer> rescanIds = new ArrayList<>();
+        Map<Integer, DefinitionScope> scopes = new HashMap<>();
+        for (EventDefinition definition : definitions) {
+            DefinitionScope scope = new DefinitionScope(definition);
+            scopes.put(definition.getId(), scope);
+            if (fullScan || !scope.equals(scannedDefinitions.get(definition.getId()))) {
+                rescanIds.add(definition.getId());
             }
         }
+
+        int maxFlightId = getMaxFlightId(connection);
+        if (rescanIds.isEmpty() && maxFlightId <= highWaterFlightId) return 0;
+
+        int published = publishMissingEvents(connection, producer, rescanIds, highWaterFlightId, maxFlightId);
+
+        scannedDefinitions.clear();
+        scannedDefinitions.putAll(scopes);
+        highWaterFlightId = maxFlightId;
+        if (fullScan) lastFullScan = System.currentTimeMillis();
+
+        return published;
     }
 
-    private static List<Flight> getApplicableFlightsWithoutEvent(Connection connection, EventDefinition event)
-            throws SQLException {
-        StringBuilder condition = new StringBuilder();
-        if (event.getFleetId() != 0) {
-            condition.append(" fleet_id = ").append(event.getFleetId()).append(" ");
+    private static int getMaxFlightId(Connection connection) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement("SELECT MAX(id) FROM flights");
+                ResultSet resultSet = query.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
         }
+    }
+
+    /**
+     * Publishes every applicable (flight, definition) pair without a `flight_processed` row, for flights with ids in
+     * ({@code fromFlightId}, {@code toFlightId}], as well as flights up to {@code toFlightId} for the definitions in
+     * {@code rescanIds}. The pairs are found with a single anti-join that only reads ids.
+     * <p>
+     * Rotorcraft event definitions should only run on rotorcraft flights. All other definitions (legacy null type or
+     * non-rotor type) should run only on non-rotor flights.
+     *
+     * @return the number of flights published
+     */
+    private static int publishMissingEvents(
+            Connection connection,
+            KafkaProducer<String, String> producer,
+            List<Integer> rescanIds,
+            int fromFlightId,
+            int toFlightId)
+            throws SQLException, JsonProcessingException {
+        String flightCondition = rescanIds.isEmpty()
+                ? "f.id > ?"
+                : "(f.id > ? OR d.id IN (" + String.join(", ", Collections.nCopies(rescanIds.size(), "?")) + "))";
+
+        String sql = """
+                SELECT f.id, d.id FROM event_definitions d
+                    INNER JOIN flights f
+                        ON (d.fleet_id = 0 OR f.fleet_id = d.fleet_id)
+                        AND (d.airframe_id = 0 OR f.airframe_id = d.airframe_id)
+                    INNER JOIN airframes a ON a.id = f.airframe_id
+                    LEFT JOIN airframe_types flight_type ON flight_type.id = a.type_id
+                    LEFT JOIN airframe_types definition_type ON definition_type.id = d.airframe_type_id
+                WHERE (COALESCE(definition_type.name, '') = 'Rotorcraft')
+                        = (COALESCE(flight_type.name, '') = 'Rotorcraft')
+                    AND f.id <= ?
+                    AND %s
+                    AND NOT EXISTS (
+                        SELECT flight_id FROM flight_processed
+                        WHERE flight_processed.flight_id = f.id AND flight_processed.event_definition_id = d.id)
+                ORDER BY f.id, d.id
+                """.formatted(flightCondition);
+
+        int published = 0;
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            query.setInt(parameter++, toFlightId);
+            query.setInt(parameter++, fromFlightId);
+            for (int id : rescanIds) query.setInt(parameter++, id);
+
+            try (ResultSet resultSet = query.executeQuery()) {
+                // Rows are ordered by flight, so each flight is published as soon as all of its rows are read.
+                int flightId = -1;
+                List<Integer> eventIds = new ArrayList<>();
+                while (resultSet.next()) {
+                    int rowFlightId = resultSet.getInt(1);
+                    if (rowFlightId != flightId && !eventIds.isEmpty()) {
+                        publish(producer, flightId, eventIds);
+                        published++;
+                        eventIds = new ArrayList<>();
+                    }
+                    flightId = rowFlightId;
+                    eventIds.add(resultSet.getInt(2));
+                }
 
-        if (event.getAirframeNameId() != 0) {
-            if (!condition.isEmpty()) condition.append("AND ");
-            condition
-                    .append(" airframe_id = ")
-                    .append(event.getAirframeNameId())
-                    .append(" ");
+                if (!eventIds.isEmpty()) {
+                    publish(producer, flightId, eventIds);
+                    published++;
+                }
+            }
         }
 
-        // Rotorcraft event definitions should only run on rotorcraft flights.
-        // All other definitions (legacy null type or non-rotor type) should run only on non-rotor flights.
-        if (!condition.isEmpty()) condition.append("AND ");
-        boolean isRotorcraftDefinition = isRotorcraftType(connection, event.getAirframeTypeId());
-        condition
-                .append(" airframe_id IN (SELECT a.id FROM airframes a "
-                        + "LEFT JOIN airframe_types t ON t.id = a.type_id "
-                        + "WHERE ")
-                .append(isRotorcraftDefinition ? "t.name = 'Rotorcraft'" : "(t.name <> 'Rotorcraft' OR t.name IS NULL)")
-                .append(") ");
-
-        if (!condition.isEmpty()) condition.append(" AND ");
-        condition.append("""
-                NOT EXISTS (
-                    SELECT flight_id FROM flight_processed WHERE
-                        flight_processed.event_definition_id =\s""").append(event.getId()).append("""
-                        AND flight_processed.flight_id = flights.id)
-                """);
-
-        String extraCondition = condition.toString();
-
-        System.out.println(extraCondition);
-
-        return Flight.getFlights(connection, extraCondition);
+        return published;
     }
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    /**
+     * Publishes one message per flight, keyed by the flight so that retries of a flight land on the same partition, and
+     * the consumer only has to load each flight once. EventConsumer will mark the flight as processed after successful
+     * processing.
+     */
+    private static void publish(KafkaProducer<String, String> producer, int flightId, List<Integer> eventIds)
+            throws JsonProcessingException {
+        String eventJson = OBJECT_MAPPER.writeValueAsString(new Events.FlightEventsToCompute(flightId, eventIds));
+        producer.send(new ProducerRecord<>(Topic.EVENT.toString(), String.valueOf(flightId), eventJson));
+    }
 
     public static void main(String[] args) throws UnknownHostException {
 
         /* Start Docker Service Heartbeat Producer */
         DockerServiceHeartbeat.autostart();
 
+        EventObserver observer = new EventObserver();
+
         try (KafkaProducer<String, String> producer = Events.createProducer()) {
 
             while (true) {
                 try (Connection connection = Database.getConnection()) {
-                    // Grab all the events each time we scan the database to detect new events.
-                    List<EventDefinition> events = EventDefinition.getAll(connection);
-                    for (EventDefinition event : events) {
-                        List<Flight> flights = getApplicableFlightsWithoutEvent(connection, event);
-                        for (Flight flight : flights) {
-                            String eventJson = OBJECT_MAPPER.writeValueAsString(
-                                    new Events.EventToCompute(flight.getId(), event.getId()));
-                            producer.send(new ProducerRecord<>(Topic.EVENT.toString(), eventJson));
-                            // Removed premature flight.insertComputedEvents() call
-                            // EventConsumer will handle this after successful processing
-                        }
-                    }
+                    int published = observer.scan(connection, producer);
+                    if (published > 0) LOG.info("Published events to compute for " + published + " flights");
                 } catch (JsonProcessingException e) {
                     throw new RuntimeException(e);
                 }
 
                 try {
-                    Thread.sleep(10000);
+                    Thread.sleep(SCAN_INTERVAL_MS);
                 } catch (InterruptedException e) {
                 }
             }
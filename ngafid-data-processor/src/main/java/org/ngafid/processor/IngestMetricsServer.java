@@ -0,0 +1,49 @@
+package org.ngafid.processor;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import org.ngafid.core.Config;
+import org.ngafid.core.metrics.IngestMetrics;
+
+/**
+ * Serves the ingest metrics of this process at `/metrics` in the Prometheus text exposition format, on
+ * {@link Config#INGEST_METRICS_PORT}.
+ */
+public final class IngestMetricsServer {
+    private static final Logger LOG = Logger.getLogger(IngestMetricsServer.class.getName());
+
+    private IngestMetricsServer() {}
+
+    /**
+     * Starts serving the metrics if they are enabled.
+     */
+    public static void autostart() {
+        if (!IngestMetrics.ENABLED) return;
+
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(Config.INGEST_METRICS_PORT), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = IngestMetrics.REGISTRY.render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ingest-metrics");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.start();
+            LOG.info("Serving ingest metrics on port " + Config.INGEST_METRICS_PORT);
+        } catch (IOException e) {
+            LOG.warning("Could not serve ingest metrics on port " + Config.INGEST_METRICS_PORT + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.ngafid.processor;
+
+/**
+ * Bounds the number of bytes of flight data that are live at once in a {@link Pipeline}.
+ * <p>
+ * Only admission is blocking: new work reserves its estimated size with {@link #acquire} before it is read, while work
+ * that is already in flight corrects its reservation with {@link #adjust} as it grows or shrinks and never waits. This
+ * keeps the stages after admission from deadlocking on each other, at the cost of the budget being overdrawn for a
+ * while if a file turns out to be much larger than estimated. A single piece of work larger than the whole budget is
+ * admitted once nothing else is in flight, so it is processed on its own instead of blocking forever.
+ */
+public final class MemoryBudget {
+    private final long capacity;
+    private long used = 0;
+
+    /**
+     * @param capacity the number of bytes that may be in flight before admission blocks
+     */
+    public MemoryBudget(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Waits until there is room for the supplied number of bytes, then reserves them.
+     *
+     * @param bytes the estimated size of the work being admitted
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        while (used > 0 && used + bytes > capacity) {
+            wait();
+        }
+        used += bytes;
+    }
+
+    /**
+     * Changes the size of a reservation that has already been admitted, without waiting.
+     *
+     * @param delta the number of bytes to add to (or remove from, if negative) the reservation
+     */
+    public synchronized void adjust(long delta) {
+        used += delta;
+        if (delta < 0) notifyAll();
+    }
+
+    /**
+     * Returns bytes to the budget once the work they were reserved for has finished.
+     *
+     * @param bytes the number of bytes to release
+     */
+    public void release(long bytes) {
+        adjust(-bytes);
+    }
+
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
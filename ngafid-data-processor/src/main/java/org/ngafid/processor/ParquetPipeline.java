@@ -14,6 +14,7 @@ import org.apache.parquet.io.InputFile;
 import org.ngafid.core.Database;
 import org.ngafid.core.flights.Airframes;
 import org.ngafid.core.flights.Flight;
+import org.ngafid.core.flights.FlightKeyCache;
 import org.ngafid.core.flights.FlightProcessingException;
 import org.ngafid.core.uploads.Upload;
 import org.ngafid.core.uploads.UploadException;
@@ -29,6 +30,7 @@ public class ParquetPipeline {
     private final Connection connection;
     private final Upload upload;
     private final Path parquetFilePath;
+    private final FlightKeyCache keyCache = new FlightKeyCache();
 
     private int validFlights = 0;
     private int warningFlights = 0;
@@ -121,13 +123,13 @@ public class ParquetPipeline {
                 buffer.add(fb.getFlight());
 
                 if (buffer.size() == batchSize) {
-                    Flight.batchUpdateDatabase(connection, buffer);
+                    Flight.batchUpdateDatabase(connection, buffer, keyCache);
                     buffer.clear();
                 }
             }
 
             if (!buffer.isEmpty()) {
-                Flight.batchUpdateDatabase(connection, buffer);
+                Flight.batchUpdateDatabase(connection, buffer, keyCache);
             }
 
             for (FlightBuilder fb : successfulBuilders) {
@@ -180,14 +182,14 @@ public class ParquetPipeline {
                     buffer.add(flight);
 
                     if (buffer.size() == batchSize) {
-                        Flight.batchUpdateDatabase(connection, buffer);
+                        Flight.batchUpdateDatabase(connection, buffer, keyCache);
                         buffer.clear();
                     }
                 }
 
                 // remaining flights
                 if (!buffer.isEmpty()) {
-                    Flight.batchUpdateDatabase(connection, buffer);
+                    Flight.batchUpdateDatabase(connection, buffer, keyCache);
                 }
             } else {
                 LOG.severe("Flights are empty!");
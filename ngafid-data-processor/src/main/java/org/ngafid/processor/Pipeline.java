@@ -13,6 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -21,10 +22,14 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.ngafid.core.Config;
+import org.ngafid.core.Database;
 import org.ngafid.core.flights.Airframes;
 import org.ngafid.core.flights.FatalFlightFileException;
 import org.ngafid.core.flights.Flight;
+import org.ngafid.core.flights.FlightKeyCache;
 import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.metrics.IngestMetrics;
+import org.ngafid.core.metrics.IngestSpan;
 import org.ngafid.core.uploads.Upload;
 import org.ngafid.core.uploads.UploadException;
 import org.ngafid.processor.format.*;
@@ -106,6 +111,9 @@ public class Pipeline implements AutoCloseable {
     // Maps filenames to a FlightInfo object.
     private final ConcurrentHashMap<String, ProcessUpload.FlightInfo> flightInfo = new ConcurrentHashMap<>();
 
+    // Tails of the flights in this upload, shared by every batch of flights inserted.
+    private final FlightKeyCache keyCache = new FlightKeyCache();
+
     /** Flight files queued for parsing (used to detect silent ingest failures). */
     private final AtomicInteger filesQueued = new AtomicInteger(0);
 
@@ -135,7 +143,8 @@ public class Pipeline implements AutoCloseable {
      * (4) Insert the created flights into the database.
      */
     public void execute() {
-        if (Config.MEMORY_EFFICIENT_UPLOAD_PROCESSOR) executeMemoryEfficient();
+        if (Config.PIPELINED_UPLOAD_PROCESSOR) executePipelined();
+        else if (Config.MEMORY_EFFICIENT_UPLOAD_PROCESSOR) executeMemoryEfficient();
         else executeFast();
     }
 
@@ -187,6 +196,7 @@ public class Pipeline implements AutoCloseable {
                                 while (true) {
                                     try {
                                         taskQueue.put(fileProcessor);
+                                        IngestMetrics.queueDepth("files", taskQueue.size());
                                         break;
                                     } catch (InterruptedException e) {
                                         // Ignore...
@@ -224,6 +234,7 @@ public class Pipeline implements AutoCloseable {
                 while (true) {
                     try {
                         var task = taskQueue.take();
+                        IngestMetrics.queueDepth("files", taskQueue.size());
                         if (task instanceof FlightFileProcessor proc) {
                             try {
                                 proc.call();
@@ -254,6 +265,302 @@ public class Pipeline implements AutoCloseable {
         }
     }
 
+    /**
+     * Runs parsing, building and inserting as separate stages, each with its own worker threads fed by a bounded
+     * queue, so that building flights (CPU bound) overlaps with inserting them (I/O bound). Files are only read from
+     * the zip once the {@link MemoryBudget} has room for them, which bounds the flight data held in memory by its size
+     * in bytes rather than by the number of files. A file's reservation starts as its uncompressed size, is replaced by
+     * the size of its series once it is parsed, follows the series as they are built, and is released once the file's
+     * flights have been inserted.
+     */
+    private void executePipelined() {
+        LOG.info(() -> "Creating pipelined executor for upload id " + upload.id + " / " + upload.filename);
+
+        MemoryBudget budget = new MemoryBudget((long) Config.UPLOAD_PROCESSOR_MEMORY_BUDGET_MB << 20);
+        int parallelism = Math.max(1, Config.PARALLELISM);
+
+        Stage<FileWork> insertStage = new Stage<>("insert", Math.max(1, parallelism / 2), (connection, file) -> {
+            try {
+                file.processor.insert(connection.get(), file.built);
+            } finally {
+                budget.release(file.bytes.get());
+                file.span.end();
+            }
+        });
+
+        Stage<BuildWork> buildStage = new Stage<>("build", parallelism, (connection, work) -> {
+            FileWork file = work.file();
+            long before = work.builder().estimateSeriesBytes();
+            long after = 0;
+            try {
+                FlightBuilder built = build(connection.get(), work.builder());
+                if (built != null) {
+                    after = built.estimateSeriesBytes();
+                    file.built.add(built);
+                }
+            } catch (RuntimeException e) {
+                fail(file.processor.getFilename(), e);
+            } finally {
+                file.adjust(budget, after - before);
+                if (file.remaining.decrementAndGet() == 0) {
+                    if (file.built.isEmpty()) {
+                        budget.release(file.bytes.get());
+                        file.span.end();
+                    } else {
+                        insertStage.submit(file);
+                    }
+                }
+            }
+        });
+
+        Stage<FileWork> parseStage = new Stage<>("parse", parallelism, (connection, file) -> {
+            List<FlightBuilder> builders = List.of();
+            try {
+                builders = parse(file.processor).filter(Objects::nonNull).toList();
+            } catch (RuntimeException e) {
+                fail(file.processor.getFilename(), e);
+            } finally {
+                file.processor.releaseStream();
+            }
+
+            long bytes = 0;
+            for (FlightBuilder builder : builders) bytes += builder.estimateSeriesBytes();
+            file.adjust(budget, bytes - file.bytes.get());
+
+            if (builders.isEmpty()) {
+                budget.release(file.bytes.get());
+                file.span.end();
+                return;
+            }
+
+            file.remaining.set(builders.size());
+            for (FlightBuilder builder : builders) buildStage.submit(new BuildWork(file, builder));
+        });
+
+        for (ZipArchiveEntry entry : getValidFilesStream().toList()) {
+            // The uncompressed size is not always recorded; the reservation is corrected once the file is parsed.
+            long estimate = Math.max(entry.getSize(), 0);
+            try {
+                budget.acquire(estimate);
+            } catch (InterruptedException e) {
+                LOG.severe(() -> "Interrupted while waiting for memory to read '" + entry.getName() + "'");
+                fail(entry.getName(), e);
+                break;
+            }
+
+            // Once the file is submitted its span is ended by the stage that finishes with it, otherwise it ends here.
+            IngestSpan fileSpan = IngestMetrics.start("file", "", entry.getName());
+            boolean submitted = false;
+            try {
+                FlightFileProcessor fileProcessor = create(entry);
+                if (fileProcessor != null) {
+                    filesQueued.incrementAndGet();
+                    parseStage.submit(new FileWork(fileProcessor, estimate, fileSpan));
+                    submitted = true;
+                }
+            } catch (SQLException | FatalFlightFileException e) {
+                fail(entry.getName(), e);
+            } catch (IOException e) {
+                // As in executeMemoryEfficient, the zip file is probably broken at this point so give up.
+                LOG.severe(() -> "Encountered IOException reading zip entry '" + entry.getName() + "': "
+                        + e.getMessage());
+                fail(entry.getName(), e);
+                break;
+            } finally {
+                if (!submitted) {
+                    budget.release(estimate);
+                    fileSpan.end();
+                }
+            }
+        }
+
+        // Each stage only receives work from the one before it, so they can be drained in order.
+        parseStage.finish();
+        buildStage.finish();
+        insertStage.finish();
+
+        LOG.info("Done...");
+    }
+
+    /**
+     * A piece of work in a {@link Stage}, which belongs to a flight file.
+     */
+    private interface Work {
+        String filename();
+    }
+
+    /**
+     * A file moving through the stages of {@link #executePipelined}.
+     */
+    private static final class FileWork implements Work {
+        private final FlightFileProcessor processor;
+
+        /**
+         * The number of bytes reserved for this file in the memory budget.
+         */
+        private final AtomicLong bytes;
+
+        /**
+         * The number of flights of this file that have not finished building.
+         */
+        private final AtomicInteger remaining = new AtomicInteger(0);
+
+        private final List<FlightBuilder> built = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Times the file from reading it to inserting its flights.
+         */
+        private final IngestSpan span;
+
+        FileWork(FlightFileProcessor processor, long bytes, IngestSpan span) {
+            this.processor = processor;
+            this.bytes = new AtomicLong(bytes);
+            this.span = span;
+        }
+
+        @Override
+        public String filename() {
+            return processor.getFilename();
+        }
+
+        void adjust(MemoryBudget budget, long delta) {
+            bytes.addAndGet(delta);
+            budget.adjust(delta);
+        }
+    }
+
+    private record BuildWork(FileWork file, FlightBuilder builder) implements Work {
+        @Override
+        public String filename() {
+            return file.filename();
+        }
+    }
+
+    /**
+     * Processes one piece of work in a {@link Stage}.
+     *
+     * @param <T> the type of work
+     */
+    @FunctionalInterface
+    private interface StageWorker<T> {
+        void process(StageConnection connection, T work) throws Exception;
+    }
+
+    /**
+     * The database connection of a {@link Stage} worker. It is opened by the first work that asks for it, and if that
+     * fails the next work tries again, so a worker that could not connect fails its work rather than passing it a
+     * null connection.
+     */
+    private static final class StageConnection implements AutoCloseable {
+        private Connection connection = null;
+
+        Connection get() throws SQLException {
+            if (connection == null) connection = Database.getConnection();
+            return connection;
+        }
+
+        @Override
+        public void close() {
+            if (connection == null) return;
+
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.warning(() -> "Could not close pipeline connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A fixed number of worker threads taking work from a bounded queue. Submitting work blocks while the queue is
+     * full, which holds back the stage feeding this one. A worker opens a database connection when its work first asks
+     * for one, and holds it for the rest of its lifetime. Work that fails with an exception is recorded as a failure
+     * of its file.
+     *
+     * @param <T> the type of work
+     */
+    private final class Stage<T extends Work> {
+        private static final Object DONE = new Object();
+
+        private final String name;
+        private final ArrayBlockingQueue<Object> queue;
+        private final List<Thread> workers = new ArrayList<>();
+
+        Stage(String name, int threads, StageWorker<T> worker) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(threads);
+
+            for (int i = 0; i < threads; i++) {
+                Thread thread = new Thread(() -> {
+                    try (StageConnection connection = new StageConnection()) {
+                        run(connection, worker);
+                    }
+                });
+                thread.setName("pipeline-" + name + "-" + i);
+                thread.start();
+                workers.add(thread);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void run(StageConnection connection, StageWorker<T> worker) {
+            while (true) {
+                Object work;
+                try {
+                    work = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                IngestMetrics.queueDepth(name, queue.size());
+
+                if (work == DONE) return;
+
+                T item = (T) work;
+                try {
+                    worker.process(connection, item);
+                } catch (Exception e) {
+                    // Keep draining the queue anyway so the stages feeding this one cannot block forever.
+                    LOG.severe(() -> "Unexpected exception in pipeline " + name + " stage: " + e.getMessage());
+                    fail(item.filename(), e);
+                }
+            }
+        }
+
+        void submit(T work) {
+            put(work);
+        }
+
+        /**
+         * Waits for all submitted work to be processed and stops the workers.
+         */
+        void finish() {
+            for (int i = 0; i < workers.size(); i++) put(DONE);
+
+            for (Thread worker : workers) {
+                while (true) {
+                    try {
+                        worker.join();
+                        break;
+                    } catch (InterruptedException e) {
+                        LOG.severe(() -> "Interrupted while waiting for worker thread to join: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void put(Object work) {
+            while (true) {
+                try {
+                    queue.put(work);
+                    IngestMetrics.queueDepth(name, queue.size());
+                    break;
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
     /**
      * Creates a stream of zip entires in the ZipFile that are in fact, files.
      *
@@ -305,8 +612,12 @@ public class Pipeline implements AutoCloseable {
         FlightFileProcessor.Factory f = FACTORIES.get(extension);
 
         if (f != null) {
+            IngestSpan span = IngestMetrics.start("read", extension, filename);
             try (InputStream is = zipFile.getInputStream(entry)) {
                 return f.create(connection, is, filename, this);
+            } finally {
+                if (entry.getSize() > 0) span.bytes(entry.getSize());
+                span.end();
             }
         } else {
             fail(
@@ -325,12 +636,16 @@ public class Pipeline implements AutoCloseable {
      * @return A stream of flight builders on success, an empty stream if there is an error.
      */
     public Stream<FlightBuilder> parse(FlightFileProcessor processor) {
+        if (processor == null) return Stream.of();
+
+        IngestSpan span = IngestMetrics.start("parse", processor.getClass().getSimpleName(), processor.getFilename());
         try {
-            if (processor == null) return Stream.of();
             return processor.parse();
         } catch (FlightProcessingException e) {
             fail(processor.getFilename(), e);
             return Stream.of();
+        } finally {
+            span.end();
         }
     }
 
@@ -342,6 +657,7 @@ public class Pipeline implements AutoCloseable {
      * @return a flight object if there are no exceptions, otherwise returns `null`.
      */
     public FlightBuilder build(Connection dbConnection, FlightBuilder flightBuilder) {
+        IngestSpan span = IngestMetrics.start("build", "", flightBuilder.meta.getFilename());
         try {
             LOG.info(() -> "Building flight file '" + flightBuilder.meta.getFilename() + "'");
             flightBuilder.meta.setFleetId(this.upload.fleetId);
@@ -351,13 +667,17 @@ public class Pipeline implements AutoCloseable {
                     dbConnection,
                     flightBuilder.meta.getAirframe().getName(),
                     flightBuilder.meta.getAirframe().getType()));
-            return flightBuilder.build(dbConnection);
+            FlightBuilder built = flightBuilder.build(dbConnection);
+            if (span.isActive()) span.bytes(built.estimateSeriesBytes());
+            return built;
         } catch (FlightProcessingException | SQLException e) {
             LOG.info("Encountered an irrecoverable issue processing a flight");
             fail(
                     flightBuilder.meta.getFilename(),
                     new UploadException(e.getMessage(), e, flightBuilder.meta.getFilename()));
             return null;
+        } finally {
+            span.end();
         }
     }
 
@@ -473,4 +793,8 @@ public class Pipeline implements AutoCloseable {
     public Upload getUpload() {
         return upload;
     }
+
+    public FlightKeyCache getKeyCache() {
+        return keyCache;
+    }
 }
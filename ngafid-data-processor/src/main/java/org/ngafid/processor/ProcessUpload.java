@@ -81,7 +81,8 @@ public final class ProcessUpload {
         targetDirectory.toFile().mkdirs();
         Path targetFilename = Paths.get(targetDirectory + "/" + upload.getArchiveFilename());
 
-        // Chunks have already been combined.
+        // Chunks have already been combined. File uploads are written in place chunk by chunk, and their size and MD5
+        // hash are verified as the last chunk arrives; only uploads started before that have `.part` files to combine.
         if (Files.exists(targetFilename) && Files.isRegularFile(targetFilename)) {
             return;
         }
@@ -118,6 +119,9 @@ public final class ProcessUpload {
     private static boolean processUpload(Connection connection, Upload upload)
             throws SQLException, UploadAlreadyLockedException {
         try (Upload.LockedUpload lockedUpload = upload.getLockedUpload(connection)) {
+            // Whether the flights of the upload have been taken out of the statistics, to be added back once processed
+            boolean reset = false;
+            Upload.Status status = Upload.Status.FAILED_UNKNOWN;
             try {
                 tryCombinePieces(connection, upload, lockedUpload);
                 lockedUpload.updateStatus(Upload.Status.PROCESSING);
@@ -142,13 +146,14 @@ public final class ProcessUpload {
                 SendEmail.sendEmail(recipients, bccRecipients, subject, body, EmailType.UPLOAD_PROCESS_START);
 
                 lockedUpload.reset();
+                reset = true;
                 LOG.info("upload was reset!\n\n");
 
                 UploadProcessedEmail uploadProcessedEmail = new UploadProcessedEmail(recipients, bccRecipients);
 
                 long start = System.nanoTime();
 
-                Upload.Status status = ingestFlights(connection, upload, uploadProcessedEmail);
+                status = ingestFlights(connection, upload, uploadProcessedEmail);
 
                 // only progress if the upload ingestion was successful
                 if (status.isProcessed()) {
@@ -168,19 +173,47 @@ public final class ProcessUpload {
                 uploadProcessedEmail.sendEmail(connection);
 
                 upload.setStatus(status);
-                lockedUpload.updateStatus(status);
 
                 return status.isProcessed();
             } catch (Exception e) {
-                lockedUpload.updateStatus(Upload.Status.FAILED_UNKNOWN);
+                status = Upload.Status.FAILED_UNKNOWN;
                 e.printStackTrace();
                 return false;
             } finally {
-                FleetStatisticsCacheRefresh.refreshForFleetQuietly(connection, upload.getFleetId());
+                finishUpload(connection, upload, lockedUpload, status, reset);
             }
         }
     }
 
+    /**
+     * Sets the final status of an upload, and adds its flights to the statistics if they were reset. Both happen in
+     * one transaction, the flights first, so the event consumer either has committed the events it computed for them
+     * by the time they are read, or waits for the status and adds those events itself.
+     */
+    private static void finishUpload(
+            Connection connection, Upload upload, Upload.LockedUpload lockedUpload, Upload.Status status, boolean reset)
+            throws SQLException {
+        int fleetId = upload.getFleetId();
+        boolean finished = false;
+
+        connection.setAutoCommit(false);
+        try {
+            if (reset) FleetStatisticsCacheRefresh.addUploadFlights(connection, fleetId, upload.getId());
+            lockedUpload.updateStatus(status);
+            FleetStatisticsCacheRefresh.recountUploads(connection, fleetId, upload.getId());
+            connection.commit();
+            finished = true;
+        } catch (SQLException e) {
+            // The statistics are corrected when they are next rebuilt, but the upload must not be left unfinished.
+            LOG.log(Level.SEVERE, "Failed to update the statistics of upload " + upload.getId(), e);
+            connection.rollback();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        if (!finished) lockedUpload.updateStatus(status);
+    }
+
     public static Upload.Status ingestFlights(
             Connection connection, Upload upload, UploadProcessedEmail uploadProcessedEmail) throws SQLException {
         Instant start = Instant.now();
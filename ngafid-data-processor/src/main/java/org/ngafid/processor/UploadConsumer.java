@@ -45,6 +45,7 @@ public class UploadConsumer extends DisjointConsumer<String, Integer> {
 
         /* Start Docker Service Heartbeat Producer */
         DockerServiceHeartbeat.autostart();
+        IngestMetricsServer.autostart();
 
         Properties props = Configuration.getUploadProperties();
         props.put("max.poll.records", String.valueOf(N_RECORDS));
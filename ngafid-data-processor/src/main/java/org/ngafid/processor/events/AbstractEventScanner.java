@@ -41,16 +41,22 @@ public abstract class AbstractEventScanner {
             Map<String, DoubleTimeSeries> doubleTimeSeries, Map<String, StringTimeSeries> stringTimeSeries)
             throws SQLException;
 
+    /**
+     * Reads the columns this scanner needs into the flight's series maps. Columns that are already in the maps (e.g.
+     * read for another scanner of the same flight) are not read again.
+     */
     public void gatherRequiredColumns(Connection connection, Flight flight)
             throws ColumnNotAvailableException, SQLException {
         for (var doubleColumnName : getRequiredDoubleColumns()) {
-            var col = flight.getDoubleTimeSeries(connection, doubleColumnName);
+            var col = flight.getDoubleTimeSeriesMap().get(doubleColumnName);
+            if (col == null) col = flight.getDoubleTimeSeries(connection, doubleColumnName);
             if (col == null)
                 throw new ColumnNotAvailableException("Required column " + doubleColumnName + " not found");
         }
 
         for (var stringColumnName : getRequiredStringColumns()) {
-            var col = flight.getStringTimeSeries(connection, stringColumnName);
+            var col = flight.getStringTimeSeriesMap().get(stringColumnName);
+            if (col == null) col = flight.getStringTimeSeries(connection, stringColumnName);
             if (col == null)
                 throw new ColumnNotAvailableException("Required column " + stringColumnName + " not found");
         }
@@ -9,16 +9,16 @@ import org.ngafid.core.event.EventDefinition;
 import org.ngafid.core.flights.DoubleTimeSeries;
 import org.ngafid.core.flights.Parameters;
 import org.ngafid.core.flights.StringTimeSeries;
-import org.ngafid.core.util.filters.Conditional;
-import org.ngafid.core.util.filters.Filter;
+import org.ngafid.core.util.filters.CompiledConditional;
 
 /**
- * Scans a flight for a normal event, i.e. an event defined with a `Conditional`.
+ * Scans a flight for a normal event, i.e. an event defined with a `Conditional`. The condition is evaluated through
+ * the definition's {@link CompiledConditional}.
  */
 public class EventScanner extends AbstractEventScanner {
     private static final Logger LOG = Logger.getLogger(EventScanner.class.getName());
 
-    private final Conditional conditional;
+    private final CompiledConditional conditional;
     private final int startBuffer;
     private final int stopBuffer;
 
@@ -35,8 +35,7 @@ public class EventScanner extends AbstractEventScanner {
     public EventScanner(EventDefinition eventDefinition) {
         super(eventDefinition);
 
-        Filter filter = eventDefinition.getFilter();
-        this.conditional = new Conditional(filter);
+        this.conditional = eventDefinition.getCompiledConditional();
         this.startBuffer = eventDefinition.getStartBuffer();
         this.stopBuffer = eventDefinition.getStopBuffer();
     }
@@ -65,15 +64,14 @@ public class EventScanner extends AbstractEventScanner {
 
         List<Event> eventList = new ArrayList<>();
 
+        // Resolve the columns once up front, so the per-row work is only array reads and comparisons.
+        double[][] columns = conditional.bind(doubleSeries);
+        double[][] severityColumns = definition.getSeverityColumns(doubleSeries);
+
         for (int i = 30; i < utcSeries.size(); i++) {
             lineNumber = i;
 
-            conditional.reset();
-            for (Map.Entry<String, DoubleTimeSeries> entry : doubleSeries.entrySet()) {
-                conditional.set(entry.getKey(), entry.getValue().get(i));
-            }
-
-            boolean result = conditional.evaluate();
+            boolean result = conditional.evaluate(columns, i);
 
             if (!result) {
                 if (startTime != null) {
@@ -108,12 +106,12 @@ public class EventScanner extends AbstractEventScanner {
                 if (startTime == null) {
                     startTime = utcSeries.get(i);
                     startLine = lineNumber;
-                    severity = definition.getSeverity(doubleSeries, i);
+                    severity = definition.getSeverity(severityColumns, i);
                 }
 
                 endLine = lineNumber;
                 endTime = utcSeries.get(i);
-                severity = definition.getSeverity(doubleSeries, severity, i);
+                severity = definition.getSeverity(severityColumns, severity, i);
 
                 // increment the startCount, reset the endCount
                 startCount++;
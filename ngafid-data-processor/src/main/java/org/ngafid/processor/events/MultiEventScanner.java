@@ -0,0 +1,148 @@
+package org.ngafid.processor.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.ngafid.core.event.Event;
+import org.ngafid.core.event.EventDefinition;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.Parameters;
+import org.ngafid.core.flights.StringTimeSeries;
+import org.ngafid.core.util.filters.CompiledConditional;
+
+/**
+ * Scans a flight for several normal events at once. This produces exactly the same events as running an
+ * {@link EventScanner} for each of the definitions, but the flight is only walked once: the columns for every
+ * definition are bound up front, and the start / stop buffer state of every definition is advanced together.
+ * <p>
+ * Rows are processed in blocks of {@link #BLOCK_SIZE}; within a block each definition runs over all rows before the
+ * next definition starts, so the column data for the block stays in cache while the definitions that share columns
+ * read it.
+ */
+public class MultiEventScanner {
+    private static final int FIRST_ROW = 30;
+    private static final int BLOCK_SIZE = 1024;
+
+    private final EventDefinition[] definitions;
+    private final CompiledConditional[] conditionals;
+
+    public MultiEventScanner(List<EventDefinition> definitions) {
+        this.definitions = definitions.toArray(new EventDefinition[0]);
+        this.conditionals = new CompiledConditional[this.definitions.length];
+
+        for (int i = 0; i < this.definitions.length; i++) {
+            conditionals[i] = this.definitions[i].getCompiledConditional();
+        }
+    }
+
+    public List<EventDefinition> getDefinitions() {
+        return List.of(definitions);
+    }
+
+    /**
+     * Scans the flight for every definition.
+     *
+     * @param doubleSeries the double series of the flight, by name
+     * @param stringSeries the string series of the flight, by name
+     * @return the events found, grouped by definition in the order the definitions were supplied
+     */
+    public List<Event> scan(Map<String, DoubleTimeSeries> doubleSeries, Map<String, StringTimeSeries> stringSeries) {
+        StringTimeSeries utcSeries = stringSeries.get(Parameters.UTC_DATE_TIME);
+        int n = definitions.length;
+        int rows = utcSeries.size();
+
+        double[][][] columns = new double[n][][];
+        double[][][] severityColumns = new double[n][][];
+        for (int d = 0; d < n; d++) {
+            columns[d] = conditionals[d].bind(doubleSeries);
+            severityColumns[d] = definitions[d].getSeverityColumns(doubleSeries);
+        }
+
+        // The state of each definition's scan, see EventScanner::scan. A start line of -1 means no event is being
+        // tracked.
+        int[] startLine = new int[n];
+        int[] endLine = new int[n];
+        int[] startCount = new int[n];
+        int[] stopCount = new int[n];
+        double[] severity = new double[n];
+        Arrays.fill(startLine, -1);
+        Arrays.fill(endLine, -1);
+
+        @SuppressWarnings("unchecked")
+        List<Event>[] eventLists = new List[n];
+        for (int d = 0; d < n; d++) eventLists[d] = new ArrayList<>();
+
+        for (int blockStart = FIRST_ROW; blockStart < rows; blockStart += BLOCK_SIZE) {
+            int blockEnd = Math.min(rows, blockStart + BLOCK_SIZE);
+
+            for (int d = 0; d < n; d++) {
+                EventDefinition definition = definitions[d];
+                CompiledConditional conditional = conditionals[d];
+                double[][] definitionColumns = columns[d];
+                double[][] definitionSeverityColumns = severityColumns[d];
+                int startBuffer = definition.getStartBuffer();
+                int stopBuffer = definition.getStopBuffer();
+
+                for (int i = blockStart; i < blockEnd; i++) {
+                    if (!conditional.evaluate(definitionColumns, i)) {
+                        if (startLine[d] != -1) {
+                            // we're tracking an event, so increment the stopCount
+                            stopCount[d]++;
+
+                            if (stopCount[d] == stopBuffer) {
+                                if (startCount[d] >= startBuffer) {
+                                    // we had enough triggers to reach the start count so create the event
+                                    Event event = new Event(
+                                            utcSeries.get(startLine[d]),
+                                            utcSeries.get(endLine[d]),
+                                            startLine[d],
+                                            endLine[d],
+                                            definition.getId(),
+                                            severity[d]);
+                                    event.setEventDefinitionId(definition.getId());
+                                    eventLists[d].add(event);
+                                }
+
+                                startLine[d] = -1;
+                                endLine[d] = -1;
+                                startCount[d] = 0;
+                                stopCount[d] = 0;
+                            }
+                        }
+                    } else {
+                        // row triggered exceedence
+                        if (startLine[d] == -1) {
+                            startLine[d] = i;
+                            severity[d] = definition.getSeverity(definitionSeverityColumns, i);
+                        }
+
+                        endLine[d] = i;
+                        severity[d] = definition.getSeverity(definitionSeverityColumns, severity[d], i);
+
+                        startCount[d]++;
+                        stopCount[d] = 0;
+                    }
+                }
+            }
+        }
+
+        List<Event> events = new ArrayList<>();
+        for (int d = 0; d < n; d++) {
+            events.addAll(eventLists[d]);
+
+            // Events still open at the end of the flight are kept regardless of the start buffer, as in EventScanner.
+            if (startLine[d] != -1) {
+                events.add(new Event(
+                        utcSeries.get(startLine[d]),
+                        utcSeries.get(endLine[d]),
+                        startLine[d],
+                        endLine[d],
+                        definitions[d].getId(),
+                        severity[d]));
+            }
+        }
+
+        return events;
+    }
+}
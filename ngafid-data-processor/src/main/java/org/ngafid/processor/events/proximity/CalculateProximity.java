@@ -16,6 +16,14 @@ public class CalculateProximity {
     // can be excluded from the regular event calculation process
     private static final Logger LOG = Logger.getLogger(CalculateProximity.class.getName());
 
+    // Two aircraft closer than this many feet, both at least MIN_ALTITUDE_AGL above the ground, are in proximity
+    static final double MAX_DISTANCE_FT = 1000.0;
+    static final double MIN_ALTITUDE_AGL = 50.0;
+    static final double PROXIMITY_DEGREE_BUFFER = 0.003; // 1000 ft
+
+    // The first rows of each flight are ignored, since their time and position are often unreliable
+    static final int SKIP_SECONDS = 30;
+
     public static double calculateDistance(
             double flightLatitude,
             double flightLongitude,
@@ -61,6 +69,9 @@ public class CalculateProximity {
         newStart1 = startLine - startShift;
         newStart2 = otherStartLine - startShift;
 
+        double[] epochTime = flightInfo.epochTime.innerArray();
+        double[] otherEpochTime = otherInfo.epochTime.innerArray();
+
         int newEnd1 = Math.min((endLine + shift), flightInfo.epochTime.size());
         int newEnd2 = Math.min((otherEndLine + shift), otherInfo.epochTime.size());
         int endShift1 = newEnd1 - endLine;
@@ -87,22 +98,22 @@ public class CalculateProximity {
         int i = (startLine + 1);
         int j = (otherStartLine + 1);
         while (i < endLine && j < otherEndLine) {
-            if (flightInfo.epochTime.get(i) == 0) {
+            if (epochTime[i] == 0) {
                 i++;
                 continue;
             }
 
-            if (otherInfo.epochTime.get(j) == 0) {
+            if (otherEpochTime[j] == 0) {
                 j++;
                 continue;
             }
 
             // Ensure both iterators are for the same time
-            if (flightInfo.epochTime.get(i) < otherInfo.epochTime.get(j)) {
+            if (epochTime[i] < otherEpochTime[j]) {
                 i++;
                 continue;
             }
-            if (otherInfo.epochTime.get(j) < flightInfo.epochTime.get(i)) {
+            if (otherEpochTime[j] < epochTime[i]) {
                 j++;
                 continue;
             }
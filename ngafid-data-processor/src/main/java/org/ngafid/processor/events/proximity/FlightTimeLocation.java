@@ -102,6 +102,36 @@ public final class FlightTimeLocation {
         this.valid = true;
     }
 
+    // Constructor for testing only. Omits database connection, uses the supplied series instead
+    public FlightTimeLocation(
+            int flightId,
+            double[] epochTime,
+            double[] latitude,
+            double[] longitude,
+            double[] altitudeMSL,
+            double[] altitudeAGL) {
+        this(minOf(latitude), maxOf(latitude), minOf(longitude), maxOf(longitude));
+        this.flightId = flightId;
+        this.epochTime = new DoubleTimeSeries(Parameters.UNIX_TIME_SECONDS, Parameters.Unit.SECONDS, epochTime);
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.altitudeMSL = altitudeMSL;
+        this.altitudeAGL = altitudeAGL;
+        this.hasSeriesData = true;
+    }
+
+    private static double minOf(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        for (double value : values) if (value < min) min = value;
+        return min;
+    }
+
+    private static double maxOf(double[] values) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : values) if (value > max) max = value;
+        return max;
+    }
+
     /**
      * Get the time series data for altitude, latitude, longitude, and indicated airspeed
      *
@@ -11,7 +11,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
+import org.ngafid.core.Config;
 import org.ngafid.core.Database;
 import org.ngafid.core.event.Event;
 import org.ngafid.core.event.EventDefinition;
@@ -30,6 +32,13 @@ import org.ngafid.processor.events.AbstractEventScanner;
  */
 public class ProximityEventScanner extends AbstractEventScanner {
     private static Logger LOG = Logger.getLogger(ProximityEventScanner.class.getName());
+
+    /**
+     * Trajectories of the flights scanned by this process, shared between scanners so each flight's series are read
+     * from the database once.
+     */
+    private static final TrajectoryIndex TRAJECTORIES = new TrajectoryIndex(Config.PROXIMITY_INDEX_MAX_SAMPLES);
+
     private final Map<Event, List<ProximityPointData>> mainFlightPointsMap = new HashMap<>();
     private final Map<Event, List<ProximityPointData>> otherFlightPointsMap = new HashMap<>();
     private final Flight flight;
@@ -71,9 +80,8 @@ public class ProximityEventScanner extends AbstractEventScanner {
 
         final int startBuffer = 1;
         final int stopBuffer = 30;
-        final double degreeBuffer = 0.003; // 1000 ft
-
-        if (!flightInfo.hasRegionOverlap(otherFlightInfo, degreeBuffer) || !otherFlightInfo.getSeriesData(connection)) {
+        if (!flightInfo.hasRegionOverlap(otherFlightInfo, PROXIMITY_DEGREE_BUFFER)
+                || (!otherFlightInfo.hasSeriesData() && !otherFlightInfo.getSeriesData(connection))) {
             return List.of();
         }
 
@@ -82,28 +90,32 @@ public class ProximityEventScanner extends AbstractEventScanner {
             return List.of();
         }
 
-        final int skipSeconds = 30;
-        int i = skipSeconds;
-        int j = skipSeconds;
+        int i = SKIP_SECONDS;
+        int j = SKIP_SECONDS;
 
         List<ProximityPointData> currentPointsMain = null;
         List<ProximityPointData> currentPointsOther = null;
 
-        while (i < flightInfo.epochTime.size() && j < otherFlightInfo.epochTime.size()) {
-            if (flightInfo.epochTime.get(i) == 0) {
+        double[] epochTime = flightInfo.epochTime.innerArray();
+        double[] otherEpochTime = otherFlightInfo.epochTime.innerArray();
+        int size = flightInfo.epochTime.size();
+        int otherSize = otherFlightInfo.epochTime.size();
+
+        while (i < size && j < otherSize) {
+            if (epochTime[i] == 0) {
                 i++;
                 continue;
             }
-            if (otherFlightInfo.epochTime.get(j) == 0) {
+            if (otherEpochTime[j] == 0) {
                 j++;
                 continue;
             }
 
-            if (flightInfo.epochTime.get(i) < otherFlightInfo.epochTime.get(j)) {
+            if (epochTime[i] < otherEpochTime[j]) {
                 i++;
                 continue;
             }
-            if (otherFlightInfo.epochTime.get(j) < flightInfo.epochTime.get(i)) {
+            if (otherEpochTime[j] < epochTime[i]) {
                 j++;
                 continue;
             }
@@ -123,12 +135,9 @@ public class ProximityEventScanner extends AbstractEventScanner {
             double verticalDistanceFt =
                     calculateVerticalDistance(flightInfo.altitudeMSL[i], otherFlightInfo.altitudeMSL[j]);
 
-            final double maxDistanceFt = 1000.0;
-            final double minAltitudeAgl = 50.0;
-
-            boolean distanceCheck = (distanceFt < maxDistanceFt);
-            boolean altitudeCheck =
-                    (flightInfo.altitudeAGL[i] >= minAltitudeAgl) && (otherFlightInfo.altitudeAGL[j] >= minAltitudeAgl);
+            boolean distanceCheck = (distanceFt < MAX_DISTANCE_FT);
+            boolean altitudeCheck = (flightInfo.altitudeAGL[i] >= MIN_ALTITUDE_AGL)
+                    && (otherFlightInfo.altitudeAGL[j] >= MIN_ALTITUDE_AGL);
 
             if (distanceCheck && altitudeCheck) {
                 if (startTime == null) {
@@ -367,7 +376,25 @@ public class ProximityEventScanner extends AbstractEventScanner {
                 connection,
                 "(id != " + flightId + " AND " + "start_time <= '"
                         + flightInfo.endDateTime + "' AND end_time >= " + "'"
-                        + flightInfo.startDateTime + "')");
+                        + flightInfo.startDateTime + "')",
+                Flight.Detail.METADATA);
+
+        // Read the series of any overlapping flight this process has not seen yet (e.g. flights scanned before a
+        // restart) into the index, so every candidate can be checked against the index.
+        for (Flight otherFlight : potentialFlights) {
+            if (otherFlight.getId() == flightId || TRAJECTORIES.contains(otherFlight.getId())) continue;
+
+            FlightTimeLocation otherFlightInfo = new FlightTimeLocation(connection, otherFlight);
+            if (otherFlightInfo.isValid()
+                    && flightInfo.hasRegionOverlap(otherFlightInfo, PROXIMITY_DEGREE_BUFFER)
+                    && otherFlightInfo.getSeriesData(connection)) {
+                TRAJECTORIES.add(otherFlightInfo);
+            }
+        }
+
+        Set<Integer> nearbyFlights = TRAJECTORIES.findNearby(flightInfo);
+        LOG.info(nearbyFlights.size() + " of " + potentialFlights.size()
+                + " flights overlapping in time were near flight " + flightId);
 
         List<Event> allEvents = new ArrayList<>();
 
@@ -378,9 +405,15 @@ public class ProximityEventScanner extends AbstractEventScanner {
                 continue;
             }
 
-            FlightTimeLocation otherFlightInfo = new FlightTimeLocation(connection, otherFlight);
+            if (!nearbyFlights.contains(otherFlight.getId())) continue;
+
+            FlightTimeLocation otherFlightInfo = TRAJECTORIES.get(otherFlight.getId());
+            if (otherFlightInfo == null) continue;
+
             allEvents.addAll(scanFlightPair(connection, flightParam, flightInfo, otherFlight, otherFlightInfo));
         }
+
+        TRAJECTORIES.add(flightInfo);
         return allEvents;
     }
 
@@ -0,0 +1,177 @@
+package org.ngafid.processor.events.proximity;
+
+import static org.ngafid.processor.events.proximity.CalculateProximity.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory index of the trajectories of recently scanned flights, used by the {@link ProximityEventScanner} so
+ * that a flight is only compared against flights that were in the same place at the same time, and so that the series
+ * of a flight are read from the database once rather than once for every flight it is compared against.
+ * <p>
+ * Every row of a trajectory that could be part of a proximity event is placed in a bucket keyed by the minute it was
+ * recorded in and the {@link #CELL_DEGREES} latitude / longitude cell it was recorded in. Two rows can only be part of
+ * a proximity event if they were recorded at the same second within {@link CalculateProximity#MAX_DISTANCE_FT} of each
+ * other, so they share a minute and are in the same or adjacent cells (anywhere but within a few degrees of the
+ * poles, where a degree of longitude is shorter than the distance threshold).
+ * <p>
+ * Trajectories are evicted least recently used first once the index holds more than the configured number of rows.
+ */
+public final class TrajectoryIndex {
+    static final int TIME_BUCKET_SECONDS = 60;
+    static final double CELL_DEGREES = 0.05;
+
+    private static final int LATITUDE_CELLS = (int) Math.ceil(180 / CELL_DEGREES) + 1;
+    private static final int LONGITUDE_CELLS = (int) Math.ceil(360 / CELL_DEGREES) + 1;
+    private static final int LONGITUDE_BITS = 32 - Integer.numberOfLeadingZeros(LONGITUDE_CELLS);
+    private static final int CELL_BITS = LONGITUDE_BITS + 32 - Integer.numberOfLeadingZeros(LATITUDE_CELLS);
+
+    private record Entry(FlightTimeLocation trajectory, long[] keys, int rows) {}
+
+    private final long maxRows;
+    private long rows = 0;
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Integer>> buckets = new HashMap<>();
+
+    /**
+     * @param maxRows the number of trajectory rows to hold before evicting trajectories
+     */
+    public TrajectoryIndex(long maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Adds (or replaces) the trajectory of a flight. The series data of the flight must have been read.
+     *
+     * @param trajectory the flight's time and location data
+     */
+    public synchronized void add(FlightTimeLocation trajectory) {
+        remove(trajectory.flightId);
+
+        long[] keys = keysOf(trajectory);
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> new HashSet<>()).add(trajectory.flightId);
+        }
+
+        int size = trajectory.epochTime.size();
+        entries.put(trajectory.flightId, new Entry(trajectory, keys, size));
+        rows += size;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (rows > maxRows && entries.size() > 1) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            unlink(entry);
+        }
+    }
+
+    /**
+     * @param flightId the flight id
+     * @return the indexed trajectory of the flight, or null if it is not in the index
+     */
+    public synchronized FlightTimeLocation get(int flightId) {
+        Entry entry = entries.get(flightId);
+        return entry == null ? null : entry.trajectory();
+    }
+
+    public synchronized boolean contains(int flightId) {
+        return entries.containsKey(flightId);
+    }
+
+    public synchronized void remove(int flightId) {
+        Entry entry = entries.remove(flightId);
+        if (entry != null) unlink(entry);
+    }
+
+    /**
+     * Finds the indexed flights that were close enough to the supplied trajectory, at the same time, that they may
+     * have been in proximity of it. The trajectory itself need not be in the index, and is never returned.
+     *
+     * @param trajectory the flight's time and location data
+     * @return the ids of the flights that may have been in proximity of it
+     */
+    public synchronized Set<Integer> findNearby(FlightTimeLocation trajectory) {
+        Set<Integer> nearby = new HashSet<>();
+        for (long key : keysOf(trajectory)) {
+            long timeBucket = key >>> CELL_BITS;
+            int latitudeCell = (int) (key >>> LONGITUDE_BITS) & ((1 << (CELL_BITS - LONGITUDE_BITS)) - 1);
+            int longitudeCell = (int) key & ((1 << LONGITUDE_BITS) - 1);
+
+            for (int dLatitude = -1; dLatitude <= 1; dLatitude++) {
+                for (int dLongitude = -1; dLongitude <= 1; dLongitude++) {
+                    Set<Integer> flights =
+                            buckets.get(key(timeBucket, latitudeCell + dLatitude, longitudeCell + dLongitude));
+                    if (flights != null) nearby.addAll(flights);
+                }
+            }
+        }
+
+        nearby.remove(trajectory.flightId);
+        return nearby;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getRows() {
+        return rows;
+    }
+
+    private void unlink(Entry entry) {
+        int flightId = entry.trajectory().flightId;
+        for (long key : entry.keys()) {
+            Set<Integer> flights = buckets.get(key);
+            if (flights != null && flights.remove(flightId) && flights.isEmpty()) buckets.remove(key);
+        }
+        rows -= entry.rows();
+    }
+
+    private static long key(long timeBucket, int latitudeCell, int longitudeCell) {
+        return (timeBucket << CELL_BITS) | ((long) latitudeCell << LONGITUDE_BITS) | longitudeCell;
+    }
+
+    /**
+     * Computes the distinct bucket keys of the rows of a trajectory that could be part of a proximity event, i.e. the
+     * rows the {@link ProximityEventScanner} does not skip that have a time, a position, and an altitude above
+     * {@link CalculateProximity#MIN_ALTITUDE_AGL}.
+     */
+    private static long[] keysOf(FlightTimeLocation trajectory) {
+        double[] epochTime = trajectory.epochTime.innerArray();
+        int size = Math.min(trajectory.epochTime.size(), trajectory.altitudeAGL.length);
+        size = Math.min(size, Math.min(trajectory.latitude.length, trajectory.longitude.length));
+
+        long[] keys = new long[Math.max(0, size - SKIP_SECONDS)];
+        int count = 0;
+        for (int i = SKIP_SECONDS; i < size; i++) {
+            double latitude = trajectory.latitude[i];
+            double longitude = trajectory.longitude[i];
+            // Negated comparisons so NaN values are skipped as well
+            if (!(epochTime[i] > 0) || !(trajectory.altitudeAGL[i] >= MIN_ALTITUDE_AGL)) continue;
+            if (!(Math.abs(latitude) <= 90) || !(Math.abs(longitude) <= 180)) continue;
+
+            // Cells are offset by one so that the neighbours of every cell have non-negative coordinates
+            long key = key(
+                    (long) Math.floor(epochTime[i] / TIME_BUCKET_SECONDS),
+                    (int) ((latitude + 90) / CELL_DEGREES) + 1,
+                    (int) ((longitude + 180) / CELL_DEGREES) + 1);
+            // Consecutive rows are usually in the same bucket, so only keep the first of each run
+            if (count == 0 || keys[count - 1] != key) keys[count++] = key;
+        }
+
+        long[] distinct = Arrays.copyOf(keys, count);
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (unique == 0 || distinct[unique - 1] != distinct[i]) distinct[unique++] = distinct[i];
+        }
+        return Arrays.copyOf(distinct, unique);
+    }
+}
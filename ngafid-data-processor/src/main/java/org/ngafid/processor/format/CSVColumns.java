@@ -0,0 +1,208 @@
+package org.ngafid.processor.format;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.StringTimeSeries;
+
+/**
+ * Splits the records of a CSV flight file into columns as they are read, without holding on to the rows.
+ * <p>
+ * Every column starts out as a double column and is parsed straight into a growable {@code double[]}. A column that
+ * fails to parse on the first row is kept as strings from then on. A column that only fails to parse further down
+ * stops being buffered, and its strings are collected by {@link #reread} from a second pass over the file; this is
+ * rare in practice, so most files are only parsed once.
+ * <p>
+ * The resulting column types match the original row based parsing: a column is a double column if its middle value and
+ * every other value parse as a number, where values that are empty or only contain spaces become NaN.
+ */
+final class CSVColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Blank values are stored as a NaN with this payload until the columns are built, so it can be told whether the
+     * middle value of a column was blank (making it a string column) or an actual "NaN".
+     */
+    private static final long BLANK_BITS = 0x7ff80000000b1a4bL;
+
+    private static final double BLANK = Double.longBitsToDouble(BLANK_BITS);
+
+    private final int width;
+    private final double[][] values;
+    private final List<ArrayList<String>> strings;
+    private final boolean[] needsReread;
+
+    private int capacity = INITIAL_CAPACITY;
+    private int validRows = 0;
+    private int records = 0;
+
+    CSVColumns(int width) {
+        this.width = width;
+        this.values = new double[width][];
+        this.strings = new ArrayList<>(width);
+        this.needsReread = new boolean[width];
+
+        for (int i = 0; i < width; i++) {
+            values[i] = new double[capacity];
+            strings.add(null);
+        }
+    }
+
+    /**
+     * Reads every record. Rows are added to the columns up to the first record whose number of fields does not match
+     * the number of columns; the remaining records are only counted.
+     *
+     * @param reader the records of the file, positioned after the header
+     * @throws IOException if the records cannot be read
+     */
+    void read(CSVRecordReader reader) throws IOException {
+        boolean malformed = false;
+
+        while (reader.next()) {
+            records++;
+
+            if (malformed) continue;
+            if (reader.fieldCount() != width) {
+                malformed = true;
+                continue;
+            }
+
+            addRow(reader);
+        }
+    }
+
+    private void addRow(CSVRecordReader reader) {
+        int row = validRows;
+        if (row == capacity) {
+            capacity += capacity >> 1;
+            for (int i = 0; i < width; i++) {
+                if (values[i] != null) values[i] = Arrays.copyOf(values[i], capacity);
+            }
+        }
+
+        for (int i = 0; i < width; i++) {
+            double[] column = values[i];
+            if (column != null) {
+                if (reader.isBlank(i)) {
+                    column[row] = BLANK;
+                    continue;
+                }
+
+                try {
+                    column[row] = reader.parseDouble(i);
+                    continue;
+                } catch (NumberFormatException e) {
+                    values[i] = null;
+                    if (row > 0) {
+                        needsReread[i] = true;
+                        continue;
+                    }
+                    strings.set(i, new ArrayList<>(capacity));
+                }
+            }
+
+            ArrayList<String> stringColumn = strings.get(i);
+            if (stringColumn != null) stringColumn.add(get(reader, i, stringColumn));
+        }
+
+        validRows++;
+    }
+
+    /**
+     * Consecutive values of a string column are very often the same (dates, waypoints, ...), so the previous string is
+     * reused rather than allocating an identical one.
+     */
+    private static String get(CSVRecordReader reader, int field, ArrayList<String> column) {
+        if (!column.isEmpty()) {
+            String previous = column.get(column.size() - 1);
+            if (reader.fieldEquals(field, previous)) return previous;
+        }
+        return reader.get(field);
+    }
+
+    /**
+     * @return the number of rows added to the columns
+     */
+    int getValidRows() {
+        return validRows;
+    }
+
+    /**
+     * @return the number of records read, including any after the first malformed one
+     */
+    int getRecords() {
+        return records;
+    }
+
+    /**
+     * Marks double columns with a blank middle value as string columns, as their type is decided by the middle value.
+     *
+     * @return true if any column needs its strings read with {@link #reread}
+     */
+    boolean needsReread() {
+        boolean any = false;
+        for (int i = 0; i < width; i++) {
+            if (values[i] != null && Double.doubleToRawLongBits(values[i][validRows / 2]) == BLANK_BITS) {
+                values[i] = null;
+                needsReread[i] = true;
+            }
+            any |= needsReread[i];
+        }
+        return any;
+    }
+
+    /**
+     * Collects the strings of the columns that stopped being parsed as doubles.
+     *
+     * @param reader the records of the file, positioned after the header
+     * @throws IOException if the records cannot be read
+     */
+    void reread(CSVRecordReader reader) throws IOException {
+        for (int i = 0; i < width; i++) {
+            if (needsReread[i]) strings.set(i, new ArrayList<>(validRows));
+        }
+
+        for (int row = 0; row < validRows && reader.next(); row++) {
+            for (int i = 0; i < width; i++) {
+                if (needsReread[i]) {
+                    ArrayList<String> column = strings.get(i);
+                    column.add(get(reader, i, column));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a time series for every column and places it in the matching map.
+     *
+     * @param headers          the column names
+     * @param dataTypes        the column units
+     * @param doubleTimeSeries map to place the double columns into
+     * @param stringTimeSeries map to place the string columns into
+     */
+    void build(
+            List<String> headers,
+            List<String> dataTypes,
+            Map<String, DoubleTimeSeries> doubleTimeSeries,
+            Map<String, StringTimeSeries> stringTimeSeries) {
+        for (int i = 0; i < width; i++) {
+            String name = headers.get(i);
+            String dataType = dataTypes.get(i);
+
+            double[] column = values[i];
+            if (column != null) {
+                for (int row = 0; row < validRows; row++) {
+                    if (Double.doubleToRawLongBits(column[row]) == BLANK_BITS) column[row] = Double.NaN;
+                }
+                doubleTimeSeries.put(name, new DoubleTimeSeries(name, dataType, column, validRows));
+            } else {
+                stringTimeSeries.put(name, new StringTimeSeries(name, dataType, strings.get(i)));
+            }
+            values[i] = null;
+            strings.set(i, null);
+        }
+    }
+}
@@ -35,6 +35,11 @@ public class CSVFileProcessor extends FlightFileProcessor {
     protected List<String> dataTypes;
     protected final FlightMeta meta = new FlightMeta();
 
+    /**
+     * The number of lines before the first row of flight data, set by {@link #readFlightData}.
+     */
+    private int headerLines;
+
     private static final Pattern G5_PART_NUMBER_REGEX = Pattern.compile("006-B2304-\\d\\d");
 
     /**
@@ -187,9 +192,7 @@ public class CSVFileProcessor extends FlightFileProcessor {
         Map<String, DoubleTimeSeries> doubleTimeSeries = new HashMap<>();
         Map<String, StringTimeSeries> stringTimeSeries = new HashMap<>();
 
-        List<String[]> rows = extractFlightData();
-
-        readTimeSeries(rows, doubleTimeSeries, stringTimeSeries);
+        readFlightData(doubleTimeSeries, stringTimeSeries);
 
         return Stream.of(makeFlightBuilder(meta, doubleTimeSeries, stringTimeSeries));
     }
@@ -202,7 +205,106 @@ public class CSVFileProcessor extends FlightFileProcessor {
     }
 
     /**
-     * Reads metadata, headers, and the flight data.
+     * Reads metadata, headers, and the flight data, and places each column of the flight data into the supplied time
+     * series maps. As in {@link #readTimeSeries}, rows are read up to the first malformed row, and a column is a double
+     * column if its middle value and every other value is a number.
+     * <p>
+     * The records are streamed straight into primitive column buffers (see {@link CSVColumns}) rather than being
+     * collected into rows and then columns of strings first, so the only full copy of the file held in memory is the
+     * byte array backing the stream.
+     *
+     * @param doubleTimeSeries map to place the double columns into
+     * @param stringTimeSeries map to place the string columns into
+     * @return the number of records in the file, including any after the first malformed row
+     * @throws FlightProcessingException if the file cannot be read or there are not enough valid rows
+     */
+    int readFlightData(Map<String, DoubleTimeSeries> doubleTimeSeries, Map<String, StringTimeSeries> stringTimeSeries)
+            throws FlightProcessingException {
+        CSVColumns columns;
+        try {
+            LineCountingReader reader =
+                    new LineCountingReader(new InputStreamReader(super.stream, StandardCharsets.UTF_8));
+            processMetaData(reader);
+            dataTypes = processDataTypes(reader);
+            headers = processHeaders(reader);
+            skipGarminExtraHeaderRowIfPresent(reader);
+            headerLines = reader.getLineCount();
+
+            columns = new CSVColumns(headers.size());
+            columns.read(new CSVRecordReader(reader));
+        } catch (IOException | FatalFlightFileException e) {
+            e.printStackTrace();
+            throw new FlightProcessingException(e);
+        }
+
+        if (columns.getValidRows() <= Math.max(columns.getRecords() - 2, 0)) {
+            throw new FlightProcessingException(
+                    new FatalFlightFileException("Flight has 0 rows, or consecutive malformed rows -- "
+                            + "there is a serious problem with the file format."));
+        }
+
+        try {
+            if (columns.needsReread()) columns.reread(openRecords());
+        } catch (IOException e) {
+            throw new FlightProcessingException(e);
+        }
+
+        columns.build(headers, dataTypes, doubleTimeSeries, stringTimeSeries);
+        return columns.getRecords();
+    }
+
+    /**
+     * Opens the records of the file again, after {@link #readFlightData} has read the header.
+     *
+     * @return a record reader positioned at the first row of flight data
+     * @throws IOException if the header lines cannot be skipped
+     */
+    CSVRecordReader openRecords() throws IOException {
+        stream.reset();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        for (int i = 0; i < headerLines; i++) reader.readLine();
+        return new CSVRecordReader(reader);
+    }
+
+    /**
+     * Counts the lines read through {@link #readLine}, so the header of a file can be skipped when it is read again.
+     * The count is restored along with the position on {@link #reset}.
+     */
+    private static final class LineCountingReader extends BufferedReader {
+        private int lineCount = 0;
+        private int markedLineCount = 0;
+
+        LineCountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            String line = super.readLine();
+            if (line != null) lineCount++;
+            return line;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) throws IOException {
+            super.mark(readAheadLimit);
+            markedLineCount = lineCount;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            lineCount = markedLineCount;
+        }
+
+        int getLineCount() {
+            return lineCount;
+        }
+    }
+
+    /**
+     * Reads metadata, headers, and the flight data into a list of rows. Only used by processors that need the rows
+     * themselves; see {@link #readFlightData}.
      *
      * @return list of rows
      * @throws FlightProcessingException
@@ -0,0 +1,194 @@
+package org.ngafid.processor.format;
+
+import ch.randelshofer.fastdoubleparser.JavaDoubleParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * A streaming CSV reader that exposes one record at a time without creating a {@code String} per field. The fields of
+ * the current record are kept as ranges of a reusable character buffer, so numeric fields can be parsed directly from
+ * the buffer and only the fields that are actually kept as strings are copied.
+ * <p>
+ * Quoting follows the opencsv defaults used elsewhere in the processor: fields may be quoted with {@code "}, a doubled
+ * quote inside a quoted field is a literal quote, quoted fields may span lines, and leading whitespace before an
+ * opening quote is dropped. Records end at {@code \n}, {@code \r\n} or {@code \r}, and a blank line is a record with
+ * a single empty field.
+ */
+final class CSVRecordReader {
+    private static final int STATE_FIELD = 0;
+    private static final int STATE_QUOTED = 1;
+    private static final int STATE_QUOTE_IN_QUOTED = 2;
+
+    private final Reader reader;
+    private final char[] input = new char[64 * 1024];
+    private int inputPosition = 0;
+    private int inputLimit = 0;
+
+    /**
+     * Whether the previous record ended with a {@code \r}, in which case a directly following {@code \n} is skipped.
+     */
+    private boolean skipLineFeed = false;
+
+    private char[] chars = new char[1024];
+    private int length = 0;
+
+    private int[] fieldStarts = new int[64];
+    private int[] fieldEnds = new int[64];
+    private int fieldCount = 0;
+
+    CSVRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return false if the end of the input was reached before any characters of another record
+     * @throws IOException if the underlying reader fails
+     */
+    boolean next() throws IOException {
+        length = 0;
+        fieldCount = 0;
+
+        int state = STATE_FIELD;
+        int fieldStart = 0;
+        boolean readAny = false;
+
+        while (true) {
+            if (inputPosition == inputLimit) {
+                inputLimit = reader.read(input, 0, input.length);
+                inputPosition = 0;
+                if (inputLimit <= 0) {
+                    inputLimit = 0;
+                    if (!readAny) return false;
+                    endField(fieldStart);
+                    return true;
+                }
+            }
+
+            char c = input[inputPosition++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') continue;
+            }
+            readAny = true;
+
+            if (state == STATE_QUOTED) {
+                if (c == '"') {
+                    state = STATE_QUOTE_IN_QUOTED;
+                } else {
+                    append(c);
+                }
+                continue;
+            }
+
+            if (state == STATE_QUOTE_IN_QUOTED) {
+                if (c == '"') {
+                    // A doubled quote inside a quoted field
+                    append(c);
+                    state = STATE_QUOTED;
+                    continue;
+                }
+                state = STATE_FIELD;
+            }
+
+            switch (c) {
+                case ',' -> {
+                    endField(fieldStart);
+                    fieldStart = length;
+                }
+                case '\n', '\r' -> {
+                    skipLineFeed = c == '\r';
+                    endField(fieldStart);
+                    return true;
+                }
+                case '"' -> {
+                    if (isWhitespace(fieldStart, length)) length = fieldStart;
+                    state = STATE_QUOTED;
+                }
+                default -> append(c);
+            }
+        }
+    }
+
+    private void append(char c) {
+        if (length == chars.length) chars = Arrays.copyOf(chars, chars.length * 2);
+        chars[length++] = c;
+    }
+
+    private void endField(int fieldStart) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = length;
+        fieldCount++;
+    }
+
+    private boolean isWhitespace(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(chars[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of fields in the current record
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param field the index of a field in the current record
+     * @return the field as a string
+     */
+    String get(int field) {
+        return new String(chars, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    /**
+     * @param field the index of a field in the current record
+     * @param value the string to compare against, may be null
+     * @return true if the field has exactly the same characters as the value
+     */
+    boolean fieldEquals(int field, String value) {
+        int start = fieldStarts[field];
+        int fieldLength = fieldEnds[field] - start;
+        if (value == null || value.length() != fieldLength) return false;
+
+        for (int i = 0; i < fieldLength; i++) {
+            if (chars[start + i] != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param field the index of a field in the current record
+     * @return true if the field is empty or only contains spaces
+     */
+    boolean isBlank(int field) {
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            if (chars[i] != ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a field as a double, the same way {@code JavaDoubleParser.parseDouble} would parse the field as a string.
+     * Callers are expected to check {@link #isBlank} first.
+     *
+     * @param field the index of a field in the current record
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a number
+     */
+    double parseDouble(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        while (start < end && chars[start] == ' ') start++;
+
+        return JavaDoubleParser.parseDouble(chars, start, end - start);
+    }
+}
@@ -142,9 +142,8 @@ public class FlightBuilder {
     public FlightBuilder build(Connection connection) throws FlightProcessingException {
         DependencyGraph dg = new DependencyGraph(this, gatherSteps(connection));
 
-        // We can process individual steps in parallel as well, but it might not be worth the overhead.
-        // dg.computeParallel();
-        dg.computeSequential();
+        // Individual steps are only processed in parallel for long flights, it is not worth the overhead otherwise.
+        dg.computeAdaptive();
 
         flight = new Flight(meta, doubleTimeSeries, stringTimeSeries, itinerary, exceptions, events);
 
@@ -344,4 +343,23 @@ public class FlightBuilder {
     public Map<String, StringTimeSeries> getStringTimeSeriesMap() {
         return stringTimeSeries;
     }
+
+    /**
+     * Estimates how much memory the series of this flight occupy, see {@link org.ngafid.processor.MemoryBudget}.
+     * Double series are counted exactly; string values are counted as a reference plus a small, often shared string.
+     *
+     * @return the estimated size of the series in bytes
+     */
+    public long estimateSeriesBytes() {
+        long bytes = 0;
+        for (DoubleTimeSeries series : doubleTimeSeries.values()) {
+            bytes += (long) series.innerArray().length * Double.BYTES;
+        }
+        for (StringTimeSeries series : stringTimeSeries.values()) {
+            bytes += (long) series.size() * STRING_VALUE_BYTES;
+        }
+        return bytes;
+    }
+
+    private static final int STRING_VALUE_BYTES = 32;
 }
@@ -16,6 +16,8 @@ import org.ngafid.core.flights.FatalFlightFileException;
 import org.ngafid.core.flights.Flight;
 import org.ngafid.core.flights.FlightProcessingException;
 import org.ngafid.core.flights.TurnToFinal;
+import org.ngafid.core.metrics.IngestMetrics;
+import org.ngafid.core.metrics.IngestSpan;
 import org.ngafid.processor.Pipeline;
 
 /**
@@ -71,6 +73,16 @@ public abstract class FlightFileProcessor implements Callable<Void> {
 
     @Override
     public Void call() {
+        IngestSpan span = IngestMetrics.start("file", "", filename);
+        try {
+            process();
+        } finally {
+            span.end();
+        }
+        return null;
+    }
+
+    private void process() {
         List<FlightBuilder> builders = new ArrayList<>();
         try (Connection connection = Database.getConnection()) {
             pipeline.parse(this)
@@ -81,22 +93,37 @@ public abstract class FlightFileProcessor implements Callable<Void> {
                     .forEach(builders::add);
 
             // Null out stream now that we've parsed all of the data in.
-            stream = null;
+            releaseStream();
 
-            if (builders.isEmpty()) return null;
+            if (builders.isEmpty()) return;
         } catch (SQLException e) {
             pipeline.fail(filename, e);
-            return null;
+            return;
         } catch (Exception e) {
             pipeline.fail(filename, e);
-            return null;
+            return;
         }
 
-        long nanostart = System.nanoTime();
         try (Connection connection = Database.getConnection()) {
+            insert(connection, builders);
+        } catch (SQLException e) {
+            pipeline.fail(filename, e);
+        }
+    }
+
+    /**
+     * Inserts the flights built from this file into the database, along with their turn to finals and events.
+     *
+     * @param connection the database connection
+     * @param builders   the flight builders of this file that were built successfully
+     */
+    public void insert(Connection connection, List<FlightBuilder> builders) {
+        IngestSpan span = IngestMetrics.start("insert", "", filename).rows(builders.size());
+        long nanostart = System.nanoTime();
+        try {
             List<Flight> flightsParam =
                     builders.stream().map(FlightBuilder::getFlight).toList();
-            Flight.batchUpdateDatabase(connection, flightsParam);
+            Flight.batchUpdateDatabase(connection, flightsParam, pipeline.getKeyCache());
             for (FlightBuilder builder : builders) {
                 pipeline.finalize(builder);
                 TurnToFinal.cacheTurnToFinal(connection, builder.getFlight().getId(), builder.getTurnToFinals());
@@ -104,14 +131,22 @@ public abstract class FlightFileProcessor implements Callable<Void> {
             }
         } catch (SQLException | IOException e) {
             pipeline.fail(filename, e);
+        } finally {
+            span.end();
         }
         long nanoend = System.nanoTime();
 
         final double nsToS = (1.0 / 1_000_000_000f);
         double t = (nanoend - nanostart) * nsToS;
         LOG.info(() -> "Inserting took " + t + " s");
+    }
 
-        return null;
+    /**
+     * Drops the reference to the file data once it has been parsed, so it can be garbage collected while the flights
+     * are still being built and inserted.
+     */
+    public void releaseStream() {
+        stream = null;
     }
 
     private Stream<Flight> flights = null;
@@ -64,25 +64,34 @@ public final class G5CSVFileProcessor extends CSVFileProcessor {
     }
 
     /**
-     * Calculates md5Hash from a given flight (flight entries)
+     * Calculates the md5 hash of each flight segment from the cells of its rows, reading the records of the file again
+     * rather than keeping every row in memory.
      *
-     * @param flight
-     * @return md5Hash
-     * @throws FlightProcessingException
+     * @param segments the first and last (exclusive) record of each segment, in order
+     * @return the md5 hash of each segment
+     * @throws FlightProcessingException if the records cannot be read
      */
-    private String calculateMd5Hash(List<String[]> flight) throws FlightProcessingException {
+    private List<String> calculateMd5Hashes(List<int[]> segments) throws FlightProcessingException {
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            StringBuilder flightDataBuilder = new StringBuilder();
-            // Append each cell from the flight data to the builder
-            for (String[] flightRow : flight) {
-                for (String cell : flightRow) {
-                    flightDataBuilder.append(cell);
+            CSVRecordReader records = openRecords();
+            List<String> hashes = new ArrayList<>(segments.size());
+
+            int record = 0;
+            for (int[] segment : segments) {
+                MessageDigest md = MessageDigest.getInstance("MD5");
+                // Append each cell from the flight data to the digest
+                for (; record < segment[1] && records.next(); record++) {
+                    if (record < segment[0]) continue;
+                    for (int i = 0; i < records.fieldCount(); i++) {
+                        md.update(records.get(i).getBytes());
+                    }
                 }
+
+                hashes.add(MD5.toHexHash(md));
             }
 
-            return MD5.computeHexHash(flightDataBuilder.toString());
-        } catch (NoSuchAlgorithmException e) {
+            return hashes;
+        } catch (IOException | NoSuchAlgorithmException e) {
             throw new FlightProcessingException(e);
         }
     }
@@ -92,9 +101,7 @@ public final class G5CSVFileProcessor extends CSVFileProcessor {
         Map<String, DoubleTimeSeries> doubleTimeSeries = new HashMap<>();
         Map<String, StringTimeSeries> stringTimeSeries = new HashMap<>();
 
-        List<String[]> rows = extractFlightData();
-
-        readTimeSeries(rows, doubleTimeSeries, stringTimeSeries);
+        int records = readFlightData(doubleTimeSeries, stringTimeSeries);
 
         try {
             // G3x does have Local date time,
@@ -103,7 +110,7 @@ public final class G5CSVFileProcessor extends CSVFileProcessor {
                 calculateUTCDateTime(doubleTimeSeries, stringTimeSeries);
             }
             List<Integer> splitIndices = splitCSVIntoFlightIndices(stringTimeSeries, SPLIT_TIME_IN_MINUTES);
-            return createFlightBuildersFromSegments(splitIndices, rows, doubleTimeSeries, stringTimeSeries).stream();
+            return createFlightBuildersFromSegments(splitIndices, records, doubleTimeSeries, stringTimeSeries).stream();
         } catch (MalformedFlightFileException
                 | TimeUtils.UnrecognizedDateTimeFormatException
                 | NullPointerException e) {
@@ -146,7 +153,7 @@ public final class G5CSVFileProcessor extends CSVFileProcessor {
      * Created separate Flight Builders based of split indices.
      *
      * @param splitIndices     Indicate where the split begins. First index is always 0.
-     * @param rows
+     * @param records          Number of records in the file
      * @param doubleTimeSeries
      * @param stringTimeSeries
      * @return List of FlightBuilder
@@ -154,30 +161,38 @@ public final class G5CSVFileProcessor extends CSVFileProcessor {
      */
     private List<FlightBuilder> createFlightBuildersFromSegments(
             List<Integer> splitIndices,
-            List<String[]> rows,
+            int records,
             Map<String, DoubleTimeSeries> doubleTimeSeries,
             Map<String, StringTimeSeries> stringTimeSeries)
             throws FlightProcessingException {
 
-        List<FlightBuilder> segmentFlightBuilders = new ArrayList<>();
+        List<int[]> segments = new ArrayList<>();
 
         for (int i = 0; i < splitIndices.size(); i++) {
             int fromIndex = (i == 0) ? 0 : splitIndices.get(i);
-            int toIndex = (i == splitIndices.size() - 1) ? rows.size() : splitIndices.get(i + 1);
+            int toIndex = (i == splitIndices.size() - 1) ? records : splitIndices.get(i + 1);
 
             // Ignore anything < 5 minutes
             if (toIndex - fromIndex < 60 * 5) continue;
 
+            segments.add(new int[] {fromIndex, toIndex});
+        }
+
+        List<String> md5Hashes = calculateMd5Hashes(segments);
+        List<FlightBuilder> segmentFlightBuilders = new ArrayList<>();
+
+        for (int i = 0; i < segments.size(); i++) {
+            int fromIndex = segments.get(i)[0];
+            int toIndex = segments.get(i)[1];
+
             Map<String, DoubleTimeSeries> segmentDoubleSeries = new HashMap<>();
             doubleTimeSeries.forEach((k, v) -> segmentDoubleSeries.put(k, v.subSeries(fromIndex, toIndex)));
 
             Map<String, StringTimeSeries> segmentStringSeries = new HashMap<>();
             stringTimeSeries.forEach((k, v) -> segmentStringSeries.put(k, v.subSeries(fromIndex, toIndex)));
 
-            List<String[]> flightRows = rows.subList(fromIndex, toIndex);
-            String md5Hash = calculateMd5Hash(flightRows);
             FlightMeta newMeta = new FlightMeta(meta);
-            newMeta.setMd5Hash(md5Hash);
+            newMeta.setMd5Hash(md5Hashes.get(i));
 
             FlightBuilder builder = new G5FlightBuilder(newMeta, segmentDoubleSeries, segmentStringSeries);
 
@@ -6,10 +6,8 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.Set;
-import org.apache.commons.lang3.mutable.MutableDouble;
-import org.ngafid.core.airports.Airport;
+import org.ngafid.core.airports.AirportIndex;
 import org.ngafid.core.airports.Airports;
-import org.ngafid.core.airports.Runway;
 import org.ngafid.core.flights.DoubleTimeSeries;
 import org.ngafid.core.flights.FatalFlightFileException;
 import org.ngafid.core.flights.MalformedFlightFileException;
@@ -19,11 +17,14 @@ import org.ngafid.processor.format.FlightBuilder;
 /**
  * Computes the set of series related to airport proximity. This provides the nearest runway, nearest airport, and the
  * distance to them in two string series and two double series.
+ * <p>
+ * Lookups are done for the whole flight at once through the {@link AirportIndex}.
  */
 public class ComputeAirportProximity extends ComputeStep {
     private static final Set<String> REQUIRED_DOUBLE_COLUMNS = Set.of(LATITUDE, LONGITUDE, ALT_AGL);
     private static final Set<String> OUTPUT_COLUMNS =
             Set.of(NEAREST_RUNWAY, AIRPORT_DISTANCE, RUNWAY_DISTANCE, NEAREST_AIRPORT);
+    private static final double MAX_ALTITUDE_AGL_FT = 2000;
     private static final double MAX_AIRPORT_DISTANCE_FT = 10000;
     private static final double MAX_RUNWAY_DISTANCE_FT = 100;
 
@@ -61,48 +62,34 @@ public class ComputeAirportProximity extends ComputeStep {
         DoubleTimeSeries longitudeTS = builder.getDoubleTimeSeries(LONGITUDE);
         DoubleTimeSeries altitudeAGLTS = builder.getDoubleTimeSeries(ALT_AGL);
 
-        int sizeHint = latitudeTS.size();
-
-        StringTimeSeries nearestAirportTS = new StringTimeSeries(NEAREST_RUNWAY, Unit.IATA_CODE, sizeHint);
-        DoubleTimeSeries airportDistanceTS = new DoubleTimeSeries(AIRPORT_DISTANCE, Unit.FT, sizeHint);
-        StringTimeSeries nearestRunwayTS = new StringTimeSeries(NEAREST_RUNWAY, Unit.IATA_CODE, sizeHint);
-        DoubleTimeSeries runwayDistanceTS = new DoubleTimeSeries(RUNWAY_DISTANCE, Unit.FT, sizeHint);
-
-        for (int i = 0; i < latitudeTS.size(); i++) {
-            double latitude = latitudeTS.get(i);
-            double longitude = longitudeTS.get(i);
-            double altitudeAGL = altitudeAGLTS.get(i);
-
-            MutableDouble airportDistance = new MutableDouble();
-            Airport airport = null;
-            if (altitudeAGL <= 2000) {
-                airport =
-                        Airports.getNearestAirportWithin(latitude, longitude, MAX_AIRPORT_DISTANCE_FT, airportDistance);
-            }
-
-            if (airport == null) {
-                nearestAirportTS.add("");
-                airportDistanceTS.add(Double.NaN);
-                nearestRunwayTS.add("");
-                runwayDistanceTS.add(Double.NaN);
-            } else {
-                nearestAirportTS.add(airport.getIataCode());
-                airportDistanceTS.add(airportDistance.getValue());
-
-                MutableDouble runwayDistance = new MutableDouble();
-                Runway runway =
-                        airport.getNearestRunwayWithin(latitude, longitude, MAX_RUNWAY_DISTANCE_FT, runwayDistance);
-
-                if (runway == null) {
-                    nearestRunwayTS.add("");
-                    runwayDistanceTS.add(Double.NaN);
-                } else {
-                    nearestRunwayTS.add(runway.getName());
-                    runwayDistanceTS.add(runwayDistance.getValue());
-                }
-            }
+        int length = latitudeTS.size();
+
+        AirportIndex index = Airports.getIndex();
+        AirportIndex.Proximity proximity = index.nearest(
+                latitudeTS.innerArray(),
+                longitudeTS.innerArray(),
+                altitudeAGLTS.innerArray(),
+                length,
+                MAX_ALTITUDE_AGL_FT,
+                MAX_AIRPORT_DISTANCE_FT,
+                MAX_RUNWAY_DISTANCE_FT);
+
+        StringTimeSeries nearestAirportTS = new StringTimeSeries(NEAREST_RUNWAY, Unit.IATA_CODE, length);
+        StringTimeSeries nearestRunwayTS = new StringTimeSeries(NEAREST_RUNWAY, Unit.IATA_CODE, length);
+
+        for (int i = 0; i < length; i++) {
+            int airportId = proximity.airportIds[i];
+            int runwayId = proximity.runwayIds[i];
+
+            nearestAirportTS.add(airportId == -1 ? "" : index.getAirport(airportId).getIataCode());
+            nearestRunwayTS.add(runwayId == -1 ? "" : index.getRunway(runwayId).getName());
         }
 
+        DoubleTimeSeries airportDistanceTS =
+                new DoubleTimeSeries(AIRPORT_DISTANCE, Unit.FT, proximity.airportDistancesFt);
+        DoubleTimeSeries runwayDistanceTS =
+                new DoubleTimeSeries(RUNWAY_DISTANCE, Unit.FT, proximity.runwayDistancesFt);
+
         builder.addTimeSeries(NEAREST_RUNWAY, nearestRunwayTS);
         builder.addTimeSeries(NEAREST_AIRPORT, nearestAirportTS);
         builder.addTimeSeries(RUNWAY_DISTANCE, runwayDistanceTS);
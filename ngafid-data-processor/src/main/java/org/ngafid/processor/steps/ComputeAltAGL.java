@@ -11,7 +11,6 @@ import org.ngafid.core.flights.FatalFlightFileException;
 import org.ngafid.core.flights.MalformedFlightFileException;
 import org.ngafid.processor.format.FlightBuilder;
 import org.ngafid.processor.terrain.TerrainCache;
-import org.ngafid.processor.terrain.TerrainUnavailableException;
 
 /**
  * Computes the altitude above ground level based on the altitude above sea level and lat / long coordinates.
@@ -59,26 +58,13 @@ public class ComputeAltAGL extends ComputeStep {
         DoubleTimeSeries latitudeTS = builder.getDoubleTimeSeries(LATITUDE);
         DoubleTimeSeries longitudeTS = builder.getDoubleTimeSeries(LONGITUDE);
 
-        DoubleTimeSeries altitudeAGLTS =
-                withConnection(connection -> new DoubleTimeSeries(connection, ALT_AGL, Unit.FT_AGL));
+        int length = altitudeMSLTS.size();
+        double[] altitudeAGL = new double[length];
 
-        for (int i = 0; i < altitudeMSLTS.size(); i++) {
-            double altitudeMSL = altitudeMSLTS.get(i);
-            double latitude = latitudeTS.get(i);
-            double longitude = longitudeTS.get(i);
+        TerrainCache.fillAltitudeAGL(
+                altitudeMSLTS.innerArray(), latitudeTS.innerArray(), longitudeTS.innerArray(), altitudeAGL);
 
-            if (Double.isNaN(altitudeMSL) || Double.isNaN(latitude) || Double.isNaN(longitude)) {
-                altitudeAGLTS.add(Double.NaN);
-                continue;
-            }
-
-            try {
-                int altitudeAGL = TerrainCache.getAltitudeFt(altitudeMSL, latitude, longitude);
-                altitudeAGLTS.add(altitudeAGL);
-            } catch (TerrainUnavailableException e) {
-                altitudeAGLTS.add(Double.NaN);
-            }
-        }
+        DoubleTimeSeries altitudeAGLTS = new DoubleTimeSeries(ALT_AGL, Unit.FT_AGL, altitudeAGL);
 
         builder.addTimeSeries(altitudeAGLTS);
     }
@@ -18,7 +18,8 @@ import org.ngafid.processor.format.FlightBuilder;
 
 /**
  * An instance of this class is used to scan a flight for an event, and is basically a wrapper on top of
- * {@link EventScanner}.
+ * {@link EventScanner}. Normal events are scanned for in bulk by {@link ComputeEvents} during ingestion, so this is
+ * only used directly for custom events.
  * <p>
  * When adding a custom event, you may have to modify the private factory methods contained within this class to
  * properly compute the event upon ingestion.
@@ -63,17 +64,22 @@ public class ComputeEvent extends ComputeStep {
     }
 
     /**
-     * Returns a list of ComputeEvent objects where the underlying event definitions are applicable to the supplied
-     * flight builder, i.e. all the required columns are available.
+     * Returns a list of compute steps that scan the supplied flight builder for every applicable event definition,
+     * i.e. every definition for the flight's fleet and airframe.
+     * <p>
+     * Normal events are batched into {@link ComputeEvents} steps so the flight is only walked once for all of them.
+     * Definitions are grouped by the columns they need that are not in the data source: a group then depends on
+     * exactly the compute steps its definitions depend on, and a missing derived column (e.g. AltAGL when there is
+     * no terrain data) only disables the definitions that need it.
      * <p>
      * Some additional logic is required specifically for custom events, as custom events use subclasses of
      * ComputeEvent to perform custom compuations.
      *
      * @param connection database connection
      * @param fb         flight builder
-     * @return list of ComputeEvent objects that can be properly computed for the supplied flight builder.
+     * @return list of compute steps that can be properly computed for the supplied flight builder.
      */
-    public static List<ComputeEvent> getAllApplicable(Connection connection, FlightBuilder fb) {
+    public static List<ComputeStep> getAllApplicable(Connection connection, FlightBuilder fb) {
         // We will mark these event definitions as having been computed (or attempted) in the
         var applicableEvents = ALL_EVENT_DEFS.stream()
                 .filter(def -> def.getFleetId() == 0 || def.getFleetId() == fb.meta.getFleetId())
@@ -82,10 +88,30 @@ public class ComputeEvent extends ComputeStep {
                 .filter(def -> def.getAirframeTypeId() == null
                         || def.getAirframeTypeId() == fb.meta.getAirframe().getType().getId())
                 .toList();
-        return applicableEvents.stream()
-                .map(def -> factory(connection, fb, def))
-                .filter(Objects::nonNull)
-                .toList();
+
+        Set<String> sourceColumns = fb.getDoubleTimeSeriesKeySet();
+        Map<Set<String>, List<EventDefinition>> normalEventGroups = new LinkedHashMap<>();
+        List<ComputeStep> steps = new ArrayList<>();
+
+        for (EventDefinition def : applicableEvents) {
+            if (def.getId() > 0) {
+                Set<String> derivedColumns = new TreeSet<>(def.getColumnNames());
+                derivedColumns.removeAll(sourceColumns);
+                normalEventGroups
+                        .computeIfAbsent(derivedColumns, k -> new ArrayList<>())
+                        .add(def);
+                fb.addComputedEvent(def);
+            } else {
+                ComputeEvent step = factory(connection, fb, def);
+                if (step != null) steps.add(step);
+            }
+        }
+
+        for (List<EventDefinition> group : normalEventGroups.values()) {
+            steps.add(new ComputeEvents(connection, fb, group));
+        }
+
+        return steps;
     }
 
     /**
@@ -0,0 +1,75 @@
+package org.ngafid.processor.steps;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.ngafid.core.event.EventDefinition;
+import org.ngafid.core.flights.Airframes;
+import org.ngafid.core.flights.FatalFlightFileException;
+import org.ngafid.core.flights.MalformedFlightFileException;
+import org.ngafid.core.flights.Parameters;
+import org.ngafid.processor.events.MultiEventScanner;
+import org.ngafid.processor.format.FlightBuilder;
+
+/**
+ * Scans a flight for a group of normal events in a single pass using a {@link MultiEventScanner}, rather than
+ * creating one {@link ComputeEvent} per definition.
+ * <p>
+ * All definitions in a group must need the same set of columns that are not contained in the data source (see
+ * {@link ComputeEvent#getAllApplicable}), so the group is applicable exactly when each of its definitions would be.
+ */
+public class ComputeEvents extends ComputeStep {
+    private final MultiEventScanner scanner;
+
+    private final HashSet<String> requiredDoubleColumns = new HashSet<>();
+
+    public ComputeEvents(Connection connection, FlightBuilder fb, List<EventDefinition> definitions) {
+        super(connection, fb);
+        this.scanner = new MultiEventScanner(definitions);
+
+        for (EventDefinition definition : definitions) requiredDoubleColumns.addAll(definition.getColumnNames());
+        requiredDoubleColumns.add(Parameters.UNIX_TIME_SECONDS);
+    }
+
+    @Override
+    public Set<String> getRequiredDoubleColumns() {
+        return requiredDoubleColumns;
+    }
+
+    private static final Set<String> REQUIRED_STRING_COLUMNS = Set.of(Parameters.UTC_DATE_TIME);
+
+    @Override
+    public Set<String> getRequiredStringColumns() {
+        return REQUIRED_STRING_COLUMNS;
+    }
+
+    @Override
+    public Set<String> getRequiredColumns() {
+        Set<String> doubleCols = new HashSet<>(getRequiredDoubleColumns());
+        doubleCols.addAll(getRequiredStringColumns());
+        return doubleCols;
+    }
+
+    @Override
+    public Set<String> getOutputColumns() {
+        return Set.of();
+    }
+
+    @Override
+    public boolean airframeIsValid(Airframes.Airframe airframe) {
+        String airframeType = builder.meta.getAirframe().getType().getName();
+        return airframeType.equals("Fixed Wing") || airframeType.equals("Rotorcraft");
+    }
+
+    @Override
+    public void compute() throws SQLException, MalformedFlightFileException, FatalFlightFileException {
+        builder.emitEvents(scanner.scan(builder.getDoubleTimeSeriesMap(), builder.getStringTimeSeriesMap()));
+    }
+
+    @Override
+    public String toString() {
+        return "ComputeEvents" + scanner.getDefinitions().stream().map(EventDefinition::getId).toList();
+    }
+}
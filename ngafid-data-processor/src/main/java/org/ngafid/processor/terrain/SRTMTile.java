@@ -1,28 +1,41 @@
 package org.ngafid.processor.terrain;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Logger;
 import org.ngafid.core.Config;
 
+/**
+ * A single 1 degree by 1 degree SRTM3 terrain tile.
+ * <p>
+ * The underlying .hgt file is memory mapped read-only rather than read onto the heap, and heights are sampled straight
+ * from the mapped buffer. This keeps the heap cost of a cached tile down to a few objects, and since the mapping is
+ * backed by the OS page cache the tile data is shared by every processor JVM running on the same host.
+ */
 public class SRTMTile {
     private static final Logger LOG = Logger.getLogger(SRTMTile.class.getName());
 
     public static final int SRTM_TILE_SIZE = 1201;
     public static final double SRTM_GRID_SIZE = 1.0 / (SRTM_TILE_SIZE - 1.0);
 
+    private static final double METERS_TO_FEET = 3.2808399;
+    private static final long SRTM_FILE_SIZE = (long) SRTM_TILE_SIZE * SRTM_TILE_SIZE * Short.BYTES;
+
     private final String directory;
     private final String filename;
 
     private final int latitudeS;
     private final int longitudeW;
 
-    private byte[] bytes;
-
-    private final int[][] altitudesFt;
+    // file starts in the northwest corner, one big-endian 16 bit sample per grid point
+    private final ShortBuffer altitudesM;
 
     public SRTMTile(int latitudeS, int longitudeW) throws NoSuchFileException {
         this.latitudeS = latitudeS;
@@ -35,105 +48,94 @@ public class SRTMTile {
         // LOG.info("lat and lon for SW corner -- latitude_s: " + latitudeS + ", longitude_w: " + longitudeW);
 
         Path path = Paths.get(Config.NGAFID_TERRAIN_DIR + "/" + directory + "/" + filename);
-        // Path path = Paths.get(TerrainCache.getTerrainDirectory() + "/" + filename);
 
-        bytes = null;
-        try {
-            bytes = Files.readAllBytes(path);
+        altitudesM = map(path);
+    }
+
+    /**
+     * Maps the tile file read-only. The mapping stays valid after the channel is closed, and is released when the
+     * buffer is garbage collected (i.e. when the tile is evicted from the {@link TerrainCache}).
+     */
+    private static ShortBuffer map(Path path) throws NoSuchFileException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < SRTM_FILE_SIZE) {
+                throw new IOException("Terrain file '" + path + "' is " + channel.size() + " bytes, expected "
+                        + SRTM_FILE_SIZE);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, SRTM_FILE_SIZE);
+            return buffer.order(ByteOrder.BIG_ENDIAN).asShortBuffer();
         } catch (NoSuchFileException e) {
             throw e;
         } catch (IOException e) {
-            System.err.println("Error reading all bytes from file: '" + path + "'");
+            System.err.println("Error mapping terrain file: '" + path + "'");
             e.printStackTrace();
             System.exit(1);
+            return null;
         }
+    }
 
-        // file currents in the northwest corner
-        int altitudeM;
-
-        int offset = 0;
-
-        altitudesFt = new int[SRTM_TILE_SIZE][SRTM_TILE_SIZE];
-
-        int max = 0;
-        int min = 5000;
-        int altititudeFt;
-
-        for (int y = 0; y < SRTM_TILE_SIZE; y++) {
-            for (int x = 0; x < SRTM_TILE_SIZE; x++) {
-                altitudeM = ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
-
-                altititudeFt = (int) ((double) altitudeM * 3.2808399);
-                // altitudesFt[x][y] = altititudeFt;
-                // altitudesFt[1200 - x][y] = altititudeFt;
-                // altitudesFt[x][1200 - y] = altititudeFt; //close-ish
-                // altitudesFt[1200 - x][1200 - y] = altititudeFt;
-
-                altitudesFt[y][x] = altititudeFt;
-                // altitudesFt[1200 - y][x] = altititudeFt;
-                // altitudesFt[y][1200 - x] = altititudeFt;
-                // altitudesFt[1200 - y][1200 - x] = altititudeFt;
-
-                if (altititudeFt > max) max = altititudeFt;
-                if (altititudeFt < min) min = altititudeFt;
-
-                offset += 2;
-            }
-        }
+    public int getLatitudeS() {
+        return latitudeS;
+    }
 
-        // LOG.info("read " + bytes.length + " bytes.");
-        // LOG.info("final offset: " + offset);
+    public int getLongitudeW() {
+        return longitudeW;
+    }
 
-        // LOG.info("max: " + max);
-        // LOG.info("min: " + min);
+    /**
+     * @param row the row in the tile, starting from the northern edge
+     * @param col the column in the tile, starting from the western edge
+     * @return the altitude in feet of the given grid point
+     */
+    private int getGridAltitudeFt(int row, int col) {
+        int altitudeM = altitudesM.get(row * SRTM_TILE_SIZE + col) & 0xffff;
+        return (int) ((double) altitudeM * METERS_TO_FEET);
     }
 
     public double getAltitudeFt(double latitude, double longitude) {
         double latDiff = Math.ceil(latitude) - latitude;
         double lonDiff = longitude - Math.floor(longitude);
-        // cout << "latitude: " << latitude << ", latDiff: " << latDiff << endl;
-        // cout << "longitude: " << longitude << ", lonDiff: " << lonDiff << endl;
 
         // tiles store the terrain height values starting in the NW corner
         // even though the file name is for the SW corner
 
-        // int latIndex0 = (int)(latDiff / (srtmGridSize - 1));
         int latIndex0 = (int) (latDiff / SRTM_GRID_SIZE);
         int latIndex1 = latIndex0 + 1;
-        // int lonIndex0 = (int)(lonDiff / (srtmGridSize - 1));
         int lonIndex0 = (int) (lonDiff / SRTM_GRID_SIZE);
         int lonIndex1 = lonIndex0 + 1;
 
-        // cout << "srtmGridSize: " << srtmGridSize << endl;
-        // cout << "latIndex0: " << latIndex0 << ", latIndex1: " << latIndex1 << endl;
-        // cout << "lonIndex0: " << lonIndex0 << ", lonIndex1: " << lonIndex1 << endl;
-
-        /*
-        System.out.println("altitudesFt[" + latIndex0 + "][" + lonIndex0 + "]: " + altitudesFt[latIndex0][lonIndex0]);
-        System.out.println("altitudesFt[" + latIndex1 + "][" + lonIndex0 + "]: " + altitudesFt[latIndex0][lonIndex0]);
-        System.out.println("altitudesFt[" + latIndex0 + "][" + lonIndex1 + "]: " + altitudesFt[latIndex0][lonIndex0]);
-        System.out.println("altitudesFt[" + latIndex1 + "][" + lonIndex1 + "]: " + altitudesFt[latIndex0][lonIndex0]);
-        */
-
         double x = lonDiff - (lonIndex0 * SRTM_GRID_SIZE);
         double y = latDiff - (latIndex0 * SRTM_GRID_SIZE);
 
-        return (altitudesFt[latIndex0][lonIndex0] * (1 - x) * (1 - y))
-                + (altitudesFt[latIndex1][lonIndex0] * x * (1 - y))
-                + (altitudesFt[latIndex0][lonIndex1] * (1 - x) * y)
-                + (altitudesFt[latIndex1][lonIndex1] * x * y);
-
-        /*
-        int y = (int)Math.floor((1.0 - (latitude % 1.0)) * srtmTileSize);
-        int x = (int)Math.ceil((longitude % 1.0) * srtmTileSize);
-        int offset = (y * srtmTileSize * 2) + (x * 2);
-
-        double altitudeM = ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
-        System.out.println("altitudeM: " + altitudeM);
-        int altititudeFt = (int)((double)altitudeM * 3.2808399);
-        System.out.println("altititudeFt: " + altititudeFt);
+        return (getGridAltitudeFt(latIndex0, lonIndex0) * (1 - x) * (1 - y))
+                + (getGridAltitudeFt(latIndex1, lonIndex0) * x * (1 - y))
+                + (getGridAltitudeFt(latIndex0, lonIndex1) * (1 - x) * y)
+                + (getGridAltitudeFt(latIndex1, lonIndex1) * x * y);
+    }
 
-        return altititudeFt;
-        */
+    /**
+     * Bilinearly interpolates the terrain height between the four grid points surrounding the given coordinate,
+     * weighting each by its distance in grid cells.
+     *
+     * @param latitude  latitude of the point, which must be inside of this tile
+     * @param longitude longitude of the point, which must be inside of this tile
+     * @return the interpolated terrain altitude in feet
+     */
+    public double getAltitudeFtBilinear(double latitude, double longitude) {
+        // Fractional row / column, measured from the NW corner in grid cells.
+        double row = (Math.ceil(latitude) - latitude) * (SRTM_TILE_SIZE - 1);
+        double col = (longitude - Math.floor(longitude)) * (SRTM_TILE_SIZE - 1);
+
+        int row0 = Math.min((int) row, SRTM_TILE_SIZE - 2);
+        int col0 = Math.min((int) col, SRTM_TILE_SIZE - 2);
+
+        double dy = row - row0;
+        double dx = col - col0;
+
+        return (getGridAltitudeFt(row0, col0) * (1 - dx) * (1 - dy))
+                + (getGridAltitudeFt(row0, col0 + 1) * dx * (1 - dy))
+                + (getGridAltitudeFt(row0 + 1, col0) * (1 - dx) * dy)
+                + (getGridAltitudeFt(row0 + 1, col0 + 1) * dx * dy);
     }
 }
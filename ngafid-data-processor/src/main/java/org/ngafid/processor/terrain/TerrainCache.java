@@ -4,13 +4,16 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import java.nio.file.NoSuchFileException;
-import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.ngafid.core.Config;
 
+/**
+ * Process-wide cache of {@link SRTMTile}s. Tiles are memory mapped, so a cached tile costs address space and page
+ * cache rather than heap; the cache size ({@link Config#MAX_TERRAIN_CACHE_SIZE}) bounds the number of open mappings.
+ */
 public class TerrainCache {
     private static final Logger LOG = Logger.getLogger(TerrainCache.class.getName());
 
@@ -86,10 +89,7 @@ public class TerrainCache {
 
         // LOG.info("lat_index: " + latIndex + ", lon_index: " + lonIndex);
 
-        if (coordinate.latIndex < 0
-                || coordinate.lonIndex < 0
-                || coordinate.latIndex >= 180
-                || coordinate.lonIndex >= 360) {
+        if (!isValidTile(coordinate.latIndex, coordinate.lonIndex)) {
             LOG.severe("ERROR: getting tile for latitude: " + latitude + " and longitude: " + longitude);
             LOG.severe("tile[" + coordinate.latIndex + "][" + coordinate.lonIndex + "] does not exist!");
             LOG.severe("latitude should be >= -90 and <= 90");
@@ -98,20 +98,97 @@ public class TerrainCache {
                     "There is no tile latitude: " + latitude + " and longitude: " + longitude);
         }
 
-        TileKey key = new TileKey(coordinate.latIndex, coordinate.lonIndex);
+        SRTMTile tile = getTile(coordinate.latIndex, coordinate.lonIndex);
+        double altitudeFt = tile.getAltitudeFt(latitude, longitude);
+
+        return (int) Math.max(0, msl - altitudeFt);
+    }
 
+    /**
+     * Computes the altitude above ground level for a whole flight at once. This is equivalent to calling
+     * {@link #getAltitudeFt(double, double, double)} for every row, but consecutive rows that fall in the same tile
+     * share a single tile lookup, and the results are written to a primitive array.
+     * <p>
+     * Rows where any input is NaN, or where the terrain tile is unavailable, are set to NaN.
+     *
+     * @param msl altitude above mean sea level for each row, in feet
+     * @param lat latitude for each row
+     * @param lon longitude for each row
+     * @param out output array for the altitude above ground level, in feet. Its length determines the number of rows
+     *            computed; the input arrays must be at least this long.
+     */
+    public static void fillAltitudeAGL(double[] msl, double[] lat, double[] lon, double[] out) {
+        fillAltitudeAGL(msl, lat, lon, out, false);
+    }
+
+    /**
+     * See {@link #fillAltitudeAGL(double[], double[], double[], double[])}.
+     *
+     * @param bilinear if true, the terrain height is bilinearly interpolated between the four surrounding grid
+     *                 points (see {@link SRTMTile#getAltitudeFtBilinear(double, double)}) rather than computed with
+     *                 {@link SRTMTile#getAltitudeFt(double, double)}
+     */
+    public static void fillAltitudeAGL(double[] msl, double[] lat, double[] lon, double[] out, boolean bilinear) {
+        int currentLatIndex = -1;
+        int currentLonIndex = -1;
         SRTMTile tile = null;
+
+        for (int i = 0; i < out.length; i++) {
+            double altitudeMSL = msl[i];
+            double latitude = lat[i];
+            double longitude = lon[i];
+
+            if (Double.isNaN(altitudeMSL) || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            int latIndex = TileCoordinate.latIndex(latitude);
+            int lonIndex = TileCoordinate.lonIndex(longitude);
+
+            // Only go to the cache when we cross into a new tile. A missing tile is remembered as a null tile so we
+            // don't look it up (and log it) again for every row that falls inside of it.
+            if (latIndex != currentLatIndex || lonIndex != currentLonIndex) {
+                currentLatIndex = latIndex;
+                currentLonIndex = lonIndex;
+
+                tile = null;
+                if (isValidTile(latIndex, lonIndex)) {
+                    try {
+                        tile = getTile(latIndex, lonIndex);
+                    } catch (TerrainUnavailableException e) {
+                        // tile stays null
+                    }
+                }
+            }
+
+            if (tile == null) {
+                out[i] = Double.NaN;
+                continue;
+            }
+
+            double altitudeFt =
+                    bilinear ? tile.getAltitudeFtBilinear(latitude, longitude) : tile.getAltitudeFt(latitude, longitude);
+
+            out[i] = (int) Math.max(0, altitudeMSL - altitudeFt);
+        }
+    }
+
+    private static boolean isValidTile(int latIndex, int lonIndex) {
+        return latIndex >= 0 && lonIndex >= 0 && latIndex < 180 && lonIndex < 360;
+    }
+
+    private static SRTMTile getTile(int latIndex, int lonIndex) throws TerrainUnavailableException {
         try {
-            tile = TILE_CACHE.get(key);
+            return TILE_CACHE.get(new TileKey(latIndex, lonIndex));
         } catch (ExecutionException e) {
             if (e.getCause() instanceof TerrainUnavailableException te) {
                 throw te;
             }
-        }
 
-        double altitudeFt = tile.getAltitudeFt(latitude, longitude);
-
-        return (int) Math.max(0, msl - altitudeFt);
+            throw new TerrainUnavailableException("Failed to load terrain tile [" + latIndex + "][" + lonIndex + "]: "
+                    + e.getCause());
+        }
     }
 
     private static final class TileKey {
@@ -124,9 +201,10 @@ public class TerrainCache {
             this.lonIndex = lonIndex;
         }
 
+        // Indices are < 360, so this is a perfectly unique hash and avoids boxing.
         @Override
         public int hashCode() {
-            return Objects.hash(latIndex, lonIndex);
+            return latIndex << 16 | lonIndex;
         }
 
         @Override
@@ -141,10 +219,15 @@ public class TerrainCache {
 
     private record TileCoordinate(double lat, double lon, int latIndex, int lonIndex) {
         static TileCoordinate fromLatLon(double lat, double lon) {
-            int latIndex = -((int) Math.ceil(lat) - 91);
-            int lonIndex = (int) Math.floor(lon) + 180;
+            return new TileCoordinate(lat, lon, latIndex(lat), lonIndex(lon));
+        }
+
+        static int latIndex(double lat) {
+            return -((int) Math.ceil(lat) - 91);
+        }
 
-            return new TileCoordinate(lat, lon, latIndex, lonIndex);
+        static int lonIndex(double lon) {
+            return (int) Math.floor(lon) + 180;
         }
 
         @Override
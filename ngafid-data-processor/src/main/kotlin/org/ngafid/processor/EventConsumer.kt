@@ -10,11 +10,15 @@ import org.ngafid.core.Database
 import org.ngafid.core.event.Event
 import org.ngafid.core.event.EventDefinition
 import org.ngafid.core.flights.Flight
+import org.ngafid.core.flights.Parameters
 import org.ngafid.core.kafka.DisjointConsumer
+import org.ngafid.core.kafka.DisjointConsumer.RecordsResult
 import org.ngafid.core.kafka.Events
 import org.ngafid.core.kafka.Events.EventToCompute
+import org.ngafid.core.kafka.Events.FlightEventsToCompute
 import org.ngafid.core.kafka.Topic
 import org.ngafid.core.kafka.DockerServiceHeartbeat;
+import org.ngafid.core.statistics.FleetStatisticsCacheRefresh
 import org.ngafid.core.util.ColumnNotAvailableException
 import org.ngafid.core.util.filters.Pair
 import org.ngafid.processor.events.AbstractEventScanner
@@ -62,112 +66,108 @@ class EventConsumer protected constructor(
     }
 
     override fun process(record: ConsumerRecord<String?, String?>?): Pair<ConsumerRecord<String?, String?>, Boolean>? {
-        val etc: EventToCompute
+        val request = parse(record!!.value())
+        return Pair(record, processFlight(request.flightId, request.eventIds))
+    }
+
+    /**
+     * Groups the records of a poll by flight, so that each flight is loaded once and all of its events are computed and
+     * written in a single transaction. Records for the same flight share an outcome: if computing the events fails, the
+     * transaction is rolled back and every record for that flight is retried.
+     */
+    override fun processAll(records: ConsumerRecords<String?, String?>): RecordsResult<String?, String?> {
+        val recordList = ArrayList<ConsumerRecord<String?, String?>>(records.count())
+        val retry = BooleanArray(records.count())
+
+        // Indices into recordList, and the requested event definitions, of each flight in the order they were polled
+        val indicesByFlight = LinkedHashMap<Int, MutableList<Int>>()
+        val eventIdsByFlight = HashMap<Int, LinkedHashSet<Int>>()
+
+        for (record in records) {
+            LOG.info("Record: ${record.topic()}: ${record.partition()}: ${record.offset()}: ${record.value()}")
+            val request = parse(record.value())
+
+            indicesByFlight.getOrPut(request.flightId) { ArrayList() }.add(recordList.size)
+            eventIdsByFlight.getOrPut(request.flightId) { LinkedHashSet() }.addAll(request.eventIds)
+            recordList.add(record)
+        }
+
+        for ((flightId, indices) in indicesByFlight) {
+            val shouldRetry = processFlight(flightId, eventIdsByFlight[flightId]!!)
+            for (index in indices) retry[index] = shouldRetry
+        }
+
+        return RecordsResult(recordList, retry)
+    }
 
+    /**
+     * Reads either a [FlightEventsToCompute] or, for requests published before events were grouped by flight (e.g.
+     * records still waiting on the retry topic), a single [EventToCompute].
+     */
+    private fun parse(value: String?): FlightEventsToCompute {
         try {
-            etc = objectMapper.readValue(record!!.value(), EventToCompute::class.java)
+            val node = objectMapper.readTree(value)
+            if (node.has("eventIds")) {
+                return objectMapper.treeToValue(node, FlightEventsToCompute::class.java)
+            }
+
+            val etc = objectMapper.treeToValue(node, EventToCompute::class.java)
+            return FlightEventsToCompute(etc.flightId, listOf(etc.eventId))
         } catch (e: JsonProcessingException) {
             throw RuntimeException(e)
         }
+    }
 
+    /**
+     * Computes the events with the supplied definitions for a flight, writing the events, heatmap points, and
+     * `flight_processed` rows in one transaction.
+     *
+     * @return true if the request should be retried
+     */
+    private fun processFlight(flightId: Int, eventIds: Collection<Int>): Boolean {
         try {
             Database.getConnection().use { connection ->
-                val flight = Flight.getFlight(connection, etc.flightId)
+                val flight = Flight.getFlight(connection, flightId)
                 if (flight == null) {
-                    LOG.warning("Cannot compute event with definition id " + etc.eventId + " for flight " + etc.flightId + " because the flight does not exist in the database. Assuming this was a stale request")
-                    return Pair(record, false)
+                    LOG.warning("Cannot compute events with definition ids " + eventIds + " for flight " + flightId + " because the flight does not exist in the database. Assuming this was a stale request")
+                    return false
                 }
 
-                val def = eventDefinitionMap!![etc.eventId]
-                if (def == null) {
-                    LOG.warning("Cannot compute event with definition id " + etc.eventId + " for flight " + etc.flightId + " because there is no event with that definition in the database.")
-                    return Pair(record, false)
-                }
-
-                if (def.airframeNameId > 0 && def.airframeNameId != flight.airframe.id) {
-                    LOG.info("Skipping event - airframe mismatch: event airframe=${def.airframeNameId}, flight airframe=${flight.airframe.id}")
-                    try {
-                        markFlightProcessed(connection, flight, def, hadError = false)
-                    } catch (e: Exception) {
-                        LOG.warning("Failed to mark flight_processed on airframe mismatch skip: ${e.message}")
-                    }
-                    return Pair(record, false)
-                }
-
-                // Check if this event actually exists in the database for this flight
-                try {
-                    val allEvents = Event.getAll(connection, flight.id)
-                    val existingEvents = allEvents.filter { it.eventDefinitionId == def.id }
-                    if (existingEvents.isNotEmpty()) {
-                        LOG.warning("Event already exists in database, skipping reprocessing")
-                        try {
-                            markFlightProcessed(connection, flight, def, hadError = false)
-                        } catch (e: Exception) {
-                            LOG.warning("Failed to mark flight_processed when event already exists: ${e.message}")
-                        }
-                        return Pair(record, false)
-                    }
+                // Check which of these events actually exist in the database for this flight
+                val existingDefinitionIds = try {
+                    Event.getAll(connection, flight.id).map { it.eventDefinitionId }.toSet()
                 } catch (e: Exception) {
                     LOG.warning("Error checking existing events: ${e.message}")
+                    emptySet()
                 }
+
+                val processedDefinitionIds = getProcessedDefinitionIds(connection, flight.id)
+                val insertedEventIds = ArrayList<Int>()
+
+                connection.autoCommit = false
                 try {
-                    clearExistingEvents(connection, flight, eventDefinitionMap!![etc.eventId]!!)
-                    val scanner = getScanner(
-                        flight,
-                        eventDefinitionMap!![etc.eventId]!!
-                    )
-                    scanner.gatherRequiredColumns(connection, flight)
-
-
-                    // Scanners may emit events of more than one type -- filter the other events out.
-                    val events = scanner
-                        .scan(flight.doubleTimeSeriesMap, flight.stringTimeSeriesMap)
-                        .stream()
-                        .filter { e: Event -> e.eventDefinitionId == etc.eventId }
-                        .toList()
-
-
-                    Event.batchInsertion(connection, flight, events)
-
-
-                    // inserts proximity points for each event into the heatmap_points table
-                    if (scanner is ProximityEventScanner) {
-                        HeatmapPointsProcessor.insertCoordinatesForProximityEvents(
-                            connection,
-                            events,
-                            scanner.mainFlightPointsMap,
-                            scanner.otherFlightPointsMap
-                        )
-                    } else {
-                        // For regular (non-proximity) events, insert points from flight data
-                        HeatmapPointsProcessor.insertCoordinatesForNonProximityEvents(
-                            connection,
-                            events,
-                            flight
-                        )
+                    for (eventId in eventIds) {
+                        computeEvent(connection, flight, eventId, existingDefinitionIds, insertedEventIds)
                     }
 
-                    /*
-                        Mark this flight+event_definition_id as processed so
-                        EventObserver stops re-queueing.
-
-                        Also clears any previous had_error for this pair.
-                    */
-                    markFlightProcessed(connection, flight, def, hadError = false)
+                    // Last, so the statistics rows and the uploads are only locked for as long as it takes to commit
+                    FleetStatisticsCacheRefresh.addFlightEvents(
+                        connection,
+                        flight.fleetId,
+                        flight.id,
+                        insertedEventIds,
+                        eventIds.filter { it !in processedDefinitionIds }.distinct()
+                    )
 
-                    return Pair(record, false)
-                } catch (e: ColumnNotAvailableException) {
-                    e.printStackTrace()
-                    try {
-                        markFlightProcessed(connection, flight, def, hadError = true)
-                    } catch (markErr: Exception) {
-                        LOG.warning("Failed to mark flight_processed after ColumnNotAvailableException: ${markErr.message}")
-                    }
-                    return Pair(record, false)
+                    connection.commit()
+                    return false
                 } catch (e: Exception) {
                     e.printStackTrace()
+                    connection.rollback()
                     // Retry
-                    return Pair(record, true)
+                    return true
+                } finally {
+                    connection.autoCommit = true
                 }
             }
         } catch (e: SQLException) {
@@ -179,6 +179,81 @@ class EventConsumer protected constructor(
         }
     }
 
+    /**
+     * Computes the events of one definition for a flight. Series read by earlier definitions of the same flight are
+     * kept in the flight's series maps, so each column is only read once.
+     */
+    private fun computeEvent(
+        connection: Connection,
+        flight: Flight,
+        eventId: Int,
+        existingDefinitionIds: Set<Int>,
+        insertedEventIds: MutableList<Int>
+    ) {
+        val def = eventDefinitionMap!![eventId]
+        if (def == null) {
+            LOG.warning("Cannot compute event with definition id " + eventId + " for flight " + flight.id + " because there is no event with that definition in the database.")
+            return
+        }
+
+        if (def.airframeNameId > 0 && def.airframeNameId != flight.airframe.id) {
+            LOG.info("Skipping event - airframe mismatch: event airframe=${def.airframeNameId}, flight airframe=${flight.airframe.id}")
+            markFlightProcessed(connection, flight, def, hadError = false)
+            return
+        }
+
+        if (def.id in existingDefinitionIds) {
+            LOG.warning("Event already exists in database, skipping reprocessing")
+            markFlightProcessed(connection, flight, def, hadError = false)
+            return
+        }
+
+        clearExistingEvents(connection, flight, def)
+        val scanner = getScanner(flight, def)
+
+        val events = try {
+            scanner.gatherRequiredColumns(connection, flight)
+
+            // Scanners may emit events of more than one type -- filter the other events out.
+            scanner
+                .scan(flight.doubleTimeSeriesMap, flight.stringTimeSeriesMap)
+                .filter { e: Event -> e.eventDefinitionId == eventId }
+        } catch (e: ColumnNotAvailableException) {
+            e.printStackTrace()
+            markFlightProcessed(connection, flight, def, hadError = true)
+            return
+        }
+
+        Event.batchInsertion(connection, flight, events)
+        events.mapTo(insertedEventIds) { it.id }
+
+        // inserts proximity points for each event into the heatmap_points table
+        if (scanner is ProximityEventScanner) {
+            HeatmapPointsProcessor.insertCoordinatesForProximityEvents(
+                connection,
+                events,
+                scanner.mainFlightPointsMap,
+                scanner.otherFlightPointsMap
+            )
+        } else if (events.isNotEmpty()) {
+            // For regular (non-proximity) events, insert points from flight data
+            gatherHeatmapColumns(connection, flight)
+            HeatmapPointsProcessor.insertCoordinatesForNonProximityEvents(
+                connection,
+                events,
+                flight
+            )
+        }
+
+        /*
+            Mark this flight+event_definition_id as processed so
+            EventObserver stops re-queueing.
+
+            Also clears any previous had_error for this pair.
+        */
+        markFlightProcessed(connection, flight, def, hadError = false)
+    }
+
     override fun getTopicName(): String {
         return Topic.EVENT.toString()
     }
@@ -198,6 +273,9 @@ class EventConsumer protected constructor(
     companion object {
         private val LOG: Logger = Logger.getLogger(EventConsumer::class.java.name)
 
+        private val HEATMAP_DOUBLE_COLUMNS =
+            listOf(Parameters.LATITUDE, Parameters.LONGITUDE, Parameters.ALT_AGL, Parameters.ALT_MSL)
+
         @JvmStatic
         @Throws(UnknownHostException::class)
         fun main(args: Array<String>) {
@@ -224,11 +302,39 @@ class EventConsumer protected constructor(
             }
         }
 
+        /**
+         * Reads the columns heatmap points are built from, unless a scanner has already read them. Without this the
+         * points of an event would depend on which other definitions happened to be computed alongside it.
+         */
+        @Throws(SQLException::class)
+        private fun gatherHeatmapColumns(connection: Connection, flight: Flight) {
+            for (name in HEATMAP_DOUBLE_COLUMNS) {
+                if (flight.doubleTimeSeriesMap[name] == null) flight.getDoubleTimeSeries(connection, name)
+            }
+            if (flight.stringTimeSeriesMap[Parameters.UTC_DATE_TIME] == null) {
+                flight.getStringTimeSeries(connection, Parameters.UTC_DATE_TIME)
+            }
+        }
+
         @Throws(SQLException::class)
         private fun clearExistingEvents(connection: Connection, flight: Flight, def: EventDefinition) {
             Event.deleteEvents(connection, flight.id, def.id)
         }
 
+        @Throws(SQLException::class)
+        private fun getProcessedDefinitionIds(connection: Connection, flightId: Int): Set<Int> {
+            val sql = "SELECT event_definition_id FROM flight_processed WHERE flight_id = ?"
+
+            connection.prepareStatement(sql).use { ps: PreparedStatement ->
+                ps.setInt(1, flightId)
+                ps.executeQuery().use { rs ->
+                    val ids = HashSet<Int>()
+                    while (rs.next()) ids.add(rs.getInt(1))
+                    return ids
+                }
+            }
+        }
+
         @Throws(SQLException::class)
         private fun markFlightProcessed(connection: Connection, flight: Flight, def: EventDefinition, hadError: Boolean) {
             val sql = """
@@ -0,0 +1,90 @@
+package events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.ngafid.core.event.Event;
+import org.ngafid.core.event.EventDefinition;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.Parameters;
+import org.ngafid.core.flights.StringTimeSeries;
+import org.ngafid.core.util.TimeUtils;
+import org.ngafid.core.util.filters.Filter;
+import org.ngafid.processor.events.EventScanner;
+import org.ngafid.processor.events.MultiEventScanner;
+
+public class MultiEventScannerTest {
+    private static final List<String> COLUMNS = List.of("Pitch", "Roll", "IAS");
+
+    private static Filter rule(String column, String operator, double value) {
+        return new Filter(new ArrayList<>(List.of(column, operator, Double.toString(value))));
+    }
+
+    @Test
+    public void shouldFindSameEventsAsEventScanner() {
+        Random random = new Random(99);
+        int rows = 5000;
+
+        Map<String, DoubleTimeSeries> doubleSeries = new HashMap<>();
+        for (String column : COLUMNS) {
+            double[] data = new double[rows];
+            double value = 0;
+            for (int i = 0; i < rows; i++) {
+                value += random.nextGaussian();
+                data[i] = random.nextInt(50) == 0 ? Double.NaN : value;
+            }
+            doubleSeries.put(column, new DoubleTimeSeries(column, "units", data));
+        }
+
+        StringTimeSeries utc = new StringTimeSeries(Parameters.UTC_DATE_TIME, "yyyy-mm-dd hh:mm:ss");
+        OffsetDateTime start = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < rows; i++) {
+            utc.add(start.plusSeconds(i).format(TimeUtils.getIso8601Format()));
+        }
+        Map<String, StringTimeSeries> stringSeries = Map.of(Parameters.UTC_DATE_TIME, utc);
+
+        List<EventDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Filter filter = new Filter(random.nextBoolean() ? "AND" : "OR");
+            String first = random.nextBoolean() ? ">" : "<";
+            String second = random.nextBoolean() ? ">=" : "<=";
+            filter.addFilter(rule(COLUMNS.get(random.nextInt(3)), first, random.nextInt(20)));
+            filter.addFilter(rule(COLUMNS.get(random.nextInt(3)), second, -random.nextInt(20)));
+
+            TreeSet<String> severityColumns = new TreeSet<>(List.of(COLUMNS.get(random.nextInt(3))));
+            EventDefinition.SeverityType severityType =
+                    EventDefinition.SeverityType.values()[random.nextInt(EventDefinition.SeverityType.values().length)];
+
+            definitions.add(new EventDefinition(
+                    0, "event " + i, 1 + random.nextInt(5), 1 + random.nextInt(5), 0, filter, severityColumns,
+                    severityType));
+        }
+
+        List<Event> expected = new ArrayList<>();
+        for (EventDefinition definition : definitions) {
+            expected.addAll(new EventScanner(definition).scan(doubleSeries, stringSeries));
+        }
+
+        assertFalse(expected.isEmpty());
+
+        List<Event> actual = new MultiEventScanner(definitions).scan(doubleSeries, stringSeries);
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartLine(), actual.get(i).getStartLine());
+            assertEquals(expected.get(i).getEndLine(), actual.get(i).getEndLine());
+            assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+            assertEquals(expected.get(i).getEndTime(), actual.get(i).getEndTime());
+            assertEquals(expected.get(i).getSeverity(), actual.get(i).getSeverity(), 0.0);
+        }
+    }
+}
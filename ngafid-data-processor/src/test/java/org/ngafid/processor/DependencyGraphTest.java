@@ -0,0 +1,232 @@
+package org.ngafid.processor;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.FatalFlightFileException;
+import org.ngafid.core.flights.FlightMeta;
+import org.ngafid.core.flights.FlightProcessingException;
+import org.ngafid.core.flights.MalformedFlightFileException;
+import org.ngafid.core.flights.StringTimeSeries;
+import org.ngafid.processor.format.FlightBuilder;
+import org.ngafid.processor.steps.ComputeStep;
+
+public class DependencyGraphTest {
+    private static final int ROWS = 8;
+
+    /**
+     * A step that adds each of its output columns as the sum of its inputs plus a constant, or fails if it is told to.
+     */
+    private static class SumStep extends ComputeStep {
+        private final Set<String> inputs;
+        private final Set<String> outputs;
+        private final double constant;
+        private final Exception failure;
+        private final Map<String, AtomicInteger> computed;
+
+        SumStep(
+                FlightBuilder builder,
+                Map<String, AtomicInteger> computed,
+                Set<String> inputs,
+                Set<String> outputs,
+                double constant,
+                Exception failure) {
+            super(null, builder);
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.constant = constant;
+            this.failure = failure;
+            this.computed = computed;
+        }
+
+        @Override
+        public Set<String> getRequiredDoubleColumns() {
+            return inputs;
+        }
+
+        @Override
+        public Set<String> getRequiredStringColumns() {
+            return Set.of();
+        }
+
+        @Override
+        public Set<String> getRequiredColumns() {
+            return inputs;
+        }
+
+        @Override
+        public Set<String> getOutputColumns() {
+            return outputs;
+        }
+
+        @Override
+        public void compute() throws MalformedFlightFileException, FatalFlightFileException {
+            for (String output : outputs) computed.computeIfAbsent(output, x -> new AtomicInteger()).incrementAndGet();
+
+            if (failure instanceof MalformedFlightFileException me) throw me;
+            if (failure instanceof FatalFlightFileException fe) throw fe;
+
+            double[] values = new double[ROWS];
+            for (int i = 0; i < ROWS; i++) {
+                values[i] = constant;
+                for (String input : inputs) values[i] += builder.getDoubleTimeSeries(input).get(i);
+            }
+
+            for (String output : outputs) builder.addTimeSeries(output, new DoubleTimeSeries(output, "", values, ROWS));
+        }
+    }
+
+    private static FlightBuilder flight() {
+        double[] altitude = new double[ROWS];
+        for (int i = 0; i < ROWS; i++) altitude[i] = i * 100;
+
+        Map<String, DoubleTimeSeries> doubles = new HashMap<>();
+        doubles.put("Altitude", new DoubleTimeSeries("Altitude", "ft", altitude, ROWS));
+        Map<String, StringTimeSeries> strings = new HashMap<>();
+        return new FlightBuilder(new FlightMeta(), doubles, strings);
+    }
+
+    /**
+     * A diamond of steps below the flight's column, with a step that depends on the bottom of the diamond and a step
+     * that depends on a column the flight does not have.
+     */
+    private static List<ComputeStep> steps(FlightBuilder builder, Map<String, AtomicInteger> computed) {
+        return List.of(
+                new SumStep(builder, computed, Set.of("Altitude"), Set.of("A"), 1, null),
+                new SumStep(builder, computed, Set.of("Altitude"), Set.of("B"), 2, null),
+                new SumStep(builder, computed, Set.of("A", "B"), Set.of("C"), 3, null),
+                new SumStep(builder, computed, Set.of("C"), Set.of("D"), 4, null),
+                new SumStep(builder, computed, Set.of("Missing"), Set.of("E"), 5, null));
+    }
+
+    private static ComputeStep required(FlightBuilder builder, Function<FlightBuilder, ComputeStep> step) {
+        return ComputeStep.required((connection, b) -> step.apply(b)).create(null, builder);
+    }
+
+    private static int occurrences(String text, String pattern) {
+        int count = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) count++;
+        return count;
+    }
+
+    @Test
+    public void sequentialAndCriticalPathProduceTheSameColumns() throws FlightProcessingException {
+        Map<String, AtomicInteger> sequentialComputed = new ConcurrentHashMap<>();
+        FlightBuilder sequential = flight();
+        new DependencyGraph(sequential, steps(sequential, sequentialComputed)).computeSequential();
+
+        Map<String, AtomicInteger> parallelComputed = new ConcurrentHashMap<>();
+        FlightBuilder parallel = flight();
+        new DependencyGraph(parallel, steps(parallel, parallelComputed)).computeCriticalPath();
+
+        assertEquals(Set.of("Altitude", "A", "B", "C", "D"), sequential.getDoubleTimeSeriesKeySet());
+        assertEquals(sequential.getDoubleTimeSeriesKeySet(), parallel.getDoubleTimeSeriesKeySet());
+        for (String column : sequential.getDoubleTimeSeriesKeySet()) {
+            DoubleTimeSeries expected = sequential.getDoubleTimeSeries(column);
+            DoubleTimeSeries actual = parallel.getDoubleTimeSeries(column);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), actual.get(i), 0.0);
+        }
+
+        // D = (2 * Altitude + 3) + 3 + 4
+        assertEquals(700 * 2 + 10, sequential.getDoubleTimeSeries("D").get(7), 0.0);
+
+        for (var computed : List.of(sequentialComputed, parallelComputed)) {
+            for (String column : List.of("A", "B", "C", "D")) assertEquals(1, computed.get(column).get());
+            assertFalse(computed.containsKey("E"));
+        }
+        assertTrue(sequential.exceptions.isEmpty());
+        assertTrue(parallel.exceptions.isEmpty());
+    }
+
+    @Test
+    public void failingOptionalStepDisablesItsChildren() throws FlightProcessingException {
+        for (boolean criticalPath : new boolean[] {false, true}) {
+            Map<String, AtomicInteger> computed = new ConcurrentHashMap<>();
+            FlightBuilder builder = flight();
+            List<ComputeStep> steps = List.of(
+                    new SumStep(builder, computed, Set.of("Altitude"), Set.of("A"), 1, null),
+                    new SumStep(
+                            builder,
+                            computed,
+                            Set.of("Altitude"),
+                            Set.of("B"),
+                            2,
+                            new MalformedFlightFileException("B failed")),
+                    new SumStep(builder, computed, Set.of("A", "B"), Set.of("C"), 3, null),
+                    new SumStep(builder, computed, Set.of("C"), Set.of("D"), 4, null));
+
+            DependencyGraph graph = new DependencyGraph(builder, steps);
+            if (criticalPath) graph.computeCriticalPath();
+            else graph.computeSequential();
+
+            assertEquals(1, computed.get("A").get());
+            assertEquals(1, computed.get("B").get());
+            assertFalse(computed.containsKey("C"));
+            assertFalse(computed.containsKey("D"));
+            assertEquals(Set.of("Altitude", "A"), builder.getDoubleTimeSeriesKeySet());
+
+            // The failure itself, and the failed step being disabled; its optional children add nothing.
+            assertEquals(2, builder.exceptions.size());
+            for (var e : builder.exceptions) assertEquals("B failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void failingRequiredStepsDisableTheirChildOnce() {
+        for (boolean criticalPath : new boolean[] {false, true}) {
+            Map<String, AtomicInteger> computed = new ConcurrentHashMap<>();
+            FlightBuilder builder = flight();
+            List<ComputeStep> steps = List.of(
+                    required(builder, b -> new SumStep(
+                            b, computed, Set.of("Altitude"), Set.of("A"), 1, new FatalFlightFileException("A failed"))),
+                    required(builder, b -> new SumStep(
+                            b, computed, Set.of("Altitude"), Set.of("B"), 2, new FatalFlightFileException("B failed"))),
+                    required(builder, b -> new SumStep(b, computed, Set.of("A", "B"), Set.of("C"), 3, null)));
+
+            try {
+                DependencyGraph graph = new DependencyGraph(builder, steps);
+                if (criticalPath) graph.computeCriticalPath();
+                else graph.computeSequential();
+                fail("The required steps' exceptions did not reach handleExceptions");
+            } catch (FlightProcessingException e) {
+                assertTrue(e.getMessage().contains("A failed"));
+                assertTrue(e.getMessage().contains("B failed"));
+                assertEquals(1, occurrences(e.getMessage(), "Step 'SumStep' cannot be applied"));
+            }
+
+            assertFalse(computed.containsKey("C"));
+            assertEquals(Set.of("Altitude"), builder.getDoubleTimeSeriesKeySet());
+        }
+    }
+
+    @Test
+    public void nonApplicableStepDisablesItsChildren() throws FlightProcessingException {
+        for (boolean criticalPath : new boolean[] {false, true}) {
+            Map<String, AtomicInteger> computed = new ConcurrentHashMap<>();
+            FlightBuilder builder = flight();
+            List<ComputeStep> steps = List.of(
+                    new SumStep(builder, computed, Set.of("Missing"), Set.of("A"), 1, null),
+                    new SumStep(builder, computed, Set.of("A"), Set.of("B"), 2, null),
+                    new SumStep(builder, computed, Set.of("Altitude"), Set.of("C"), 3, null));
+
+            DependencyGraph graph = new DependencyGraph(builder, steps);
+            if (criticalPath) graph.computeCriticalPath();
+            else graph.computeSequential();
+
+            assertFalse(computed.containsKey("A"));
+            assertFalse(computed.containsKey("B"));
+            assertEquals(1, computed.get("C").get());
+            assertEquals(Set.of("Altitude", "C"), builder.getDoubleTimeSeriesKeySet());
+            assertTrue(builder.exceptions.isEmpty());
+        }
+    }
+}
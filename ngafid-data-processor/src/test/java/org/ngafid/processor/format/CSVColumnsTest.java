@@ -0,0 +1,106 @@
+package org.ngafid.processor.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.flights.StringTimeSeries;
+
+public class CSVColumnsTest {
+    private static final List<String> HEADERS = List.of("Lcl Date", "AltMSL", "AtvWpt", "E1 RPM");
+    private static final List<String> TYPES = List.of("yyyy-mm-dd", "ft", "ident", "rpm");
+
+    private final Map<String, DoubleTimeSeries> doubles = new HashMap<>();
+    private final Map<String, StringTimeSeries> strings = new HashMap<>();
+
+    private static CSVRecordReader records(String csv) {
+        return new CSVRecordReader(new StringReader(csv));
+    }
+
+    private CSVColumns read(String csv) throws IOException {
+        CSVColumns columns = new CSVColumns(HEADERS.size());
+        columns.read(records(csv));
+        if (columns.needsReread()) columns.reread(records(csv));
+        columns.build(HEADERS, TYPES, doubles, strings);
+        return columns;
+    }
+
+    @Test
+    public void splitsQuotedFieldsAndLineEndings() throws IOException {
+        CSVRecordReader reader = records("a, \"b,c\",\"d\"\"e\"\r\n\"multi\nline\",2\r3\n\nlast");
+
+        assertTrue(reader.next());
+        assertEquals(3, reader.fieldCount());
+        assertEquals("a", reader.get(0));
+        assertEquals("b,c", reader.get(1));
+        assertEquals("d\"e", reader.get(2));
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.fieldCount());
+        assertEquals("multi\nline", reader.get(0));
+        assertEquals("2", reader.get(1));
+
+        assertTrue(reader.next());
+        assertEquals("3", reader.get(0));
+
+        // A blank line is a record with one empty field
+        assertTrue(reader.next());
+        assertEquals(1, reader.fieldCount());
+        assertTrue(reader.isBlank(0));
+
+        assertTrue(reader.next());
+        assertEquals("last", reader.get(0));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void infersColumnTypes() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            String rpm = i < 10 ? "  " : String.valueOf(2000 + i % 7);
+            String waypoint = i == 2500 ? "KROC" : String.valueOf(i % 3);
+            csv.append("2024-01-0").append(1 + i / 1000).append(',').append(i * 0.5).append(',');
+            csv.append(waypoint).append(',').append(rpm).append('\n');
+        }
+
+        CSVColumns columns = read(csv.toString());
+        assertEquals(3000, columns.getValidRows());
+
+        assertEquals(List.of("AltMSL", "E1 RPM"), doubles.keySet().stream().sorted().toList());
+        assertEquals(1499.5, doubles.get("AltMSL").get(2999), 0);
+        assertTrue(Double.isNaN(doubles.get("E1 RPM").get(0)));
+        assertEquals(2003, doubles.get("E1 RPM").get(10), 0);
+        assertEquals(2000, doubles.get("E1 RPM").getMin(), 0);
+
+        // The waypoint column only stops being numeric late in the file, so it is read again as strings
+        StringTimeSeries waypoints = strings.get("AtvWpt");
+        assertEquals(3000, waypoints.size());
+        assertEquals("1", waypoints.get(1));
+        assertEquals("KROC", waypoints.get(2500));
+        assertEquals("2024-01-03", strings.get("Lcl Date").get(2999));
+    }
+
+    @Test
+    public void blankMiddleValueMakesStringColumn() throws IOException {
+        read("2024-01-01,1,A,\n2024-01-01,2,B,\n2024-01-01,3,C,2400\n");
+
+        assertEquals(List.of("AltMSL"), doubles.keySet().stream().toList());
+        assertEquals("2400", strings.get("E1 RPM").get(2));
+    }
+
+    @Test
+    public void stopsAtFirstMalformedRow() throws IOException {
+        CSVColumns columns = read("2024-01-01,1,A,2400\n2024-01-01,2,B\n2024-01-01,3,C,2400\n");
+
+        assertEquals(1, columns.getValidRows());
+        assertEquals(3, columns.getRecords());
+        assertEquals(1, doubles.get("AltMSL").size());
+    }
+}
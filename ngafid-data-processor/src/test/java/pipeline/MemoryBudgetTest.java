@@ -0,0 +1,69 @@
+package pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.ngafid.processor.MemoryBudget;
+
+public class MemoryBudgetTest {
+    private static Thread acquireInBackground(MemoryBudget budget, long bytes, CountDownLatch acquired) {
+        Thread thread = new Thread(() -> {
+            try {
+                budget.acquire(bytes);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void admissionWaitsForRoom() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(60);
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = acquireInBackground(budget, 60, acquired);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(60);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(60, budget.getUsed());
+    }
+
+    @Test
+    public void adjustmentsNeverWait() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(50);
+        budget.adjust(500);
+        assertEquals(550, budget.getUsed());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = acquireInBackground(budget, 10, acquired);
+        budget.adjust(-500);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void oversizedWorkIsAdmittedAlone() throws InterruptedException {
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.acquire(1000);
+        assertEquals(1000, budget.getUsed());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = acquireInBackground(budget, 1, acquired);
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(1000);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+}
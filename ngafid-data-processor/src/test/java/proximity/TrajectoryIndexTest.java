@@ -0,0 +1,82 @@
+package proximity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.Test;
+import org.ngafid.processor.events.proximity.FlightTimeLocation;
+import org.ngafid.processor.events.proximity.TrajectoryIndex;
+
+public class TrajectoryIndexTest {
+    private static final double START_TIME = 1_700_000_000;
+    private static final int ROWS = 300;
+
+    private FlightTimeLocation createFlight(int flightId, double startTime, double latitude, double altitudeAGL) {
+        double[] epochTime = new double[ROWS];
+        double[] latitudes = new double[ROWS];
+        double[] longitudes = new double[ROWS];
+        double[] altitudeMSL = new double[ROWS];
+        double[] altitudesAGL = new double[ROWS];
+
+        for (int i = 0; i < ROWS; i++) {
+            epochTime[i] = startTime + i;
+            latitudes[i] = latitude;
+            longitudes[i] = -97.0 + i * 0.0005;
+        }
+        Arrays.fill(altitudeMSL, 2000 + altitudeAGL);
+        Arrays.fill(altitudesAGL, altitudeAGL);
+
+        return new FlightTimeLocation(flightId, epochTime, latitudes, longitudes, altitudeMSL, altitudesAGL);
+    }
+
+    @Test
+    public void shouldOnlyFindFlightsNearbyInTimeAndSpace() {
+        TrajectoryIndex index = new TrajectoryIndex(1_000_000);
+        index.add(createFlight(1, START_TIME, 40.001, 500));
+        index.add(createFlight(2, START_TIME + 7200, 40.0, 500));
+        index.add(createFlight(3, START_TIME, 41.0, 500));
+        index.add(createFlight(4, START_TIME, 40.0, 20));
+
+        FlightTimeLocation flight = createFlight(5, START_TIME + 60, 40.0, 500);
+        assertEquals(Set.of(1), index.findNearby(flight));
+
+        index.add(flight);
+        assertEquals(Set.of(5), index.findNearby(index.get(1)));
+    }
+
+    @Test
+    public void shouldFindFlightsInAdjacentCells() {
+        TrajectoryIndex index = new TrajectoryIndex(1_000_000);
+        index.add(createFlight(1, START_TIME, 40.0499, 500));
+
+        assertEquals(Set.of(1), index.findNearby(createFlight(2, START_TIME, 40.0501, 500)));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedFlights() {
+        TrajectoryIndex index = new TrajectoryIndex(2 * ROWS);
+        index.add(createFlight(1, START_TIME, 40.0, 500));
+        index.add(createFlight(2, START_TIME, 40.0, 500));
+        index.get(1);
+        index.add(createFlight(3, START_TIME, 40.0, 500));
+
+        assertEquals(2, index.size());
+        assertEquals(2 * ROWS, index.getRows());
+        assertTrue(index.contains(1));
+        assertFalse(index.contains(2));
+        assertEquals(Set.of(1, 3), index.findNearby(createFlight(4, START_TIME, 40.0, 500)));
+    }
+
+    @Test
+    public void shouldReplaceExistingTrajectories() {
+        TrajectoryIndex index = new TrajectoryIndex(1_000_000);
+        index.add(createFlight(1, START_TIME, 40.0, 500));
+        index.add(createFlight(1, START_TIME + 7200, 40.0, 500));
+
+        assertEquals(ROWS, index.getRows());
+        assertTrue(index.findNearby(createFlight(2, START_TIME, 40.0, 500)).isEmpty());
+    }
+}
@@ -63,4 +63,37 @@ public class TerrainCacheTest {
     public void testGetPhoenixAltitudeFt() {
         altitudeTest(33.43727, -112.00779, 1124.0);
     }
+
+    @Test
+    public void testFillAltitudeAGLMatchesSingleLookups() throws Exception {
+        double[] lat = {42.74871, 42.74880, Double.NaN, 47.94286, 39.85610, 39.85620};
+        double[] lon = {-73.80550, -73.80560, -73.80560, -97.17658, -104.67374, -104.67380};
+        double[] msl = {1000, 1010, 1020, 2000, 8000, 8010};
+        double[] agl = new double[lat.length];
+
+        TerrainCache.fillAltitudeAGL(msl, lat, lon, agl);
+
+        for (int i = 0; i < lat.length; i++) {
+            if (Double.isNaN(lat[i])) {
+                Assert.assertTrue(Double.isNaN(agl[i]));
+            } else {
+                assertEquals(getAltitudeFt(msl[i], lat[i], lon[i]), agl[i], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testFillAltitudeAGLBilinear() {
+        double[] lat = {42.74871, 33.43727};
+        double[] lon = {-73.80550, -112.00779};
+        double[] expected = {267.0, 1124.0};
+        double[] msl = {expected[0] * 2, expected[1] * 2};
+        double[] agl = new double[lat.length];
+
+        TerrainCache.fillAltitudeAGL(msl, lat, lon, agl, true);
+
+        for (int i = 0; i < lat.length; i++) {
+            assertEquals(expected[i], agl[i], 30);
+        }
+    }
 }
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset ngafid:upload-chunks labels:accounts,performance
+-- MD5 hash of every chunk of a file upload, recorded as the chunk is written into the upload's archive file
+CREATE TABLE upload_chunks (
+    upload_id INT NOT NULL,
+    chunk_number INT NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    md5_hash CHAR(32) NOT NULL,
+
+    PRIMARY KEY (upload_id, chunk_number),
+    FOREIGN KEY (upload_id) REFERENCES uploads(id)
+        ON DELETE CASCADE
+);
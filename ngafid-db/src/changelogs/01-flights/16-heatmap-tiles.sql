@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset ngafid:heatmap-tiles labels:flights,performance
+-- Heatmap points aggregated into grid cells 180 / 2^zoom degrees wide at every zoom level, maintained by
+-- org.ngafid.core.heatmap.HeatmapTiles. Run its main method to build the tiles of existing heatmap points.
+CREATE TABLE heatmap_tiles (
+    zoom TINYINT NOT NULL,
+    cell_y INT NOT NULL,
+    cell_x INT NOT NULL,
+    month DATE NOT NULL,
+    event_definition_id INT NOT NULL,
+    airframe_id INT NOT NULL,
+    fleet_id INT NOT NULL,
+
+    event_count INT NOT NULL DEFAULT 0,
+    point_count INT NOT NULL DEFAULT 0,
+    max_severity DOUBLE NOT NULL,
+
+    PRIMARY KEY (zoom, cell_y, cell_x, month, event_definition_id, airframe_id, fleet_id),
+    INDEX (event_definition_id)
+);
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset ngafid:fleet-statistics-versions labels:views,performance
+-- Incremented by org.ngafid.core.statistics.FleetStatisticsCacheRefresh whenever the materialized statistics of a
+-- fleet change, so the web server knows when the summary statistics it cached are out of date.
+CREATE TABLE fleet_statistics_versions (
+    fleet_id INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+
+    PRIMARY KEY (fleet_id),
+    FOREIGN KEY (fleet_id) REFERENCES fleet(id)
+);
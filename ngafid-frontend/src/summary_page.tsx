@@ -49,6 +49,9 @@ const targetValues = {
     flightsWithError: "/api/flight/count/with-error",
 };
 
+//Returns every statistic in targetValues at once, which the summary page uses instead of the individual routes
+const SUMMARY_STATISTICS_ROUTE = "/api/fleet/statistics";
+
 const LOADING_STRING = "...";
 
 const floatOptions = {
@@ -732,38 +735,39 @@ export default class SummaryPage extends React.Component<SummaryPageProps, Summa
 
         console.log("SummaryPage -- Fetching Statistics...");
 
-        for await (const [stat, route] of Object.entries(targetValues)) {
-
-            const successResponseHandler = (response: { err_msg: string; err_title: string; }) => {
+        //All statistics come from a single route, which returns them under the same names as in targetValues
+        const successResponseHandler = (response: { [stat: string]: number | null; } & { err_msg?: string; err_title?: string; }) => {
 
-                console.log("Got response for statistic: ", stat, response);
+            console.log("Got response for statistics: ", response);
 
-                if (response.err_msg) {
-                    showErrorModal(response.err_title, response.err_msg);
-                    return;
-                }
+            if (response.err_msg) {
+                showErrorModal(response.err_title ?? "Error Loading Statistics", response.err_msg);
+                return;
+            }
 
-                const result: { [key: string]: string } = {};
-                result[stat] = (typeof response === "string" ? response : JSON.stringify(response));
-                this.setState(prev => ({
-                    statistics: {...prev.statistics, ...result}
-                }));
+            const result: { [key: string]: string } = {};
+            for (const stat of Object.keys(targetValues)) {
+                if (response[stat] !== null && response[stat] !== undefined)
+                    result[stat] = JSON.stringify(response[stat]);
+            }
 
-            };
+            this.setState(prev => ({
+                statistics: {...prev.statistics, ...result}
+            }));
 
-            fetchStatistic(
-                stat,
-                route,
-                this.props.aggregate,
-                this.state.airframe,
-                startYear,
-                startMonth,
-                endYear,
-                endMonth,
-                successResponseHandler
-            );
+        };
 
-        }
+        fetchStatistic(
+            "summary",
+            SUMMARY_STATISTICS_ROUTE,
+            this.props.aggregate,
+            this.state.airframe,
+            startYear,
+            startMonth,
+            endYear,
+            endMonth,
+            successResponseHandler
+        );
 
     }
 
@@ -4,6 +4,9 @@ import React from "react";
 import Plotly from 'plotly.js';
 import {showErrorModal} from "./error_modal.js";
 
+// Series are downsampled to about this many points for the chart; zooming in fetches the visible range again
+const CHART_POINTS = 2000;
+
 class TraceButtons extends React.Component {
     constructor(props) {
         super(props);
@@ -11,6 +14,57 @@ class TraceButtons extends React.Component {
         this.state = {
             parentFlight: this.props.parentFlight
         };
+
+        //the latest zoom request for each series
+        this.zoomSequence = {};
+        this.zoomed = this.zoomed.bind(this);
+    }
+
+    seriesUrl(seriesName, range) {
+        let url = `/api/flight/${this.props.flightId}/double-series/${encodeURIComponent(seriesName)}?points=${CHART_POINTS}`;
+        if (range) url += `&from=${Math.max(0, Math.floor(range[0]))}&to=${Math.ceil(range[1]) + 1}`;
+        return url;
+    }
+
+    /**
+     * Fetches the visible range of this flight's series again whenever the chart is zoomed or panned. Each flight on
+     * the page adds its own handler to the shared plot; re-adding it (e.g. after the plot was recreated) is a no-op.
+     */
+    bindZoom() {
+        const plot = $("#plot")[0];
+        if (!plot) return;
+
+        plot.removeListener('plotly_relayout', this.zoomed);
+        plot.on('plotly_relayout', this.zoomed);
+    }
+
+    zoomed(event) {
+        let range = null;
+        if ('xaxis.range[0]' in event) range = [event['xaxis.range[0]'], event['xaxis.range[1]']];
+        else if (event['xaxis.range']) range = event['xaxis.range'];
+        else if (!event['xaxis.autorange']) return;
+
+        const parentFlight = this.state.parentFlight;
+        for (const [seriesName, traceIndex] of Object.entries(parentFlight.state.traceIndex)) {
+            //responses can arrive out of order, only the one for the latest range is drawn
+            const sequence = (this.zoomSequence[seriesName] || 0) + 1;
+            this.zoomSequence[seriesName] = sequence;
+
+            $.ajax({
+                type: 'GET',
+                url: this.seriesUrl(seriesName, range),
+                async: true,
+                success: (response) => {
+                    if (this.zoomSequence[seriesName] !== sequence) return;
+                    Plotly.restyle('plot', {x: [response.x], y: [response.y]}, [traceIndex]);
+                },
+            });
+        }
+    }
+
+    componentWillUnmount() {
+        const plot = $("#plot")[0];
+        if (plot && plot.removeListener) plot.removeListener('plotly_relayout', this.zoomed);
     }
 
     traceClicked(seriesName) {
@@ -26,7 +80,7 @@ class TraceButtons extends React.Component {
 
             $.ajax({
                 type: 'GET',
-                url: `/api/flight/${this.props.flightId}/double-series/${seriesName}`,
+                url: this.seriesUrl(seriesName, null),
                 async: true,
                 success: (response) => {
 
@@ -43,6 +97,7 @@ class TraceButtons extends React.Component {
                     parentFlight.setState(parentFlight.state);
 
                     Plotly.addTraces('plot', [trace]);
+                    this.bindZoom();
                 },
                 error: (jqXHR, textStatus, errorThrown) => {
                     showErrorModal(`Failed to load time series data for ${seriesName}`, errorThrown);
@@ -5,31 +5,154 @@ import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import org.ngafid.core.Config;
 import org.ngafid.core.Database;
+import org.ngafid.core.metrics.MetricsRegistry;
 
+/**
+ * Logs API requests to the `api_logs` table without holding up the request.
+ * <p>
+ * Requests are placed in a bounded queue and written by a background thread with multi-row inserts, once
+ * {@link Config#API_LOG_BATCH_SIZE} requests are waiting or every {@link Config#API_LOG_FLUSH_INTERVAL_MS}
+ * milliseconds. Under overload requests are sampled once the queue is half full, and dropped once it is full, rather
+ * than blocking the request thread. The queue depth and the number of requests received, dropped, written and failed
+ * to write are in {@link #METRICS}, which is served at `/api/metrics`; the number of dropped requests is also logged
+ * whenever it grows.
+ */
 public class APILogger {
+    private static final Logger LOG = Logger.getLogger(APILogger.class.getName());
+
+    /**
+     * Once the queue is half full only one in this many requests is logged.
+     */
+    private static final int OVERLOAD_SAMPLE_RATE = 10;
+
+    private record LogEntry(String method, String path, int statusCode, String ip, String referer, long timestamp) {}
+
+    private static final ArrayBlockingQueue<LogEntry> QUEUE = new ArrayBlockingQueue<>(Config.API_LOG_QUEUE_SIZE);
+
+    private static final AtomicLong RECEIVED = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final AtomicLong FAILED = new AtomicLong();
+
+    public static final MetricsRegistry METRICS = new MetricsRegistry();
+
+    static {
+        METRICS.gauge("ngafid_api_log_queue_depth", "API requests waiting to be written to api_logs.", QUEUE::size);
+        METRICS.counter("ngafid_api_log_received_total", "API requests received for logging.", RECEIVED::get);
+        METRICS.counter("ngafid_api_log_dropped_total", "API requests not logged because of overload.", DROPPED::get);
+        METRICS.counter("ngafid_api_log_written_total", "API requests written to api_logs.", WRITTEN::get);
+        METRICS.counter("ngafid_api_log_failed_total", "API requests that failed to be written.", FAILED::get);
+
+        Thread writer = new Thread(APILogger::writeLoop, "api-logger");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(APILogger::flush, "api-logger-shutdown"));
+    }
+
     private APILogger() {
         // Utility class
     }
 
     public static void logRequest(String method, String path, int statusCode, String ipString, String referer) {
-        String sql = "INSERT INTO api_logs (method, path, status_code, ip, referer) VALUES (?, ?, ?, ?, ?)";
+        long received = RECEIVED.incrementAndGet();
 
-        try (Connection conn = Database.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+        if (QUEUE.size() >= Config.API_LOG_QUEUE_SIZE / 2 && received % OVERLOAD_SAMPLE_RATE != 0) {
+            DROPPED.incrementAndGet();
+            return;
+        }
+
+        if (!QUEUE.offer(new LogEntry(method, path, statusCode, ipString, referer, System.currentTimeMillis()))) {
+            DROPPED.incrementAndGet();
+        }
+    }
 
-            ps.setString(1, method);
-            ps.setString(2, path);
-            ps.setInt(3, statusCode);
+    private static void writeLoop() {
+        List<LogEntry> batch = new ArrayList<>(Config.API_LOG_BATCH_SIZE);
+        long reportedDropped = 0;
 
-            byte[] ipBytes = InetAddress.getByName(ipString).getAddress();
-            ps.setBytes(4, ipBytes);
-            ps.setString(5, referer);
+        while (true) {
+            try {
+                long deadline = System.currentTimeMillis() + Config.API_LOG_FLUSH_INTERVAL_MS;
+                while (batch.size() < Config.API_LOG_BATCH_SIZE) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) break;
+
+                    LogEntry entry = QUEUE.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (entry == null) break;
+                    batch.add(entry);
+                    QUEUE.drainTo(batch, Config.API_LOG_BATCH_SIZE - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // Write what we have and keep going -- this thread lives as long as the server.
+            }
+
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+
+            long dropped = DROPPED.get();
+            if (dropped != reportedDropped) {
+                LOG.warning("API logging is overloaded: " + (dropped - reportedDropped) + " requests were not logged ("
+                        + dropped + " of " + RECEIVED.get() + " in total), " + QUEUE.size() + " waiting to be written, "
+                        + WRITTEN.get() + " written, " + FAILED.get() + " failed to write");
+                reportedDropped = dropped;
+            }
+        }
+    }
+
+    /**
+     * Writes every request still in the queue, e.g. when the server shuts down.
+     */
+    private static void flush() {
+        List<LogEntry> batch = new ArrayList<>(Config.API_LOG_BATCH_SIZE);
+        while (QUEUE.drainTo(batch, Config.API_LOG_BATCH_SIZE) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private static void write(List<LogEntry> batch) {
+        String sql = "INSERT INTO api_logs (method, path, status_code, ip, referer, timestamp) VALUES "
+                + String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?, ?, ?, ?)"));
+
+        try (Connection conn = Database.getConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            int parameter = 1;
+            for (LogEntry entry : batch) {
+                ps.setString(parameter++, entry.method());
+                ps.setString(parameter++, entry.path());
+                ps.setInt(parameter++, entry.statusCode());
+                ps.setBytes(parameter++, parseIp(entry.ip()));
+                ps.setString(parameter++, entry.referer());
+                ps.setTimestamp(parameter++, new Timestamp(entry.timestamp()));
+            }
 
             ps.executeUpdate();
-        } catch (SQLException | UnknownHostException e) {
-            System.err.println("Failed to log API request: " + e.getMessage());
-            // hello
+            WRITTEN.addAndGet(batch.size());
+        } catch (SQLException e) {
+            FAILED.addAndGet(batch.size());
+            System.err.println("Failed to log " + batch.size() + " API requests: " + e.getMessage());
+        }
+    }
+
+    private static byte[] parseIp(String ipString) {
+        try {
+            return InetAddress.getByName(ipString).getAddress();
+        } catch (UnknownHostException e) {
+            System.err.println("Failed to log API request IP address: " + e.getMessage());
+            return null;
         }
     }
 }
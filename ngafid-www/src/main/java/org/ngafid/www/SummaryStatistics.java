@@ -0,0 +1,182 @@
+package org.ngafid.www;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.ngafid.core.Config;
+import org.ngafid.core.statistics.FleetStatisticsCacheRefresh;
+import org.ngafid.core.util.TimeUtils;
+import org.ngafid.www.uploads.UploadStatistics.UploadCounts;
+
+/**
+ * The flight time, flight, event and upload totals shown on the summary page, for a fleet or for all fleets. They are
+ * read in a single query, which scans each materialized statistics table once, and cached for
+ * {@link Config#STATISTICS_CACHE_TTL_SECONDS} seconds or until {@link FleetStatisticsCacheRefresh} refreshes the
+ * fleet.
+ * <p>
+ * The 30-day totals of a fleet are read from the live {@code v_fleet_30_day_*} views, as before: the materialized
+ * 30-day tables only drop flights older than 30 days when they are rebuilt. The 30-day totals of all fleets are read
+ * from the materialized tables, as the {@code v_aggregate_30_day_*} views did. Either way they can be up to
+ * {@link Config#STATISTICS_CACHE_TTL_SECONDS} seconds old.
+ * <p>
+ * The totals over a date range include every month from the month of the start date to the month of the end date, as
+ * {@link org.ngafid.www.routes.StatisticsJavalinRoutes#buildDateClause} does. The yearly totals are for the current
+ * year, the monthly event total is for the current month, and the monthly flight totals are for the past 30 days.
+ *
+ * @param flightTime      flight time in seconds over the date range, of the airframe if one was given
+ * @param yearFlightTime  flight time in seconds over the current year
+ * @param monthFlightTime flight time in seconds over the past 30 days
+ * @param flights         number of flights over the date range, of the airframe if one was given
+ * @param yearFlights     number of flights over the current year
+ * @param monthFlights    number of flights over the past 30 days
+ * @param events          number of events over the date range, on flights of the airframe if one was given
+ * @param yearEvents      number of events over the current year
+ * @param monthEvents     number of events over the current month
+ * @param uploads         upload counts over the date range
+ */
+public record SummaryStatistics(
+        double flightTime,
+        double yearFlightTime,
+        double monthFlightTime,
+        int flights,
+        int yearFlights,
+        int monthFlights,
+        int events,
+        int yearEvents,
+        int monthEvents,
+        UploadCounts uploads) {
+
+    private record Key(int fleetId, LocalDate startDate, LocalDate endDate, int airframeId) {}
+
+    private record Cached(SummaryStatistics statistics, long version, long expiresAt) {}
+
+    private static final long CACHE_TTL_NANOS = TimeUnit.SECONDS.toNanos(Config.STATISTICS_CACHE_TTL_SECONDS);
+
+    /**
+     * Statistics by the request they were computed for, least recently used first.
+     */
+    private static final LinkedHashMap<Key, Cached> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+            return size() > Config.STATISTICS_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Gets the statistics from the cache, or computes them if they are not cached, have expired, or the statistics of
+     * the fleet have been refreshed since. Checking the latter is a single primary key lookup.
+     *
+     * @param connection the database connection
+     * @param fleetId    the fleet, or a non-positive value for all fleets
+     * @param startDate  the first day of the date range
+     * @param endDate    the last day of the date range
+     * @param airframeId the airframe the date range totals are limited to, or a negative value for all airframes
+     * @return the statistics
+     * @throws SQLException if a query fails
+     */
+    public static SummaryStatistics get(
+            Connection connection, int fleetId, LocalDate startDate, LocalDate endDate, int airframeId)
+            throws SQLException {
+        Key key = new Key(fleetId > 0 ? fleetId : -1, startDate, endDate, airframeId);
+        long version = FleetStatisticsCacheRefresh.getVersion(connection, fleetId);
+
+        Cached cached;
+        synchronized (CACHE) {
+            cached = CACHE.get(key);
+        }
+        if (cached != null && cached.version() == version && cached.expiresAt() - System.nanoTime() > 0) {
+            return cached.statistics();
+        }
+
+        SummaryStatistics statistics = compute(connection, fleetId, startDate, endDate, airframeId);
+        synchronized (CACHE) {
+            CACHE.put(key, new Cached(statistics, version, System.nanoTime() + CACHE_TTL_NANOS));
+        }
+        return statistics;
+    }
+
+    /**
+     * Computes the statistics without the cache, see {@link #get}.
+     */
+    public static SummaryStatistics compute(
+            Connection connection, int fleetId, LocalDate startDate, LocalDate endDate, int airframeId)
+            throws SQLException {
+        // Months are numbered continuously across years, so the date range is a single comparison.
+        String months = "year * 12 + month BETWEEN " + (startDate.getYear() * 12L + startDate.getMonthValue())
+                + " AND " + (endDate.getYear() * 12L + endDate.getMonthValue());
+        String range = airframeId >= 0 ? months + " AND airframe_id = " + airframeId : months;
+        String currentYear = "year = " + TimeUtils.getCurrentYearUTC();
+        String currentMonth = currentYear + " AND month = " + TimeUtils.getCurrentMonthUTC();
+        String fleet = fleetId > 0 ? "WHERE fleet_id = " + fleetId : "";
+        String pastMonthTables = fleetId > 0 ? "v_fleet_30_day_" : "m_fleet_30_day_";
+
+        String query = """
+                SELECT 'flight_time',
+                    SUM(CASE WHEN %2$s THEN flight_time_seconds ELSE 0 END),
+                    SUM(CASE WHEN %4$s THEN flight_time_seconds ELSE 0 END),
+                    0,
+                    0
+                FROM m_fleet_monthly_flight_time %1$s
+                UNION ALL
+                SELECT 'flights',
+                    SUM(CASE WHEN %2$s THEN count ELSE 0 END),
+                    SUM(CASE WHEN %4$s THEN count ELSE 0 END),
+                    0,
+                    0
+                FROM m_fleet_monthly_flight_counts %1$s
+                UNION ALL
+                SELECT 'events',
+                    SUM(CASE WHEN %2$s THEN event_count ELSE 0 END),
+                    SUM(CASE WHEN %4$s THEN event_count ELSE 0 END),
+                    SUM(CASE WHEN %5$s THEN event_count ELSE 0 END),
+                    0
+                FROM m_fleet_airframe_monthly_event_counts %1$s
+                UNION ALL
+                SELECT '30_day',
+                    (SELECT SUM(flight_time_seconds) FROM %6$sflight_time %1$s),
+                    (SELECT SUM(count) FROM %6$sflight_counts %1$s),
+                    0,
+                    0
+                UNION ALL
+                SELECT 'uploads',
+                    SUM(CASE WHEN %3$s THEN upload_count ELSE 0 END),
+                    SUM(CASE WHEN %3$s THEN ok_count ELSE 0 END),
+                    SUM(CASE WHEN %3$s THEN warning_count ELSE 0 END),
+                    SUM(CASE WHEN %3$s THEN error_count ELSE 0 END)
+                FROM m_fleet_monthly_upload_counts %1$s
+                """.formatted(fleet, range, months, currentYear, currentMonth, pastMonthTables);
+
+        Map<String, long[]> rows = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(query);
+                ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                long[] values = new long[4];
+                for (int i = 0; i < values.length; i++) values[i] = resultSet.getLong(i + 2);
+                rows.put(resultSet.getString(1), values);
+            }
+        }
+
+        long[] flightTime = rows.get("flight_time");
+        long[] flights = rows.get("flights");
+        long[] events = rows.get("events");
+        long[] pastMonth = rows.get("30_day");
+        long[] uploads = rows.get("uploads");
+
+        return new SummaryStatistics(
+                flightTime[0],
+                flightTime[1],
+                pastMonth[0],
+                (int) flights[0],
+                (int) flights[1],
+                (int) pastMonth[1],
+                (int) events[0],
+                (int) events[1],
+                (int) events[2],
+                new UploadCounts((int) uploads[0], (int) uploads[1], (int) uploads[2], (int) uploads[3]));
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.gson.Gson;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
@@ -20,6 +21,7 @@ import org.ngafid.core.event.EventDefinition;
 import org.ngafid.core.event.RateOfClosure;
 import org.ngafid.core.flights.*;
 import org.ngafid.core.heatmap.HeatmapPointsProcessor;
+import org.ngafid.core.heatmap.HeatmapTiles;
 import org.ngafid.www.ErrorResponse;
 import org.ngafid.www.Navbar;
 import org.ngafid.www.WebServer;
@@ -610,18 +612,7 @@ public class AnalysisJavalinRoutes {
         Double maxSeverity =
                 ctx.queryParam("max_severity") != null ? Double.valueOf(ctx.queryParam("max_severity")) : null;
 
-        // Parse event definition IDs
-        List<Integer> eventDefinitionIds = new ArrayList<>();
-        if (eventDefinitionIdsParam != null && !eventDefinitionIdsParam.isEmpty()) {
-            String[] ids = eventDefinitionIdsParam.split(",");
-            for (String id : ids) {
-                try {
-                    eventDefinitionIds.add(Integer.valueOf(id.trim()));
-                } catch (NumberFormatException e) {
-                    LOG.warning("Invalid event definition ID: " + id);
-                }
-            }
-        }
+        List<Integer> eventDefinitionIds = parseEventDefinitionIds(eventDefinitionIdsParam);
 
         try {
             List<java.util.Map<String, Object>> events = org.ngafid.core.heatmap.HeatmapPointsProcessor.getEvents(
@@ -642,6 +633,81 @@ public class AnalysisJavalinRoutes {
         }
     }
 
+    private static List<Integer> parseEventDefinitionIds(String eventDefinitionIdsParam) {
+        List<Integer> eventDefinitionIds = new ArrayList<>();
+        if (eventDefinitionIdsParam != null && !eventDefinitionIdsParam.isEmpty()) {
+            String[] ids = eventDefinitionIdsParam.split(",");
+            for (String id : ids) {
+                try {
+                    eventDefinitionIds.add(Integer.valueOf(id.trim()));
+                } catch (NumberFormatException e) {
+                    LOG.warning("Invalid event definition ID: " + id);
+                }
+            }
+        }
+        return eventDefinitionIds;
+    }
+
+    /**
+     * Heatmap tiles endpoint: the events in an area aggregated into the grid cells of a zoom level (see
+     * {@link HeatmapTiles}), for drawing heatmaps of large areas without fetching every event and heatmap point. Takes
+     * the same filters as /protected/proximity_events_in_box, except that dates are matched by month and
+     * `min_severity` keeps the cells with an event at least that severe, plus `zoom`.
+     * <p>
+     * With `format=binary` the response is big-endian: the zoom level and number of cells as 32-bit integers, then for
+     * each cell its x, y, event count and point count as 32-bit integers and its maximum severity as a 32-bit float.
+     * Otherwise it is JSON: {"zoom", "cellDegrees", "cells": [[x, y, events, points, maxSeverity], ...]}.
+     */
+    public static void getHeatmapTiles(Context ctx) {
+        User user = ctx.sessionAttribute("user");
+        if (user == null) {
+            ctx.status(401).result("User not logged in");
+            return;
+        }
+
+        List<HeatmapTiles.Cell> cells;
+        int zoom;
+        try (Connection connection = Database.getConnection()) {
+            zoom = Integer.parseInt(Objects.requireNonNull(ctx.queryParam("zoom")));
+            String minSeverity = ctx.queryParam("min_severity");
+            cells = HeatmapTiles.getCells(
+                    connection,
+                    zoom,
+                    Double.parseDouble(Objects.requireNonNull(ctx.queryParam("area_min_lat"))),
+                    Double.parseDouble(Objects.requireNonNull(ctx.queryParam("area_max_lat"))),
+                    Double.parseDouble(Objects.requireNonNull(ctx.queryParam("area_min_lon"))),
+                    Double.parseDouble(Objects.requireNonNull(ctx.queryParam("area_max_lon"))),
+                    java.sql.Date.valueOf(Objects.requireNonNull(ctx.queryParam("start_date"))),
+                    java.sql.Date.valueOf(Objects.requireNonNull(ctx.queryParam("end_date"))),
+                    ctx.queryParam("airframe"),
+                    parseEventDefinitionIds(ctx.queryParam("event_definition_ids")),
+                    minSeverity != null ? Double.valueOf(minSeverity) : null);
+        } catch (NullPointerException | IllegalArgumentException e) {
+            ctx.status(400).result("Invalid heatmap tiles request: " + e.getMessage());
+            return;
+        } catch (SQLException e) {
+            LOG.severe(e.toString());
+            ctx.status(500).result(e.toString());
+            return;
+        }
+
+        if ("binary".equals(ctx.queryParam("format"))) {
+            ByteBuffer buffer = ByteBuffer.allocate(8 + cells.size() * 20);
+            buffer.putInt(zoom).putInt(cells.size());
+            for (HeatmapTiles.Cell cell : cells) {
+                buffer.putInt(cell.x()).putInt(cell.y()).putInt(cell.events()).putInt(cell.points());
+                buffer.putFloat((float) cell.maxSeverity());
+            }
+            ctx.contentType("application/octet-stream").result(buffer.array());
+        } else {
+            List<Object[]> rows = new ArrayList<>(cells.size());
+            for (HeatmapTiles.Cell cell : cells) {
+                rows.add(new Object[] {cell.x(), cell.y(), cell.events(), cell.points(), cell.maxSeverity()});
+            }
+            ctx.json(Map.of("zoom", zoom, "cellDegrees", HeatmapTiles.cellDegrees(zoom), "cells", rows));
+        }
+    }
+
     public static void getCesium(Context ctx) {
         final User user = Objects.requireNonNull(ctx.sessionAttribute("user"));
         final String flightIdStr = Objects.requireNonNull(ctx.queryParam("flight_id"));
@@ -998,6 +1064,7 @@ public class AnalysisJavalinRoutes {
         app.post("/protected/heatmap_points_batch", AnalysisJavalinRoutes::postHeatmapPointsBatch);
         app.get("/protected/heatmap_points", AnalysisJavalinRoutes::getHeatmapPoints);
         app.get("/protected/proximity_events_in_box", AnalysisJavalinRoutes::getProximityEventsInBox);
+        app.get("/protected/heatmap_tiles", AnalysisJavalinRoutes::getHeatmapTiles);
         app.get("/protected/event_columns_values", AnalysisJavalinRoutes::getEventColumnsValues);
         app.get("/protected/test_event_definition", AnalysisJavalinRoutes::testEventDefinition);
 
@@ -5,8 +5,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.ngafid.core.Config;
 import org.ngafid.core.Database;
 import org.ngafid.core.accounts.AccountException;
 import org.ngafid.core.accounts.ApiToken;
@@ -28,6 +38,40 @@ public final class ApiTokenAuth {
     private static final String AUTH_HEADER = "Authorization";
     private static final String BEARER_PREFIX = "Bearer ";
 
+    private static final long CACHE_TTL_NANOS = TimeUnit.SECONDS.toNanos(Config.API_TOKEN_CACHE_TTL_SECONDS);
+
+    private record CachedToken(ApiToken token, User user, long expiresAt) {}
+
+    /**
+     * Resolved tokens by the hash of their plaintext value, least recently used first.
+     */
+    private static final LinkedHashMap<String, CachedToken> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+            return size() > Config.API_TOKEN_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Ids of the tokens used since their last used time was last written.
+     */
+    private static final Set<Integer> USED_TOKEN_IDS = ConcurrentHashMap.newKeySet();
+
+    static {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-token-last-used");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(
+                ApiTokenAuth::flushLastUsed,
+                Config.API_TOKEN_LAST_USED_FLUSH_SECONDS,
+                Config.API_TOKEN_LAST_USED_FLUSH_SECONDS,
+                TimeUnit.SECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(ApiTokenAuth::flushLastUsed, "api-token-last-used-shutdown"));
+    }
+
     private ApiTokenAuth() {}
 
     /**
@@ -41,9 +85,14 @@ public final class ApiTokenAuth {
      * Database errors during lookup respond 500. In either failure path the remaining
      * handlers are skipped so the route body never runs.
      *
-     * The token's {@code last_used_at} timestamp is updated as a side effect; failures
-     * here are swallowed so a transient write error does not block an otherwise valid
-     * request.
+     * Resolved tokens are cached for {@link Config#API_TOKEN_CACHE_TTL_SECONDS} seconds, keyed by the token's hash,
+     * so a client making many requests does not look up its token, user, and fleet access for every one of them.
+     * Revoking a token or changing a user's fleet access or selected fleet must call {@link #invalidateToken} or
+     * {@link #invalidateUser}; other changes are picked up once the entry expires.
+     *
+     * The token's {@code last_used_at} timestamp is updated as a side effect, in the background every
+     * {@link Config#API_TOKEN_LAST_USED_FLUSH_SECONDS} seconds with one update for all the tokens used since; failures
+     * here are logged and swallowed so a transient write error does not block an otherwise valid request.
      *
      * @param ctx the Javalin request context
      */
@@ -60,8 +109,15 @@ public final class ApiTokenAuth {
             return;
         }
 
+        String hash = ApiToken.hashPlaintextToken(plaintext);
+        CachedToken cached = getCached(hash);
+        if (cached != null && cached.token().isActive()) {
+            accept(ctx, cached.token(), cached.user());
+            return;
+        }
+
         try (Connection connection = Database.getConnection()) {
-            ApiToken token = ApiToken.findByPlaintextToken(connection, plaintext);
+            ApiToken token = ApiToken.findByHash(connection, hash);
 
             // Use the same message for "not found" and "expired/revoked" — don't leak which.
             if (token == null || !token.isActive()) {
@@ -75,13 +131,10 @@ public final class ApiTokenAuth {
                 return;
             }
 
-            try {
-                token.touchLastUsed(connection);
-            } catch (SQLException ignored) {
+            synchronized (CACHE) {
+                CACHE.put(hash, new CachedToken(token, user, System.nanoTime() + CACHE_TTL_NANOS));
             }
-
-            ctx.attribute("user", user);
-            ctx.attribute("apiToken", token);
+            accept(ctx, token, user);
 
         } catch (SQLException e) {
             LOG.log(Level.SEVERE, "DB error during token auth", e);
@@ -93,6 +146,63 @@ public final class ApiTokenAuth {
         }
     }
 
+    /**
+     * Removes a token from the authentication cache, e.g. after it is revoked.
+     *
+     * @param tokenId the id of the token
+     */
+    public static void invalidateToken(int tokenId) {
+        synchronized (CACHE) {
+            CACHE.values().removeIf(cached -> cached.token().getId() == tokenId);
+        }
+    }
+
+    /**
+     * Removes all of a user's tokens from the authentication cache, e.g. after their fleet access or selected fleet
+     * changes.
+     *
+     * @param userId the id of the user
+     */
+    public static void invalidateUser(int userId) {
+        synchronized (CACHE) {
+            CACHE.values().removeIf(cached -> cached.token().getUserId() == userId);
+        }
+    }
+
+    private static CachedToken getCached(String hash) {
+        synchronized (CACHE) {
+            CachedToken cached = CACHE.get(hash);
+            if (cached != null && System.nanoTime() - cached.expiresAt() > 0) {
+                CACHE.remove(hash);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private static void accept(Context ctx, ApiToken token, User user) {
+        USED_TOKEN_IDS.add(token.getId());
+
+        ctx.attribute("user", user);
+        ctx.attribute("apiToken", token);
+    }
+
+    /**
+     * Writes the last used time of every token used since the previous call.
+     */
+    private static void flushLastUsed() {
+        if (USED_TOKEN_IDS.isEmpty()) return;
+
+        List<Integer> ids = new ArrayList<>(USED_TOKEN_IDS);
+        USED_TOKEN_IDS.removeAll(ids);
+
+        try (Connection connection = Database.getConnection()) {
+            ApiToken.touchLastUsed(connection, ids);
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Failed to update last used time of " + ids.size() + " API tokens", e);
+        }
+    }
+
     /**
      * Loads the user with their currently-selected fleet, verifying the fleet exists and
      * the user still has a {@code fleet_access} row for it.
@@ -157,6 +157,7 @@ public final class ApiTokenManagementRoutes {
                 return;
             }
             token.revoke(connection);
+            ApiTokenAuth.invalidateToken(token.getId());
             ctx.status(204);
         } catch (SQLException e) {
             ctx.status(500).json(new ErrorResponse(e));
@@ -4,17 +4,21 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.ngafid.core.Database;
 import org.ngafid.core.accounts.User;
 import org.ngafid.core.flights.DoubleTimeSeries;
+import org.ngafid.core.util.Downsampling;
 import org.ngafid.www.ErrorResponse;
 
 public class DoubleSeriesJavalinRoutes {
@@ -44,39 +48,81 @@ public class DoubleSeriesJavalinRoutes {
         }
     }
 
+    /**
+     * A series, or a range of one, as the indices of its samples (x) and their values (y). Long ranges can be
+     * downsampled to a number of points for charts, with the samples in a zoomed in range fetched when it is drawn.
+     */
     public static class DoubleSeries {
         @JsonProperty
-        private final String[] x;
+        private final int[] x;
 
         @JsonProperty
         private final double[] y;
 
+        @JsonProperty
+        private final int size;
+
         public DoubleSeries(Connection connection, int flightId, String name) throws SQLException, IOException {
+            this(connection, flightId, name, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @param connection the database connection
+         * @param flightId   the flight id
+         * @param name       the name of the series
+         * @param from       the index of the first sample of the range
+         * @param to         the index after the last sample of the range; clamped to the size of the series
+         * @param points     the maximum number of samples to return, the range is downsampled with
+         *                   {@link Downsampling#largestTriangleThreeBuckets} if it has more
+         */
+        public DoubleSeries(Connection connection, int flightId, String name, int from, int to, int points)
+                throws SQLException, IOException {
             DoubleTimeSeries doubleTimeSeries = DoubleTimeSeries.getDoubleTimeSeries(connection, flightId, name);
             LOG.info("POST double series getting double time series for flight id: " + flightId + " and name: '" + name
                     + "'");
 
-            int size = 0;
-            if (doubleTimeSeries != null) {
-                size = doubleTimeSeries.size();
-            }
-
-            x = new String[size];
-            y = new double[size];
-
-            for (int i = 0; i < size; i++) {
-                x[i] = String.valueOf(i);
-                y[i] = doubleTimeSeries.get(i);
+            size = doubleTimeSeries == null ? 0 : doubleTimeSeries.size();
+            from = Math.min(Math.max(from, 0), size);
+            to = Math.min(Math.max(to, from), size);
+
+            if (doubleTimeSeries == null) {
+                x = new int[0];
+                y = new double[0];
+            } else if (to - from <= points) {
+                x = IntStream.range(from, to).toArray();
+                y = Arrays.copyOfRange(doubleTimeSeries.innerArray(), from, to);
+            } else {
+                double[] data = doubleTimeSeries.innerArray();
+                x = Downsampling.largestTriangleThreeBuckets(data, from, to, points);
+                y = new double[x.length];
+                for (int i = 0; i < x.length; i++) y[i] = data[x[i]];
             }
         }
 
-        public String[] getX() {
+        public int[] getX() {
             return x;
         }
 
         public double[] getY() {
             return y;
         }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the series as big-endian binary: the size of the whole series and the number of samples (ints), the
+         * indices of the samples (ints), then their values (doubles)
+         */
+        public byte[] toBinary() {
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + x.length * (Integer.BYTES + Double.BYTES));
+            buffer.putInt(size).putInt(x.length);
+            buffer.asIntBuffer().put(x);
+            buffer.position(buffer.position() + x.length * Integer.BYTES);
+            buffer.asDoubleBuffer().put(y);
+            return buffer.array();
+        }
     }
 
     public static class DoubleSeriesNames {
@@ -116,6 +162,19 @@ public class DoubleSeriesJavalinRoutes {
         final int flightId = Integer.parseInt(Objects.requireNonNull(ctx.pathParam("fid")));
         final String name = Objects.requireNonNull(ctx.pathParam("series"));
 
+        final int from;
+        final int to;
+        final int points;
+        try {
+            from = parseIntQueryParam(ctx, "from", 0);
+            to = parseIntQueryParam(ctx, "to", Integer.MAX_VALUE);
+            points = parseIntQueryParam(ctx, "points", Integer.MAX_VALUE);
+            if (points < 2) throw new IllegalArgumentException("points must be at least 2");
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).result("Invalid double series request: " + e.getMessage());
+            return;
+        }
+
         try (Connection connection = Database.getConnection()) {
             // check to see if the user has access to this data
             if (!user.hasFlightAccess(connection, flightId)) {
@@ -126,14 +185,23 @@ public class DoubleSeriesJavalinRoutes {
             }
 
             LOG.info("Fetching series with name: " + name);
-            DoubleSeries doubleSeries = new DoubleSeries(connection, flightId, name);
-            ctx.json(doubleSeries);
+            DoubleSeries doubleSeries = new DoubleSeries(connection, flightId, name, from, to, points);
+            if ("binary".equals(ctx.queryParam("format"))) {
+                ctx.contentType("application/octet-stream").result(doubleSeries.toBinary());
+            } else {
+                ctx.json(doubleSeries);
+            }
         } catch (SQLException | IOException e) {
             e.printStackTrace();
             ctx.json(new ErrorResponse(e)).status(500);
         }
     }
 
+    private static int parseIntQueryParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
     public static void postDoubleSeriesNames(Context ctx) {
         final User user = Objects.requireNonNull(ctx.sessionAttribute("user"));
         final int flightId = Integer.parseInt(Objects.requireNonNull(ctx.pathParam("fid")));
@@ -8,6 +8,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.logging.Logger;
@@ -21,7 +22,7 @@ import org.ngafid.core.flights.Tails;
 import org.ngafid.www.ErrorResponse;
 import org.ngafid.www.EventStatistics;
 import org.ngafid.www.Navbar;
-import org.ngafid.www.flights.FlightStatistics;
+import org.ngafid.www.SummaryStatistics;
 import org.ngafid.www.uploads.UploadStatistics;
 
 public class StatisticsJavalinRoutes {
@@ -35,6 +36,7 @@ public class StatisticsJavalinRoutes {
         private final User user;
         private final int fleetId;
         private final boolean aggregate;
+        private SummaryStatistics statistics;
 
         public StatFetcher(Connection connection, Context context, boolean aggregate) {
             this(connection, context, SessionUtility.INSTANCE.getUser(context), aggregate);
@@ -78,51 +80,68 @@ public class StatisticsJavalinRoutes {
             return this.fleetId <= 0;
         }
 
-        public Double flightTime() throws SQLException {
+        /**
+         * The statistics of the summary page for the date range and airframe of the request, read once per fetcher,
+         * and shared between requests by {@link SummaryStatistics#get}.
+         */
+        public SummaryStatistics statistics() throws SQLException {
+            if (statistics == null) {
+                final String startDateIn = context.queryParam("startDate");
+                final String endDateIn = context.queryParam("endDate");
+
+                final LocalDate startDate = startDateIn != null ? LocalDate.parse(startDateIn) : LocalDate.MIN;
+                final LocalDate endDate = endDateIn != null ? LocalDate.parse(endDateIn) : LocalDate.MAX;
 
-            final String startDateIn = context.queryParam("startDate");
-            final String endDateIn = context.queryParam("endDate");
+                final String airframeIDParam = context.queryParam("airframeID");
+                final int airframeID = airframeIDParam != null ? Integer.parseInt(airframeIDParam) : -1;
 
-            final LocalDate startDate = startDateIn != null ? LocalDate.parse(startDateIn) : LocalDate.MIN;
-            final LocalDate endDate = endDateIn != null ? LocalDate.parse(endDateIn) : LocalDate.MAX;
+                statistics = SummaryStatistics.get(connection, fleetId, startDate, endDate, airframeID);
+            }
 
-            final String airframeIDParam = context.queryParam("airframeID");
-            final int airframeID = airframeIDParam != null ? Integer.parseInt(airframeIDParam) : -1;
+            return statistics;
+        }
+
+        /**
+         * Every statistic of the summary page, named as in `summary_page.tsx`, so the page can load them with one
+         * request.
+         */
+        public Map<String, Object> summary() throws SQLException {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("flightTime", flightTime());
+            summary.put("yearFlightTime", yearFlightTime());
+            summary.put("monthFlightTime", monthFlightTime());
+            summary.put("numberFlights", numberFlights());
+            summary.put("numberAircraft", numberAircraft());
+            summary.put("yearNumberFlights", yearNumberFlights());
+            summary.put("monthNumberFlights", monthNumberFlights());
+            summary.put("totalEvents", totalEvents());
+            summary.put("yearEvents", yearEvents());
+            summary.put("monthEvents", monthEvents());
+            summary.put("numberFleets", numberFleets());
+            summary.put("numberUsers", numberUsers());
+            summary.put("uploads", uploads());
+            summary.put("uploadsOK", uploadsOK());
+            summary.put("uploadsNotImported", uploadsNotImported());
+            summary.put("uploadsWithError", uploadsWithError());
+            summary.put("flightsWithWarning", flightsWithWarning());
+            summary.put("flightsWithError", flightsWithError());
+            return summary;
+        }
 
-            if (aggregate())
-                return FlightStatistics.getAggregateTotalFlightTimeDated(connection, startDate, endDate, airframeID);
-            else return FlightStatistics.getTotalFlightTimeDated(connection, fleetId, startDate, endDate, airframeID);
+        public Double flightTime() throws SQLException {
+            return statistics().flightTime();
         }
 
         public Double yearFlightTime() throws SQLException {
-            if (aggregate()) {
-                return FlightStatistics.getAggregateCurrentYearFlightTime(connection, 0);
-            } else {
-                return FlightStatistics.getCurrentYearFlightTime(connection, fleetId, 0);
-            }
+            return statistics().yearFlightTime();
         }
 
         public Double monthFlightTime() throws SQLException {
-            if (aggregate()) {
-                return FlightStatistics.getAggregate30DayFlightTime(connection, 0);
-            }
-            return FlightStatistics.get30DayFlightTime(connection, fleetId, 0);
+            return statistics().monthFlightTime();
         }
 
         public Integer numberFlights() throws SQLException {
-
-            final String startDateIn = context.queryParam("startDate");
-            final String endDateIn = context.queryParam("endDate");
-
-            final LocalDate startDate = startDateIn != null ? LocalDate.parse(startDateIn) : LocalDate.MIN;
-            final LocalDate endDate = endDateIn != null ? LocalDate.parse(endDateIn) : LocalDate.MAX;
-
-            final String airframeIDParam = context.queryParam("airframeID");
-            final int airframeID = airframeIDParam != null ? Integer.parseInt(airframeIDParam) : -1;
-
-            if (aggregate())
-                return FlightStatistics.getAggregateTotalFlightCountDated(connection, startDate, endDate, airframeID);
-            else return FlightStatistics.getTotalFlightCountDated(connection, fleetId, startDate, endDate, airframeID);
+            return statistics().flights();
         }
 
         public Integer numberAircraft() throws SQLException {
@@ -130,51 +149,23 @@ public class StatisticsJavalinRoutes {
         }
 
         public Integer yearNumberFlights() throws SQLException {
-            if (aggregate()) {
-                return FlightStatistics.getAggregateCurrentYearFlightCount(connection, 0);
-            } else {
-                return FlightStatistics.getCurrentYearFlightCount(connection, fleetId, 0);
-            }
+            return statistics().yearFlights();
         }
 
         public Integer monthNumberFlights() throws SQLException {
-            if (aggregate()) {
-                return FlightStatistics.getAggregate30DayFlightCount(connection, 0);
-            } else {
-                return FlightStatistics.get30DayFlightCount(connection, fleetId, 0);
-            }
+            return statistics().monthFlights();
         }
 
         public Integer totalEvents() throws SQLException {
-
-            final String startDateIn = context.queryParam("startDate");
-            final String endDateIn = context.queryParam("endDate");
-
-            final LocalDate startDate = startDateIn != null ? LocalDate.parse(startDateIn) : LocalDate.MIN;
-            final LocalDate endDate = endDateIn != null ? LocalDate.parse(endDateIn) : LocalDate.MAX;
-
-            final String airframeIDParam = context.queryParam("airframeID");
-            final int airframeID = airframeIDParam != null ? Integer.parseInt(airframeIDParam) : -1;
-
-            if (aggregate())
-                return EventStatistics.getAggregateTotalEventCountDated(connection, startDate, endDate, airframeID);
-            else return EventStatistics.getTotalEventCountDated(connection, fleetId, startDate, endDate, airframeID);
+            return statistics().events();
         }
 
         public Integer yearEvents() throws SQLException {
-            if (aggregate()) {
-                return EventStatistics.getAggregateCurrentYearEventCount(connection);
-            } else {
-                return EventStatistics.getCurrentYearEventCount(connection, fleetId);
-            }
+            return statistics().yearEvents();
         }
 
         public Integer monthEvents() throws SQLException {
-            if (aggregate()) {
-                return EventStatistics.getAggregateCurrentMonthEventCount(connection);
-            } else {
-                return EventStatistics.getCurrentMonthEventCount(connection, fleetId);
-            }
+            return statistics().monthEvents();
         }
 
         public Integer numberFleets() throws SQLException {
@@ -186,18 +177,7 @@ public class StatisticsJavalinRoutes {
         }
 
         public UploadStatistics.UploadCounts getUploadCounts() throws SQLException {
-
-            final String startDateIn = context.queryParam("startDate");
-            final String endDateIn = context.queryParam("endDate");
-
-            final LocalDate startDate = startDateIn != null ? LocalDate.parse(startDateIn) : LocalDate.MIN;
-            final LocalDate endDate = endDateIn != null ? LocalDate.parse(endDateIn) : LocalDate.MAX;
-
-            if (aggregate()) {
-                return UploadStatistics.getAggregateUploadCountsDated(connection, startDate, endDate);
-            } else {
-                return UploadStatistics.getUploadCountsDated(connection, fleetId, startDate, endDate);
-            }
+            return statistics().uploads();
         }
 
         public Integer uploads() throws SQLException {
@@ -12,6 +12,7 @@ import java.util.stream.IntStream;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.ngafid.core.kafka.DockerServiceHeartbeat;
+import org.ngafid.www.APILogger;
 import org.ngafid.www.Navbar;
 import org.ngafid.www.WebServer;
 
@@ -266,9 +267,19 @@ public class StatusJavalinRoutes {
         ctx.render(templateFile, scopes);
     }
 
+    /**
+     * Serves the metrics of the web server, e.g. the API logging queue, in the Prometheus text exposition format.
+     */
+    private static void getMetrics(Context ctx) {
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+        ctx.result(APILogger.METRICS.render());
+    }
+
     public static void bindRoutes(io.javalin.Javalin app) {
         // These are non-privileged routes.
         app.get("/api/status/{service-name}", StatusJavalinRoutes::getServiceStatus);
         app.get("/status", StatusJavalinRoutes::getStatus);
+
+        app.get("/api/metrics", StatusJavalinRoutes::getMetrics, Role.LOGGED_IN, Role.ADMIN_ONLY);
     }
 }
@@ -14,6 +14,7 @@ import org.ngafid.core.labels.FleetLabel
 import org.ngafid.core.labels.FlightLabelSection
 import org.ngafid.www.routes.Role
 import org.ngafid.www.routes.RouteProvider
+import org.ngafid.www.routes.RouteUtility
 import org.ngafid.www.routes.SessionUtility
 import java.time.Instant
 import java.time.ZoneOffset
@@ -30,6 +31,10 @@ object FleetRoutes : RouteProvider() {
                     }
                 }, Role.LOGGED_IN)
                 get("count/aggregate", { ctx -> Database.getConnection().use { ctx.json(Fleet.getNumberFleets(it)) } })
+
+                // Every statistic of the summary page at once, see StatisticsJavalinRoutes.StatFetcher.summary
+                RouteUtility.getStat("statistics") { ctx, stats -> ctx.json(stats.summary()) }
+
                 get("labels/csv", FleetRoutes::getFleetLabelsCsv, Role.LOGGED_IN)
                 get("labels", FleetRoutes::getLabelDefinitions, Role.LOGGED_IN)
                 post("labels", FleetRoutes::postLabelDefinition, Role.LOGGED_IN)
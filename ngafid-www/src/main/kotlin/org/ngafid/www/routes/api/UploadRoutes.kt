@@ -17,11 +17,7 @@ import org.ngafid.core.uploads.UploadError
 import org.ngafid.www.ErrorResponse
 import org.ngafid.www.routes.*
 import java.io.BufferedInputStream
-import java.io.File
 import java.io.FileInputStream
-import java.nio.file.Files
-import java.nio.file.Paths
-import java.nio.file.StandardCopyOption
 import java.util.logging.Level
 
 object UploadRoutes : RouteProvider() {
@@ -217,8 +213,12 @@ object UploadRoutes : RouteProvider() {
 
         val file = upload.getArchivePath().toFile()
 
+        // Chunks are written straight into the archive file, so it is incomplete until the upload has finished.
+        val uploading = upload.getStatus() == Upload.Status.UPLOADING
+                || upload.getStatus() == Upload.Status.UPLOADING_FAILED
+
         //File was found, attempt to send the file to the client
-        if (file.exists()) {
+        if (file.exists() && !uploading) {
             ctx.contentType("application/zip")
             ctx.header("Content-Disposition", "attachment; filename=" + upload.getFilename())
 
@@ -275,23 +275,31 @@ object UploadRoutes : RouteProvider() {
             if (upload.fleetId != user.fleetId)
                 throw UnauthorizedResponse("User ${user.id} does not belong to the same fleet as upload.")
 
-            val chunkDirectory = upload.chunkDirectory
-            File(chunkDirectory).mkdirs()
-
-            val chunkFilename = "$chunkDirectory/$chunkNumber.part"
-            Files.copy(
-                (ctx.uploadedFile("chunk") ?: throw BadRequestResponse("Missing file attachment")).content(),
-                Paths.get(chunkFilename),
-                StandardCopyOption.REPLACE_EXISTING
-            )
-
-            val chunkSize = File(chunkFilename).length()
+            val chunk = ctx.uploadedFile("chunk") ?: throw BadRequestResponse("Missing file attachment")
 
             upload.getLockedUpload(connection).use { locked ->
-                locked.chunkUploaded(chunkNumber, chunkSize)
+                // The chunk goes straight into the archive file, so the upload is ready as soon as the last one lands.
+                try {
+                    chunk.content().use { content -> locked.writeChunk(chunkNumber, chunk.size(), content) }
+                } catch (e: IllegalArgumentException) {
+                    throw BadRequestResponse(e.message ?: "Invalid chunk")
+                }
+
+                if (upload.completed()) {
+                    if (!locked.verifyAssembled()) {
+                        locked.updateStatus(Upload.Status.UPLOADING_FAILED)
+                        ctx.json(
+                            ErrorResponse(
+                                "File Upload Failure",
+                                "The uploaded file did not match the size or MD5 hash of the original file. "
+                                        + "Delete this upload and upload the file again."
+                            )
+                        )
+                        return
+                    }
 
-                if (upload.completed())
                     locked.complete()
+                }
             }
 
             ctx.json(upload)
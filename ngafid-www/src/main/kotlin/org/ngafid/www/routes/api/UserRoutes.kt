@@ -115,6 +115,7 @@ object UserRoutes : RouteProvider() {
                 user.setSelectedFleetId(connection, fleet.id)
 
                 connection.commit()
+                ApiTokenAuth.invalidateUser(user.id)
                 ctx.status(201)
                 ctx.json(fleet)
             } catch (e: AccountException) {
@@ -158,6 +159,7 @@ object UserRoutes : RouteProvider() {
             //Otherwise, update their selected fleet
             } else {
                 user.setSelectedFleetId(connection, fleetIdSelected)
+                ApiTokenAuth.invalidateUser(user.id)
                 ctx.status(200)
                 ctx.json(user)
             }
@@ -172,6 +174,7 @@ object UserRoutes : RouteProvider() {
 
         try {
             user.leaveSelectedFleet(Database.getConnection())
+            ApiTokenAuth.invalidateUser(user.id)
         } catch (e: SQLException) {
             LOG.severe("Error when user ${user.getId()} attempted to leave fleet ${user.getFleetId()}: ${e.message}")
             ctx.status(500)
@@ -216,6 +219,7 @@ object UserRoutes : RouteProvider() {
         } else {
             Database.getConnection().use { connection ->
                 FleetAccess.update(connection, fleetUserId, fleetId, accessType)
+                ApiTokenAuth.invalidateUser(fleetUserId)
                 user.updateFleet(connection)
                 ctx.json(UpdateUserAccess())
             }
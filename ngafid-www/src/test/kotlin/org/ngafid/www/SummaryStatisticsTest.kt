@@ -0,0 +1,433 @@
+package org.ngafid.www
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.ngafid.www.flights.FlightStatistics
+import org.ngafid.www.uploads.UploadStatistics
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.Timestamp
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.YearMonth
+
+class SummaryStatisticsTest {
+    private val now = LocalDateTime.now().withNano(0)
+    private val today = now.toLocalDate()
+
+    @Test
+    fun summaryMatchesThePerStatisticQueries() {
+        createConnection().use { connection ->
+            createSchema(connection)
+            insertData(connection)
+
+            val ranges =
+                listOf(
+                    LocalDate.MIN to LocalDate.MAX,
+                    today to today,
+                    today.withDayOfYear(1) to today,
+                    today.minusMonths(14) to today,
+                    today.minusMonths(14) to today.minusMonths(3),
+                )
+
+            for (fleetId in listOf(1, 2, -1)) {
+                for ((startDate, endDate) in ranges) {
+                    for (airframeId in listOf(-1, 0, 1, 2)) {
+                        assertEquals(
+                            perStatistic(connection, fleetId, startDate, endDate, airframeId),
+                            SummaryStatistics.compute(connection, fleetId, startDate, endDate, airframeId),
+                            "fleet $fleetId from $startDate to $endDate, airframe $airframeId",
+                        )
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun monthsAreComparedAcrossYears() {
+        createConnection().use { connection ->
+            createSchema(connection)
+            insertData(connection)
+
+            val everything = SummaryStatistics.compute(connection, 1, LocalDate.MIN, LocalDate.MAX, -1)
+            assertEquals(4, everything.flights())
+            assertEquals(4, everything.uploads().count())
+
+            val pastYear =
+                SummaryStatistics.compute(connection, 1, today.minusMonths(14), today.minusMonths(3), -1)
+            assertEquals(2, pastYear.flights())
+            assertEquals(30 * 60 + 120 * 60.0, pastYear.flightTime())
+            assertEquals(2, pastYear.uploads().count())
+            assertEquals(1, pastYear.uploads().warningUploadCount())
+
+            val airframe = SummaryStatistics.compute(connection, -1, today.minusMonths(14), today.minusMonths(3), 2)
+            assertEquals(1, airframe.flights())
+            assertEquals(6, airframe.events())
+        }
+    }
+
+    @Test
+    fun fleetPastMonthTotalsReadTheLiveViews() {
+        createConnection().use { connection ->
+            createSchema(connection)
+            insertData(connection)
+
+            // The last flight of the first fleet was inserted after the 30-day tables were materialized: it counts for
+            // the fleet, which reads the live view, but not for all fleets, which read the materialized table.
+            assertEquals(3, SummaryStatistics.compute(connection, 1, today, today, -1).monthFlights())
+            assertEquals(1, SummaryStatistics.compute(connection, 2, today, today, -1).monthFlights())
+            assertEquals(3, SummaryStatistics.compute(connection, -1, today, today, -1).monthFlights())
+        }
+    }
+
+    /**
+     * The statistics as the summary page read them before [SummaryStatistics], one query per statistic. Upload counts
+     * are summed month by month, as the old query only read the first month of the range.
+     */
+    private fun perStatistic(
+        connection: Connection,
+        fleetId: Int,
+        startDate: LocalDate,
+        endDate: LocalDate,
+        airframeId: Int,
+    ): SummaryStatistics {
+        val aggregate = fleetId <= 0
+        val uploads =
+            uploadMonths
+                .filter { it >= YearMonth.from(startDate) && it <= YearMonth.from(endDate) }
+                .map {
+                    if (aggregate) {
+                        UploadStatistics.getAggregateUploadCountsDated(connection, it.atDay(1), it.atDay(1))
+                    } else {
+                        UploadStatistics.getUploadCountsDated(connection, fleetId, it.atDay(1), it.atDay(1))
+                    }
+                }.fold(UploadStatistics.UploadCounts(0, 0, 0, 0)) { a, b ->
+                    UploadStatistics.UploadCounts(
+                        a.count() + b.count(),
+                        a.okUploadCount() + b.okUploadCount(),
+                        a.warningUploadCount() + b.warningUploadCount(),
+                        a.errorUploadCount() + b.errorUploadCount(),
+                    )
+                }
+
+        return if (aggregate) {
+            SummaryStatistics(
+                FlightStatistics.getAggregateTotalFlightTimeDated(connection, startDate, endDate, airframeId),
+                FlightStatistics.getAggregateCurrentYearFlightTime(connection, 0),
+                FlightStatistics.getAggregate30DayFlightTime(connection, 0),
+                FlightStatistics.getAggregateTotalFlightCountDated(connection, startDate, endDate, airframeId),
+                FlightStatistics.getAggregateCurrentYearFlightCount(connection, 0),
+                FlightStatistics.getAggregate30DayFlightCount(connection, 0),
+                EventStatistics.getAggregateTotalEventCountDated(connection, startDate, endDate, airframeId),
+                EventStatistics.getAggregateCurrentYearEventCount(connection),
+                EventStatistics.getAggregateCurrentMonthEventCount(connection),
+                uploads,
+            )
+        } else {
+            SummaryStatistics(
+                FlightStatistics.getTotalFlightTimeDated(connection, fleetId, startDate, endDate, airframeId),
+                FlightStatistics.getCurrentYearFlightTime(connection, fleetId, 0),
+                FlightStatistics.get30DayFlightTime(connection, fleetId, 0),
+                FlightStatistics.getTotalFlightCountDated(connection, fleetId, startDate, endDate, airframeId),
+                FlightStatistics.getCurrentYearFlightCount(connection, fleetId, 0),
+                FlightStatistics.get30DayFlightCount(connection, fleetId, 0),
+                EventStatistics.getTotalEventCountDated(connection, fleetId, startDate, endDate, airframeId),
+                EventStatistics.getCurrentYearEventCount(connection, fleetId),
+                EventStatistics.getCurrentMonthEventCount(connection, fleetId),
+                uploads,
+            )
+        }
+    }
+
+    private val uploadMonths
+        get() = uploads.map { YearMonth.from(it.start) }.distinct()
+
+    private data class Flight(
+        val id: Int,
+        val fleetId: Int,
+        val airframeId: Int,
+        val start: LocalDateTime,
+        val minutes: Long,
+    )
+
+    private data class Upload(
+        val id: Int,
+        val fleetId: Int,
+        val status: String,
+        val start: LocalDateTime,
+    )
+
+    private val flights =
+        listOf(
+            Flight(1, 1, 1, now.minusDays(2), 60),
+            Flight(2, 1, 2, now.minusDays(10), 90),
+            Flight(3, 1, 1, now.minusMonths(3), 30),
+            Flight(4, 1, 1, now.minusMonths(14), 120),
+            Flight(5, 2, 1, now.minusDays(1), 45),
+            Flight(6, 2, 2, now.minusMonths(13), 75),
+        )
+
+    private val uploads =
+        listOf(
+            Upload(1, 1, "PROCESSED_OK", now.minusDays(2)),
+            Upload(2, 1, "FAILED_FILE_TYPE", now.minusDays(2)),
+            Upload(3, 1, "PROCESSED_WARNING", now.minusMonths(3)),
+            Upload(4, 1, "PROCESSED_OK", now.minusMonths(14)),
+            Upload(5, 2, "DERIVED", now.minusDays(1)),
+            Upload(6, 2, "PROCESSED_OK", now.minusDays(1)),
+            Upload(7, 2, "FAILED_AIRFRAME_TYPE", now.minusMonths(13)),
+        )
+
+    private fun createConnection(): Connection =
+        DriverManager.getConnection(
+            "jdbc:h2:mem:${System.nanoTime()};MODE=MYSQL;NON_KEYWORDS=YEAR,MONTH;DATABASE_TO_UPPER=FALSE",
+        )
+
+    private fun insertData(connection: Connection) {
+        connection.prepareStatement(
+            "INSERT INTO flights (id, fleet_id, airframe_id, start_time, end_time) VALUES (?, ?, ?, ?, ?)",
+        ).use { statement ->
+            for (flight in flights) {
+                statement.setInt(1, flight.id)
+                statement.setInt(2, flight.fleetId)
+                statement.setInt(3, flight.airframeId)
+                statement.setTimestamp(4, Timestamp.valueOf(flight.start))
+                statement.setTimestamp(5, Timestamp.valueOf(flight.start.plusMinutes(flight.minutes)))
+                statement.executeUpdate()
+            }
+        }
+
+        connection.prepareStatement(
+            "INSERT INTO uploads (id, fleet_id, status, start_time) VALUES (?, ?, ?, ?)",
+        ).use { statement ->
+            for (upload in uploads) {
+                statement.setInt(1, upload.id)
+                statement.setInt(2, upload.fleetId)
+                statement.setString(3, upload.status)
+                statement.setTimestamp(4, Timestamp.valueOf(upload.start))
+                statement.executeUpdate()
+            }
+        }
+
+        connection.createStatement().use { statement ->
+            statement.execute("INSERT INTO m_fleet_monthly_flight_counts SELECT * FROM v_fleet_monthly_flight_counts")
+            statement.execute("INSERT INTO m_fleet_monthly_flight_time SELECT * FROM v_fleet_monthly_flight_time")
+            statement.execute("INSERT INTO m_fleet_30_day_flight_counts SELECT * FROM v_fleet_30_day_flight_counts")
+            statement.execute("INSERT INTO m_fleet_30_day_flight_time SELECT * FROM v_fleet_30_day_flight_time")
+            statement.execute(
+                "INSERT INTO m_fleet_monthly_upload_counts SELECT * FROM v_fleet_monthly_upload_counts",
+            )
+
+            // Each flight has as many events as its id, and the first flight two more of another definition.
+            statement.execute(
+                """
+                INSERT INTO m_fleet_airframe_monthly_event_counts
+                SELECT fleet_id, 1, airframe_id, YEAR(start_time), MONTH(start_time), id FROM flights
+                UNION ALL
+                SELECT fleet_id, 2, airframe_id, YEAR(start_time), MONTH(start_time), 2 FROM flights WHERE id = 1
+                """.trimIndent(),
+            )
+
+            // Materialized after the hourly refresh.
+            statement.execute(
+                """
+                INSERT INTO flights (id, fleet_id, airframe_id, start_time, end_time)
+                VALUES (7, 1, 1, CURRENT_TIMESTAMP - INTERVAL '3' DAY, CURRENT_TIMESTAMP - INTERVAL '2' DAY)
+                """.trimIndent(),
+            )
+        }
+    }
+
+    private fun createSchema(connection: Connection) {
+        val statements =
+            listOf(
+                """
+                CREATE TABLE flights (
+                    id INT NOT NULL,
+                    fleet_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    start_time TIMESTAMP NOT NULL,
+                    end_time TIMESTAMP NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE uploads (
+                    id INT NOT NULL,
+                    fleet_id INT NOT NULL,
+                    status VARCHAR(32) NOT NULL,
+                    start_time TIMESTAMP NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_monthly_flight_counts (
+                    fleet_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    year INT NOT NULL,
+                    month INT NOT NULL,
+                    count INT NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_monthly_flight_time (
+                    fleet_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    year INT NOT NULL,
+                    month INT NOT NULL,
+                    flight_time_seconds INT NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_30_day_flight_counts (
+                    fleet_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    count INT NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_30_day_flight_time (
+                    fleet_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    flight_time_seconds INT NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_airframe_monthly_event_counts (
+                    fleet_id INT NOT NULL,
+                    event_definition_id INT NOT NULL,
+                    airframe_id INT NOT NULL,
+                    year INT NOT NULL,
+                    month INT NOT NULL,
+                    event_count INT NOT NULL
+                )
+                """,
+                """
+                CREATE TABLE m_fleet_monthly_upload_counts (
+                    fleet_id INT NOT NULL,
+                    year INT NOT NULL,
+                    month INT NOT NULL,
+                    upload_count INT NOT NULL,
+                    ok_count INT NOT NULL,
+                    warning_count INT NOT NULL,
+                    error_count INT NOT NULL
+                )
+                """,
+                // The views the per-statistic queries read, as in the changelogs, with the columns they use.
+                """
+                CREATE VIEW v_fleet_monthly_flight_counts AS
+                SELECT fleet_id, airframe_id, YEAR(start_time) AS year, MONTH(start_time) AS month,
+                    COUNT(DISTINCT id) AS count
+                FROM flights GROUP BY fleet_id, airframe_id, YEAR(start_time), MONTH(start_time)
+                """,
+                """
+                CREATE VIEW v_fleet_monthly_flight_time AS
+                SELECT fleet_id, airframe_id, YEAR(start_time) AS year, MONTH(start_time) AS month,
+                    SUM(TIMESTAMPDIFF(SECOND, start_time, end_time)) AS flight_time_seconds
+                FROM flights GROUP BY fleet_id, airframe_id, YEAR(start_time), MONTH(start_time)
+                """,
+                """
+                CREATE VIEW v_fleet_30_day_flight_counts AS
+                SELECT fleet_id, airframe_id, COUNT(DISTINCT id) AS count
+                FROM flights WHERE (CURRENT_DATE - INTERVAL '30' DAY) <= end_time GROUP BY fleet_id, airframe_id
+                """,
+                """
+                CREATE VIEW v_fleet_30_day_flight_time AS
+                SELECT fleet_id, airframe_id, SUM(TIMESTAMPDIFF(SECOND, start_time, end_time)) AS flight_time_seconds
+                FROM flights WHERE (CURRENT_DATE - INTERVAL '30' DAY) <= end_time GROUP BY fleet_id, airframe_id
+                """,
+                """
+                CREATE VIEW v_fleet_monthly_upload_counts AS
+                SELECT fleet_id, YEAR(start_time) AS year, MONTH(start_time) AS month,
+                    SUM(status != 'DERIVED') AS upload_count,
+                    SUM(status = 'PROCESSED_OK') AS ok_count,
+                    SUM(status = 'PROCESSED_WARNING') AS warning_count,
+                    SUM(status LIKE 'FAILED%') AS error_count
+                FROM uploads GROUP BY fleet_id, YEAR(start_time), MONTH(start_time)
+                """,
+                """
+                CREATE VIEW v_aggregate_monthly_upload_counts AS
+                SELECT year, month, SUM(upload_count) AS upload_count, SUM(ok_count) AS ok_count,
+                    SUM(warning_count) AS warning_count, SUM(error_count) AS error_count
+                FROM m_fleet_monthly_upload_counts GROUP BY year, month
+                """,
+                """
+                CREATE VIEW v_fleet_flight_counts_dated AS
+                SELECT fleet_id, airframe_id, year, month, SUM(count) AS count
+                FROM m_fleet_monthly_flight_counts GROUP BY fleet_id, airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_aggregate_flight_counts_dated AS
+                SELECT fleet_id, airframe_id, year, month, SUM(count) AS count
+                FROM m_fleet_monthly_flight_counts GROUP BY fleet_id, airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_fleet_yearly_flight_counts AS
+                SELECT fleet_id, airframe_id, year, SUM(count) AS count
+                FROM m_fleet_monthly_flight_counts GROUP BY fleet_id, airframe_id, year
+                """,
+                """
+                CREATE VIEW v_aggregate_yearly_flight_counts AS
+                SELECT airframe_id, year, SUM(count) AS count
+                FROM m_fleet_monthly_flight_counts GROUP BY airframe_id, year
+                """,
+                """
+                CREATE VIEW v_aggregate_30_day_flight_counts AS
+                SELECT airframe_id, SUM(count) AS count FROM m_fleet_30_day_flight_counts GROUP BY airframe_id
+                """,
+                """
+                CREATE VIEW v_fleet_flight_time_dated AS
+                SELECT fleet_id, airframe_id, year, month, SUM(flight_time_seconds) AS flight_time_seconds
+                FROM m_fleet_monthly_flight_time GROUP BY fleet_id, airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_aggregate_flight_time_dated AS
+                SELECT airframe_id, year, month, SUM(flight_time_seconds) AS flight_time_seconds
+                FROM m_fleet_monthly_flight_time GROUP BY airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_fleet_yearly_flight_time AS
+                SELECT fleet_id, airframe_id, year, SUM(flight_time_seconds) AS flight_time_seconds
+                FROM m_fleet_monthly_flight_time GROUP BY fleet_id, airframe_id, year
+                """,
+                """
+                CREATE VIEW v_aggregate_yearly_flight_time AS
+                SELECT airframe_id, year, SUM(flight_time_seconds) AS flight_time_seconds
+                FROM m_fleet_monthly_flight_time GROUP BY airframe_id, year
+                """,
+                """
+                CREATE VIEW v_aggregate_30_day_flight_time AS
+                SELECT airframe_id, SUM(flight_time_seconds) AS flight_time_seconds
+                FROM m_fleet_30_day_flight_time GROUP BY airframe_id
+                """,
+                """
+                CREATE VIEW v_fleet_total_event_counts_dated AS
+                SELECT fleet_id, airframe_id, year, month, SUM(event_count) AS event_count
+                FROM m_fleet_airframe_monthly_event_counts GROUP BY fleet_id, airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_aggregate_total_event_counts_dated AS
+                SELECT airframe_id, year, month, SUM(event_count) AS event_count
+                FROM m_fleet_airframe_monthly_event_counts GROUP BY airframe_id, year, month
+                """,
+                """
+                CREATE VIEW v_fleet_yearly_event_counts AS
+                SELECT fleet_id, event_definition_id, year, SUM(event_count) AS event_count
+                FROM m_fleet_airframe_monthly_event_counts GROUP BY fleet_id, event_definition_id, year
+                """,
+                """
+                CREATE VIEW v_fleet_monthly_event_counts AS
+                SELECT fleet_id, event_definition_id, year, month, SUM(event_count) AS event_count
+                FROM m_fleet_airframe_monthly_event_counts GROUP BY fleet_id, event_definition_id, year, month
+                """,
+                """
+                CREATE VIEW v_aggregate_monthly_event_counts AS
+                SELECT event_definition_id, year, month, SUM(event_count) AS event_count
+                FROM m_fleet_airframe_monthly_event_counts GROUP BY event_definition_id, year, month
+                """,
+            )
+
+        connection.createStatement().use { statement ->
+            for (sql in statements) statement.execute(sql.trimIndent())
+        }
+    }
+}